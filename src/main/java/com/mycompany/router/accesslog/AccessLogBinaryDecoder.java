@@ -0,0 +1,197 @@
+package com.mycompany.router.accesslog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the records written by {@link AccessLogBinaryEncoder} back into
+ * {@link AccessLogEvent}s, one stream at a time: a binary file segment
+ * (rotated, gzipped or not) or a single Kafka message value.
+ *
+ * Also a command-line tool that prints binary access logs as JSON lines
+ * (it needs nothing beyond this package and the JDK):
+ * <pre>
+ * java -cp target/classes com.mycompany.router.accesslog.AccessLogBinaryDecoder \
+ *      access-20261019-120000-1.log.gz access.log
+ * </pre>
+ * Gzipped input is detected; with no arguments (or {@code -}) it reads standard input.
+ *
+ * Not thread-safe.
+ */
+public final class AccessLogBinaryDecoder {
+
+    private final InputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private boolean started;
+    private byte[] body = new byte[256];
+    private int pos;
+    private int limit;
+
+    public AccessLogBinaryDecoder(InputStream in) {
+        this.in = in;
+    }
+
+    /** Every event in {@code bytes}, e.g. one Kafka message value. */
+    public static List<AccessLogEvent> decodeAll(byte[] bytes) throws IOException {
+        AccessLogBinaryDecoder decoder = new AccessLogBinaryDecoder(new ByteArrayInputStream(bytes));
+        List<AccessLogEvent> events = new ArrayList<>();
+        for (AccessLogEvent e; (e = decoder.next()) != null; ) events.add(e);
+        return events;
+    }
+
+    /** The next event, or {@code null} at the end of the stream. */
+    public AccessLogEvent next() throws IOException {
+        long n;
+        while ((n = readStreamVarint()) == 0) header();
+        if (n < 0) return null;
+        if (!started) throw new IOException("Access log record before a stream header");
+        if (n > Integer.MAX_VALUE - 8) throw new IOException("Access log record too large: " + n);
+        int length = (int) n;
+        if (body.length < length) body = new byte[Math.max(length, body.length * 2)];
+        if (in.readNBytes(body, 0, length) != length) throw new EOFException("Truncated access log record");
+        pos = 0;
+        limit = length;
+        AccessLogEvent event = new AccessLogEvent(
+                string(),
+                instant(),
+                string(),
+                string(),
+                string(),
+                string(),
+                string(),
+                (int) varint(),
+                zigzag(varint()),
+                zigzag(varint()),
+                zigzag(varint()),
+                string(),
+                string(),
+                ip(),
+                string(),
+                string());
+        if (pos != length) throw new IOException("Access log record has " + (length - pos) + " trailing bytes");
+        return event;
+    }
+
+    private void header() throws IOException {
+        byte[] magic = AccessLogBinaryEncoder.MAGIC;
+        for (int i = 1; i < magic.length; i++) {
+            if (in.read() != magic[i]) throw new IOException("Not a binary access log stream");
+        }
+        long schema = readStreamVarint();
+        if (schema != AccessLogBinaryEncoder.SCHEMA_ID) {
+            throw new IOException("Unsupported access log schema: " + schema);
+        }
+        dictionary.clear();
+        dictionary.addAll(AccessLogBinaryEncoder.STATIC_DICTIONARY);
+        started = true;
+    }
+
+    /** Varint read straight from the stream; -1 on a clean end of stream. */
+    private long readStreamVarint() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) return -1;
+                throw new EOFException("Truncated access log varint");
+            }
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed access log varint");
+    }
+
+    private long varint() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = body[take(1)];
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed access log varint");
+    }
+
+    private String string() throws IOException {
+        long tag = varint();
+        if (tag == 0) return null;
+        long arg = tag >>> 2;
+        switch ((int) (tag & 3)) {
+            case 1 -> {
+                if (arg >= dictionary.size()) throw new IOException("Unknown access log dictionary entry " + arg);
+                return dictionary.get((int) arg);
+            }
+            case 2, 3 -> {
+                if (arg > Integer.MAX_VALUE) throw new EOFException("Truncated access log record");
+                String s = new String(body, take((int) arg), (int) arg, StandardCharsets.UTF_8);
+                if ((tag & 3) == 3) dictionary.add(s);
+                return s;
+            }
+            default -> throw new IOException("Malformed access log string tag " + tag);
+        }
+    }
+
+    private Instant instant() throws IOException {
+        long seconds = varint();
+        if (seconds == 0) return null;
+        return Instant.ofEpochSecond(zigzag(seconds - 1), varint());
+    }
+
+    private String ip() throws IOException {
+        if (body[take(1)] == 0) return string();
+        int at = take(4);
+        return (body[at] & 0xFF) + "." + (body[at + 1] & 0xFF) + "." + (body[at + 2] & 0xFF)
+                + "." + (body[at + 3] & 0xFF);
+    }
+
+    /** Consumes {@code n} bytes of the current record; returns where they start. */
+    private int take(int n) throws EOFException {
+        if (n > limit - pos) throw new EOFException("Truncated access log record");
+        int at = pos;
+        pos += n;
+        return at;
+    }
+
+    private static long zigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+        AccessLogJsonEncoder json = new AccessLogJsonEncoder();
+        List<String> files = args.length == 0 ? List.of("-") : List.of(args);
+        for (String file : files) {
+            InputStream input = file.equals("-") ? System.in : Files.newInputStream(Path.of(file));
+            try (InputStream in = maybeGunzip(new BufferedInputStream(input, 64 * 1024))) {
+                AccessLogBinaryDecoder decoder = new AccessLogBinaryDecoder(in);
+                for (AccessLogEvent e; (e = decoder.next()) != null; ) {
+                    json.encode(e);
+                    json.writeTo(out);
+                    out.write('\n');
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static InputStream maybeGunzip(InputStream in) throws IOException {
+        PushbackInputStream peek = new PushbackInputStream(in, 2);
+        byte[] head = peek.readNBytes(2);
+        peek.unread(head);
+        boolean gzip = Arrays.equals(head, new byte[] {(byte) 0x1f, (byte) 0x8b});
+        return gzip ? new GZIPInputStream(peek, 64 * 1024) : peek;
+    }
+}
@@ -0,0 +1,254 @@
+package com.mycompany.router.accesslog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary access-log format (schema 1), the alternative to
+ * {@link AccessLogJsonEncoder} for the Kafka and file sinks.
+ * {@link AccessLogBinaryDecoder} reads it back.
+ *
+ * <pre>
+ * stream  := (header record*)*
+ * header  := 0x00 'A' 'L' varint(schemaId)     resets the dictionary
+ * record  := varint(n) body                     n &gt; 0 bytes of body
+ * body    := str(requestId) time str(method)* str(path) str(query) str(service)*
+ *            str(targetUrl)* varint(status) zz(latencyMs) zz(requestBytes)
+ *            zz(responseBytes) str(principalId) str(tier)* ip str(userAgent)* str(error)*
+ * time    := varint 0                           null
+ *          | varint(zz(epochSecond) + 1) varint(nano)
+ * ip      := 0x00 str | 0x01 4 bytes            IPv4 literals are packed
+ * str     := varint 0                           null
+ *          | varint(i &lt;&lt; 2 | 1)              dictionary[i]
+ *          | varint(n &lt;&lt; 2 | 2) n bytes        UTF-8
+ *          | varint(n &lt;&lt; 2 | 3) n bytes        UTF-8, appended to the dictionary
+ * zz(v)   := (v &lt;&lt; 1) ^ (v &gt;&gt; 63)
+ * </pre>
+ *
+ * Only the fields marked {@code *} (low cardinality) go into the dictionary,
+ * which starts every stream as {@link #STATIC_DICTIONARY} and grows to at
+ * most {@link #MAX_DICTIONARY} entries. A file segment is one stream, so
+ * service names, target URLs and user agents are spelled out once per
+ * segment; a Kafka message is a stream of one record, so it only benefits
+ * from the static part. Schema 1 fixes the field order and the static
+ * dictionary; both may only change under a new schema id. Strings are
+ * UTF-8, so an unpaired surrogate comes back as {@code '?'}.
+ *
+ * Not thread-safe: one instance per writer thread.
+ */
+public final class AccessLogBinaryEncoder {
+
+    public static final int SCHEMA_ID = 1;
+    static final byte[] MAGIC = {0x00, 'A', 'L'};
+    static final int MAX_DICTIONARY = 4096;
+    static final List<String> STATIC_DICTIONARY = List.of(
+            "", "GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS",
+            "anonymous", "basic", "premium", "enterprise");
+
+    private static final Map<String, Integer> STATIC_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < STATIC_DICTIONARY.size(); i++) STATIC_INDEX.put(STATIC_DICTIONARY.get(i), i);
+    }
+
+    /** Entries this stream added, numbered from {@code STATIC_DICTIONARY.size()}. */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private byte[] buf = new byte[256];
+    private int len;
+    private boolean headerPending = true;
+    private boolean defining = true;
+
+    /** Starts a new stream: the next {@link #encode} writes a header and the dictionary starts over. */
+    public void reset() {
+        if (!dictionary.isEmpty()) dictionary.clear();
+        headerPending = true;
+    }
+
+    /** Replaces the buffer with {@code event}'s record, preceded by a header if the stream is new. */
+    public int encode(AccessLogEvent e) {
+        len = 0;
+        if (headerPending) {
+            raw(MAGIC);
+            varint(SCHEMA_ID);
+            headerPending = false;
+        }
+        int lengthAt = len;
+        ensure(5);
+        len += 5;   // room for varint(n); body is shifted back if n needs fewer bytes
+        int bodyAt = len;
+        string(e.requestId(), false);
+        instant(e.timestamp());
+        string(e.method(), true);
+        string(e.path(), false);
+        string(e.query(), false);
+        string(e.service(), true);
+        string(e.targetUrl(), true);
+        varint(e.status() & 0xFFFFFFFFL);
+        varint(zigzag(e.latencyMs()));
+        varint(zigzag(e.requestBytes()));
+        varint(zigzag(e.responseBytes()));
+        string(e.principalId(), false);
+        string(e.tier(), true);
+        ip(e.clientIp());
+        string(e.userAgent(), true);
+        string(e.error(), true);
+        int bodyLength = len - bodyAt;
+        int prefix = varintSize(bodyLength);
+        System.arraycopy(buf, bodyAt, buf, lengthAt + prefix, bodyLength);
+        len = lengthAt;
+        varint(bodyLength);
+        len += bodyLength;
+        return len;
+    }
+
+    /** A self-contained message (header + one record), as the Kafka sink sends it. */
+    public byte[] encodeMessage(AccessLogEvent e) {
+        reset();
+        defining = false;   // nothing after this record could refer to a new entry
+        try {
+            encode(e);
+        } finally {
+            defining = true;
+        }
+        return toByteArray();
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int length() {
+        return len;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    private void string(String s, boolean dictionaryField) {
+        if (s == null) {
+            varint(0);
+            return;
+        }
+        boolean define = false;
+        if (dictionaryField) {
+            Integer index = STATIC_INDEX.get(s);
+            if (index == null) index = dictionary.get(s);
+            if (index != null) {
+                varint(((long) index << 2) | 1);
+                return;
+            }
+            int size = STATIC_DICTIONARY.size() + dictionary.size();
+            define = defining && size < MAX_DICTIONARY;
+            if (define) dictionary.put(s, size);
+        }
+        int n = s.length();
+        int i = 0;
+        while (i < n && s.charAt(i) < 0x80) i++;
+        if (i < n) {   // not plain ASCII: let the JDK do UTF-8
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(((long) utf8.length << 2) | (define ? 3 : 2));
+            raw(utf8);
+            return;
+        }
+        varint(((long) n << 2) | (define ? 3 : 2));
+        ensure(n);
+        for (int j = 0; j < n; j++) buf[len++] = (byte) s.charAt(j);
+    }
+
+    private void instant(Instant t) {
+        if (t == null) {
+            varint(0);
+            return;
+        }
+        varint(zigzag(t.getEpochSecond()) + 1);
+        varint(t.getNano());
+    }
+
+    private void ip(String ip) {
+        long v4 = ip == null ? -1 : parseIpv4(ip);
+        ensure(5);
+        if (v4 >= 0) {
+            buf[len++] = 1;
+            buf[len++] = (byte) (v4 >>> 24);
+            buf[len++] = (byte) (v4 >>> 16);
+            buf[len++] = (byte) (v4 >>> 8);
+            buf[len++] = (byte) v4;
+        } else {
+            buf[len++] = 0;
+            string(ip, false);
+        }
+    }
+
+    /** Canonical dotted quad only (no leading zeros), so decoding gives back the same string; else -1. */
+    static long parseIpv4(String s) {
+        int n = s.length();
+        if (n < 7 || n > 15) return -1;
+        long value = 0;
+        int octets = 0;
+        int i = 0;
+        while (i < n) {
+            int start = i;
+            int octet = 0;
+            while (i < n && s.charAt(i) != '.') {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return -1;
+                octet = octet * 10 + (c - '0');
+                i++;
+            }
+            int digits = i - start;
+            if (digits == 0 || digits > 3 || octet > 255 || (digits > 1 && s.charAt(start) == '0')) return -1;
+            value = (value << 8) | octet;
+            octets++;
+            if (i < n) {
+                i++;
+                if (i == n) return -1;
+            }
+        }
+        return octets == 4 ? value : -1;
+    }
+
+    private void varint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[len++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[len++] = (byte) v;
+    }
+
+    private static int varintSize(int v) {
+        int size = 1;
+        while ((v & ~0x7F) != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private void raw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, len, bytes.length);
+        len += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.mycompany.router.accesslog;
+
+import java.util.Locale;
+
+/**
+ * How the Kafka and file sinks serialise events: one JSON object per
+ * line/message ({@link AccessLogJsonEncoder}), or the compact binary records
+ * of {@link AccessLogBinaryEncoder}. A binary payload always starts with
+ * {@code 0x00}, JSON with <code>'{'</code>, so consumers can tell them apart.
+ */
+public enum AccessLogFormat {
+    JSON,
+    BINARY;
+
+    public static AccessLogFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported access log format: " + name);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.mycompany.router.accesslog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Writes {@link AccessLogEvent} as UTF-8 JSON into a reusable byte buffer,
+ * without reflection or intermediate {@code String}s.
+ *
+ * The output is byte-for-byte what the application's {@code ObjectMapper}
+ * ({@code JavaTimeModule}, {@code WRITE_DATES_AS_TIMESTAMPS} off) produces:
+ * fields in record order, {@code null} written out, {@code timestamp} as
+ * {@link DateTimeFormatter#ISO_INSTANT}, and Jackson's escaping rules
+ * (including its {@code \}{@code uXXXX} escapes for both halves of a
+ * surrogate pair rather than a 4-byte sequence).
+ *
+ * <ul>
+ *   <li>Field names are encoded once, with their quotes, colon and comma.</li>
+ *   <li>The {@code yyyy-MM-ddTHH:mm:ss} part of the timestamp is cached for
+ *       the current second; only the fraction is formatted per event.</li>
+ *   <li>Strings are copied char-to-byte until the first character that needs
+ *       escaping or is non-ASCII.</li>
+ * </ul>
+ *
+ * Not thread-safe: one instance per writer thread. The buffer returned by
+ * {@link #buffer()} is only valid until the next {@link #encode}.
+ */
+public final class AccessLogJsonEncoder {
+
+    private static final byte[] REQUEST_ID = name("{", "requestId");
+    private static final byte[] TIMESTAMP = name(",", "timestamp");
+    private static final byte[] METHOD = name(",", "method");
+    private static final byte[] PATH = name(",", "path");
+    private static final byte[] QUERY = name(",", "query");
+    private static final byte[] SERVICE = name(",", "service");
+    private static final byte[] TARGET_URL = name(",", "targetUrl");
+    private static final byte[] STATUS = name(",", "status");
+    private static final byte[] LATENCY_MS = name(",", "latencyMs");
+    private static final byte[] REQUEST_BYTES = name(",", "requestBytes");
+    private static final byte[] RESPONSE_BYTES = name(",", "responseBytes");
+    private static final byte[] PRINCIPAL_ID = name(",", "principalId");
+    private static final byte[] TIER = name(",", "tier");
+    private static final byte[] CLIENT_IP = name(",", "clientIp");
+    private static final byte[] USER_AGENT = name(",", "userAgent");
+    private static final byte[] ERROR = name(",", "error");
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /** 0 = copy as is, otherwise the character after the backslash ({@code 'u'} = {@code \}{@code u00XX}). */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) ESCAPES[c] = 'u';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private byte[] buf = new byte[512];
+    private int len;
+    private long cachedSecond = Long.MIN_VALUE;
+    private byte[] cachedPrefix;
+
+    /** Replaces the buffer contents with {@code event}'s JSON (no trailing newline); returns its length. */
+    public int encode(AccessLogEvent e) {
+        len = 0;
+        raw(REQUEST_ID);
+        string(e.requestId());
+        raw(TIMESTAMP);
+        instant(e.timestamp());
+        raw(METHOD);
+        string(e.method());
+        raw(PATH);
+        string(e.path());
+        raw(QUERY);
+        string(e.query());
+        raw(SERVICE);
+        string(e.service());
+        raw(TARGET_URL);
+        string(e.targetUrl());
+        raw(STATUS);
+        number(e.status());
+        raw(LATENCY_MS);
+        number(e.latencyMs());
+        raw(REQUEST_BYTES);
+        number(e.requestBytes());
+        raw(RESPONSE_BYTES);
+        number(e.responseBytes());
+        raw(PRINCIPAL_ID);
+        string(e.principalId());
+        raw(TIER);
+        string(e.tier());
+        raw(CLIENT_IP);
+        string(e.clientIp());
+        raw(USER_AGENT);
+        string(e.userAgent());
+        raw(ERROR);
+        string(e.error());
+        ensure(1);
+        buf[len++] = '}';
+        return len;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int length() {
+        return len;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void raw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, len, bytes.length);
+        len += bytes.length;
+    }
+
+    private void string(String s) {
+        if (s == null) {
+            raw(NULL);
+            return;
+        }
+        int n = s.length();
+        ensure(n * 6 + 2);   // worst case: every char a \\u00XX escape
+        byte[] b = buf;
+        int p = len;
+        b[p++] = '"';
+        int i = 0;
+        for (; i < n; i++) {   // fast path: plain ASCII
+            char c = s.charAt(i);
+            if (c >= 0x80 || ESCAPES[c] != 0) break;
+            b[p++] = (byte) c;
+        }
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                byte esc = ESCAPES[c];
+                if (esc == 0) {
+                    b[p++] = (byte) c;
+                } else {
+                    b[p++] = '\\';
+                    b[p++] = esc;
+                    if (esc == 'u') {
+                        b[p++] = '0';
+                        b[p++] = '0';
+                        b[p++] = HEX[c >> 4];
+                        b[p++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {   // Jackson escapes each half, paired or not
+                b[p++] = '\\';
+                b[p++] = 'u';
+                b[p++] = HEX[c >> 12];
+                b[p++] = HEX[(c >> 8) & 0xF];
+                b[p++] = HEX[(c >> 4) & 0xF];
+                b[p++] = HEX[c & 0xF];
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[p++] = '"';
+        len = p;
+    }
+
+    private void instant(Instant t) {
+        if (t == null) {
+            raw(NULL);
+            return;
+        }
+        long second = t.getEpochSecond();
+        if (second != cachedSecond) {
+            String whole = DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(second));
+            cachedPrefix = whole.substring(0, whole.length() - 1).getBytes(StandardCharsets.US_ASCII);
+            cachedSecond = second;
+        }
+        ensure(cachedPrefix.length + 13);
+        buf[len++] = '"';
+        raw(cachedPrefix);
+        int nano = t.getNano();
+        if (nano != 0) {   // ISO_INSTANT: 3, 6 or 9 digits, whichever is exact
+            buf[len++] = '.';
+            if (nano % 1_000_000 == 0) digits(nano / 1_000_000, 3);
+            else if (nano % 1_000 == 0) digits(nano / 1_000, 6);
+            else digits(nano, 9);
+        }
+        buf[len++] = 'Z';
+        buf[len++] = '"';
+    }
+
+    private void digits(int v, int width) {
+        for (int i = len + width - 1; i >= len; i--) {
+            buf[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        len += width;
+    }
+
+    private void number(long v) {
+        if (v == Long.MIN_VALUE) {
+            raw(Long.toString(v).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        ensure(20);
+        if (v < 0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int width = 1;
+        for (long x = v; x >= 10; x /= 10) width++;
+        for (int i = len + width - 1; i >= len; i--) {
+            buf[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        len += width;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+
+    private static byte[] name(String before, String field) {
+        return (before + "\"" + field + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+}
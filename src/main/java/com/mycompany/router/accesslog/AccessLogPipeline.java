@@ -1,100 +1,191 @@
 package com.mycompany.router.accesslog;
 
+import com.mycompany.router.config.RouterProperties;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Bounded queue + single dispatcher thread that drains events to a sink.
+ * Bounded rings + dispatcher threads that drain events to a sink.
  *
  * Design choices:
  * <ul>
- *   <li><b>Bounded queue, drop-on-full</b>: hot path stays non-blocking even
+ *   <li><b>Bounded ring, drop-on-full</b>: hot path stays non-blocking even
  *       when the sink (e.g. Kafka) is slow. Drops are counted and exposed as
  *       a metric so loss is visible, not silent.</li>
- *   <li><b>Single dispatcher</b>: keeps publish ordering and avoids contention
- *       inside the sink (most sinks are happiest with one writer thread).</li>
- *   <li><b>Daemon thread</b>: does not block JVM shutdown.</li>
+ *   <li><b>Optional spill</b>: with a {@link RouterProperties.SpillConfig}
+ *       enabled, a full ring sends the shard's events to an on-disk
+ *       {@link AccessLogSpill} instead, which the dispatcher replays once it
+ *       has caught up; events are dropped only when the spill's disk budget
+ *       is used up.</li>
+ *   <li><b>Lock-free, allocation-free offer</b>: request threads claim a
+ *       pre-allocated {@link AccessLogSlot} with one CAS and fill it in place
+ *       ({@link #claim(String)}); see {@link AccessLogRing}. The
+ *       {@link AccessLogEvent} the sinks see is built on the dispatcher.</li>
+ *   <li><b>Sharded by principal</b>: {@code shards} independent rings, each
+ *       with its own dispatcher; a principal always hashes to the same shard,
+ *       so its events stay in order. One shard is the classic single
+ *       dispatcher. {@code capacity} is split evenly across shards.</li>
+ *   <li><b>Sink concurrency is the sink's call</b>: if the sink doesn't
+ *       {@linkplain AccessLogSink#supportsConcurrentWriters() support
+ *       concurrent writers}, shards still drain in parallel but take turns
+ *       inside the sink.</li>
+ *   <li><b>Batched dispatch</b>: each dispatcher drains up to {@code maxBatch}
+ *       queued events at once (waiting at most {@code lingerMs} for a batch
+ *       to fill) and hands them to {@link AccessLogSink#publishBatch}, so a
+ *       sink's per-write cost is paid per batch, not per request.</li>
+ *   <li><b>Sink back-pressure</b>: a batch is never larger than the sink's
+ *       {@linkplain AccessLogSink#capacity() capacity}; while that is 0 the
+ *       dispatcher pauses and events stay in the ring, so a saturated sink
+ *       ends in spill or drops rather than a blocked dispatcher. A sink that
+ *       stops part-way ({@link PartialPublishException}) has only what it
+ *       took counted as published; the dispatcher keeps the rest and
+ *       retries it before anything newer, pausing like a full sink while
+ *       none of it goes, so a principal's events never overtake each other.
+ *       A replayed spill batch is committed only once all of it is out.</li>
+ *   <li><b>Daemon threads</b>: do not block JVM shutdown.</li>
  * </ul>
- *
- * To increase throughput beyond what one dispatcher can sustain, partition by
- * principal id and run N pipelines (out of scope here).
  */
 public class AccessLogPipeline {
 
     private static final Logger log = LoggerFactory.getLogger(AccessLogPipeline.class);
 
-    private final BlockingQueue<AccessLogEvent> queue;
+    public static final int DEFAULT_MAX_BATCH = 512;
+    public static final long DEFAULT_LINGER_MS = 5;
+    private static final long BACKPRESSURE_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     private final AccessLogSink sink;
-    private final Thread dispatcher;
-    private final AtomicLong dropped = new AtomicLong();
-    private final Counter publishedCounter;
-    private final Counter droppedCounter;
+    private final Shard[] shards;
+    private final int maxBatch;
+    private final long lingerNanos;
     private volatile boolean running = true;
 
     public AccessLogPipeline(int capacity, AccessLogSink sink, MeterRegistry registry) {
-        this.queue = new ArrayBlockingQueue<>(capacity);
+        this(capacity, sink, registry, DEFAULT_MAX_BATCH, DEFAULT_LINGER_MS);
+    }
+
+    public AccessLogPipeline(int capacity, AccessLogSink sink, MeterRegistry registry,
+                             int maxBatch, long lingerMs) {
+        this(capacity, sink, registry, maxBatch, lingerMs, 1);
+    }
+
+    public AccessLogPipeline(int capacity, AccessLogSink sink, MeterRegistry registry,
+                             int maxBatch, long lingerMs, int shards) {
+        this(capacity, sink, registry, maxBatch, lingerMs, shards, null);
+    }
+
+    /** {@code spill} may be {@code null} (or disabled): a full ring then drops. */
+    public AccessLogPipeline(int capacity, AccessLogSink sink, MeterRegistry registry,
+                             int maxBatch, long lingerMs, int shards, RouterProperties.SpillConfig spill) {
+        int n = Math.max(1, shards);
         this.sink = sink;
-        this.publishedCounter = Counter.builder("gateway.access_log.published")
-                .tag("sink", sink.name())
-                .register(registry);
-        this.droppedCounter = Counter.builder("gateway.access_log.dropped")
-                .tag("sink", sink.name())
-                .register(registry);
-        this.dispatcher = new Thread(this::dispatch, "access-log-dispatcher");
-        this.dispatcher.setDaemon(true);
-        this.dispatcher.start();
-        log.info("Access log pipeline started: sink={} capacity={}", sink.name(), capacity);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        Object sinkLock = n > 1 && !sink.supportsConcurrentWriters() ? new Object() : null;
+        this.shards = new Shard[n];
+        boolean spilling = spill != null && spill.isEnabled();
+        for (int i = 0; i < n; i++) {
+            this.shards[i] = new Shard(i, (capacity + n - 1) / n, sinkLock, registry, spilling ? spill : null, n);
+        }
+        if (spilling) warnAboutOrphanedSpills(Path.of(spill.getDir()), n);
+        for (Shard shard : this.shards) {
+            shard.dispatcher.start();
+        }
+        log.info("Access log pipeline started: sink={} shards={} capacity={}/shard maxBatch={} linger={}ms spill={}{}",
+                sink.name(), n, this.shards[0].ring.capacity(), this.maxBatch, lingerMs,
+                spilling ? spill.getDir() : "off",
+                sinkLock != null ? " (sink is single-writer; shards take turns)" : "");
     }
 
+    /**
+     * Claims a slot on {@code principalId}'s shard to fill in place and
+     * {@link AccessLogSlot#publish()}, or returns {@code null} — already
+     * counted as dropped — if that shard's ring is full and it has no spill.
+     */
+    public AccessLogSlot claim(String principalId) {
+        return shardFor(principalId).claim();
+    }
+
+    /** {@link #claim(String)} for callers without a principal; uses the first shard. */
+    public AccessLogSlot claim() {
+        return shards[0].claim();
+    }
+
+    /** Copying convenience over {@link #claim(String)} for callers that already have an event. */
     public void offer(AccessLogEvent event) {
-        if (!queue.offer(event)) {
-            dropped.incrementAndGet();
-            droppedCounter.increment();
+        AccessLogSlot slot = claim(event.principalId());
+        if (slot != null) {
+            slot.copyFrom(event);
+            slot.publish();
         }
     }
 
     public long droppedCount() {
-        return dropped.get();
+        long total = 0;
+        for (Shard shard : shards) total += shard.dropped.get();
+        return total;
     }
 
     public int queueDepth() {
-        return queue.size();
+        long total = 0;
+        for (Shard shard : shards) total += shard.ring.occupancy();
+        return (int) total;
     }
 
-    private void dispatch() {
-        while (running || !queue.isEmpty()) {
-            try {
-                AccessLogEvent event = queue.poll(500, TimeUnit.MILLISECONDS);
-                if (event == null) continue;
-                try {
-                    sink.publish(event);
-                    publishedCounter.increment();
-                } catch (Exception e) {
-                    log.warn("Access log sink {} failed", sink.name(), e);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+    /** Spilled events not yet replayed to the sink; 0 without a spill. */
+    public long spillBacklog() {
+        long total = 0;
+        for (Shard shard : shards) {
+            if (shard.spill != null) total += shard.spill.backlogEvents();
         }
+        return total;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    int shardOf(String principalId) {
+        if (principalId == null || shards.length == 1) return 0;
+        int h = principalId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private Shard shardFor(String principalId) {
+        return shards[shardOf(principalId)];
     }
 
     @PreDestroy
     public void shutdown() {
-        log.info("Draining access log pipeline ({} pending)", queue.size());
+        log.info("Draining access log pipeline ({} pending)", queueDepth());
         running = false;
-        try {
-            dispatcher.join(10_000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Shard shard : shards) {
+            try {
+                shard.dispatcher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Shard shard : shards) {
+            if (shard.spill != null) shard.spill.close();
         }
         try {
             sink.close();
@@ -102,4 +193,209 @@ public class AccessLogPipeline {
             log.warn("Sink close failed", e);
         }
     }
+
+    /** Spill directories of shards this configuration doesn't have; their events wait for a matching restart. */
+    private static void warnAboutOrphanedSpills(Path dir, int shards) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(dir, "shard-*")) {
+            for (Path d : dirs) {
+                String index = d.getFileName().toString().substring("shard-".length());
+                if (index.matches("\\d+") && Integer.parseInt(index) >= shards) {
+                    try (DirectoryStream<Path> segments = Files.newDirectoryStream(d, "*.wal")) {
+                        if (segments.iterator().hasNext()) {
+                            log.warn("Access log spill {} is not replayed with shards={}; restart with more shards to drain it",
+                                    d, shards);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not check {} for orphaned access log spills", dir, e);
+        }
+    }
+
+    /** One ring, its dispatcher and its meters. */
+    private final class Shard {
+        final AccessLogRing ring;
+        final Thread dispatcher;
+        final AtomicLong dropped = new AtomicLong();
+        final AccessLogSpill spill;
+        private final Object sinkLock;
+        private final Counter publishedCounter;
+        private final Counter droppedCounter;
+        private final Counter backpressure;
+        private final DistributionSummary batchSize;
+        /** What the sink took back from a partial publish, oldest first; dispatcher thread only. */
+        private final List<AccessLogEvent> unsent = new ArrayList<>();
+        private boolean unsentFromSpill;
+
+        Shard(int index, int capacity, Object sinkLock, MeterRegistry registry,
+              RouterProperties.SpillConfig spillConfig, int shards) {
+            this.ring = new AccessLogRing(capacity);
+            this.sinkLock = sinkLock;
+            this.spill = spillConfig == null ? null : new AccessLogSpill(
+                    Path.of(spillConfig.getDir(), "shard-" + index), spillConfig.getMaxBytes() / shards,
+                    spillConfig.getSegmentBytes(), this::drop);
+            Tags tags = Tags.of("sink", sink.name(), "shard", Integer.toString(index));
+            this.batchSize = DistributionSummary.builder("gateway.access_log.batch_size")
+                    .tags(tags)
+                    .register(registry);
+            this.publishedCounter = Counter.builder("gateway.access_log.published")
+                    .tags(tags)
+                    .register(registry);
+            this.droppedCounter = Counter.builder("gateway.access_log.dropped")
+                    .tags(tags)
+                    .register(registry);
+            this.backpressure = Counter.builder("gateway.access_log.backpressure")
+                    .tags(tags)
+                    .description("Dispatcher pauses (1 ms each) because the sink had no capacity")
+                    .register(registry);
+            Gauge.builder("gateway.access_log.ring.occupancy", ring, AccessLogRing::occupancy)
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("gateway.access_log.dispatcher_lag", ring, r -> r.headAgeNanos() / 1_000_000.0)
+                    .tags(tags)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("gateway.access_log.ring.claim_retries", ring, AccessLogRing::claimRetries)
+                    .tags(tags)
+                    .register(registry);
+            if (spill != null) {
+                FunctionCounter.builder("gateway.access_log.spill.written", spill, AccessLogSpill::spilledCount)
+                        .tags(tags)
+                        .register(registry);
+                FunctionCounter.builder("gateway.access_log.spill.replayed", spill, AccessLogSpill::replayedCount)
+                        .tags(tags)
+                        .register(registry);
+                Gauge.builder("gateway.access_log.spill.backlog", spill, AccessLogSpill::backlogEvents)
+                        .tags(tags)
+                        .register(registry);
+                Gauge.builder("gateway.access_log.spill.disk", spill, AccessLogSpill::diskBytes)
+                        .tags(tags)
+                        .baseUnit("bytes")
+                        .register(registry);
+            }
+            this.dispatcher = new Thread(this::dispatch, "access-log-dispatcher-" + index);
+            this.dispatcher.setDaemon(true);
+        }
+
+        AccessLogSlot claim() {
+            if (spill != null && spill.active()) return spill.slot();   // stay behind what is on disk
+            AccessLogSlot slot = ring.tryClaim();
+            if (slot == null) {
+                if (spill != null) return spill.slot();
+                drop();
+            }
+            return slot;
+        }
+
+        void drop() {
+            dropped.incrementAndGet();
+            droppedCounter.increment();
+        }
+
+        private void dispatch() {
+            List<AccessLogEvent> batch = new ArrayList<>(maxBatch);
+            while ((running || !ring.isEmpty() || !unsent.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+                if (spill != null) spill.prepare();   // keep segment creation off the producers' threads
+                int room = Math.min(maxBatch, sink.capacity());
+                if (room <= 0) {
+                    pause();
+                } else if (!unsent.isEmpty()) {
+                    retry(room);
+                } else if (ring.drainTo(batch, room) > 0) {
+                    fill(batch, room);
+                    deliver(batch);
+                } else if (running && spill != null && spill.drainTo(batch, room) > 0) {
+                    deliver(batch);   // caught up with the ring: replay the oldest spilled events
+                    if (unsent.isEmpty()) spill.commit();
+                    else unsentFromSpill = true;   // commit once the rest is out
+                } else {
+                    ring.await(TimeUnit.MILLISECONDS.toNanos(500));
+                }
+            }
+        }
+
+        private void pause() {
+            backpressure.increment();
+            LockSupport.parkNanos(BACKPRESSURE_PAUSE_NANOS);
+        }
+
+        private void deliver(List<AccessLogEvent> batch) {
+            int taken = publish(batch);
+            if (taken < batch.size()) unsent.addAll(batch.subList(taken, batch.size()));
+            batch.clear();
+        }
+
+        /** Retries the oldest unsent events; while none go, pauses like a full sink (or gives up at shutdown). */
+        private void retry(int room) {
+            int taken = publish(unsent.subList(0, Math.min(room, unsent.size())));
+            unsent.subList(0, taken).clear();
+            if (unsent.isEmpty()) {
+                if (unsentFromSpill) spill.commit();
+                unsentFromSpill = false;
+            } else if (taken == 0) {
+                if (running) pause();
+                else giveUp();
+            }
+        }
+
+        /** Hands {@code batch} to the sink; returns how many events it is done with (a failed batch is lost). */
+        private int publish(List<AccessLogEvent> batch) {
+            int taken = batch.size();
+            try {
+                if (sinkLock == null) {
+                    sink.publishBatch(batch);
+                } else {
+                    synchronized (sinkLock) {
+                        sink.publishBatch(batch);
+                    }
+                }
+                publishedCounter.increment(taken);
+            } catch (PartialPublishException e) {
+                taken = Math.max(0, Math.min(e.accepted(), batch.size()));
+                publishedCounter.increment(taken);
+                log.debug("Access log sink {} took back {} events", sink.name(), batch.size() - taken, e);
+            } catch (Exception e) {
+                log.warn("Access log sink {} failed on a batch of {}", sink.name(), batch.size(), e);
+            }
+            batchSize.record(batch.size());
+            return taken;
+        }
+
+        /**
+         * Shutting down and the sink takes nothing: the unsent events and the
+         * ring behind them go to the spill in order, or are dropped without
+         * one. A replayed batch is still on disk, uncommitted, and comes back
+         * first on restart.
+         */
+        private void giveUp() {
+            if (!unsentFromSpill) takeBack(unsent);
+            unsent.clear();
+            unsentFromSpill = false;
+            List<AccessLogEvent> rest = new ArrayList<>(maxBatch);
+            while (ring.drainTo(rest, maxBatch) > 0) {
+                takeBack(rest);
+                rest.clear();
+            }
+        }
+
+        private void takeBack(List<AccessLogEvent> events) {
+            for (AccessLogEvent event : events) {
+                if (spill != null) spill.append(event);
+                else drop();
+            }
+        }
+
+        /** Tops {@code batch} up from the ring until it holds {@code max} or {@code lingerMs} after the first event. */
+        private void fill(List<AccessLogEvent> batch, int max) {
+            long deadline = System.nanoTime() + lingerNanos;
+            while (batch.size() < max && running) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return;
+                if (ring.drainTo(batch, max - batch.size()) == 0) {
+                    ring.await(remaining);
+                }
+            }
+        }
+    }
 }
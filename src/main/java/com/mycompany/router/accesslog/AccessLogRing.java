@@ -0,0 +1,173 @@
+package com.mycompany.router.accesslog;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi-producer, single-consumer ring of pre-allocated {@link AccessLogSlot}s
+ * (the Disruptor layout, minus the framework).
+ *
+ * <ul>
+ *   <li><b>Claim</b>: a producer CASes the claim cursor forward; failing
+ *       only because another producer won counts as a retry (the contention
+ *       metric). If the ring is full the claim fails and nothing is written.</li>
+ *   <li><b>Publish</b>: per-index availability sequence, written with release
+ *       semantics after the slot is filled. Slots can be published out of
+ *       order; the consumer stops at the first gap.</li>
+ *   <li><b>Consume</b>: the single dispatcher copies published slots out, then
+ *       moves the consumer cursor, which is what frees them for reuse.</li>
+ * </ul>
+ *
+ * Capacity is rounded up to a power of two. The two cursors sit on separate
+ * cache lines so producers and the dispatcher don't false-share.
+ */
+final class AccessLogRing {
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle WAITER;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    static {
+        try {
+            WAITER = MethodHandles.lookup().findVarHandle(AccessLogRing.class, "waiter", Thread.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final AccessLogSlot[] slots;
+    private final long[] published;
+    private final int mask;
+    private final Cursor claim = new Cursor();
+    private final Cursor consumed = new Cursor();
+    private final LongAdder claimRetries = new LongAdder();
+    /** Racy cache of {@code consumed}; a stale value only sends a producer to re-read the real one. */
+    private long consumedCache;
+    private volatile Thread waiter;
+
+    AccessLogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AccessLogSlot[size];
+        this.published = new long[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new AccessLogSlot(this);
+            published[i] = -1;
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /** Returns an owned slot, or {@code null} if the ring is full. */
+    AccessLogSlot tryClaim() {
+        while (true) {
+            long seq = claim.get();
+            if (seq - consumedCache >= slots.length) {
+                consumedCache = consumed.get();
+                if (seq - consumedCache >= slots.length) return null;
+            }
+            if (claim.compareAndSet(seq, seq + 1)) {
+                AccessLogSlot slot = slots[(int) (seq & mask)];
+                slot.sequence = seq;
+                slot.enqueuedNanos = System.nanoTime();
+                return slot;
+            }
+            claimRetries.increment();
+        }
+    }
+
+    void publish(AccessLogSlot slot) {
+        PUBLISHED.setRelease(published, (int) (slot.sequence & mask), slot.sequence);
+        Thread w = waiter;
+        // only the producer that takes the waiter pays for the unpark; the rest
+        // of a burst sees null until the dispatcher parks again
+        if (w != null && WAITER.compareAndSet(this, w, null)) LockSupport.unpark(w);
+    }
+
+    /** Consumer only: moves up to {@code max} published events into {@code out}. */
+    int drainTo(List<AccessLogEvent> out, int max) {
+        long seq = consumed.get();
+        int n = 0;
+        while (n < max && isPublished(seq)) {
+            out.add(slots[(int) (seq & mask)].drain());
+            seq++;
+            n++;
+        }
+        if (n > 0) consumed.setRelease(seq);
+        return n;
+    }
+
+    /**
+     * Consumer only: parks until a producer publishes or {@code nanos} pass.
+     * A wake-up that races the park is bounded by the timeout, so nothing on
+     * the publish path needs a full fence.
+     */
+    void await(long nanos) {
+        waiter = Thread.currentThread();
+        if (!isPublished(consumed.get())) {
+            LockSupport.parkNanos(this, Math.min(nanos, IDLE_PARK_NANOS));
+        }
+        waiter = null;
+    }
+
+    boolean isEmpty() {
+        return !isPublished(consumed.get());
+    }
+
+    /** Claimed but not yet consumed (includes slots still being filled). */
+    long occupancy() {
+        return Math.max(0, claim.get() - consumed.get());
+    }
+
+    /** Age of the oldest published event the dispatcher hasn't taken yet; 0 when caught up. */
+    long headAgeNanos() {
+        long seq = consumed.get();
+        if (!isPublished(seq)) return 0;
+        return Math.max(0, System.nanoTime() - slots[(int) (seq & mask)].enqueuedNanos);
+    }
+
+    long claimRetries() {
+        return claimRetries.sum();
+    }
+
+    private boolean isPublished(long seq) {
+        return (long) PUBLISHED.getAcquire(published, (int) (seq & mask)) == seq;
+    }
+
+    /** A volatile sequence padded onto its own cache line. */
+    private static final class Cursor {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Cursor.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6, p7;
+        private volatile long value;
+        @SuppressWarnings("unused")
+        private long q1, q2, q3, q4, q5, q6, q7;
+
+        long get() {
+            return value;
+        }
+
+        void setRelease(long v) {
+            VALUE.setRelease(this, v);
+        }
+
+        boolean compareAndSet(long expected, long next) {
+            return VALUE.compareAndSet(this, expected, next);
+        }
+    }
+}
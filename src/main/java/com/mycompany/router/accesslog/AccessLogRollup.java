@@ -0,0 +1,72 @@
+package com.mycompany.router.accesslog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+
+/**
+ * Counts and latency distribution of the requests for one
+ * (service, route, status, tier) in one window, as emitted by
+ * {@link RollupSink}.
+ *
+ * {@code route} is the route's target URL, which is what tells the routes of
+ * a service apart. The percentiles are for reading at a glance;
+ * {@code histogram} (a base64, compressed HdrHistogram) is what to merge
+ * across gateways and windows, with {@link #latencyHistogram()} or
+ * {@code Histogram.decodeFromCompressedByteBuffer}. Several records for the
+ * same key and window (e.g. for late events) simply add up.
+ */
+public record AccessLogRollup(
+        Instant windowStart,
+        long windowSeconds,
+        String service,
+        String route,
+        int status,
+        String tier,
+        long count,
+        long latencySumMs,
+        long latencyMaxMs,
+        long p50Ms,
+        long p90Ms,
+        long p99Ms,
+        long requestBytes,
+        long responseBytes,
+        String histogram
+) {
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /** Decodes {@link #histogram}: latencies in milliseconds. */
+    public Histogram latencyHistogram() {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(histogram)), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt rollup histogram", e);
+        }
+    }
+
+    public String toJson() {
+        try {
+            return JSON.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public byte[] toJsonBytes() {
+        try {
+            return JSON.writeValueAsBytes(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
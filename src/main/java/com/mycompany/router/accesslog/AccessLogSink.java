@@ -1,5 +1,9 @@
 package com.mycompany.router.accesslog;
 
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
 /**
  * Destination for access-log events.
  *
@@ -7,8 +11,14 @@ package com.mycompany.router.accesslog;
  * {@code router.accessLog.sink} to your sink's {@link #name()} (or wire it
  * directly in a configuration class).
  *
- * Implementations MUST be thread-safe and SHOULD NOT block longer than a few
- * milliseconds — the pipeline dispatcher is a single thread.
+ * Implementations SHOULD NOT block longer than a few milliseconds — each
+ * pipeline shard has a single dispatcher thread. A sink is called from one
+ * thread at a time unless it returns {@code true} from
+ * {@link #supportsConcurrentWriters()}.
+ *
+ * The pipeline hands events over in batches through {@link #publishBatch};
+ * sinks with a per-write cost (a syscall, a flush, a network send) should
+ * override it to pay that cost once per batch.
  */
 public interface AccessLogSink {
 
@@ -16,5 +26,46 @@ public interface AccessLogSink {
 
     void publish(AccessLogEvent event);
 
+    /**
+     * Publishes {@code events} in order. The list is only valid for the
+     * duration of the call. A sink that has to stop part-way throws
+     * {@link PartialPublishException}, and the pipeline retries the rest.
+     */
+    default void publishBatch(List<AccessLogEvent> events) {
+        for (AccessLogEvent event : events) {
+            publish(event);
+        }
+    }
+
+    /**
+     * Whether {@link #publishBatch} may be called from several shard
+     * dispatchers at once. Defaults to {@code false}: the pipeline then
+     * serialises calls across shards.
+     */
+    default boolean supportsConcurrentWriters() {
+        return false;
+    }
+
+    /**
+     * How many more events the sink can take right now without blocking.
+     * The dispatcher hands over at most this many per batch and, while it is
+     * 0, leaves events in the ring — which then spills or drops like any
+     * full ring. Defaults to unbounded.
+     */
+    default int capacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Per-window aggregates from a {@link RollupSink} in front of this sink.
+     * Defaults to one JSON line each on the {@code access-log-rollups}
+     * logger; sinks with a better place for them override it.
+     */
+    default void publishRollups(List<AccessLogRollup> rollups) {
+        for (AccessLogRollup rollup : rollups) {
+            LoggerFactory.getLogger("access-log-rollups").info(rollup.toJson());
+        }
+    }
+
     default void close() {}
 }
@@ -0,0 +1,124 @@
+package com.mycompany.router.accesslog;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * A pre-allocated, reusable ring entry that a request thread fills in place.
+ *
+ * Obtained from {@link AccessLogPipeline#claim()}; the caller owns it until
+ * {@link #publish()}, which MUST be called exactly once (there is no
+ * "abandon": an unpublished slot stalls the dispatcher). Compute anything
+ * that can throw before claiming.
+ *
+ * Fields that are expensive to turn into strings — the client address and
+ * the query — are stored raw and resolved on the dispatcher thread, off the
+ * event loop, when the slot is copied into an {@link AccessLogEvent}.
+ */
+public final class AccessLogSlot {
+
+    private final AccessLogRing ring;
+    private final AccessLogSpill spill;
+    long sequence;
+    long enqueuedNanos;
+
+    private String requestId;
+    private Instant timestamp;
+    private String method;
+    private String path;
+    private URI uri;
+    private String query;
+    private String service;
+    private String targetUrl;
+    private int status;
+    private long latencyMs;
+    private long requestBytes;
+    private long responseBytes;
+    private String principalId;
+    private String tier;
+    private InetSocketAddress clientAddress;
+    private String clientIp;
+    private String userAgent;
+    private String error;
+
+    AccessLogSlot(AccessLogRing ring) {
+        this.ring = ring;
+        this.spill = null;
+    }
+
+    /** A one-off slot that goes to the spill log instead of a ring. */
+    AccessLogSlot(AccessLogSpill spill) {
+        this.ring = null;
+        this.spill = spill;
+    }
+
+    public AccessLogSlot requestId(String requestId) { this.requestId = requestId; return this; }
+    public AccessLogSlot timestamp(Instant timestamp) { this.timestamp = timestamp; return this; }
+    public AccessLogSlot method(String method) { this.method = method; return this; }
+    public AccessLogSlot path(String path) { this.path = path; return this; }
+    /** Query is taken from {@code uri.getQuery()} on the dispatcher. */
+    public AccessLogSlot uri(URI uri) { this.uri = uri; return this; }
+    public AccessLogSlot query(String query) { this.query = query; return this; }
+    public AccessLogSlot service(String service) { this.service = service; return this; }
+    public AccessLogSlot targetUrl(String targetUrl) { this.targetUrl = targetUrl; return this; }
+    public AccessLogSlot status(int status) { this.status = status; return this; }
+    public AccessLogSlot latencyMs(long latencyMs) { this.latencyMs = latencyMs; return this; }
+    public AccessLogSlot requestBytes(long requestBytes) { this.requestBytes = requestBytes; return this; }
+    public AccessLogSlot responseBytes(long responseBytes) { this.responseBytes = responseBytes; return this; }
+    public AccessLogSlot principalId(String principalId) { this.principalId = principalId; return this; }
+    public AccessLogSlot tier(String tier) { this.tier = tier; return this; }
+    /** Rendered as the host address on the dispatcher; {@code null} becomes {@code "unknown"}. */
+    public AccessLogSlot clientAddress(InetSocketAddress clientAddress) { this.clientAddress = clientAddress; return this; }
+    public AccessLogSlot clientIp(String clientIp) { this.clientIp = clientIp; return this; }
+    public AccessLogSlot userAgent(String userAgent) { this.userAgent = userAgent; return this; }
+    public AccessLogSlot error(String error) { this.error = error; return this; }
+
+    /** Hands the slot to the dispatcher. The caller must not touch it afterwards. */
+    public void publish() {
+        if (ring != null) {
+            ring.publish(this);
+        } else {
+            spill.append(this);
+        }
+    }
+
+    void copyFrom(AccessLogEvent e) {
+        requestId = e.requestId();
+        timestamp = e.timestamp();
+        method = e.method();
+        path = e.path();
+        query = e.query();
+        service = e.service();
+        targetUrl = e.targetUrl();
+        status = e.status();
+        latencyMs = e.latencyMs();
+        requestBytes = e.requestBytes();
+        responseBytes = e.responseBytes();
+        principalId = e.principalId();
+        tier = e.tier();
+        clientIp = e.clientIp();
+        userAgent = e.userAgent();
+        error = e.error();
+    }
+
+    /** Dispatcher side: materialises the event and drops every reference so the slot pins nothing. */
+    AccessLogEvent drain() {
+        String q = query != null ? query : uri != null && uri.getRawQuery() != null ? uri.getQuery() : "";
+        String ip = clientIp != null ? clientIp : hostAddress(clientAddress);
+        AccessLogEvent event = new AccessLogEvent(requestId, timestamp, method, path, q, service, targetUrl,
+                status, latencyMs, requestBytes, responseBytes, principalId, tier, ip,
+                userAgent == null ? "" : userAgent, error == null ? "" : error);
+        requestId = method = path = query = service = targetUrl = principalId = tier = clientIp = userAgent = error = null;
+        timestamp = null;
+        uri = null;
+        clientAddress = null;
+        status = 0;
+        latencyMs = requestBytes = responseBytes = 0;
+        return event;
+    }
+
+    private static String hostAddress(InetSocketAddress address) {
+        return address == null || address.getAddress() == null ? "unknown" : address.getAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,477 @@
+package com.mycompany.router.accesslog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One shard's write-ahead log for events its ring had no room for.
+ *
+ * <ul>
+ *   <li><b>Order</b>: once an event spills, every later event of the shard
+ *       spills too ({@link #active()}) until the dispatcher has replayed the
+ *       log, so nothing overtakes what is on disk.</li>
+ *   <li><b>Segments</b>: append-only files of {@code segmentBytes}, memory
+ *       mapped, holding {@link AccessLogBinaryEncoder} records (one stream
+ *       per segment) after an 8-byte header with the replayed offset.
+ *       Writers take the spill's lock; the dispatcher reads up to each
+ *       segment's published length without it.</li>
+ *   <li><b>Replay</b>: the dispatcher drains the log when its ring is empty,
+ *       and records the offset it reached in the segment header after the
+ *       sink has the batch. Finished segments are deleted.</li>
+ *   <li><b>Restart</b>: segments left by a previous run are replayed first,
+ *       from their recorded offset. What had been handed to the sink but not
+ *       yet recorded comes out twice: across a crash, delivery is at least
+ *       once. Each record's first byte is written last, so a process crash
+ *       mid-append leaves a clean end.</li>
+ *   <li><b>Budget</b>: at most {@code maxBytes} of segments; an event that
+ *       needs a segment beyond it is dropped.</li>
+ *   <li><b>Rolling</b>: the dispatcher keeps the next segment created and
+ *       mapped ({@link #prepare()}), so an append that fills a segment, on
+ *       the producer's (event loop) thread, only swaps it in. Only if the
+ *       dispatcher has not got round to it does the append create one itself.</li>
+ *   <li><b>Disk</b>: a deleted segment's blocks stay allocated until its
+ *       mapping is garbage collected; {@link #diskBytes()} counts them until
+ *       then.</li>
+ * </ul>
+ */
+final class AccessLogSpill {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogSpill.class);
+
+    private static final int HEADER = Long.BYTES;
+    private static final Cleaner UNMAPPED = Cleaner.create();
+    private static final Pattern SEGMENT = Pattern.compile("(\\d{20})\\.wal");
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxSegments;
+    private final Runnable onDrop;
+    private final AccessLogBinaryEncoder encoder = new AccessLogBinaryEncoder();
+    /** Oldest first; the writer appends to the last, the dispatcher reads the first. */
+    private final ConcurrentLinkedDeque<Segment> segments = new ConcurrentLinkedDeque<>();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong backlog = new AtomicLong();
+    /** Bytes of deleted segments whose mapping has not been collected yet. */
+    private final AtomicLong released = new AtomicLong();
+    private long nextSeq;
+    private Segment writing;
+    /** Next segment, created ahead by the dispatcher; counts towards the budget. */
+    private volatile Segment spare;
+    private boolean preparing;
+    private volatile boolean active;
+    private boolean closed;
+
+    AccessLogSpill(Path dir, long maxBytes, int segmentBytes, Runnable onDrop) {
+        this.dir = dir;
+        this.segmentBytes = Math.max(64 * 1024, segmentBytes);
+        this.maxSegments = Math.max(1, maxBytes / this.segmentBytes);
+        this.onDrop = onDrop;
+        try {
+            Files.createDirectories(dir);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open access log spill directory " + dir, e);
+        }
+        active = !segments.isEmpty();
+        if (active) {
+            log.info("Replaying {} access log events left in {}", backlog.get(), dir);
+        }
+        prepare();
+    }
+
+    /** While true, events must go to the log rather than the ring. */
+    boolean active() {
+        return active;
+    }
+
+    /** A one-off slot whose {@link AccessLogSlot#publish()} appends here. */
+    AccessLogSlot slot() {
+        active = true;
+        return new AccessLogSlot(this);
+    }
+
+    /** Producer side, from {@link AccessLogSlot#publish()}. */
+    void append(AccessLogSlot slot) {
+        append(slot.drain());
+    }
+
+    /** Dispatcher side, at shutdown: keeps events the sink would not take; they go after everything already logged. */
+    void append(AccessLogEvent event) {
+        synchronized (this) {
+            active = true;
+            if (closed || !write(event)) {
+                onDrop.run();
+                return;
+            }
+            spilled.incrementAndGet();
+            backlog.incrementAndGet();
+        }
+    }
+
+    private boolean write(AccessLogEvent event) {
+        try {
+            if (writing == null && !roll()) return false;
+            int n = encoder.encode(event);
+            if (!writing.fits(n)) {
+                abandonWriting();
+                if (!roll()) return false;
+                n = encoder.encode(event);
+                if (!writing.fits(n)) {   // larger than a segment
+                    abandonWriting();
+                    return false;
+                }
+            }
+            writing.append(encoder.buffer(), n);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to spill access log event to {}", dir, e);
+            abandonWriting();
+            return false;
+        }
+    }
+
+    /** Starts the next segment, a new stream for the encoder; {@code false} if the budget is used up. */
+    private boolean roll() throws IOException {
+        Segment next = spare;
+        if (next != null) {
+            spare = null;
+        } else {
+            if (segments.size() + (preparing ? 1 : 0) >= maxSegments) return false;
+            next = Segment.create(dir.resolve(String.format("%020d.wal", nextSeq++)), segmentBytes, released);
+        }
+        writing = next;
+        segments.addLast(writing);
+        encoder.reset();
+        return true;
+    }
+
+    /**
+     * Dispatcher side: creates and maps the next segment ahead of the
+     * writer, unless one is ready or the budget has no room for it.
+     */
+    void prepare() {
+        if (spare != null) return;
+        long seq;
+        synchronized (this) {
+            if (spare != null || preparing || closed || segments.size() >= maxSegments) return;
+            preparing = true;
+            seq = nextSeq++;
+        }
+        Segment created = null;
+        try {
+            created = Segment.create(dir.resolve(String.format("%020d.wal", seq)), segmentBytes, released);
+        } catch (IOException e) {
+            log.warn("Failed to create access log spill segment in {}", dir, e);
+        }
+        synchronized (this) {
+            preparing = false;
+            Segment last = segments.peekLast();
+            // a writer that could not wait created a later segment itself: this one would replay out of order
+            if (created != null && !closed
+                    && (last == null || last.file.getFileName().compareTo(created.file.getFileName()) < 0)) {
+                spare = created;
+                created = null;
+            }
+        }
+        if (created != null) created.delete();
+    }
+
+    /** The encoder's dictionary may now hold entries the segment never got, so it takes no more records. */
+    private void abandonWriting() {
+        if (writing != null) writing.sealed = true;
+        writing = null;
+    }
+
+    /**
+     * Dispatcher side: decodes up to {@code max} spilled events into
+     * {@code out}. {@link #commit()} once the sink has them.
+     */
+    int drainTo(List<AccessLogEvent> out, int max) {
+        int taken = 0;
+        for (Segment segment : segments) {
+            try {
+                taken += segment.read(out, max - taken);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable rest of access log spill segment {}", segment.file, e);
+                segment.skipRest();
+            }
+            if (taken == max || !segment.sealed || !segment.exhausted()) break;
+        }
+        replayed.addAndGet(taken);
+        backlog.addAndGet(-taken);
+        return taken;
+    }
+
+    /** Dispatcher side: records the replayed offsets, deletes finished segments, and stands down once empty. */
+    void commit() {
+        for (Segment segment; (segment = segments.peekFirst()) != null; ) {
+            segment.checkpoint();
+            if (!segment.sealed || !segment.exhausted()) break;
+            segments.pollFirst();
+            segment.delete();
+        }
+        Segment first = segments.peekFirst();
+        if (first == null || (first.exhausted() && first == segments.peekLast())) {
+            synchronized (this) {   // no append in between: everything written has been replayed
+                first = segments.peekFirst();
+                if (first == null || (first.exhausted() && first == segments.peekLast())) {
+                    backlog.set(0);
+                    active = false;
+                }
+            }
+        }
+    }
+
+    long spilledCount() {
+        return spilled.get();
+    }
+
+    long replayedCount() {
+        return replayed.get();
+    }
+
+    long backlogEvents() {
+        return backlog.get();
+    }
+
+    /** Segments in use or ready, plus deleted ones still mapped. */
+    long diskBytes() {
+        return (long) (segments.size() + (spare != null ? 1 : 0)) * segmentBytes + released.get();
+    }
+
+    /** Flushes what is mapped; later appends are dropped. The rest replays on the next start. */
+    synchronized void close() {
+        closed = true;
+        for (Segment segment : segments) segment.force();
+        if (spare != null) {
+            spare.delete();
+            spare = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> leftovers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.wal")) {
+            for (Path file : files) {
+                Matcher m = SEGMENT.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    leftovers.add(file);
+                    nextSeq = Math.max(nextSeq, Long.parseLong(m.group(1)) + 1);
+                }
+            }
+        }
+        leftovers.sort(Comparator.comparing(Path::getFileName));
+        for (Path file : leftovers) {
+            if (Files.size(file) <= HEADER) {
+                Files.delete(file);
+                continue;
+            }
+            Segment segment = Segment.recover(file, released);
+            long unread = segment.countUnread();
+            if (unread == 0) {
+                segment.delete();
+            } else {
+                segments.addLast(segment);
+                backlog.addAndGet(unread);
+            }
+        }
+    }
+
+    /** A mapped segment file: written by producers under the spill's lock, read by the dispatcher. */
+    private static final class Segment {
+        final Path file;
+        final MappedByteBuffer map;
+        private final AtomicLong released;
+        /** Bytes of complete records, including the header; readers stop here. */
+        volatile int written;
+        volatile boolean sealed;
+        private final ByteBuffer view;
+        private final AccessLogBinaryDecoder decoder;
+        /** Reader: start of the next frame to decode. */
+        private int readPos = HEADER;
+        /** Records before this offset were replayed by a previous run; decoded only for the dictionary. */
+        private int skipBelow;
+
+        private Segment(Path file, MappedByteBuffer map, int written, int replayedTo, AtomicLong released) {
+            this.file = file;
+            this.map = map;
+            this.released = released;
+            this.written = written;
+            this.skipBelow = replayedTo;
+            this.view = map.duplicate();
+            this.decoder = new AccessLogBinaryDecoder(new ViewInput());
+        }
+
+        static Segment create(Path file, int size, AtomicLong released) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                map.putLong(0, HEADER);
+                return new Segment(file, map, HEADER, HEADER, released);
+            }
+        }
+
+        /** Maps a previous run's segment: finds the end of its complete records, resumes after its checkpoint. */
+        static Segment recover(Path file, AtomicLong released) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+                int end = HEADER;
+                int size = map.capacity();
+                while (end < size) {
+                    int next = frameEnd(map, end, size);
+                    if (next < 0) break;
+                    end = next;
+                }
+                long replayedTo = map.getLong(0);
+                Segment segment = new Segment(file, map, end,
+                        (int) Math.min(Math.max(replayedTo, HEADER), end), released);
+                segment.sealed = true;
+                return segment;
+            }
+        }
+
+        /** End of the stream header or record at {@code pos}, or -1 if there is none. */
+        private static int frameEnd(ByteBuffer map, int pos, int size) {
+            if (map.get(pos) == 0) {
+                byte[] magic = AccessLogBinaryEncoder.MAGIC;
+                if (pos + magic.length >= size) return -1;
+                for (int i = 1; i < magic.length; i++) {
+                    if (map.get(pos + i) != magic[i]) return -1;
+                }
+                return skipVarint(map, pos + magic.length, size);
+            }
+            long length = 0;
+            int p = pos;
+            for (int shift = 0; p < size && shift < 35; shift += 7) {
+                int b = map.get(p++);
+                length |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return length <= size - p ? p + (int) length : -1;
+                }
+            }
+            return -1;
+        }
+
+        private static int skipVarint(ByteBuffer map, int p, int size) {
+            while (p < size) {
+                if ((map.get(p++) & 0x80) == 0) return p;
+            }
+            return -1;
+        }
+
+        boolean fits(int n) {
+            return written + n <= map.capacity();
+        }
+
+        /**
+         * Writer: copies the frame with the first byte of its record last (a
+         * zero there reads as the end), then publishes it to the reader.
+         */
+        void append(byte[] frame, int n) {
+            int at = written;
+            int record = frame[0] == 0 ? skipVarint(ByteBuffer.wrap(frame), AccessLogBinaryEncoder.MAGIC.length, n) : 0;
+            map.put(at, frame, 0, record);
+            map.put(at + record + 1, frame, record + 1, n - record - 1);
+            map.put(at + record, frame[record]);
+            written = at + n;
+        }
+
+        int read(List<AccessLogEvent> out, int max) throws IOException {
+            int taken = 0;
+            while (taken < max && readPos < written) {
+                int start = readPos;
+                AccessLogEvent event = decoder.next();
+                if (event == null) break;
+                if (start >= skipBelow) {
+                    out.add(event);
+                    taken++;
+                }
+            }
+            return taken;
+        }
+
+        /** Counts the records a recovered segment still has to replay, leaving the reader where it was. */
+        long countUnread() throws IOException {
+            long count = 0;
+            int pos = HEADER;
+            while (pos < written) {
+                boolean header = map.get(pos) == 0;
+                int next = frameEnd(map, pos, written);
+                if (next < 0) break;
+                if (!header && pos >= skipBelow) count++;
+                pos = next;
+            }
+            return count;
+        }
+
+        boolean exhausted() {
+            return readPos >= written;
+        }
+
+        void skipRest() {
+            readPos = written;
+            skipBelow = written;
+        }
+
+        void checkpoint() {
+            map.putLong(0, readPos);
+        }
+
+        void force() {
+            map.force();
+        }
+
+        /** Unlinks the file; its blocks are freed once the mapping is collected, and counted until then. */
+        void delete() {
+            try {
+                if (!Files.deleteIfExists(file)) return;
+            } catch (IOException e) {
+                log.warn("Failed to delete replayed access log spill segment {}", file, e);
+                return;
+            }
+            long size = map.capacity();
+            AtomicLong counter = released;
+            counter.addAndGet(size);
+            UNMAPPED.register(map, () -> counter.addAndGet(-size));
+        }
+
+        /** The decoder's view of the segment: ends at {@link #written}. */
+        private final class ViewInput extends InputStream {
+            @Override
+            public int read() {
+                if (readPos >= written) return -1;
+                return view.get(readPos++) & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                int available = written - readPos;
+                if (available <= 0) return -1;
+                int n = Math.min(len, available);
+                view.get(readPos, b, off, n);
+                readPos += n;
+                return n;
+            }
+        }
+    }
+}
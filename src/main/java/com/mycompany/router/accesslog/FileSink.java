@@ -1,37 +1,128 @@
 package com.mycompany.router.accesslog;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.router.config.RouterProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Appends JSON lines to a local file. Pair with logrotate or fluent-bit
- * tailers for shipment.
+ * Appends JSON lines, or {@link AccessLogBinaryEncoder} records
+ * ({@code format=binary}), to a local file, rotating and compressing it itself.
+ *
+ * <ul>
+ *   <li><b>Group commit</b>: events are encoded by {@link AccessLogJsonEncoder}
+ *       or {@link AccessLogBinaryEncoder} and copied into a direct {@link ByteBuffer} of {@code bufferBytes}; a full buffer, or one
+ *       that has waited {@code flushIntervalMs}, is one {@link FileChannel}
+ *       write.</li>
+ *   <li><b>Rotation</b>: by size ({@code rotateBytes}) and age
+ *       ({@code rotateIntervalMinutes}). The active file is renamed to
+ *       {@code <name>-<yyyyMMdd-HHmmss>-<n><ext>} (UTC) and a fresh one is
+ *       opened, so tailers following by name never race a copy-truncate.</li>
+ *   <li><b>Compression</b>: closed segments are gzipped on a background
+ *       thread ({@code compression=gzip}); leftovers from a crash are picked
+ *       up on start.</li>
+ *   <li><b>Binary segments</b>: every segment, and every reopening of the
+ *       active file, starts a new binary stream (header, fresh dictionary),
+ *       so each file decodes on its own with {@link AccessLogBinaryDecoder}.</li>
+ *   <li><b>Durability</b> ({@code fsync}): {@code none} leaves it to the OS;
+ *       {@code interval} forces at most every {@code fsyncIntervalMs};
+ *       {@code batch} writes and forces every pipeline batch before
+ *       returning, which trades throughput for losing nothing that was
+ *       published.</li>
+ * </ul>
+ *
+ * Single-writer (the {@link #supportsConcurrentWriters()} default): there is
+ * one file and one buffer, so extra shards would only queue on its lock.
  */
 public class FileSink implements AccessLogSink {
 
     private static final Logger log = LoggerFactory.getLogger(FileSink.class);
 
-    private final ObjectMapper mapper;
+    private static final DateTimeFormatter SEGMENT_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    enum Fsync { NONE, INTERVAL, BATCH }
+
+    private final AccessLogJsonEncoder json = new AccessLogJsonEncoder();
+    private final AccessLogBinaryEncoder binary = new AccessLogBinaryEncoder();
+    private final boolean binaryFormat;
     private final Path path;
-    private BufferedWriter writer;
+    private final String segmentPrefix;
+    private final String segmentSuffix;
+    private final ByteBuffer buffer;
+    private final OutputStream out = new BufferOutput();
+    private final long flushIntervalNanos;
+    private final long rotateBytes;
+    private final long rotateIntervalNanos;
+    private final long fsyncIntervalNanos;
+    private final Fsync fsync;
+    private final boolean gzip;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService compressor;
+
+    private FileChannel channel;
+    private long segmentBytes;
+    private long segmentOpenedNanos;
+    private long lastWriteNanos;
+    private long lastForceNanos;
+    private boolean unforced;
+    private int segmentSeq;
+    private boolean closed;
 
-    public FileSink(ObjectMapper mapper, String path) throws IOException {
-        this.mapper = mapper;
-        this.path = Path.of(path);
-        Files.createDirectories(this.path.getParent());
-        this.writer = Files.newBufferedWriter(
-                this.path,
-                StandardCharsets.UTF_8,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND);
+    public FileSink(String path) throws IOException {
+        this(fileConfig(path));
+    }
+
+    public FileSink(RouterProperties.FileSinkConfig cfg) throws IOException {
+        this.path = Path.of(cfg.getPath()).toAbsolutePath();
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.segmentPrefix = dot > 0 ? fileName.substring(0, dot) : fileName;
+        this.segmentSuffix = dot > 0 ? fileName.substring(dot) : "";
+        this.binaryFormat = AccessLogFormat.of(cfg.getFormat()) == AccessLogFormat.BINARY;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(4096, cfg.getBufferBytes()));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, cfg.getFlushIntervalMs()));
+        this.rotateBytes = cfg.getRotateBytes();
+        this.rotateIntervalNanos = TimeUnit.MINUTES.toNanos(cfg.getRotateIntervalMinutes());
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getFsyncIntervalMs());
+        this.fsync = Fsync.valueOf(cfg.getFsync().toUpperCase(Locale.ROOT));
+        this.gzip = switch (cfg.getCompression().toLowerCase(Locale.ROOT)) {
+            case "gzip" -> true;
+            case "none" -> false;
+            default -> throw new IllegalArgumentException("Unsupported access log compression: " + cfg.getCompression());
+        };
+        Files.createDirectories(path.getParent());
+        openSegment();
+        this.compressor = Executors.newSingleThreadExecutor(daemon("access-log-compress"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemon("access-log-file"));
+        long tickMs = TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos);
+        timer.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        if (gzip) compressLeftovers();
+        log.info("File access log at {}: format={} buffer={}B flush={}ms rotate={}B/{}min fsync={} compression={}",
+                path, binaryFormat ? "binary" : "json", buffer.capacity(), tickMs, rotateBytes, cfg.getRotateIntervalMinutes(),
+                fsync.name().toLowerCase(Locale.ROOT), gzip ? "gzip" : "none");
     }
 
     @Override
@@ -40,22 +131,180 @@ public class FileSink implements AccessLogSink {
     }
 
     @Override
-    public synchronized void publish(AccessLogEvent event) {
+    public void publish(AccessLogEvent event) {
+        publishBatch(List.of(event));
+    }
+
+    @Override
+    public synchronized void publishBatch(List<AccessLogEvent> events) {
+        if (closed) return;
         try {
-            writer.write(mapper.writeValueAsString(event));
-            writer.newLine();
-            writer.flush();
+            for (AccessLogEvent event : events) {
+                if (binaryFormat) {
+                    binary.encode(event);
+                    binary.writeTo(out);
+                } else {
+                    json.encode(event);
+                    json.writeTo(out);
+                    out.write('\n');
+                }
+                if (rotateBytes > 0 && segmentBytes >= rotateBytes) rotate();
+            }
+            if (fsync == Fsync.BATCH) {
+                writeBuffer();
+                force();
+            }
         } catch (IOException e) {
             log.warn("Failed to write access log to {}", path, e);
+            buffer.clear();
         }
     }
 
+    /** Closes the active segment and opens a new one. Package-private for tests. */
+    synchronized void rotate() throws IOException {
+        if (segmentBytes == 0) return;
+        writeBuffer();
+        if (fsync != Fsync.NONE) force();
+        channel.close();
+        Path closedSegment = nextSegmentName();
+        Files.move(path, closedSegment);
+        openSegment();
+        if (gzip) compressor.execute(() -> compress(closedSegment));
+    }
+
     @Override
-    public synchronized void close() {
+    public void close() {
+        timer.shutdownNow();
+        synchronized (this) {
+            closed = true;
+            try {
+                writeBuffer();
+                if (fsync != Fsync.NONE) force();
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close access log file", e);
+            }
+        }
+        compressor.shutdown();
+        try {
+            if (!compressor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Gave up waiting for access log segments to compress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Time-driven half of group commit, fsync and rotation. */
+    private synchronized void tick() {
+        if (closed) return;
+        long now = System.nanoTime();
+        try {
+            if (buffer.position() > 0 && now - lastWriteNanos >= flushIntervalNanos) writeBuffer();
+            if (fsync == Fsync.INTERVAL && unforced && now - lastForceNanos >= fsyncIntervalNanos) force();
+            if (rotateIntervalNanos > 0 && now - segmentOpenedNanos >= rotateIntervalNanos) rotate();
+        } catch (IOException e) {
+            log.warn("Failed to flush access log to {}", path, e);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        lastWriteNanos = System.nanoTime();
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } finally {
+            buffer.clear();
+        }
+        unforced = true;
+    }
+
+    private void force() throws IOException {
+        lastForceNanos = System.nanoTime();
+        if (!unforced) return;
+        channel.force(false);
+        unforced = false;
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = channel.size();
+        segmentOpenedNanos = System.nanoTime();
+        binary.reset();
+    }
+
+    private Path nextSegmentName() {
+        String time = SEGMENT_TIME.format(Instant.now());
+        Path candidate;
+        do {
+            candidate = path.resolveSibling(segmentPrefix + "-" + time + "-" + (++segmentSeq) + segmentSuffix);
+        } while (Files.exists(candidate) || Files.exists(Path.of(candidate + ".gz")));
+        return candidate;
+    }
+
+    private void compress(Path segment) {
+        Path gz = Path.of(segment + ".gz");
+        Path tmp = Path.of(gz + ".tmp");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream zip = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            in.transferTo(zip);
+        } catch (IOException e) {
+            log.warn("Failed to compress access log segment {}", segment, e);
+            return;
+        }
         try {
-            writer.close();
+            Files.move(tmp, gz, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(segment);
         } catch (IOException e) {
-            log.warn("Failed to close access log file", e);
+            log.warn("Failed to finish compressing access log segment {}", segment, e);
+        }
+    }
+
+    /** Rotated segments a previous run closed but didn't get to compress. */
+    private void compressLeftovers() throws IOException {
+        Pattern rotated = Pattern.compile(Pattern.quote(segmentPrefix) + "-\\d{8}-\\d{6}-\\d+" + Pattern.quote(segmentSuffix));
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(path.getParent(),
+                p -> rotated.matcher(p.getFileName().toString()).matches())) {
+            for (Path segment : segments) {
+                compressor.execute(() -> compress(segment));
+            }
+        }
+    }
+
+    private static RouterProperties.FileSinkConfig fileConfig(String path) {
+        RouterProperties.FileSinkConfig cfg = new RouterProperties.FileSinkConfig();
+        cfg.setPath(path);
+        return cfg;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Appends to {@link #buffer}; a full buffer is written out mid-event. */
+    private final class BufferOutput extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) writeBuffer();
+            buffer.put((byte) b);
+            segmentBytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            segmentBytes += len;
+            while (len > 0) {
+                if (!buffer.hasRemaining()) writeBuffer();
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
         }
     }
 }
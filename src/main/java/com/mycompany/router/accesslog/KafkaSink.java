@@ -1,27 +1,105 @@
 package com.mycompany.router.accesslog;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.router.concurrency.AdaptiveConcurrencyLimiter;
+import com.mycompany.router.concurrency.LimitAlgorithm;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Publishes events to a Kafka topic. Keying by {@code principalId} gives
- * per-principal ordering and even-ish partition distribution.
+ * Publishes events to a Kafka topic, one per message: UTF-8 JSON
+ * ({@link AccessLogJsonEncoder}) or, with {@link AccessLogFormat#BINARY}, a
+ * self-contained {@link AccessLogBinaryEncoder} stream of one record that
+ * {@link AccessLogBinaryDecoder#decodeAll} reads back. Keying by {@code principalId} gives per-principal ordering and even-ish
+ * partition distribution.
+ *
+ * {@link #publishBatch} sends event by event: {@code send} only appends to the
+ * producer's per-partition record batches, which it ships on its own
+ * {@code linger.ms}/{@code batch.size} schedule, so a batch from the pipeline
+ * already goes out as a few produce requests.
+ *
+ * Every send is tracked until the broker acks or the producer gives up
+ * (after its own retries, within {@code delivery.timeout.ms}): the outcome
+ * and send → ack latency go to {@code gateway.access_log.kafka.*}. The
+ * number of unacknowledged records is bounded by an
+ * {@link AdaptiveConcurrencyLimiter} fed with those latencies, which grows
+ * the window while acks stay fast and shrinks it as the broker slows down or
+ * fails. {@link #capacity()} reports the room left, so the pipeline hands
+ * over no more than that and otherwise leaves events in its ring (to spill
+ * or drop) — the dispatcher never waits inside {@code send}. A send that
+ * fails outright (e.g. no metadata within {@code maxBlockMs}) ends its batch
+ * with a {@link PartialPublishException}, so the pipeline retries the
+ * unsent rest, and closes the sink for {@code stallBackoffMs}.
+ *
+ * {@link #close()} flushes and resets the template's producer factory, so
+ * give the sink a template of its own.
  */
 public class KafkaSink implements AccessLogSink {
 
     private static final Logger log = LoggerFactory.getLogger(KafkaSink.class);
 
-    private final KafkaTemplate<String, String> kafka;
-    private final ObjectMapper mapper;
+    private final KafkaTemplate<String, byte[]> kafka;
     private final String topic;
+    private final AccessLogFormat format;
+    private final String rollupTopic;
+    private final AdaptiveConcurrencyLimiter inFlight;
+    private final long stallBackoffNanos;
+    private final Counter delivered;
+    private final Counter failed;
+    private final Timer sendLatency;
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private volatile long stalledUntil;
+    private final ThreadLocal<AccessLogJsonEncoder> json = ThreadLocal.withInitial(AccessLogJsonEncoder::new);
+    private final ThreadLocal<AccessLogBinaryEncoder> binary = ThreadLocal.withInitial(AccessLogBinaryEncoder::new);
+
+    public KafkaSink(KafkaTemplate<String, byte[]> kafka, String topic) {
+        this(kafka, topic, AccessLogFormat.JSON);
+    }
+
+    public KafkaSink(KafkaTemplate<String, byte[]> kafka, String topic, AccessLogFormat format) {
+        this(kafka, topic, format, topic + "-rollups");
+    }
+
+    public KafkaSink(KafkaTemplate<String, byte[]> kafka, String topic, AccessLogFormat format, String rollupTopic) {
+        this(kafka, config(topic, format, rollupTopic), new SimpleMeterRegistry());
+    }
 
-    public KafkaSink(KafkaTemplate<String, String> kafka, ObjectMapper mapper, String topic) {
+    public KafkaSink(KafkaTemplate<String, byte[]> kafka, RouterProperties.KafkaSinkConfig cfg, MeterRegistry registry) {
         this.kafka = kafka;
-        this.mapper = mapper;
-        this.topic = topic;
+        this.topic = cfg.getTopic();
+        this.format = AccessLogFormat.of(cfg.getFormat());
+        this.rollupTopic = cfg.getRollupTopic();
+        this.inFlight = new AdaptiveConcurrencyLimiter(LimitAlgorithm.create(cfg.getInFlight()));
+        this.stallBackoffNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getStallBackoffMs());
+        Tags tags = Tags.of("topic", topic);
+        this.delivered = Counter.builder("gateway.access_log.kafka.delivered").tags(tags).register(registry);
+        this.failed = Counter.builder("gateway.access_log.kafka.failed").tags(tags).register(registry);
+        this.sendLatency = Timer.builder("gateway.access_log.kafka.send_latency").tags(tags).register(registry);
+        Gauge.builder("gateway.access_log.kafka.in_flight", inFlight, AdaptiveConcurrencyLimiter::inflight)
+                .tags(tags).register(registry);
+        Gauge.builder("gateway.access_log.kafka.in_flight_limit", inFlight, AdaptiveConcurrencyLimiter::limit)
+                .tags(tags).register(registry);
+    }
+
+    private static RouterProperties.KafkaSinkConfig config(String topic, AccessLogFormat format, String rollupTopic) {
+        RouterProperties.KafkaSinkConfig cfg = new RouterProperties.KafkaSinkConfig();
+        cfg.setTopic(topic);
+        cfg.setFormat(format.name());
+        cfg.setRollupTopic(rollupTopic);
+        return cfg;
     }
 
     @Override
@@ -31,16 +109,98 @@ public class KafkaSink implements AccessLogSink {
 
     @Override
     public void publish(AccessLogEvent event) {
+        if (!send(event)) failed.increment();
+    }
+
+    @Override
+    public void publishBatch(List<AccessLogEvent> events) {
+        for (int i = 0; i < events.size(); i++) {
+            if (!send(events.get(i))) {   // the producer is stuck: don't stall on every event
+                throw new PartialPublishException(i, "Kafka producer refused a send to " + topic + "; "
+                        + (events.size() - i) + " of " + events.size() + " events not sent");
+            }
+        }
+    }
+
+    /** Room left in the in-flight window; 0 while it is full or after a stalled send. */
+    @Override
+    public int capacity() {
+        if (stalledUntil != 0 && System.nanoTime() - stalledUntil < 0) return 0;
+        return Math.max(0, inFlight.limit() - inFlight.inflight());
+    }
+
+    /** False if the send failed synchronously. */
+    private boolean send(AccessLogEvent event) {
+        byte[] value;
+        if (format == AccessLogFormat.BINARY) {
+            value = binary.get().encodeMessage(event);
+        } else {
+            AccessLogJsonEncoder encoder = json.get();
+            encoder.encode(event);
+            value = encoder.toByteArray();
+        }
+        // no permit only if the caller ignored capacity(): still sent and tracked, just not windowed
+        return track(topic, event.principalId(), value, inFlight.tryAcquire());
+    }
+
+    /** JSON on the rollup topic, keyed by service. */
+    @Override
+    public void publishRollups(List<AccessLogRollup> rollups) {
+        for (AccessLogRollup rollup : rollups) {
+            if (!track(rollupTopic, rollup.service(), rollup.toJsonBytes(), null)) failed.increment();
+        }
+    }
+
+    private boolean track(String topic, String key, byte[] value, AdaptiveConcurrencyLimiter.Permit permit) {
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, byte[]>> future;
         try {
-            String json = mapper.writeValueAsString(event);
-            kafka.send(topic, event.principalId(), json);
-        } catch (JsonProcessingException e) {
-            log.warn("Failed to serialise access log event", e);
+            future = kafka.send(topic, key, value);
+        } catch (RuntimeException e) {
+            if (permit != null) permit.onDropped();
+            stall(e);
+            return false;
+        }
+        if (future.isCompletedExceptionally()) {   // rejected before it was queued
+            if (permit != null) permit.onDropped();
+            stall(future.exceptionNow());
+            return false;
+        }
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                if (permit != null) permit.onSuccess();
+                sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                delivered.increment();
+                if (failing.compareAndSet(true, false)) log.info("Kafka access log sink delivering to {} again", topic);
+            } else {
+                if (permit != null) permit.onDropped();
+                failed.increment();
+                if (failing.compareAndSet(false, true)) {
+                    log.warn("Kafka access log sink failed to deliver to {}; counting failures until it recovers",
+                            topic, error);
+                }
+            }
+        });
+        return true;
+    }
+
+    private void stall(Throwable cause) {
+        stalledUntil = System.nanoTime() + stallBackoffNanos;
+        if (failing.compareAndSet(false, true)) {
+            log.warn("Kafka access log sink could not send to {}; pausing {} ms", topic,
+                    TimeUnit.NANOSECONDS.toMillis(stallBackoffNanos), cause);
         }
     }
 
+    /** {@code true}: KafkaTemplate and the producer behind it are thread-safe. */
+    @Override
+    public boolean supportsConcurrentWriters() {
+        return true;
+    }
+
     @Override
     public void close() {
         kafka.flush();
+        kafka.getProducerFactory().reset();
     }
 }
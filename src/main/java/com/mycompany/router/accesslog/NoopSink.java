@@ -1,5 +1,7 @@
 package com.mycompany.router.accesslog;
 
+import java.util.List;
+
 public class NoopSink implements AccessLogSink {
 
     @Override
@@ -11,4 +13,19 @@ public class NoopSink implements AccessLogSink {
     public void publish(AccessLogEvent event) {
         // intentionally empty
     }
+
+    @Override
+    public void publishBatch(List<AccessLogEvent> events) {
+        // intentionally empty
+    }
+
+    @Override
+    public void publishRollups(List<AccessLogRollup> rollups) {
+        // intentionally empty
+    }
+
+    @Override
+    public boolean supportsConcurrentWriters() {
+        return true;
+    }
 }
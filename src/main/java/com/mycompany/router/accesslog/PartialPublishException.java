@@ -0,0 +1,24 @@
+package com.mycompany.router.accesslog;
+
+/**
+ * Thrown by {@link AccessLogSink#publishBatch} when the sink took only the
+ * first {@link #accepted()} events of the batch. The pipeline counts those as
+ * published and hands the rest back in a later batch, ahead of anything
+ * newer, so the sink must not count or retry them itself.
+ */
+public class PartialPublishException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int accepted;
+
+    public PartialPublishException(int accepted, String message) {
+        super(message);
+        this.accepted = accepted;
+    }
+
+    /** How many events, from the start of the batch, the sink took. */
+    public int accepted() {
+        return accepted;
+    }
+}
@@ -0,0 +1,265 @@
+package com.mycompany.router.accesslog;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Pre-aggregates access-log events in front of another sink.
+ *
+ * <ul>
+ *   <li><b>Rollups</b>: per (service, route, status, tier) and fixed window
+ *       of event time, a count, byte totals and an HdrHistogram of latency.
+ *       A window is emitted {@code flushDelayMs} after it ends, through
+ *       {@link AccessLogSink#publishRollups}; events arriving later start a
+ *       new record for their window, which downstream adds up.</li>
+ *   <li><b>Raw events</b> ({@code raw}): {@code all} passes every event on;
+ *       {@code sampled} keeps errors (status at least {@code errorStatus}, or
+ *       an {@code error}), requests slower than {@code slowMs}, and
+ *       {@code sampleRate} of the rest, chosen by request id so every gateway
+ *       keeps the same ones; {@code none} sends rollups only.</li>
+ * </ul>
+ *
+ * Aggregation is one short lock per batch, so the sink keeps the delegate's
+ * {@link #supportsConcurrentWriters()}. Histograms are recycled between
+ * windows.
+ */
+public class RollupSink implements AccessLogSink {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupSink.class);
+
+    enum Raw { ALL, SAMPLED, NONE }
+
+    private final AccessLogSink delegate;
+    private final long windowMillis;
+    private final long flushDelayMillis;
+    private final Raw raw;
+    private final long slowMs;
+    private final int errorStatus;
+    /** Kept if the request id's hash, masked to 24 bits, is below this. */
+    private final int sampleThreshold;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService timer;
+    private final Map<Key, Cell> cells = new HashMap<>();
+    private final ArrayDeque<Histogram> spare = new ArrayDeque<>();
+    private final Counter rollupsEmitted;
+    private final Counter rawKept;
+    private final Counter rawDiscarded;
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(1024);
+
+    public RollupSink(AccessLogSink delegate, RouterProperties.RollupConfig cfg, MeterRegistry registry) {
+        this(delegate, cfg, registry, System::currentTimeMillis, true);
+    }
+
+    RollupSink(AccessLogSink delegate, RouterProperties.RollupConfig cfg, MeterRegistry registry,
+               LongSupplier clock, boolean startTimer) {
+        this.delegate = delegate;
+        this.windowMillis = TimeUnit.SECONDS.toMillis(Math.max(1, cfg.getWindowSeconds()));
+        this.flushDelayMillis = Math.max(0, cfg.getFlushDelayMs());
+        this.raw = Raw.valueOf(cfg.getRaw().toUpperCase(Locale.ROOT));
+        this.slowMs = cfg.getSlowMs();
+        this.errorStatus = cfg.getErrorStatus();
+        this.sampleThreshold = (int) Math.round(Math.min(1, Math.max(0, cfg.getSampleRate())) * (1 << 24));
+        this.clock = clock;
+        Tags tags = Tags.of("sink", delegate.name());
+        this.rollupsEmitted = Counter.builder("gateway.access_log.rollup.records").tags(tags).register(registry);
+        this.rawKept = Counter.builder("gateway.access_log.rollup.raw").tags(tags.and("outcome", "kept")).register(registry);
+        this.rawDiscarded = Counter.builder("gateway.access_log.rollup.raw").tags(tags.and("outcome", "discarded")).register(registry);
+        if (startTimer) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "access-log-rollup");
+                t.setDaemon(true);
+                return t;
+            });
+            long tickMs = Math.min(1000, windowMillis);
+            timer.scheduleWithFixedDelay(() -> flush(false), tickMs, tickMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.timer = null;
+        }
+        log.info("Access log rollups: window={}s flushDelay={}ms raw={}{}", windowMillis / 1000, flushDelayMillis,
+                raw.name().toLowerCase(Locale.ROOT),
+                raw == Raw.SAMPLED ? " (errors >= " + errorStatus + ", slow >= " + slowMs + "ms, rate "
+                        + cfg.getSampleRate() + ")" : "");
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public void publish(AccessLogEvent event) {
+        publishBatch(List.of(event));
+    }
+
+    /**
+     * Aggregates and forwards {@code events}. If the delegate stops part-way,
+     * only the events before the first unsent one are aggregated and the
+     * {@link PartialPublishException} is rethrown in terms of {@code events},
+     * so the pipeline's redelivery of the rest is not counted twice.
+     */
+    @Override
+    public void publishBatch(List<AccessLogEvent> events) {
+        int done = events.size();
+        PartialPublishException partial = null;
+        try {
+            switch (raw) {
+                case ALL -> delegate.publishBatch(events);
+                case NONE -> { }
+                case SAMPLED -> publishSampled(events);
+            }
+        } catch (PartialPublishException e) {
+            partial = e;
+            done = e.accepted();
+        }
+        long now = clock.getAsLong();
+        synchronized (this) {
+            for (int i = 0; i < done; i++) add(events.get(i), now);
+        }
+        if (raw == Raw.ALL) rawKept.increment(done);
+        if (raw == Raw.NONE) rawDiscarded.increment(done);
+        if (partial != null) throw partial;
+    }
+
+    private void publishSampled(List<AccessLogEvent> events) {
+        List<AccessLogEvent> kept = new ArrayList<>();
+        int[] at = new int[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            if (keep(events.get(i))) {
+                at[kept.size()] = i;
+                kept.add(events.get(i));
+            }
+        }
+        try {
+            if (!kept.isEmpty()) delegate.publishBatch(kept);
+        } catch (PartialPublishException e) {
+            int done = at[e.accepted()];
+            rawKept.increment(e.accepted());
+            rawDiscarded.increment(done - e.accepted());
+            throw new PartialPublishException(done, e.getMessage());
+        }
+        rawKept.increment(kept.size());
+        rawDiscarded.increment(events.size() - kept.size());
+    }
+
+    @Override
+    public void publishRollups(List<AccessLogRollup> rollups) {
+        delegate.publishRollups(rollups);
+    }
+
+    @Override
+    public boolean supportsConcurrentWriters() {
+        return delegate.supportsConcurrentWriters();
+    }
+
+    @Override
+    public int capacity() {
+        return raw == Raw.NONE ? Integer.MAX_VALUE : delegate.capacity();
+    }
+
+    /** Emits every open window, then closes the delegate. */
+    @Override
+    public void close() {
+        if (timer != null) timer.shutdownNow();
+        flush(true);
+        delegate.close();
+    }
+
+    boolean keep(AccessLogEvent e) {
+        if (e.status() >= errorStatus || (e.error() != null && !e.error().isEmpty())) return true;
+        if (e.latencyMs() >= slowMs) return true;
+        if (e.requestId() == null) return false;
+        int h = e.requestId().hashCode() * 0x9E3779B9;   // spread the bits String.hashCode leaves low
+        return ((h ^ (h >>> 16)) & 0xFFFFFF) < sampleThreshold;
+    }
+
+    private void add(AccessLogEvent e, long now) {
+        long ts = e.timestamp() != null ? e.timestamp().toEpochMilli() : now;
+        Key key = new Key(Math.floorDiv(ts, windowMillis) * windowMillis, e.service(), e.targetUrl(), e.status(), e.tier());
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            Histogram h = spare.poll();
+            cell = new Cell(h != null ? h : new Histogram(2));
+            cells.put(key, cell);
+        }
+        long latency = Math.max(0, e.latencyMs());
+        cell.latency.recordValue(latency);
+        cell.count++;
+        cell.latencySum += latency;
+        cell.requestBytes += Math.max(0, e.requestBytes());
+        cell.responseBytes += Math.max(0, e.responseBytes());
+    }
+
+    /** Emits windows that ended at least {@code flushDelayMs} ago, or all of them. Package-private for tests. */
+    void flush(boolean all) {
+        List<AccessLogRollup> rollups = new ArrayList<>();
+        synchronized (this) {
+            long cutoff = clock.getAsLong() - flushDelayMillis;
+            for (Iterator<Map.Entry<Key, Cell>> it = cells.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Key, Cell> entry = it.next();
+                Key key = entry.getKey();
+                if (!all && key.windowStart + windowMillis > cutoff) continue;
+                Cell cell = entry.getValue();
+                rollups.add(rollup(key, cell));
+                it.remove();
+                cell.latency.reset();
+                spare.push(cell.latency);
+            }
+        }
+        if (rollups.isEmpty()) return;
+        try {
+            delegate.publishRollups(rollups);
+            rollupsEmitted.increment(rollups.size());
+        } catch (Exception e) {
+            log.warn("Access log sink {} failed on {} rollups", delegate.name(), rollups.size(), e);
+        }
+    }
+
+    private AccessLogRollup rollup(Key key, Cell cell) {
+        Histogram h = cell.latency;
+        if (encodeBuffer.capacity() < h.getNeededByteBufferCapacity()) {
+            encodeBuffer = ByteBuffer.allocate(h.getNeededByteBufferCapacity());
+        }
+        encodeBuffer.clear();
+        int n = h.encodeIntoCompressedByteBuffer(encodeBuffer);
+        String encoded = Base64.getEncoder().encodeToString(Arrays.copyOf(encodeBuffer.array(), n));
+        return new AccessLogRollup(Instant.ofEpochMilli(key.windowStart), windowMillis / 1000,
+                key.service, key.route, key.status, key.tier, cell.count, cell.latencySum, h.getMaxValue(),
+                h.getValueAtPercentile(50), h.getValueAtPercentile(90), h.getValueAtPercentile(99),
+                cell.requestBytes, cell.responseBytes, encoded);
+    }
+
+    private record Key(long windowStart, String service, String route, int status, String tier) {}
+
+    private static final class Cell {
+        final Histogram latency;
+        long count;
+        long latencySum;
+        long requestBytes;
+        long responseBytes;
+
+        Cell(Histogram latency) {
+            this.latency = latency;
+        }
+    }
+}
@@ -1,19 +1,15 @@
 package com.mycompany.router.accesslog;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 public class StdoutJsonSink implements AccessLogSink {
 
     private static final Logger log = LoggerFactory.getLogger("access-log");
 
-    private final ObjectMapper mapper;
-
-    public StdoutJsonSink(ObjectMapper mapper) {
-        this.mapper = mapper;
-    }
+    private final ThreadLocal<AccessLogJsonEncoder> encoder = ThreadLocal.withInitial(AccessLogJsonEncoder::new);
 
     @Override
     public String name() {
@@ -22,10 +18,23 @@ public class StdoutJsonSink implements AccessLogSink {
 
     @Override
     public void publish(AccessLogEvent event) {
-        try {
-            log.info(mapper.writeValueAsString(event));
-        } catch (JsonProcessingException e) {
-            log.warn("Failed to serialise access log event", e);
+        publishBatch(List.of(event));
+    }
+
+    /** One log line per event (tailers expect that); the level check is done once per batch. */
+    @Override
+    public void publishBatch(List<AccessLogEvent> events) {
+        if (!log.isInfoEnabled()) return;
+        AccessLogJsonEncoder json = encoder.get();
+        for (AccessLogEvent event : events) {
+            json.encode(event);
+            log.info(json.toString());
         }
     }
+
+    /** {@code true}: the logger serialises appends itself. */
+    @Override
+    public boolean supportsConcurrentWriters() {
+        return true;
+    }
 }
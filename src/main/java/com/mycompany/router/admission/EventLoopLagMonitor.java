@@ -0,0 +1,67 @@
+package com.mycompany.router.admission;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures Netty event-loop scheduling lag: how late a task scheduled on each
+ * loop actually runs. Lag rises before latency does when the loops are
+ * saturated, which makes it a good early overload signal.
+ *
+ * Each loop re-schedules its own probe every {@code interval}; the reported
+ * value is the worst loop's most recent lag in milliseconds.
+ */
+public class EventLoopLagMonitor implements LongSupplier, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLoopLagMonitor.class);
+
+    private final List<EventExecutor> loops = new ArrayList<>();
+    private final long intervalNanos;
+    private final AtomicLongArray lagNanos;   // written by each loop, read by request threads
+    private volatile boolean running;
+
+    public EventLoopLagMonitor(EventExecutorGroup group, long intervalMs) {
+        group.forEach(loops::add);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.lagNanos = new AtomicLongArray(loops.size());
+    }
+
+    public EventLoopLagMonitor start() {
+        running = true;
+        for (int i = 0; i < loops.size(); i++) {
+            schedule(i);
+        }
+        log.info("Event-loop lag monitor started on {} loop(s)", loops.size());
+        return this;
+    }
+
+    private void schedule(int i) {
+        if (!running) return;
+        long expected = System.nanoTime() + intervalNanos;
+        loops.get(i).schedule(() -> {
+            lagNanos.set(i, Math.max(0, System.nanoTime() - expected));
+            schedule(i);
+        }, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Worst current lag across loops, in milliseconds. */
+    @Override
+    public long getAsLong() {
+        long max = 0;
+        for (int i = 0; i < lagNanos.length(); i++) max = Math.max(max, lagNanos.get(i));
+        return TimeUnit.NANOSECONDS.toMillis(max);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+    }
+}
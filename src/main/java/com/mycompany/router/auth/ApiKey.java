@@ -22,4 +22,9 @@ public record ApiKey(
     public boolean isUsable(Instant now) {
         return enabled && (expiresAt == null || expiresAt.isAfter(now));
     }
+
+    /** Allocation-free variant for the auth path. */
+    public boolean isUsable(long nowEpochMillis) {
+        return enabled && (expiresAt == null || expiresAt.toEpochMilli() > nowEpochMillis);
+    }
 }
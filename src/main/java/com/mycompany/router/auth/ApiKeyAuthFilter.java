@@ -9,8 +9,9 @@ import reactor.core.publisher.Mono;
 import reactor.util.context.Context;
 
 import java.net.InetSocketAddress;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Resolves a {@link Principal} for each request and puts it on the exchange
@@ -23,55 +24,114 @@ import java.util.Set;
  *   <li>anonymous, fingerprinted by remote IP</li>
  * </ol>
  *
+ * Keys starting with {@code rk1.} are {@link SignedApiKeyCodec signed keys}
+ * when signing is enabled: they are verified with pure CPU work (HMAC check,
+ * expiry, {@link SignedKeyDenyList}) and never touch the {@link ApiKeyStore}.
+ * A key that fails verification resolves to anonymous, like an unknown key.
+ *
  * The filter never rejects requests — that is the router's job, because it
  * knows which services require auth. The filter just resolves identity.
  */
 public class ApiKeyAuthFilter implements WebFilter, Ordered {
 
     public static final int ORDER = -100;
+    private static final int MAX_MEMOISED = 100_000;
 
     private final ApiKeyStore store;
     private final RouterProperties.AuthConfig authConfig;
+    private final SignedApiKeyCodec signedKeys;
+    private final SignedKeyDenyList denyList;
+    private final ConcurrentMap<String, Memo> principals = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SignedMemo> signedPrincipals = new ConcurrentHashMap<>();
 
     public ApiKeyAuthFilter(ApiKeyStore store, RouterProperties.AuthConfig authConfig) {
+        this(store, authConfig, null, null);
+    }
+
+    /** @param signedKeys null disables signed keys; they are then looked up like opaque ones */
+    public ApiKeyAuthFilter(ApiKeyStore store, RouterProperties.AuthConfig authConfig,
+                            SignedApiKeyCodec signedKeys, SignedKeyDenyList denyList) {
         this.store = store;
         this.authConfig = authConfig;
+        this.signedKeys = signedKeys;
+        this.denyList = denyList;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         if (!authConfig.isEnabled()) {
-            Principal anon = Principal.anonymous(remoteAddr(exchange));
-            exchange.getAttributes().put(Principal.CONTEXT_KEY, anon);
-            return chain.filter(exchange)
-                    .contextWrite(Context.of(Principal.CONTEXT_KEY, anon));
+            return proceed(exchange, chain, anonymous(exchange));
         }
 
         String rawKey = extractKey(exchange);
-        Principal anon = Principal.anonymous(remoteAddr(exchange));
-
         if (rawKey == null) {
-            exchange.getAttributes().put(Principal.CONTEXT_KEY, anon);
-            return chain.filter(exchange)
-                    .contextWrite(Context.of(Principal.CONTEXT_KEY, anon));
+            return proceed(exchange, chain, anonymous(exchange));
+        }
+
+        if (signedKeys != null && SignedApiKeyCodec.looksSigned(rawKey)) {
+            Principal signed = verifySigned(rawKey);
+            return proceed(exchange, chain, signed != null ? signed : anonymous(exchange));
         }
 
         String hash = ApiKeyHasher.sha256Hex(rawKey);
         return store.findByHash(hash)
-                .filter(k -> k.isUsable(java.time.Instant.now()))
+                .filter(k -> k.isUsable(System.currentTimeMillis()))
                 .map(this::toPrincipal)
-                .defaultIfEmpty(anon)
-                .flatMap(principal -> {
-                    exchange.getAttributes().put(Principal.CONTEXT_KEY, principal);
-                    return chain.filter(exchange)
-                            .contextWrite(Context.of(Principal.CONTEXT_KEY, principal));
-                });
+                // only build the anonymous principal when the lookup actually misses
+                .switchIfEmpty(Mono.fromSupplier(() -> anonymous(exchange)))
+                .flatMap(principal -> proceed(exchange, chain, principal));
+    }
+
+    private static Mono<Void> proceed(ServerWebExchange exchange, WebFilterChain chain, Principal principal) {
+        exchange.getAttributes().put(Principal.CONTEXT_KEY, principal);
+        return chain.filter(exchange)
+                .contextWrite(Context.of(Principal.CONTEXT_KEY, principal));
     }
 
+    /**
+     * Principals are immutable, so one instance is shared by every request
+     * carrying the same key. The memo is keyed by hash and re-validated against
+     * the {@link ApiKey} record, so an edited or rotated key gets a fresh one.
+     */
     private Principal toPrincipal(ApiKey k) {
-        return new Principal(k.principalId(), k.tier(),
-                k.scopes() == null ? Set.of() : new HashSet<>(k.scopes()),
+        Memo memo = principals.get(k.keyHash());
+        if (memo != null && (memo.key == k || memo.key.equals(k))) {
+            return memo.principal;
+        }
+        Principal p = new Principal(k.principalId(), k.tier(),
+                k.scopes() == null ? Set.of() : Set.copyOf(k.scopes()),
                 false);
+        if (principals.size() >= MAX_MEMOISED) {
+            principals.clear();
+        }
+        principals.put(k.keyHash(), new Memo(k, p));
+        return p;
+    }
+
+    /**
+     * A token that verified once verifies forever, so the HMAC is skipped on
+     * repeat use; expiry and the deny list are still checked every time.
+     * Only valid tokens are memoised, so forged ones can't grow the map.
+     */
+    private Principal verifySigned(String token) {
+        SignedMemo memo = signedPrincipals.get(token);
+        if (memo == null) {
+            SignedKeyClaims claims = signedKeys.verify(token);
+            if (claims == null) return null;
+            memo = new SignedMemo(claims, claims.toPrincipal());
+            if (signedPrincipals.size() >= MAX_MEMOISED) {
+                signedPrincipals.clear();
+            }
+            signedPrincipals.put(token, memo);
+        }
+        if (!memo.claims.isUsable(System.currentTimeMillis()) || denyList.isDenied(memo.claims.keyId())) {
+            return null;
+        }
+        return memo.principal;
+    }
+
+    private Principal anonymous(ServerWebExchange exchange) {
+        return Principal.anonymous(remoteAddr(exchange));
     }
 
     private String extractKey(ServerWebExchange exchange) {
@@ -92,4 +152,8 @@ public class ApiKeyAuthFilter implements WebFilter, Ordered {
     public int getOrder() {
         return ORDER;
     }
+
+    private record Memo(ApiKey key, Principal principal) {}
+
+    private record SignedMemo(SignedKeyClaims claims, Principal principal) {}
 }
@@ -0,0 +1,188 @@
+package com.mycompany.router.auth;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compact binary form of {@link ApiKey} for Redis, plus the id → hash
+ * pointer used by the single-copy layout in {@link RedisApiKeyStore}.
+ *
+ * <pre>
+ * record  := 0x01 flags hash created? expires? str(id) str(principalId) str(tier)
+ *            varint(#scopes) str(scope)*
+ * pointer := 0x02 hash
+ * hash    := 32 raw bytes           (flags bit 3 clear)
+ *          | str                    (flags bit 3 set: hash that isn't 64 hex chars)
+ * created, expires := zigzag varint epoch millis (present if flags bit 1 / bit 2)
+ * str     := varint 0               null
+ *          | varint 2i+1            DICTIONARY[i]
+ *          | varint 2n+2, n bytes   UTF-8
+ * flags   := bit 0 enabled
+ * </pre>
+ *
+ * Legacy JSON values start with {@code '{'}, so readers tell the three apart
+ * from the first byte. {@link #DICTIONARY} is part of format version 1:
+ * entries may be appended but never reordered or removed.
+ *
+ * A key with a UUID id and an expiry is ~100 bytes against ~280 of JSON,
+ * and decodes without reflection or {@code Instant} parsing.
+ */
+public final class ApiKeyBinaryCodec {
+
+    static final byte RECORD_V1 = 0x01;
+    static final byte POINTER_V1 = 0x02;
+    static final byte JSON = '{';
+
+    static final List<String> DICTIONARY = List.of(
+            "anonymous", "basic", "premium", "enterprise",
+            "read", "write", "admin", "*");
+
+    private static final int ENABLED = 1;
+    private static final int HAS_CREATED = 1 << 1;
+    private static final int HAS_EXPIRES = 1 << 2;
+    private static final int HASH_TEXT = 1 << 3;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private ApiKeyBinaryCodec() {}
+
+    public static byte[] encode(ApiKey key) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        byte[] rawHash = rawHash(key.keyHash());
+        int flags = (key.enabled() ? ENABLED : 0)
+                | (key.createdAt() != null ? HAS_CREATED : 0)
+                | (key.expiresAt() != null ? HAS_EXPIRES : 0)
+                | (rawHash == null ? HASH_TEXT : 0);
+        out.write(RECORD_V1);
+        out.write(flags);
+        if (rawHash != null) out.writeBytes(rawHash);
+        else writeString(out, key.keyHash());
+        if (key.createdAt() != null) writeVarLong(out, zigzag(key.createdAt().toEpochMilli()));
+        if (key.expiresAt() != null) writeVarLong(out, zigzag(key.expiresAt().toEpochMilli()));
+        writeString(out, key.id());
+        writeString(out, key.principalId());
+        writeString(out, key.tier());
+        Set<String> scopes = key.scopes() == null ? Set.of() : key.scopes();
+        writeVarLong(out, scopes.size());
+        for (String scope : scopes) writeString(out, scope);
+        return out.toByteArray();
+    }
+
+    public static ApiKey decode(byte[] bytes) {
+        if (bytes.length < 2 || bytes[0] != RECORD_V1) {
+            throw new IllegalArgumentException("Not a v1 API key record");
+        }
+        Reader in = new Reader(bytes, 1);
+        int flags = bytes[in.pos++];
+        String keyHash;
+        if ((flags & HASH_TEXT) == 0) {
+            keyHash = HEX.formatHex(bytes, in.pos, in.pos + 32);
+            in.pos += 32;
+        } else {
+            keyHash = in.string();
+        }
+        Instant created = (flags & HAS_CREATED) != 0 ? Instant.ofEpochMilli(unzigzag(in.varLong())) : null;
+        Instant expires = (flags & HAS_EXPIRES) != 0 ? Instant.ofEpochMilli(unzigzag(in.varLong())) : null;
+        String id = in.string();
+        String principalId = in.string();
+        String tier = in.string();
+        int n = (int) in.varLong();
+        Set<String> scopes;
+        if (n == 0) {
+            scopes = Set.of();
+        } else {
+            String[] s = new String[n];
+            for (int i = 0; i < n; i++) s[i] = in.string();
+            scopes = Set.of(s);
+        }
+        return new ApiKey(id, keyHash, principalId, tier, scopes, (flags & ENABLED) != 0, created, expires);
+    }
+
+    /** {@code 0x02} + the raw hash; {@link #pointerHash} reverses it. */
+    public static byte[] pointer(String keyHash) {
+        byte[] raw = rawHash(keyHash);
+        byte[] textHash = raw == null ? keyHash.getBytes(StandardCharsets.UTF_8) : raw;
+        byte[] out = new byte[1 + textHash.length];
+        out[0] = POINTER_V1;
+        System.arraycopy(textHash, 0, out, 1, textHash.length);
+        return out;
+    }
+
+    public static String pointerHash(byte[] pointer) {
+        if (pointer.length == 33) return HEX.formatHex(pointer, 1, 33);
+        return new String(pointer, 1, pointer.length - 1, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] rawHash(String keyHash) {
+        if (keyHash == null || keyHash.length() != 64) return null;
+        for (int i = 0; i < 64; i++) {
+            char c = keyHash.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return null;
+        }
+        return HEX.parseHex(keyHash);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        if (s == null) {
+            out.write(0);
+            return;
+        }
+        int idx = DICTIONARY.indexOf(s);
+        if (idx >= 0) {
+            writeVarLong(out, 2L * idx + 1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, 2L * utf8.length + 2);
+        out.writeBytes(utf8);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static final class Reader {
+        final byte[] bytes;
+        int pos;
+
+        Reader(byte[] bytes, int pos) {
+            this.bytes = bytes;
+            this.pos = pos;
+        }
+
+        long varLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = bytes[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        String string() {
+            long v = varLong();
+            if (v == 0) return null;
+            if ((v & 1) == 1) return DICTIONARY.get((int) (v >>> 1));
+            int len = (int) ((v - 2) >>> 1);
+            String s = new String(bytes, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+    }
+}
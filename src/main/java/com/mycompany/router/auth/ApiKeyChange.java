@@ -0,0 +1,43 @@
+package com.mycompany.router.auth;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Write notice published by {@link PublishingApiKeyStore}. {@code keyHash} is
+ * null for deletes; receivers then match on {@code id}.
+ *
+ * A bulk import publishes one {@link Type#SAVED_BATCH} per chunk instead of a
+ * notice per key: {@code ids} and {@code keyHashes} are then parallel lists
+ * and {@code id} / {@code keyHash} are null. Use {@link #forEachKey} to read
+ * either shape. Single notices serialise exactly as before; a node that
+ * predates batches logs a batch as malformed and relies on the cache TTL.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ApiKeyChange(Type type, String id, String keyHash, long publishedAtMs,
+                           List<String> ids, List<String> keyHashes) {
+
+    public enum Type { SAVED, DELETED, SAVED_BATCH }
+
+    public ApiKeyChange(Type type, String id, String keyHash, long publishedAtMs) {
+        this(type, id, keyHash, publishedAtMs, null, null);
+    }
+
+    static ApiKeyChange savedBatch(List<ApiKey> keys, long publishedAtMs) {
+        return new ApiKeyChange(Type.SAVED_BATCH, null, null, publishedAtMs,
+                keys.stream().map(ApiKey::id).toList(), keys.stream().map(ApiKey::keyHash).toList());
+    }
+
+    /** Calls {@code action} with each {@code (id, keyHash)} this notice covers. */
+    public void forEachKey(BiConsumer<String, String> action) {
+        if (type != Type.SAVED_BATCH) {
+            action.accept(id, keyHash);
+            return;
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            action.accept(ids.get(i), keyHashes.get(i));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.mycompany.router.auth;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fan-out channel for {@link ApiKeyChange}s so every node drops its cached
+ * copy of a key that was rotated or revoked elsewhere. Delivery is
+ * best-effort; the cache TTL bounds staleness when a message is lost.
+ */
+public interface ApiKeyChangeBus {
+
+    Mono<Void> publish(ApiKeyChange change);
+
+    /** Hot stream of changes, including ones this node published. */
+    Flux<ApiKeyChange> changes();
+
+    /**
+     * Hot stream of the subscription behind {@link #changes()} going
+     * {@code DOWN} and coming back {@code UP}; changes published in between
+     * were missed. Buses that cannot lose a change never emit.
+     */
+    default Flux<Connection> connections() {
+        return Flux.never();
+    }
+
+    enum Connection { UP, DOWN }
+}
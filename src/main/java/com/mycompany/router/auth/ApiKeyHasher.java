@@ -3,23 +3,30 @@ package com.mycompany.router.auth;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
-/** SHA-256 hex hashing helper. Trusted keys only — not a password hash. */
+/**
+ * SHA-256 hex hashing helper. Trusted keys only — not a password hash.
+ *
+ * Runs on every authenticated request, so the digest is reused per thread
+ * ({@code MessageDigest.getInstance} walks the provider list each call) and
+ * hex encoding goes through {@link HexFormat} rather than {@code String.format}.
+ */
 public final class ApiKeyHasher {
 
-    private ApiKeyHasher() {}
-
-    public static String sha256Hex(String input) {
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(digest.length * 2);
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("SHA-256 not available", e);
         }
+    });
+
+    private ApiKeyHasher() {}
+
+    public static String sha256Hex(String input) {
+        // digest() resets the instance, so it is ready for the next call on this thread
+        return HEX.formatHex(SHA256.get().digest(input.getBytes(StandardCharsets.UTF_8)));
     }
 }
@@ -0,0 +1,9 @@
+package com.mycompany.router.auth;
+
+import java.util.List;
+
+/**
+ * One page of {@link ApiKeyStore#page}. {@code nextCursor} is passed back to
+ * fetch the following page; {@code null} means this was the last one.
+ */
+public record ApiKeyPage(List<ApiKey> keys, String nextCursor) {}
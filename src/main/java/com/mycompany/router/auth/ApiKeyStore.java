@@ -3,11 +3,17 @@ package com.mycompany.router.auth;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Comparator;
+
 /**
  * Storage adapter for API keys.
  *
  * Extension point: provide your own bean to back keys from Postgres, Vault, an
  * SSO directory, etc. The router only ever calls {@link #findByHash}.
+ *
+ * {@link #page} and {@link #saveAll} back the admin listing and bulk
+ * import/export; the defaults work on top of {@link #list} and {@link #save},
+ * and stores with a cheaper batch path override them.
  */
 public interface ApiKeyStore {
 
@@ -17,5 +23,27 @@ public interface ApiKeyStore {
 
     Mono<Void> delete(String id);
 
+    /** Streams every key, in no particular order. */
     Flux<ApiKey> list();
+
+    /**
+     * Up to {@code limit} keys after {@code cursor} ({@code null} for the
+     * first page). The default sorts the whole of {@link #list} by id, so
+     * stores with many keys should override it.
+     */
+    default Mono<ApiKeyPage> page(String cursor, int limit) {
+        return list()
+                .filter(k -> cursor == null || k.id().compareTo(cursor) > 0)
+                .sort(Comparator.comparing(ApiKey::id))
+                .take(limit + 1L)
+                .collectList()
+                .map(keys -> keys.size() <= limit
+                        ? new ApiKeyPage(keys, null)
+                        : new ApiKeyPage(keys.subList(0, limit), keys.get(limit - 1).id()));
+    }
+
+    /** Saves every key of {@code keys}, emitting each once it is stored. */
+    default Flux<ApiKey> saveAll(Flux<ApiKey> keys) {
+        return keys.concatMap(this::save);
+    }
 }
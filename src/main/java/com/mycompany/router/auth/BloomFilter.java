@@ -0,0 +1,103 @@
+package com.mycompany.router.auth;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over API key hashes.
+ *
+ * Key hashes are already SHA-256 hex, i.e. uniformly random, so the two base
+ * hashes for double hashing ({@code h1 + i·h2}) are simply the first two
+ * 64-bit words of the hex string — no extra hashing on the hot path.
+ * Sized from {@code expectedInsertions} and the target false-positive rate:
+ * {@code m = -n·ln p / ln²2} bits, {@code k = m/n·ln 2} probes.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int probes;
+    private final AtomicLong bitsSet = new AtomicLong();
+    private final AtomicLong insertions = new AtomicLong();
+
+    BloomFilter(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = (long) wordCount << 6;
+        this.probes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    }
+
+    void put(String keyHash) {
+        long h1 = h1(keyHash);
+        long h2 = h2(keyHash, h1);
+        boolean changed = false;
+        for (int i = 0; i < probes; i++) {
+            changed |= set(index(h1, h2, i));
+        }
+        if (changed) insertions.incrementAndGet();
+    }
+
+    boolean mightContain(String keyHash) {
+        long h1 = h1(keyHash);
+        long h2 = h2(keyHash, h1);
+        for (int i = 0; i < probes; i++) {
+            long bit = index(h1, h2, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private boolean set(long bit) {
+        int w = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long prev;
+        do {
+            prev = words.get(w);
+            if ((prev & mask) != 0) return false;
+        } while (!words.compareAndSet(w, prev, prev | mask));
+        bitsSet.incrementAndGet();
+        return true;
+    }
+
+    private long index(long h1, long h2, int i) {
+        return Long.remainderUnsigned(h1 + i * h2, bits);
+    }
+
+    /** Current false-positive probability, from the fraction of bits set. */
+    double expectedFpp() {
+        return Math.pow((double) bitsSet.get() / bits, probes);
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    long sizeBytes() {
+        return bits >>> 3;
+    }
+
+    private static long h1(String s) {
+        return s.length() >= 32 && isHex(s, 0, 16) ? Long.parseUnsignedLong(s, 0, 16, 16) : mix(s.hashCode());
+    }
+
+    private static long h2(String s, long h1) {
+        // odd so successive probes never collapse onto the same bit
+        long h = s.length() >= 32 && isHex(s, 16, 32) ? Long.parseUnsignedLong(s, 16, 32, 16) : mix(h1);
+        return h | 1;
+    }
+
+    private static boolean isHex(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,242 @@
+package com.mycompany.router.auth;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects lookups for key hashes that certainly don't exist, without any I/O.
+ *
+ * Credential-stuffing traffic with random keys would otherwise cost a store
+ * round trip per request (or, behind {@link CachingApiKeyStore}, fill the
+ * cache with negative entries). The filter holds every valid key hash: it is
+ * built from {@link ApiKeyStore#list()} at startup, and updated on local
+ * {@code save}s and on {@code SAVED} / {@code SAVED_BATCH} notices from other
+ * nodes. Until the initial build completes every lookup passes through.
+ *
+ * Every {@code rebuildIntervalMs} a fresh filter is built from {@code list()}
+ * and swapped in (writes during the build go to both). That purges deleted
+ * keys — which until then only cost a lookup, never a wrong denial — and
+ * bounds how long a key whose {@code SAVED} notice was lost can be refused.
+ *
+ * Notices are only lost wholesale when the bus subscription drops, and the
+ * bus reports that on {@link ApiKeyChangeBus#connections()}. From the drop
+ * until a rebuild started after the reconnect has finished, plus
+ * {@code reconnectPassThroughMs}, filter misses go to the store instead of
+ * being rejected.
+ * The live false-positive estimate is exported so operators can see when
+ * {@code expectedKeys} is too small.
+ *
+ * Metrics: {@code gateway.apikey_bloom.checks{result=rejected|passed|false_positive|bypassed}},
+ * {@code gateway.apikey_bloom.insertions}, {@code gateway.apikey_bloom.expected_fpp},
+ * {@code gateway.apikey_bloom.bytes}.
+ */
+public class BloomFilterApiKeyStore implements ApiKeyStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BloomFilterApiKeyStore.class);
+
+    private final ApiKeyStore delegate;
+    private final ApiKeyChangeBus bus;
+    private final long expectedKeys;
+    private final double fpp;
+    private final long rebuildIntervalMs;
+    private final long reconnectPassThroughMs;
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private volatile boolean ready;
+    /** Epoch millis until which misses pass through; {@code Long.MAX_VALUE} while a recovery is pending. */
+    private volatile long passThroughUntil;
+    private final AtomicLong outages = new AtomicLong();
+    private final Sinks.Many<Long> recoveries = Sinks.many().unicast().onBackpressureBuffer();
+    private boolean connectedOnce;
+    private Disposable connections;
+    private Disposable changes;
+    private Disposable rebuilds;
+
+    private final Counter rejected;
+    private final Counter passed;
+    private final Counter falsePositives;
+    private final Counter bypassed;
+
+    public BloomFilterApiKeyStore(ApiKeyStore delegate, ApiKeyChangeBus bus,
+                                  RouterProperties.ApiKeyBloomConfig config, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.bus = bus;
+        this.expectedKeys = config.getExpectedKeys();
+        this.fpp = config.getFalsePositiveRate();
+        this.rebuildIntervalMs = config.getRebuildIntervalMs();
+        this.reconnectPassThroughMs = config.getReconnectPassThroughMs();
+        this.filter = new BloomFilter(expectedKeys, fpp);
+        this.rejected = checks(registry, "rejected");
+        this.passed = checks(registry, "passed");
+        this.falsePositives = checks(registry, "false_positive");
+        this.bypassed = checks(registry, "bypassed");
+        Gauge.builder("gateway.apikey_bloom.insertions", this, s -> s.filter.insertions()).register(registry);
+        Gauge.builder("gateway.apikey_bloom.expected_fpp", this, s -> s.filter.expectedFpp()).register(registry);
+        Gauge.builder("gateway.apikey_bloom.bytes", this, s -> s.filter.sizeBytes()).register(registry);
+    }
+
+    private static Counter checks(MeterRegistry registry, String result) {
+        return Counter.builder("gateway.apikey_bloom.checks").tag("result", result).register(registry);
+    }
+
+    /** Subscribes to the change bus, then builds the filter in the background (and periodically after). */
+    public BloomFilterApiKeyStore start() {
+        connections = bus.connections().subscribe(c -> {
+            if (c == ApiKeyChangeBus.Connection.DOWN) {
+                outage();
+            } else if (connectedOnce) {
+                log.info("API key change bus resubscribed; rebuilding the Bloom filter");
+                recover();
+            } else {
+                connectedOnce = true;   // the startup build below covers the first subscription
+            }
+        });
+        changes = bus.changes()
+                .filter(c -> c.type() != ApiKeyChange.Type.DELETED)
+                .subscribe(c -> c.forEachKey((id, hash) -> { if (hash != null) put(hash); }),
+                        e -> {
+                            log.error("API key change stream terminated; relying on periodic rebuilds", e);
+                            recover();
+                        });
+        // 0 = a scheduled rebuild, otherwise the outage it recovers from; concatMap keeps builds serial
+        Flux<Long> schedule = rebuildIntervalMs > 0
+                ? Flux.interval(Duration.ZERO, Duration.ofMillis(rebuildIntervalMs)).map(tick -> 0L)
+                : Flux.just(0L);
+        rebuilds = Flux.merge(schedule, recoveries.asFlux())
+                .concatMap(outage -> rebuild()
+                        .doOnSuccess(v -> {
+                            if (outage != 0 && outages.get() == outage) {
+                                passThroughUntil = System.currentTimeMillis() + reconnectPassThroughMs;
+                            }
+                        })
+                        .onErrorResume(e -> {
+                            log.error("API key Bloom filter rebuild failed; keeping the previous one", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        return this;
+    }
+
+    /** Notices may be getting lost: stop trusting misses until a later recovery. */
+    private long outage() {
+        long outage = outages.incrementAndGet();
+        passThroughUntil = Long.MAX_VALUE;
+        return outage;
+    }
+
+    /** The bus is back (or gone for good): rebuild, then trust misses again after the grace window. */
+    private void recover() {
+        long outage = outage();
+        recoveries.emitNext(outage, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    /** Builds a fresh filter from the store and swaps it in. */
+    Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            BloomFilter next = new BloomFilter(expectedKeys, fpp);
+            synchronized (this) {
+                building = next;
+            }
+            return delegate.list()
+                    .doOnNext(k -> next.put(k.keyHash()))
+                    .count()
+                    .doOnNext(n -> {
+                        synchronized (this) {
+                            filter = next;
+                            building = null;
+                        }
+                        if (!ready) {
+                            ready = true;
+                            log.info("API key Bloom filter loaded {} key(s), {} bytes", n, next.sizeBytes());
+                        }
+                        if (n > expectedKeys) {
+                            log.warn("API key Bloom filter holds {} keys, more than expectedKeys={}; "
+                                    + "false-positive rate will climb", n, expectedKeys);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        synchronized (this) {
+                            if (building == next) building = null;
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    @Override
+    public Mono<ApiKey> findByHash(String keyHash) {
+        if (!ready) {
+            return delegate.findByHash(keyHash);
+        }
+        if (!filter.mightContain(keyHash)) {
+            if (System.currentTimeMillis() < passThroughUntil) {
+                bypassed.increment();
+                return delegate.findByHash(keyHash);
+            }
+            rejected.increment();
+            return Mono.empty();
+        }
+        passed.increment();
+        return delegate.findByHash(keyHash)
+                .switchIfEmpty(Mono.fromRunnable(falsePositives::increment));
+    }
+
+    @Override
+    public Mono<ApiKey> save(ApiKey key) {
+        // before: a concurrent lookup must never be denied a key that is being written;
+        // after: a rebuild that listed the store before this write landed still gets it
+        put(key.keyHash());
+        return delegate.save(key).doOnNext(saved -> put(saved.keyHash()));
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return delegate.delete(id);
+    }
+
+    @Override
+    public Flux<ApiKey> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public Mono<ApiKeyPage> page(String cursor, int limit) {
+        return delegate.page(cursor, limit);
+    }
+
+    @Override
+    public Flux<ApiKey> saveAll(Flux<ApiKey> keys) {
+        // same before/after rule as save()
+        return delegate.saveAll(keys.doOnNext(key -> put(key.keyHash())))
+                .doOnNext(saved -> put(saved.keyHash()));
+    }
+
+    // writes are rare; the lock only orders them against the swap, lookups never take it
+    private synchronized void put(String keyHash) {
+        filter.put(keyHash);
+        if (building != null) building.put(keyHash);
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void close() {
+        if (connections != null) connections.dispose();
+        if (changes != null) changes.dispose();
+        if (rebuilds != null) rebuilds.dispose();
+        PublishingApiKeyStore.closeDelegate(delegate);
+    }
+}
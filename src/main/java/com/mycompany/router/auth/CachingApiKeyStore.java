@@ -0,0 +1,228 @@
+package com.mycompany.router.auth;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local read-through cache in front of any {@link ApiKeyStore}.
+ *
+ * <ul>
+ *   <li><b>Bounded + TTL'd.</b> Entries live for {@code ttlMs}; once the map
+ *       exceeds {@code maxSize}, expired entries are dropped and then arbitrary
+ *       ones, down to 90% of the bound, so eviction cost is amortised.</li>
+ *   <li><b>Negative entries.</b> Unknown hashes are remembered for the (shorter)
+ *       {@code negativeTtlMs}, so repeated bad keys don't each cost a store read.</li>
+ *   <li><b>Single-flight.</b> Concurrent misses for the same hash share one
+ *       store read.</li>
+ *   <li><b>Invalidation.</b> Local writes drop matching entries immediately;
+ *       writes on other nodes arrive as {@link ApiKeyChange}s on the
+ *       {@link ApiKeyChangeBus} (published by {@link PublishingApiKeyStore}).
+ *       A load that was in flight when an invalidation arrived is not cached.
+ *       Cached keys are indexed by id, so invalidating an id (which may have
+ *       been re-keyed) is a lookup, not a scan.
+ *       If a message is lost, revocation still takes effect within
+ *       {@code ttlMs}.</li>
+ * </ul>
+ *
+ * Metrics: {@code gateway.apikey_cache.requests{result=hit|negative_hit|miss}},
+ * {@code gateway.apikey_cache.size}, {@code gateway.apikey_cache.evictions},
+ * {@code gateway.apikey_cache.entry_age} (age of the entry served on a hit),
+ * {@code gateway.apikey_cache.invalidation_lag} (publish → apply).
+ */
+public class CachingApiKeyStore implements ApiKeyStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingApiKeyStore.class);
+
+    private final ApiKeyStore delegate;
+    private final ApiKeyChangeBus bus;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final int maxSize;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    /** id → hash of each positive entry in {@link #cache}. */
+    private final ConcurrentMap<String, String> hashById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Mono<Optional<ApiKey>>> loads = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private Disposable subscription;
+
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Timer entryAge;
+    private final Timer invalidationLag;
+
+    public CachingApiKeyStore(ApiKeyStore delegate, ApiKeyChangeBus bus,
+                              RouterProperties.ApiKeyCacheConfig config, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.bus = bus;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(config.getTtlMs());
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(config.getNegativeTtlMs());
+        this.maxSize = config.getMaxSize();
+        this.hits = requests(registry, "hit");
+        this.negativeHits = requests(registry, "negative_hit");
+        this.misses = requests(registry, "miss");
+        this.evictions = registry.counter("gateway.apikey_cache.evictions");
+        this.entryAge = Timer.builder("gateway.apikey_cache.entry_age").register(registry);
+        this.invalidationLag = Timer.builder("gateway.apikey_cache.invalidation_lag").register(registry);
+        Gauge.builder("gateway.apikey_cache.size", cache, ConcurrentMap::size).register(registry);
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("gateway.apikey_cache.requests").tag("result", result).register(registry);
+    }
+
+    /** Subscribes to the change bus. */
+    public CachingApiKeyStore start() {
+        subscription = bus.changes().subscribe(this::apply,
+                e -> log.error("API key change stream terminated; relying on TTL", e));
+        return this;
+    }
+
+    @Override
+    public Mono<ApiKey> findByHash(String keyHash) {
+        Entry e = cache.get(keyHash);
+        long now = System.nanoTime();
+        if (e != null && now < e.expiresAtNanos) {
+            if (e.key == null) {
+                negativeHits.increment();
+                return Mono.empty();
+            }
+            hits.increment();
+            entryAge.record(now - e.loadedAtNanos, TimeUnit.NANOSECONDS);
+            return Mono.just(e.key);
+        }
+        misses.increment();
+        return load(keyHash).flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<Optional<ApiKey>> load(String keyHash) {
+        return loads.computeIfAbsent(keyHash, h -> {
+            long gen = generation.get();
+            return delegate.findByHash(h)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .doOnNext(found -> {
+                        if (generation.get() == gen) put(h, found.orElse(null));
+                    })
+                    .doFinally(signal -> loads.remove(h))
+                    .cache();
+        });
+    }
+
+    private void put(String keyHash, ApiKey key) {
+        long ttl = key == null ? negativeTtlNanos : ttlNanos;
+        if (ttl <= 0) return;
+        long now = System.nanoTime();
+        if (key != null) {
+            String previous = hashById.put(key.id(), keyHash);
+            if (previous != null && !previous.equals(keyHash)) cache.remove(previous);
+        }
+        cache.put(keyHash, new Entry(key, now + ttl, now));
+        if (cache.size() > maxSize) evict(now);
+    }
+
+    private void evict(long now) {
+        int target = Math.max(1, (int) (maxSize * 0.9));
+        Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (now >= e.getValue().expiresAtNanos) {
+                it.remove();
+                unindex(e.getKey(), e.getValue());
+            }
+        }
+        it = cache.entrySet().iterator();
+        while (cache.size() > target && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            it.remove();
+            unindex(e.getKey(), e.getValue());
+            evictions.increment();
+        }
+    }
+
+    private void unindex(String keyHash, Entry e) {
+        if (e.key != null) hashById.remove(e.key.id(), keyHash);
+    }
+
+    @Override
+    public Mono<ApiKey> save(ApiKey key) {
+        return delegate.save(key)
+                .doOnNext(saved -> invalidate(saved.id(), saved.keyHash()));
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return delegate.delete(id)
+                .doFinally(signal -> invalidate(id, null));
+    }
+
+    @Override
+    public Flux<ApiKey> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public Mono<ApiKeyPage> page(String cursor, int limit) {
+        return delegate.page(cursor, limit);
+    }
+
+    @Override
+    public Flux<ApiKey> saveAll(Flux<ApiKey> keys) {
+        return delegate.saveAll(keys)
+                .doOnNext(saved -> invalidate(saved.id(), saved.keyHash()));
+    }
+
+    /** A batch notice bumps the generation once, then drops each (id, hash) by lookup. */
+    private void apply(ApiKeyChange change) {
+        generation.incrementAndGet();
+        change.forEachKey(this::drop);
+        invalidationLag.record(Math.max(0, System.currentTimeMillis() - change.publishedAtMs()), TimeUnit.MILLISECONDS);
+    }
+
+    private void invalidate(String id, String keyHash) {
+        generation.incrementAndGet();
+        drop(id, keyHash);
+    }
+
+    private void drop(String id, String keyHash) {
+        if (keyHash != null) {
+            Entry e = cache.remove(keyHash);
+            if (e != null) unindex(keyHash, e);
+        }
+        if (id != null) {
+            // the id may have been re-keyed: drop whatever hash it was cached under
+            String cached = hashById.remove(id);
+            if (cached != null) cache.remove(cached);
+        }
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void close() {
+        if (subscription != null) subscription.dispose();
+        PublishingApiKeyStore.closeDelegate(delegate);
+    }
+
+    private record Entry(ApiKey key, long expiresAtNanos, long loadedAtNanos) {}
+}
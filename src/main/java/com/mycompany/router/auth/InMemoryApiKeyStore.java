@@ -3,13 +3,17 @@ package com.mycompany.router.auth;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /** Single-node default and the store used by tests. */
 public class InMemoryApiKeyStore implements ApiKeyStore {
 
-    private final Map<String, ApiKey> byId = new ConcurrentHashMap<>();
+    private final NavigableMap<String, ApiKey> byId = new ConcurrentSkipListMap<>();
     private final Map<String, ApiKey> byHash = new ConcurrentHashMap<>();
 
     @Override
@@ -38,4 +42,17 @@ public class InMemoryApiKeyStore implements ApiKeyStore {
     public Flux<ApiKey> list() {
         return Flux.fromIterable(byId.values());
     }
+
+    @Override
+    public Mono<ApiKeyPage> page(String cursor, int limit) {
+        Map<String, ApiKey> after = cursor == null ? byId : byId.tailMap(cursor, false);
+        List<ApiKey> keys = new ArrayList<>(Math.min(limit, 1024));
+        for (ApiKey k : after.values()) {
+            if (keys.size() == limit) {
+                return Mono.just(new ApiKeyPage(keys, keys.get(limit - 1).id()));
+            }
+            keys.add(k);
+        }
+        return Mono.just(new ApiKeyPage(keys, null));
+    }
 }
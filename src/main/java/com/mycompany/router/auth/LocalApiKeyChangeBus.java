@@ -0,0 +1,25 @@
+package com.mycompany.router.auth;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+/** In-process bus for single-node deploys and tests. */
+public class LocalApiKeyChangeBus implements ApiKeyChangeBus {
+
+    private final Sinks.Many<ApiKeyChange> sink = Sinks.many().multicast().directBestEffort();
+
+    @Override
+    public Mono<Void> publish(ApiKeyChange change) {
+        // concurrent publishers race on the sink; spin briefly instead of dropping
+        return Mono.fromRunnable(() -> sink.emitNext(change,
+                Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))));
+    }
+
+    @Override
+    public Flux<ApiKeyChange> changes() {
+        return sink.asFlux();
+    }
+}
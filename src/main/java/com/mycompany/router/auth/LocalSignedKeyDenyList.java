@@ -0,0 +1,35 @@
+package com.mycompany.router.auth;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Single-node deny list; also the local mirror used by {@link RedisSignedKeyDenyList}. */
+public class LocalSignedKeyDenyList implements SignedKeyDenyList {
+
+    private final ConcurrentMap<String, Long> deniedUntil = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isDenied(String keyId) {
+        Long until = deniedUntil.get(keyId);
+        if (until == null) return false;
+        if (until > System.currentTimeMillis()) return true;
+        deniedUntil.remove(keyId, until);
+        return false;
+    }
+
+    @Override
+    public Mono<Void> deny(String keyId, Instant until) {
+        return Mono.fromRunnable(() -> add(keyId, until.toEpochMilli()));
+    }
+
+    void add(String keyId, long untilEpochMillis) {
+        deniedUntil.merge(keyId, untilEpochMillis, Math::max);
+    }
+
+    int size() {
+        return deniedUntil.size();
+    }
+}
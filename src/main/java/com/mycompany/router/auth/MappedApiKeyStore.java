@@ -0,0 +1,485 @@
+package com.mycompany.router.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Embedded, Redis-free API key store on local disk for edge pods with
+ * millions of keys.
+ *
+ * <ul>
+ *   <li>{@code apikeys.log} — {@link MappedRecordLog} of 256-byte records, one
+ *       per save or delete. Appends are forced to disk before they become
+ *       visible when {@code syncWrites} is on.</li>
+ *   <li>{@code apikeys.hash.idx} — {@link MappedHashIndex} from the first 8
+ *       bytes of the SHA-256 to the key's latest record.</li>
+ *   <li>{@code apikeys.id.idx} — same, keyed by a 64-bit hash of the key id
+ *       (for deletes and re-keying).</li>
+ * </ul>
+ *
+ * {@link #findByHash} parses the hex hash in place, probes the mapped index
+ * under an optimistic {@link StampedLock} read and compares the full 32 bytes
+ * against the record: no locks taken and nothing allocated until the hit is
+ * decoded into an {@link ApiKey}. Opening a cleanly closed store only maps
+ * the files; after a crash (index dirty or behind the log) the indexes are
+ * rebuilt by one sequential scan of the log.
+ *
+ * Superseded and deleted records stay in the log until {@link #compact}
+ * rewrites it with live records only; that also runs automatically once dead
+ * records outnumber live ones.
+ *
+ * Field limits (UTF-8 bytes): id 63, principalId 63, tier 15, scopes joined
+ * with commas 55. Longer values, and scopes containing a comma, are rejected
+ * on save.
+ */
+public class MappedApiKeyStore implements ApiKeyStore, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedApiKeyStore.class);
+
+    // record layout; bytes 0-3 are the CRC written by MappedRecordLog
+    private static final int TYPE = MappedRecordLog.TYPE_OFFSET;
+    private static final int ENABLED = 5;
+    private static final int CREATED = 8;
+    private static final int EXPIRES = 16;
+    private static final int HASH = 24;
+    private static final int ID = 56;
+    private static final int PRINCIPAL = 120;
+    private static final int TIER = 184;
+    private static final int SCOPES = 200;
+    private static final int ID_WIDTH = 64;
+    private static final int PRINCIPAL_WIDTH = 64;
+    private static final int TIER_WIDTH = 16;
+    private static final int SCOPES_WIDTH = 56;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int MIN_COMPACTION_RECORDS = 100_000;
+    private static final int SAVE_BATCH = 500;
+
+    private final Path dir;
+    private final int initialCapacity;
+    private final boolean syncWrites;
+    private final StampedLock lock = new StampedLock();
+    private volatile MappedRecordLog records;
+    private volatile MappedHashIndex byHash;
+    private volatile MappedHashIndex byId;
+
+    public MappedApiKeyStore(Path dir, int initialCapacity, boolean syncWrites) throws IOException {
+        this.dir = dir;
+        this.initialCapacity = initialCapacity;
+        this.syncWrites = syncWrites;
+        Files.createDirectories(dir);
+        long start = System.nanoTime();
+        records = MappedRecordLog.open(logFile(), System.currentTimeMillis(), syncWrites);
+        byHash = MappedHashIndex.openExisting(hashFile(), records.generation(), records.committed());
+        byId = MappedHashIndex.openExisting(idFile(), records.generation(), records.committed());
+        if (byHash == null || byId == null) {
+            rebuildIndexes();
+        }
+        log.info("Mapped API key store opened at {}: {} key(s), {} record(s) in {} ms", dir, byId.size(),
+                records.committed(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ===== reads =====
+
+    @Override
+    public Mono<ApiKey> findByHash(String keyHash) {
+        ApiKey key = get(keyHash);
+        return key == null ? Mono.empty() : Mono.just(key);
+    }
+
+    ApiKey get(String keyHash) {
+        if (keyHash.length() != 64) return null;
+        long h0, h1, h2, h3;
+        try {
+            h0 = Long.parseUnsignedLong(keyHash, 0, 16, 16);
+            h1 = Long.parseUnsignedLong(keyHash, 16, 32, 16);
+            h2 = Long.parseUnsignedLong(keyHash, 32, 48, 16);
+            h3 = Long.parseUnsignedLong(keyHash, 48, 64, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        MappedRecordLog log = records;
+        int rec = probeHash(byHash, log, h0, h1, h2, h3);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                log = records;
+                rec = probeHash(byHash, log, h0, h1, h2, h3);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return rec == 0 ? null : decode(log, rec);
+    }
+
+    /** Runs without a lock; tolerates torn reads (bounds-checked) because the caller validates afterwards. */
+    private static int probeHash(MappedHashIndex index, MappedRecordLog log, long h0, long h1, long h2, long h3) {
+        long fp = hashFingerprint(h0);
+        int mask = index.mask();
+        int committed = log.committed();
+        for (int i = index.home(fp), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            int rec = index.record(i);
+            if (rec == MappedHashIndex.EMPTY) return 0;
+            if (rec > 0 && rec <= committed && index.fingerprint(i) == fp
+                    && log.getLong(rec, HASH) == h0 && log.getLong(rec, HASH + 8) == h1
+                    && log.getLong(rec, HASH + 16) == h2 && log.getLong(rec, HASH + 24) == h3) {
+                return rec;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public Flux<ApiKey> list() {
+        return Flux.defer(() -> {
+            MappedHashIndex index = byId;
+            MappedRecordLog log = records;
+            return Flux.range(0, index.capacity())
+                    .filter(slot -> index.record(slot) > 0)
+                    .mapNotNull(slot -> {
+                        int rec = index.record(slot);
+                        return rec > 0 && rec <= log.committed() ? decode(log, rec) : null;
+                    });
+        });
+    }
+
+    /**
+     * Pages through the id index in slot order; the cursor is the last slot
+     * returned. An index rebuild between pages (growth or compaction)
+     * reshuffles slots, so a walk that spans one may repeat or miss keys.
+     */
+    @Override
+    public Mono<ApiKeyPage> page(String cursor, int limit) {
+        return Mono.fromCallable(() -> {
+            MappedHashIndex index = byId;
+            MappedRecordLog log = records;
+            List<ApiKey> keys = new ArrayList<>(Math.min(limit, 1024));
+            int slot = cursor == null ? 0 : Integer.parseInt(cursor) + 1;
+            for (; slot < index.capacity(); slot++) {
+                int rec = index.record(slot);
+                if (rec > 0 && rec <= log.committed()) {
+                    keys.add(decode(log, rec));
+                    if (keys.size() == limit) {
+                        return new ApiKeyPage(keys, slot + 1 < index.capacity() ? Integer.toString(slot) : null);
+                    }
+                }
+            }
+            return new ApiKeyPage(keys, null);
+        });
+    }
+
+    // ===== writes =====
+
+    @Override
+    public Mono<ApiKey> save(ApiKey key) {
+        return Mono.fromCallable(() -> {
+            write(encode(PUT, key));   // a field that doesn't fit becomes an error signal, not a throw
+            return key;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<ApiKey> saveAll(Flux<ApiKey> keys) {
+        return keys.buffer(SAVE_BATCH)
+                .concatMap(batch -> Mono.fromCallable(() -> {
+                    batch.forEach(this::put);
+                    return batch;
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .flatMapIterable(batch -> batch);
+    }
+
+    /** Synchronous {@link #save}, for bulk loads. */
+    void put(ApiKey key) {
+        write(encode(PUT, key));
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return Mono.<Void>fromRunnable(() -> {
+            synchronized (this) {
+                if (findById(records, byId, id) == 0) return;
+                ByteBuffer record = ByteBuffer.allocate(MappedRecordLog.RECORD_SIZE);
+                record.put(TYPE, DELETE);
+                putString(record, ID, ID_WIDTH, id, "id");
+                write(record);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private synchronized void write(ByteBuffer record) {
+        try {
+            int rec = records.append(record);
+            long stamp = lock.writeLock();
+            try {
+                apply(records, byHash, byId, rec);
+                byHash.setIndexedRecords(rec);
+                byId.setIndexedRecords(rec);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            growIfNeeded();
+            int live = byId.size();
+            int dead = records.committed() - live;
+            if (dead > live && dead >= MIN_COMPACTION_RECORDS) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Applies log record {@code rec} to the indexes; shared by writes and rebuilds. */
+    private static void apply(MappedRecordLog log, MappedHashIndex byHash, MappedHashIndex byId, int rec) {
+        String id = readString(log, rec, ID);
+        long idFp = idFingerprint(id);
+        int previous = findById(log, byId, id);
+        if (previous != 0) {
+            removeRecord(byHash, hashFingerprint(log.getLong(previous, HASH)), previous);
+        }
+        if (log.getByte(rec, TYPE) == DELETE) {
+            if (previous != 0) removeRecord(byId, idFp, previous);
+            return;
+        }
+        putRecord(byHash, hashFingerprint(log.getLong(rec, HASH)), rec, previous);
+        putRecord(byId, idFp, rec, previous);
+    }
+
+    private static int findById(MappedRecordLog log, MappedHashIndex byId, String id) {
+        long fp = idFingerprint(id);
+        int mask = byId.mask();
+        for (int i = byId.home(fp), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            int rec = byId.record(i);
+            if (rec == MappedHashIndex.EMPTY) return 0;
+            if (rec > 0 && byId.fingerprint(i) == fp && id.equals(readString(log, rec, ID))) return rec;
+        }
+        return 0;
+    }
+
+    /** Points the slot holding {@code previous} (if any) at {@code rec}, else inserts. */
+    private static void putRecord(MappedHashIndex index, long fp, int rec, int previous) {
+        int mask = index.mask();
+        int free = -1;
+        for (int i = index.home(fp), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            int r = index.record(i);
+            if (r == MappedHashIndex.EMPTY) {
+                index.set(free >= 0 ? free : i, fp, rec);
+                return;
+            }
+            if (r == MappedHashIndex.TOMBSTONE) {
+                if (free < 0) free = i;
+            } else if (previous != 0 && r == previous) {
+                index.set(i, fp, rec);
+                return;
+            }
+        }
+        if (free < 0) throw new IllegalStateException("API key index is full");
+        index.set(free, fp, rec);
+    }
+
+    private static void removeRecord(MappedHashIndex index, long fp, int rec) {
+        int mask = index.mask();
+        for (int i = index.home(fp), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            int r = index.record(i);
+            if (r == MappedHashIndex.EMPTY) return;
+            if (r == rec) {
+                index.remove(i);
+                return;
+            }
+        }
+    }
+
+    private void growIfNeeded() throws IOException {
+        if (byHash.needsRebuild() || byId.needsRebuild()) {
+            rebuildIndexes(records);
+        }
+    }
+
+    private void rebuildIndexes() throws IOException {
+        rebuildIndexes(records);
+    }
+
+    /** Builds both indexes for {@code log}, sized for twice the live keys, and swaps all three in together. */
+    private synchronized void rebuildIndexes(MappedRecordLog log) throws IOException {
+        int live = byId == null ? log.committed() : byId.size();
+        int capacity = Math.max(initialCapacity, (int) Math.min(MappedHashIndex.MAX_CAPACITY, live * 2L + 16));
+        Path hashTmp = dir.resolve("apikeys.hash.idx.tmp");
+        Path idTmp = dir.resolve("apikeys.id.idx.tmp");
+        MappedHashIndex newHash = MappedHashIndex.create(hashTmp, capacity, log.generation());
+        MappedHashIndex newId = MappedHashIndex.create(idTmp, capacity, log.generation());
+        for (int rec = 1; rec <= log.committed(); rec++) {
+            apply(log, newHash, newId, rec);
+        }
+        newHash.setIndexedRecords(log.committed());
+        newId.setIndexedRecords(log.committed());
+        newHash.markClean();
+        newId.markClean();
+        Files.move(hashTmp, hashFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(idTmp, idFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        swap(log, newHash, newId);
+    }
+
+    /**
+     * Rewrites the log with live records only, then rebuilds the indexes. The
+     * new log has a new generation, so a crash between the two renames is
+     * detected on open and the indexes are rebuilt.
+     */
+    public synchronized void compact() throws IOException {
+        MappedRecordLog old = records;
+        MappedHashIndex ids = byId;
+        Path tmp = dir.resolve("apikeys.log.tmp");
+        Files.deleteIfExists(tmp);
+        MappedRecordLog compacted = MappedRecordLog.open(tmp, old.generation() + 1, false);
+        ByteBuffer buf = ByteBuffer.allocate(MappedRecordLog.RECORD_SIZE);
+        for (int slot = 0; slot < ids.capacity(); slot++) {
+            int rec = ids.record(slot);
+            if (rec > 0) {
+                old.copy(rec, buf);
+                compacted.append(buf);
+            }
+        }
+        compacted.force();
+        compacted.close();
+        Files.move(tmp, logFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        MappedRecordLog reopened = MappedRecordLog.open(logFile(), 0, syncWrites);
+        rebuildIndexes(reopened);
+        old.close();
+        log.info("Compacted API key log: {} -> {} record(s)", old.committed(), reopened.committed());
+    }
+
+    private void swap(MappedRecordLog log, MappedHashIndex newHash, MappedHashIndex newId) throws IOException {
+        MappedHashIndex oldHash = byHash;
+        MappedHashIndex oldId = byId;
+        long stamp = lock.writeLock();
+        try {
+            records = log;
+            byHash = newHash;
+            byId = newId;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        // the old mappings stay valid for in-flight readers until they are garbage collected
+        if (oldHash != null) oldHash.close();
+        if (oldId != null) oldId.close();
+    }
+
+    int liveKeys() {
+        return byId.size();
+    }
+
+    int logRecords() {
+        return records.committed();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        records.force();
+        byHash.markClean();
+        byId.markClean();
+        byHash.close();
+        byId.close();
+        records.close();
+    }
+
+    // ===== encoding =====
+
+    private static ByteBuffer encode(byte type, ApiKey k) {
+        ByteBuffer b = ByteBuffer.allocate(MappedRecordLog.RECORD_SIZE);
+        b.put(TYPE, type);
+        b.put(ENABLED, (byte) (k.enabled() ? 1 : 0));
+        b.putLong(CREATED, k.createdAt() == null ? NO_TIME : k.createdAt().toEpochMilli());
+        b.putLong(EXPIRES, k.expiresAt() == null ? NO_TIME : k.expiresAt().toEpochMilli());
+        byte[] hash;
+        try {
+            hash = HexFormat.of().parseHex(k.keyHash());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("keyHash must be SHA-256 hex", e);
+        }
+        if (hash.length != 32) throw new IllegalArgumentException("keyHash must be SHA-256 hex");
+        b.put(HASH, hash);
+        putString(b, ID, ID_WIDTH, k.id(), "id");
+        putString(b, PRINCIPAL, PRINCIPAL_WIDTH, k.principalId(), "principalId");
+        putString(b, TIER, TIER_WIDTH, k.tier(), "tier");
+        if (k.scopes() != null && k.scopes().stream().anyMatch(s -> s.indexOf(',') >= 0)) {
+            throw new IllegalArgumentException("scopes must not contain ','");   // the field is comma-joined
+        }
+        putString(b, SCOPES, SCOPES_WIDTH, k.scopes() == null ? "" : String.join(",", k.scopes()), "scopes");
+        return b;
+    }
+
+    private static void putString(ByteBuffer b, int field, int width, String value, String name) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > width - 1) {
+            throw new IllegalArgumentException(name + " exceeds " + (width - 1) + " bytes");
+        }
+        b.put(field, (byte) bytes.length);
+        b.put(field + 1, bytes);
+    }
+
+    private static ApiKey decode(MappedRecordLog log, int rec) {
+        long created = log.getLong(rec, CREATED);
+        long expires = log.getLong(rec, EXPIRES);
+        byte[] hash = new byte[32];
+        log.getBytes(rec, HASH, hash, 32);
+        String scopes = readString(log, rec, SCOPES);
+        return new ApiKey(
+                readString(log, rec, ID),
+                HexFormat.of().formatHex(hash),
+                readString(log, rec, PRINCIPAL),
+                readString(log, rec, TIER),
+                scopes.isEmpty() ? Set.of() : Set.of(scopes.split(",")),
+                log.getByte(rec, ENABLED) == 1,
+                created == NO_TIME ? null : Instant.ofEpochMilli(created),
+                expires == NO_TIME ? null : Instant.ofEpochMilli(expires));
+    }
+
+    private static String readString(MappedRecordLog log, int rec, int field) {
+        int len = log.getByte(rec, field) & 0xff;
+        byte[] bytes = new byte[len];
+        log.getBytes(rec, field + 1, bytes, len);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long hashFingerprint(long firstWord) {
+        return firstWord == 0 ? 1 : firstWord;
+    }
+
+    private static long idFingerprint(String id) {
+        long h = 0xcbf29ce484222325L;                    // FNV-1a over UTF-16 code units
+        for (int i = 0; i < id.length(); i++) {
+            h = (h ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    private Path logFile() {
+        return dir.resolve("apikeys.log");
+    }
+
+    private Path hashFile() {
+        return dir.resolve("apikeys.hash.idx");
+    }
+
+    private Path idFile() {
+        return dir.resolve("apikeys.id.idx");
+    }
+}
@@ -0,0 +1,175 @@
+package com.mycompany.router.auth;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped open-addressing table of {@code fingerprint → record number}
+ * with linear probing. Each slot is 12 bytes: a 64-bit fingerprint of the key
+ * and a 32-bit record number in a {@link MappedRecordLog}. Record {@code 0}
+ * marks an empty slot and {@code -1} a tombstone. Fingerprints can collide,
+ * so callers confirm a match against the record itself.
+ *
+ * The table never resizes in place; the owner builds a larger one and swaps
+ * it in. The header carries the log generation the table was built for, how
+ * many log records it reflects, and a dirty flag that is set from the first
+ * mutation until a clean {@link #close}, so a crash is detected on open.
+ */
+final class MappedHashIndex implements Closeable {
+
+    static final int EMPTY = 0;
+    static final int TOMBSTONE = -1;
+    static final int MAX_CAPACITY = 1 << 27;          // 1.5 GB of slots, under the 2 GB mapping limit
+
+    private static final int HEADER = 64;
+    private static final int SLOT = 12;
+    private static final long MAGIC = 0x524b494458303031L; // "RKIDX001"
+    private static final int H_MAGIC = 0;
+    private static final int H_CAPACITY = 8;
+    private static final int H_SIZE = 16;
+    private static final int H_TOMBSTONES = 24;
+    private static final int H_INDEXED = 32;
+    private static final int H_GENERATION = 40;
+    private static final int H_DIRTY = 48;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final int capacity;
+    private final int mask;
+    private int size;
+    private int tombstones;
+    private boolean dirty;
+
+    private MappedHashIndex(FileChannel channel, MappedByteBuffer buf, int capacity) {
+        this.channel = channel;
+        this.buf = buf;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.size = (int) buf.getLong(H_SIZE);
+        this.tombstones = (int) buf.getLong(H_TOMBSTONES);
+    }
+
+    /** Maps an existing table, or returns {@code null} if the file is missing, foreign or was not closed cleanly. */
+    static MappedHashIndex openExisting(Path file, long generation, int indexedRecords) throws IOException {
+        if (!file.toFile().exists()) return null;
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = ch.size();
+        if (fileSize < HEADER) {
+            ch.close();
+            return null;
+        }
+        MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+        long cap = header.getLong(H_CAPACITY);
+        boolean usable = header.getLong(H_MAGIC) == MAGIC
+                && Long.bitCount(cap) == 1 && cap <= MAX_CAPACITY
+                && fileSize >= HEADER + cap * SLOT
+                && header.getLong(H_GENERATION) == generation
+                && header.getLong(H_INDEXED) == indexedRecords
+                && header.getLong(H_DIRTY) == 0;
+        if (!usable) {
+            ch.close();
+            return null;
+        }
+        return new MappedHashIndex(ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + cap * SLOT), (int) cap);
+    }
+
+    /** Creates (or truncates) a table with at least {@code minCapacity} slots. */
+    static MappedHashIndex create(Path file, int minCapacity, long generation) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(16, minCapacity - 1)) << 1;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Index capacity " + capacity + " exceeds " + MAX_CAPACITY);
+        }
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+        buf.putLong(H_MAGIC, MAGIC);
+        buf.putLong(H_CAPACITY, capacity);
+        buf.putLong(H_GENERATION, generation);
+        return new MappedHashIndex(ch, buf, capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int mask() {
+        return mask;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int home(long fingerprint) {
+        long h = fingerprint * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    long fingerprint(int slot) {
+        return buf.getLong(HEADER + slot * SLOT);
+    }
+
+    int record(int slot) {
+        return buf.getInt(HEADER + slot * SLOT + 8);
+    }
+
+    /** Writes a live entry into {@code slot}, which must be empty, a tombstone, or already hold this key. */
+    void set(int slot, long fingerprint, int record) {
+        markDirty();
+        int previous = record(slot);
+        if (previous == EMPTY) size++;
+        else if (previous == TOMBSTONE) {
+            tombstones--;
+            size++;
+        }
+        buf.putLong(HEADER + slot * SLOT, fingerprint);
+        buf.putInt(HEADER + slot * SLOT + 8, record);
+        writeCounts();
+    }
+
+    void remove(int slot) {
+        markDirty();
+        buf.putInt(HEADER + slot * SLOT + 8, TOMBSTONE);
+        size--;
+        tombstones++;
+        writeCounts();
+    }
+
+    /** True once live + dead slots pass 70% — probe chains get long beyond that. */
+    boolean needsRebuild() {
+        return size + tombstones + 1 > capacity * 0.7;
+    }
+
+    void setIndexedRecords(int records) {
+        buf.putLong(H_INDEXED, records);
+    }
+
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            buf.putLong(H_DIRTY, 1);
+        }
+    }
+
+    private void writeCounts() {
+        buf.putLong(H_SIZE, size);
+        buf.putLong(H_TOMBSTONES, tombstones);
+    }
+
+    /** Flushes the table and clears the dirty flag. */
+    void markClean() {
+        buf.force();
+        buf.putLong(H_DIRTY, 0);
+        buf.force(0, HEADER);
+        dirty = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.mycompany.router.auth;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of fixed-width {@value #RECORD_SIZE}-byte records, mapped
+ * in {@value #CHUNK_RECORDS}-record chunks (a single mapping is capped at 2 GB).
+ *
+ * Record 0 is the header ({@code magic, committed, generation}); data records
+ * are numbered from 1, so 0 can mean "none" in the indexes. Each record starts
+ * with a CRC32C of its remaining bytes and a non-zero type byte. On open,
+ * records past the header's {@code committed} count that are intact (written
+ * before a crash, header not yet updated) are recovered; the first torn or
+ * empty one ends the log and is overwritten by the next append.
+ *
+ * Single writer; readers may read any record up to a number they learned
+ * from an index, since records never change once written.
+ */
+final class MappedRecordLog implements Closeable {
+
+    static final int RECORD_SIZE = 256;
+    static final int TYPE_OFFSET = 4;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;   // 16 MB per mapping
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_SIZE;
+    private static final long MAGIC = 0x524b4c4f47303031L;      // "RKLOG001"
+    private static final int H_MAGIC = 0;
+    private static final int H_COMMITTED = 8;
+    private static final int H_GENERATION = 16;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] chunks;
+    private final boolean sync;
+    private volatile int committed;   // written under the store's write lock, read by lock-free probes
+
+    private MappedRecordLog(FileChannel channel, boolean sync) throws IOException {
+        this.channel = channel;
+        this.sync = sync;
+        this.chunks = new MappedByteBuffer[]{map(0)};
+    }
+
+    static MappedRecordLog open(Path file, long generationIfNew, boolean sync) throws IOException {
+        FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedRecordLog log = new MappedRecordLog(ch, sync);
+        MappedByteBuffer header = log.chunks[0];
+        if (header.getLong(H_MAGIC) != MAGIC) {
+            header.putLong(H_MAGIC, MAGIC);
+            header.putLong(H_COMMITTED, 0);
+            header.putLong(H_GENERATION, generationIfNew);
+            header.force(0, RECORD_SIZE);
+        }
+        log.committed = (int) header.getLong(H_COMMITTED);
+        log.recoverTail();
+        return log;
+    }
+
+    private void recoverTail() throws IOException {
+        int n = committed;
+        while (n + 1 < Integer.MAX_VALUE && chunkIfMapped(n + 1) && intact(n + 1)) {
+            n++;
+        }
+        if (n != committed) {
+            committed = n;
+            chunks[0].putLong(H_COMMITTED, n);
+        }
+    }
+
+    private boolean chunkIfMapped(int record) throws IOException {
+        long end = ((long) (record >>> CHUNK_SHIFT) + 1) * CHUNK_BYTES;
+        if (channel.size() < end) return false;
+        ensureChunk(record);
+        return true;
+    }
+
+    /** Appends {@code record} (exactly {@value #RECORD_SIZE} bytes, CRC not yet set) and returns its number. */
+    int append(ByteBuffer record) throws IOException {
+        int n = committed + 1;
+        record.putInt(0, crc(record, 0));
+        MappedByteBuffer chunk = ensureChunk(n);
+        int off = offset(n);
+        chunk.put(off, record, 0, RECORD_SIZE);
+        if (sync) chunk.force(off, RECORD_SIZE);
+        chunks[0].putLong(H_COMMITTED, n);
+        if (sync) chunks[0].force(0, RECORD_SIZE);
+        committed = n;
+        return n;
+    }
+
+    int committed() {
+        return committed;
+    }
+
+    long generation() {
+        return chunks[0].getLong(H_GENERATION);
+    }
+
+    boolean intact(int record) {
+        MappedByteBuffer chunk = chunks[record >>> CHUNK_SHIFT];
+        int off = offset(record);
+        return chunk.get(off + TYPE_OFFSET) != 0
+                && chunk.getInt(off) == crc(chunk.slice(off, RECORD_SIZE), 0);
+    }
+
+    byte getByte(int record, int field) {
+        return chunks[record >>> CHUNK_SHIFT].get(offset(record) + field);
+    }
+
+    long getLong(int record, int field) {
+        return chunks[record >>> CHUNK_SHIFT].getLong(offset(record) + field);
+    }
+
+    void getBytes(int record, int field, byte[] dst, int length) {
+        chunks[record >>> CHUNK_SHIFT].get(offset(record) + field, dst, 0, length);
+    }
+
+    /** Copies record {@code record} into {@code dst} (e.g. for compaction). */
+    void copy(int record, ByteBuffer dst) {
+        dst.put(0, chunks[record >>> CHUNK_SHIFT], offset(record), RECORD_SIZE);
+    }
+
+    void force() {
+        for (MappedByteBuffer c : chunks) c.force();
+    }
+
+    private MappedByteBuffer ensureChunk(int record) throws IOException {
+        int idx = record >>> CHUNK_SHIFT;
+        MappedByteBuffer[] current = chunks;
+        if (idx < current.length) return current[idx];
+        MappedByteBuffer[] grown = Arrays.copyOf(current, idx + 1);
+        for (int i = current.length; i <= idx; i++) grown[i] = map(i);
+        chunks = grown;
+        return grown[idx];
+    }
+
+    private MappedByteBuffer map(int chunk) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, chunk * CHUNK_BYTES, CHUNK_BYTES);
+    }
+
+    private static int offset(int record) {
+        return (record & CHUNK_MASK) * RECORD_SIZE;
+    }
+
+    private static int crc(ByteBuffer record, int base) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(base + 4, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.mycompany.router.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-key reads into one multi-key read ({@code MGET}).
+ *
+ * A {@link #get} with no fetch outstanding is sent at once, so an idle or
+ * lightly loaded node pays nothing for batching. Gets that arrive while a
+ * fetch is in flight join the next batch, which goes out when a fetch
+ * returns, when {@code maxBatch} distinct keys are waiting, or after
+ * {@code window}, whichever comes first. Identical keys share one slot. Each
+ * waiting {@code Mono} completes with its value, or empty for a {@code null};
+ * a failed fetch fails every waiter in its batch.
+ *
+ * Metrics: {@code gateway.apikey_redis.batch_size} (distinct keys per fetch),
+ * {@code gateway.apikey_redis.round_trips_saved} (lookups answered without a
+ * round trip of their own).
+ */
+final class MgetBatcher<V> {
+
+    private final Function<List<String>, Mono<List<V>>> multiGet;
+    private final long windowMicros;
+    private final int maxBatch;
+    private final Scheduler timer;
+    private final DistributionSummary batchSize;
+    private final Counter saved;
+    private Batch current;              // guarded by this
+    private int outstanding;            // guarded by this
+
+    MgetBatcher(Function<List<String>, Mono<List<V>>> multiGet, long windowMicros, int maxBatch,
+                MeterRegistry registry) {
+        this(multiGet, windowMicros, maxBatch, Schedulers.parallel(), registry);
+    }
+
+    MgetBatcher(Function<List<String>, Mono<List<V>>> multiGet, long windowMicros, int maxBatch,
+                Scheduler timer, MeterRegistry registry) {
+        this.multiGet = multiGet;
+        this.windowMicros = windowMicros;
+        this.maxBatch = maxBatch;
+        this.timer = timer;
+        this.batchSize = DistributionSummary.builder("gateway.apikey_redis.batch_size")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.saved = Counter.builder("gateway.apikey_redis.round_trips_saved").register(registry);
+    }
+
+    Mono<V> get(String key) {
+        return Mono.create(sink -> {
+            Batch ready = null;
+            synchronized (this) {
+                Batch batch = current;
+                if (batch == null) {
+                    batch = current = new Batch();
+                    if (outstanding > 0) {
+                        Batch armed = batch;
+                        timer.schedule(() -> flush(armed), windowMicros, TimeUnit.MICROSECONDS);
+                    }
+                }
+                batch.add(key, sink);
+                if (outstanding == 0 || batch.waiters.size() >= maxBatch) {
+                    ready = take();
+                }
+            }
+            if (ready != null) ready.fetch();
+        });
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (current != batch) return;  // already sent: full, or a fetch returned first
+            take();
+        }
+        batch.fetch();
+    }
+
+    /** A fetch returned: whatever queued up behind it goes out now. */
+    private void done() {
+        Batch next = null;
+        synchronized (this) {
+            outstanding--;
+            if (current != null) next = take();
+        }
+        if (next != null) next.fetch();
+    }
+
+    private Batch take() {
+        Batch batch = current;
+        current = null;
+        outstanding++;
+        return batch;
+    }
+
+    private final class Batch {
+        final Map<String, List<MonoSink<V>>> waiters = new LinkedHashMap<>();
+        int lookups;
+
+        void add(String key, MonoSink<V> sink) {
+            waiters.computeIfAbsent(key, k -> new ArrayList<>(1)).add(sink);
+            lookups++;
+        }
+
+        // runs after the batch left `current`, so nothing else touches it
+        void fetch() {
+            List<String> keys = new ArrayList<>(waiters.keySet());
+            batchSize.record(keys.size());
+            saved.increment(lookups - 1);
+            multiGet.apply(keys).defaultIfEmpty(List.of()).doFinally(signal -> done()).subscribe(values -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    V value = i < values.size() ? values.get(i) : null;
+                    for (MonoSink<V> sink : waiters.get(keys.get(i))) {
+                        if (value == null) sink.success();
+                        else sink.success(value);
+                    }
+                }
+            }, error -> waiters.values().forEach(sinks -> sinks.forEach(sink -> sink.error(error))));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mycompany.router.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outermost store decorator: after a successful {@code save} or
+ * {@code delete}, announces it on the {@link ApiKeyChangeBus} so the local
+ * layers on every other node ({@link CachingApiKeyStore},
+ * {@link BloomFilterApiKeyStore}) can catch up. A failed publish is logged,
+ * not propagated — the write itself already succeeded.
+ *
+ * Closing it closes the whole decorator chain, down to a store that holds
+ * files or connections ({@link MappedApiKeyStore}).
+ */
+public class PublishingApiKeyStore implements ApiKeyStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PublishingApiKeyStore.class);
+
+    /** Keys per bulk-import notice: ~50 KB of JSON. */
+    static final int PUBLISH_BATCH = 500;
+
+    private final ApiKeyStore delegate;
+    private final ApiKeyChangeBus bus;
+
+    public PublishingApiKeyStore(ApiKeyStore delegate, ApiKeyChangeBus bus) {
+        this.delegate = delegate;
+        this.bus = bus;
+    }
+
+    @Override
+    public Mono<ApiKey> findByHash(String keyHash) {
+        return delegate.findByHash(keyHash);
+    }
+
+    @Override
+    public Mono<ApiKey> save(ApiKey key) {
+        return delegate.save(key)
+                .flatMap(saved -> publish(ApiKeyChange.Type.SAVED, saved.id(), saved.keyHash()).thenReturn(saved));
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return delegate.delete(id).then(publish(ApiKeyChange.Type.DELETED, id, null));
+    }
+
+    @Override
+    public Flux<ApiKey> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public Mono<ApiKeyPage> page(String cursor, int limit) {
+        return delegate.page(cursor, limit);
+    }
+
+    /** One {@link ApiKeyChange.Type#SAVED_BATCH} notice per {@value #PUBLISH_BATCH} saved keys, not one per key. */
+    @Override
+    public Flux<ApiKey> saveAll(Flux<ApiKey> keys) {
+        return delegate.saveAll(keys)
+                .buffer(PUBLISH_BATCH)
+                .concatMap(batch -> publish(ApiKeyChange.savedBatch(batch, System.currentTimeMillis()),
+                        batch.size() + " imported keys").thenMany(Flux.fromIterable(batch)));
+    }
+
+    private Mono<Void> publish(ApiKeyChange.Type type, String id, String keyHash) {
+        return Mono.defer(() -> publish(new ApiKeyChange(type, id, keyHash, System.currentTimeMillis()), id));
+    }
+
+    private Mono<Void> publish(ApiKeyChange change, String what) {
+        return Mono.defer(() -> bus.publish(change))
+                .onErrorResume(e -> {
+                    log.warn("Failed to publish API key change for {}; other nodes will catch up via TTL", what, e);
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public void close() {
+        closeDelegate(delegate);
+    }
+
+    /** Closes {@code delegate} if it is closeable; shared by the decorators' {@code close()}. */
+    static void closeDelegate(ApiKeyStore delegate) {
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close API key store {}", delegate.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mycompany.router.auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Redis pub/sub bus. Messages are JSON-encoded {@link ApiKeyChange}s on a
+ * single channel. Pub/sub is fire-and-forget: a node that is disconnected
+ * when a change is published misses it and relies on the cache TTL. Each
+ * failure and resubscription is reported on {@link #connections()}.
+ */
+public class RedisApiKeyChangeBus implements ApiKeyChangeBus {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisApiKeyChangeBus.class);
+
+    private final ReactiveStringRedisTemplate redis;
+    private final ObjectMapper mapper;
+    private final String channel;
+    private final Flux<ApiKeyChange> changes;
+    private final Sinks.Many<Connection> connections = Sinks.many().multicast().directBestEffort();
+
+    public RedisApiKeyChangeBus(ReactiveStringRedisTemplate redis, ObjectMapper mapper, String channel) {
+        this.redis = redis;
+        this.mapper = mapper;
+        this.channel = channel;
+        this.changes = redis.listenToChannel(channel)
+                .doOnSubscribe(s -> signal(Connection.UP))
+                .concatMap(m -> decode(m.getMessage()))
+                .doOnError(e -> {
+                    log.warn("API key change subscription on {} failed, resubscribing", channel, e);
+                    signal(Connection.DOWN);
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(500)).maxBackoff(Duration.ofSeconds(10)))
+                .share();
+    }
+
+    @Override
+    public Mono<Void> publish(ApiKeyChange change) {
+        try {
+            return redis.convertAndSend(channel, mapper.writeValueAsString(change)).then();
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Flux<ApiKeyChange> changes() {
+        return changes;
+    }
+
+    @Override
+    public Flux<Connection> connections() {
+        return connections.asFlux();
+    }
+
+    private void signal(Connection connection) {
+        connections.emitNext(connection, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    private Mono<ApiKeyChange> decode(String json) {
+        try {
+            return Mono.just(mapper.readValue(json, ApiKeyChange.class));
+        } catch (Exception e) {
+            log.warn("Ignoring malformed API key change message: {}", json);
+            return Mono.empty();
+        }
+    }
+}
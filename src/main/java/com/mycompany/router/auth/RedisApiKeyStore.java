@@ -2,71 +2,239 @@ package com.mycompany.router.auth;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 /**
- * Redis-backed API key store. Keys are JSON-encoded under two indexes:
+ * Redis-backed API key store with two indexes:
  * <ul>
- *   <li>{@code apikey:id:{id}}     → ApiKey JSON</li>
- *   <li>{@code apikey:hash:{hash}} → ApiKey JSON</li>
+ *   <li>{@code apikey:hash:{hash}} → the key record (auth path, one {@code GET})</li>
+ *   <li>{@code apikey:id:{id}}     → a pointer to the hash ({@link Encoding#BINARY}),
+ *       or a second copy of the record ({@link Encoding#JSON})</li>
  * </ul>
- * Both writes are issued; lookups go through the hash index for O(1) auth.
+ * {@code BINARY} writes {@link ApiKeyBinaryCodec} records, stored once;
+ * {@code JSON} (the default) writes the original Jackson layout, both
+ * indexes holding the full record. Reads accept every format (JSON, binary
+ * record, pointer) whichever encoding is configured, so once every node
+ * runs this version a fleet can be switched in either direction with a
+ * rolling restart. Older nodes read JSON only. Keys are rewritten
+ * in the new encoding on their next save (or all at once by piping
+ * {@code /admin/apikeys/export} into {@code /import}).
+ *
+ * Ids are also kept in the sorted set {@code apikey:ids} (all scores 0, so
+ * it orders by id) for cursor pagination with {@code ZRANGEBYLEX}.
+ *
+ * Nothing here uses {@code KEYS}: {@link #list} walks the id keys with
+ * {@code SCAN} and fetches them {@value #BATCH} at a time with {@code MGET};
+ * {@link #saveAll} writes {@value #BATCH} keys per {@code MSET}, with a few
+ * batches in flight on the pipelined connection.
+ *
+ * With a {@link MgetBatcher} (the {@code auth.lookupBatching} constructor),
+ * {@link #findByHash} calls that arrive while an {@code MGET} is in flight
+ * share the next one; with none in flight a lookup is sent at once.
  */
 public class RedisApiKeyStore implements ApiKeyStore {
 
+    public enum Encoding { JSON, BINARY }
+
+    private static final Logger log = LoggerFactory.getLogger(RedisApiKeyStore.class);
+
     private static final String ID_PREFIX = "apikey:id:";
     private static final String HASH_PREFIX = "apikey:hash:";
+    private static final String IDS = "apikey:ids";
+    private static final String IDS_BACKFILLED = "apikey:ids:backfilled";
+    private static final int BATCH = 500;
+    private static final int BATCHES_IN_FLIGHT = 4;
 
     private final ReactiveStringRedisTemplate redis;
+    private final ReactiveRedisTemplate<String, byte[]> values;
     private final ObjectMapper mapper;
+    private final Encoding encoding;
+    private final MgetBatcher<byte[]> lookups;
 
     public RedisApiKeyStore(ReactiveStringRedisTemplate redis, ObjectMapper mapper) {
+        this(redis, mapper, Encoding.JSON, null, null);
+    }
+
+    public RedisApiKeyStore(ReactiveStringRedisTemplate redis, ObjectMapper mapper, Encoding encoding,
+                            RouterProperties.LookupBatchingConfig batching, MeterRegistry registry) {
         this.redis = redis;
+        this.values = new ReactiveRedisTemplate<>(redis.getConnectionFactory(),
+                RedisSerializationContext.<String, byte[]>newSerializationContext(StringRedisSerializer.UTF_8)
+                        .value(RedisSerializer.byteArray())
+                        .build());
         this.mapper = mapper;
+        this.encoding = encoding;
+        this.lookups = batching != null && batching.isEnabled()
+                ? new MgetBatcher<>(keys -> values.opsForValue().multiGet(keys),
+                        batching.getWindowMicros(), batching.getMaxBatch(), registry)
+                : null;
+    }
+
+    /**
+     * Adds keys written before {@code apikey:ids} existed to it, once per
+     * Redis (in the background; until it finishes those keys are missing
+     * from {@link #page} but not from {@link #list}).
+     */
+    public RedisApiKeyStore start() {
+        redis.hasKey(IDS_BACKFILLED)
+                .filter(done -> !done)
+                .flatMap(ignored -> scanIds()
+                        .buffer(BATCH)
+                        .concatMap(ids -> redis.opsForZSet().addAll(IDS, ids.stream()
+                                .map(id -> TypedTuple.of(id, 0.0)).toList()))
+                        .reduce(0L, Long::sum)
+                        .flatMap(added -> redis.opsForValue().set(IDS_BACKFILLED, "1").thenReturn(added)))
+                .subscribe(added -> log.info("Backfilled {} API key id(s) into {}", added, IDS),
+                        e -> log.warn("Could not backfill {}; paging may miss older keys", IDS, e));
+        return this;
     }
 
     @Override
     public Mono<ApiKey> findByHash(String keyHash) {
-        return redis.opsForValue().get(HASH_PREFIX + keyHash)
-                .flatMap(this::decode);
+        Mono<byte[]> value = lookups != null
+                ? lookups.get(HASH_PREFIX + keyHash)
+                : values.opsForValue().get(HASH_PREFIX + keyHash);
+        return value.flatMap(this::decodeRecord);
     }
 
     @Override
     public Mono<ApiKey> save(ApiKey key) {
-        String json;
-        try {
-            json = mapper.writeValueAsString(key);
-        } catch (JsonProcessingException e) {
-            return Mono.error(e);
+        return saveBatch(List.of(key)).then(Mono.just(key));
+    }
+
+    @Override
+    public Flux<ApiKey> saveAll(Flux<ApiKey> keys) {
+        return keys.buffer(BATCH)
+                .flatMapSequential(this::saveBatch, BATCHES_IN_FLIGHT);
+    }
+
+    private Flux<ApiKey> saveBatch(List<ApiKey> batch) {
+        Map<String, byte[]> writes = new HashMap<>(batch.size() * 4);
+        List<TypedTuple<String>> ids = new ArrayList<>(batch.size());
+        for (ApiKey key : batch) {
+            if (encoding == Encoding.BINARY) {
+                writes.put(ID_PREFIX + key.id(), ApiKeyBinaryCodec.pointer(key.keyHash()));
+                writes.put(HASH_PREFIX + key.keyHash(), ApiKeyBinaryCodec.encode(key));
+            } else {
+                byte[] json;
+                try {
+                    json = mapper.writeValueAsBytes(key);
+                } catch (JsonProcessingException e) {
+                    return Flux.error(e);
+                }
+                writes.put(ID_PREFIX + key.id(), json);
+                writes.put(HASH_PREFIX + key.keyHash(), json);
+            }
+            ids.add(TypedTuple.of(key.id(), 0.0));
         }
-        return redis.opsForValue().set(ID_PREFIX + key.id(), json)
-                .then(redis.opsForValue().set(HASH_PREFIX + key.keyHash(), json))
-                .thenReturn(key);
+        return values.opsForValue().multiSet(writes)
+                .then(redis.opsForZSet().addAll(IDS, ids))
+                .thenMany(Flux.fromIterable(batch));
     }
 
     @Override
     public Mono<Void> delete(String id) {
-        return redis.opsForValue().get(ID_PREFIX + id)
-                .flatMap(this::decode)
-                .flatMap(existing ->
-                        redis.delete(ID_PREFIX + id, HASH_PREFIX + existing.keyHash()).then())
-                .switchIfEmpty(redis.delete(ID_PREFIX + id).then());
+        return values.opsForValue().get(ID_PREFIX + id)
+                .flatMap(this::hashOf)
+                .flatMap(keyHash -> redis.delete(ID_PREFIX + id, HASH_PREFIX + keyHash).then())
+                .switchIfEmpty(redis.delete(ID_PREFIX + id).then())
+                .then(redis.opsForZSet().remove(IDS, id))
+                .then();
     }
 
     @Override
     public Flux<ApiKey> list() {
-        return redis.keys(ID_PREFIX + "*")
-                .flatMap(k -> redis.opsForValue().get(k))
-                .flatMap(this::decode);
+        return scanIds()
+                .buffer(BATCH)
+                .concatMap(this::getAll);
     }
 
-    private Mono<ApiKey> decode(String json) {
+    @Override
+    public Mono<ApiKeyPage> page(String cursor, int limit) {
+        Range<String> after = cursor == null
+                ? Range.<String>unbounded()
+                : Range.of(Range.Bound.exclusive(cursor), Range.Bound.unbounded());
+        return redis.opsForZSet().rangeByLex(IDS, after, Limit.limit().count(limit))
+                .collectList()
+                .flatMap(ids -> getAll(ids).collectList()
+                        .map(keys -> new ApiKeyPage(keys, ids.size() < limit ? null : ids.get(ids.size() - 1))));
+    }
+
+    private Flux<String> scanIds() {
+        return redis.scan(ScanOptions.scanOptions().match(ID_PREFIX + "*").count(BATCH).build())
+                .map(k -> k.substring(ID_PREFIX.length()));
+    }
+
+    /**
+     * {@code MGET} of the given ids, then one more {@code MGET} for those that
+     * are pointers. Ids deleted in the meantime are skipped.
+     */
+    private Flux<ApiKey> getAll(List<String> ids) {
+        if (ids.isEmpty()) return Flux.empty();
+        return values.opsForValue().multiGet(ids.stream().map(id -> ID_PREFIX + id).toList())
+                .flatMapMany(found -> {
+                    List<ApiKey> keys = new ArrayList<>(found.size());
+                    List<String> pointedTo = new ArrayList<>();
+                    for (byte[] value : found) {
+                        if (value == null || value.length == 0) continue;
+                        try {
+                            if (value[0] == ApiKeyBinaryCodec.POINTER_V1) {
+                                pointedTo.add(HASH_PREFIX + ApiKeyBinaryCodec.pointerHash(value));
+                            } else {
+                                keys.add(decodeValue(value));
+                            }
+                        } catch (Exception e) {
+                            return Flux.error(e);
+                        }
+                    }
+                    if (pointedTo.isEmpty()) return Flux.fromIterable(keys);
+                    return Flux.fromIterable(keys).concatWith(values.opsForValue().multiGet(pointedTo)
+                            .flatMapIterable(records -> records.stream().filter(Objects::nonNull).toList())
+                            .concatMap(this::decodeRecord));
+                });
+    }
+
+    /** The key hash an {@code apikey:id:} value points at, whatever its format. */
+    private Mono<String> hashOf(byte[] idValue) {
+        if (idValue.length > 0 && idValue[0] == ApiKeyBinaryCodec.POINTER_V1) {
+            return Mono.just(ApiKeyBinaryCodec.pointerHash(idValue));
+        }
+        return decodeRecord(idValue).map(ApiKey::keyHash);
+    }
+
+    private Mono<ApiKey> decodeRecord(byte[] value) {
         try {
-            return Mono.just(mapper.readValue(json, ApiKey.class));
+            return Mono.just(decodeValue(value));
         } catch (Exception e) {
             return Mono.error(e);
         }
     }
+
+    private ApiKey decodeValue(byte[] value) throws IOException {
+        if (value.length > 0 && value[0] == ApiKeyBinaryCodec.RECORD_V1) {
+            return ApiKeyBinaryCodec.decode(value);
+        }
+        return mapper.readValue(value, ApiKey.class);
+    }
 }
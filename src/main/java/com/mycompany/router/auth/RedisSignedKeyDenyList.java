@@ -0,0 +1,98 @@
+package com.mycompany.router.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Fleet-wide deny list: a Redis sorted set {@code keyId → deniedUntil}
+ * mirrored into memory on every node, so {@link #isDenied} never does I/O.
+ *
+ * {@link #deny} writes the set and publishes {@code "keyId untilMs"} on the
+ * channel of the same name; every node adds it to its mirror on receipt. The whole set is
+ * re-read every {@code reloadInterval} (expired entries are trimmed then), so
+ * a node that missed a message converges within that interval.
+ */
+public class RedisSignedKeyDenyList implements SignedKeyDenyList, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSignedKeyDenyList.class);
+
+    private final ReactiveStringRedisTemplate redis;
+    private final String key;
+    private final Duration reloadInterval;
+    private final LocalSignedKeyDenyList mirror = new LocalSignedKeyDenyList();
+    private Disposable subscriptions;
+
+    public RedisSignedKeyDenyList(ReactiveStringRedisTemplate redis, String key, Duration reloadInterval) {
+        this.redis = redis;
+        this.key = key;
+        this.reloadInterval = reloadInterval;
+    }
+
+    /** Loads the current set (bounded wait) and starts listening for changes. */
+    public RedisSignedKeyDenyList start() {
+        try {
+            reload().block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            log.warn("Initial signed-key deny list load failed; retrying every {}", reloadInterval, e);
+        }
+        Disposable messages = redis.listenToChannel(key)
+                .doOnNext(m -> apply(m.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(500))
+                        .maxBackoff(Duration.ofSeconds(10)))
+                .subscribe();
+        Disposable reloads = Flux.interval(reloadInterval, reloadInterval)
+                .concatMap(tick -> reload().onErrorResume(e -> {
+                    log.warn("Signed-key deny list reload failed", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+        subscriptions = Disposables.composite(messages, reloads);
+        return this;
+    }
+
+    @Override
+    public boolean isDenied(String keyId) {
+        return mirror.isDenied(keyId);
+    }
+
+    @Override
+    public Mono<Void> deny(String keyId, Instant until) {
+        long untilMs = until.toEpochMilli();
+        mirror.add(keyId, untilMs);
+        return redis.opsForZSet().add(key, keyId, untilMs)
+                .then(redis.convertAndSend(key, keyId + " " + untilMs))
+                .then();
+    }
+
+    private Mono<Void> reload() {
+        long now = System.currentTimeMillis();
+        return redis.opsForZSet().removeRangeByScore(key, Range.closed(Double.NEGATIVE_INFINITY, (double) now))
+                .thenMany(redis.opsForZSet().rangeWithScores(key, Range.unbounded()))
+                .doOnNext(t -> mirror.add(t.getValue(), t.getScore().longValue()))
+                .then();
+    }
+
+    private void apply(String message) {
+        int sp = message.lastIndexOf(' ');
+        try {
+            mirror.add(message.substring(0, sp), Long.parseLong(message.substring(sp + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed deny-list message: {}", message);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (subscriptions != null) subscriptions.dispose();
+    }
+}
@@ -0,0 +1,110 @@
+package com.mycompany.router.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mints and verifies self-describing API keys:
+ * <pre>
+ *   rk1.&lt;base64url(claims)&gt;.&lt;base64url(HMAC-SHA256(secret, "rk1." + base64url(claims)))&gt;
+ * </pre>
+ * where {@code claims} is newline-separated
+ * {@code secretId, keyId, principalId, tier, scope1,scope2, expiresAtEpochSeconds}.
+ *
+ * The secret id inside the claims selects the verification secret, so secrets
+ * can be rotated: add the new one, make it active, and drop the old one once
+ * every key minted with it has expired. Verification is pure CPU; a bad or
+ * unknown signature yields {@code null}, never an exception.
+ */
+public class SignedApiKeyCodec {
+
+    public static final String PREFIX = "rk1.";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    private final String activeSecretId;
+    private final Map<String, ThreadLocal<Mac>> macs = new HashMap<>();
+
+    /**
+     * @param secrets        secret id → raw secret bytes (at least 32 bytes recommended)
+     * @param activeSecretId the secret new keys are signed with
+     */
+    public SignedApiKeyCodec(Map<String, byte[]> secrets, String activeSecretId) {
+        if (!secrets.containsKey(activeSecretId)) {
+            throw new IllegalArgumentException("Active signing secret '" + activeSecretId + "' is not configured");
+        }
+        this.activeSecretId = activeSecretId;
+        secrets.forEach((id, secret) -> {
+            SecretKeySpec spec = new SecretKeySpec(secret.clone(), ALGORITHM);
+            macs.put(id, ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance(ALGORITHM);
+                    mac.init(spec);
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(ALGORITHM + " not available", e);
+                }
+            }));
+        });
+    }
+
+    public static boolean looksSigned(String rawKey) {
+        return rawKey.startsWith(PREFIX);
+    }
+
+    public String mint(SignedKeyClaims claims) {
+        for (String s : new String[]{claims.keyId(), claims.principalId(), claims.tier()}) {
+            requireClean(s, false);
+        }
+        claims.scopes().forEach(s -> requireClean(s, true));
+        String payload = String.join("\n",
+                activeSecretId,
+                claims.keyId(),
+                claims.principalId(),
+                claims.tier(),
+                String.join(",", claims.scopes()),
+                Long.toString(claims.expiresAt().getEpochSecond()));
+        String signed = PREFIX + B64.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return signed + "." + B64.encodeToString(mac(activeSecretId).doFinal(signed.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /** @return the claims if the signature checks out, otherwise {@code null}. Expiry is not checked here. */
+    public SignedKeyClaims verify(String token) {
+        int dot = token.lastIndexOf('.');
+        if (!looksSigned(token) || dot <= PREFIX.length()) return null;
+        try {
+            String[] f = new String(B64D.decode(token.substring(PREFIX.length(), dot)), StandardCharsets.UTF_8)
+                    .split("\n", -1);
+            if (f.length != 6) return null;
+            Mac mac = mac(f[0]);
+            if (mac == null) return null;
+            for (int i = 0; i < dot; i++) mac.update((byte) token.charAt(i));
+            if (!MessageDigest.isEqual(mac.doFinal(), B64D.decode(token.substring(dot + 1)))) return null;
+            Set<String> scopes = f[4].isEmpty() ? Set.of() : Set.of(f[4].split(","));
+            return new SignedKeyClaims(f[1], f[2], f[3], scopes, Instant.ofEpochSecond(Long.parseLong(f[5])));
+        } catch (IllegalArgumentException e) {
+            return null; // malformed base64 or number (duplicate scopes can't pass the MAC)
+        }
+    }
+
+    private Mac mac(String secretId) {
+        ThreadLocal<Mac> tl = macs.get(secretId);
+        return tl == null ? null : tl.get();
+    }
+
+    private static void requireClean(String value, boolean scope) {
+        if (value == null || value.isEmpty() || value.indexOf('\n') >= 0 || (scope && value.indexOf(',') >= 0)) {
+            throw new IllegalArgumentException("Invalid signed-key claim value: '" + value + "'");
+        }
+    }
+}
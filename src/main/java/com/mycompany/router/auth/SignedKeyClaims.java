@@ -0,0 +1,21 @@
+package com.mycompany.router.auth;
+
+import java.time.Instant;
+import java.util.Set;
+
+/** What a signed API key asserts about its bearer. {@code expiresAt} is always set. */
+public record SignedKeyClaims(
+        String keyId,
+        String principalId,
+        String tier,
+        Set<String> scopes,
+        Instant expiresAt) {
+
+    public boolean isUsable(long nowEpochMillis) {
+        return expiresAt.toEpochMilli() > nowEpochMillis;
+    }
+
+    public Principal toPrincipal() {
+        return new Principal(principalId, tier, scopes, false);
+    }
+}
@@ -0,0 +1,18 @@
+package com.mycompany.router.auth;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Revoked signed-key ids. Signed keys are verified without a store lookup,
+ * so this is the only thing that can stop one before it expires. Entries only
+ * need to outlive the key they revoke, which keeps the list small.
+ */
+public interface SignedKeyDenyList {
+
+    /** Hot path: must be a local, non-blocking check. */
+    boolean isDenied(String keyId);
+
+    Mono<Void> deny(String keyId, Instant until);
+}
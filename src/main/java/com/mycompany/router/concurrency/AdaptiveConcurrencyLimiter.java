@@ -0,0 +1,79 @@
+package com.mycompany.router.concurrency;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight request limiter whose limit is tuned by a {@link LimitAlgorithm}.
+ *
+ * {@link #tryAcquire()} never waits: it either returns a {@link Permit} or
+ * {@code null} when the current limit is reached. Each permit must be
+ * completed exactly once via {@link Permit#onSuccess()},
+ * {@link Permit#onDropped()} or {@link Permit#onIgnore()}; later calls are
+ * no-ops, so callers can release from several terminal signals safely.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final LimitAlgorithm algorithm;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.limit = algorithm.limit();
+    }
+
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) return null;
+            if (inflight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1, System.nanoTime());
+            }
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    private void release(Permit permit, boolean dropped, boolean sample) {
+        inflight.decrementAndGet();
+        if (!sample) return;
+        long rtt = System.nanoTime() - permit.startNanos;
+        synchronized (algorithm) {
+            algorithm.onSample(rtt, permit.inflightAtStart, dropped);
+            limit = algorithm.limit();
+        }
+    }
+
+    public final class Permit {
+        private final int inflightAtStart;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inflightAtStart, long startNanos) {
+            this.inflightAtStart = inflightAtStart;
+            this.startNanos = startNanos;
+        }
+
+        /** The request completed normally; its RTT feeds the algorithm. */
+        public void onSuccess() {
+            if (released.compareAndSet(false, true)) release(this, false, true);
+        }
+
+        /** The request failed in a way that signals overload (timeout, 503...). */
+        public void onDropped() {
+            if (released.compareAndSet(false, true)) release(this, true, true);
+        }
+
+        /** The request ended without a usable sample (e.g. client cancelled). */
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) release(this, false, false);
+        }
+    }
+}
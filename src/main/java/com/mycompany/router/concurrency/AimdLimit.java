@@ -0,0 +1,38 @@
+package com.mycompany.router.concurrency;
+
+/**
+ * Additive increase, multiplicative decrease — the TCP Reno of limits.
+ *
+ * Grows by one per successful sample while the limit is actually being used,
+ * and multiplies by {@link #BACKOFF_RATIO} on every drop. Ignores RTT, so it
+ * only reacts once the backend starts failing; pair with upstream timeouts.
+ */
+public class AimdLimit implements LimitAlgorithm {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final int min;
+    private final int max;
+    private double limit;
+
+    public AimdLimit(int initial, int min, int max) {
+        this.min = min;
+        this.max = max;
+        this.limit = initial;
+    }
+
+    @Override
+    public int limit() {
+        return (int) limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (dropped) {
+            limit = limit * BACKOFF_RATIO;
+        } else if (inflight * 2 >= limit) {
+            limit = limit + 1;
+        }
+        limit = Math.max(min, Math.min(max, limit));
+    }
+}
@@ -0,0 +1,62 @@
+package com.mycompany.router.concurrency;
+
+/**
+ * Gradient-based limit (after Netflix's Gradient2).
+ *
+ * Compares a long-term exponential average of RTT with the latest sample.
+ * {@code gradient = clamp(TOLERANCE × longRtt / shortRtt, 0.5, 1)} shrinks the
+ * limit as latency inflates, and {@code sqrt(limit)} of headroom lets it grow
+ * again when latency is flat. Unlike Vegas it doesn't depend on a single
+ * minimum sample, so it copes with noisy backends.
+ */
+public class Gradient2Limit implements LimitAlgorithm {
+
+    static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+    private static final int WARMUP = 10;
+
+    private final int min;
+    private final int max;
+    private double limit;
+    private double longRtt;
+    private int samples;
+
+    public Gradient2Limit(int initial, int min, int max) {
+        this.min = min;
+        this.max = max;
+        this.limit = initial;
+    }
+
+    @Override
+    public int limit() {
+        return (int) limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inflight, boolean dropped) {
+        double shortRtt = rttNanos;
+        if (samples < WARMUP) {
+            samples++;
+            longRtt = longRtt == 0 ? shortRtt : (longRtt * (samples - 1) + shortRtt) / samples;
+            return;
+        }
+        longRtt += (shortRtt - longRtt) * (2.0 / (LONG_WINDOW + 1));
+
+        // Drift: after a sustained slowdown, let the baseline come back down quickly.
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (!dropped && inflight < limit / 2) {
+            return; // app-limited
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        if (dropped) {
+            gradient = 0.5;
+        }
+        double next = limit * gradient + Math.sqrt(limit);
+        next = limit * (1 - SMOOTHING) + next * SMOOTHING;
+        limit = Math.max(min, Math.min(max, next));
+    }
+}
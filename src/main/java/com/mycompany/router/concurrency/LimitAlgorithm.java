@@ -0,0 +1,33 @@
+package com.mycompany.router.concurrency;
+
+import com.mycompany.router.config.ConcurrencyLimitConfig;
+
+/**
+ * Strategy that tunes a concurrency limit from request samples.
+ *
+ * Implementations are not thread-safe; {@link AdaptiveConcurrencyLimiter}
+ * serialises calls to {@link #onSample}.
+ *
+ * Extension point: add a case to {@link #create} to plug in another algorithm.
+ */
+public interface LimitAlgorithm {
+
+    /** Current limit. */
+    int limit();
+
+    /**
+     * @param rttNanos round-trip time of the completed request
+     * @param inflight requests in flight when this one started
+     * @param dropped  whether the request failed in a way that signals overload
+     */
+    void onSample(long rttNanos, int inflight, boolean dropped);
+
+    static LimitAlgorithm create(ConcurrencyLimitConfig cfg) {
+        return switch (cfg.getAlgorithm().toLowerCase()) {
+            case "aimd" -> new AimdLimit(cfg.getInitialLimit(), cfg.getMinLimit(), cfg.getMaxLimit());
+            case "vegas" -> new VegasLimit(cfg.getInitialLimit(), cfg.getMinLimit(), cfg.getMaxLimit());
+            case "gradient2" -> new Gradient2Limit(cfg.getInitialLimit(), cfg.getMinLimit(), cfg.getMaxLimit());
+            default -> throw new IllegalArgumentException("Invalid concurrency limit algorithm: " + cfg.getAlgorithm());
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.mycompany.router.concurrency;
+
+import com.mycompany.router.config.ConcurrencyLimitConfig;
+import com.mycompany.router.config.RouterProperties;
+import com.mycompany.router.service.ServiceRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * One {@link AdaptiveConcurrencyLimiter} per upstream, created lazily from the
+ * service's {@link ConcurrencyLimitConfig}.
+ *
+ * The upstream key is the service name, or {@code service|targetUrl} when the
+ * config's scope is {@code route}. Changing a service's concurrency config
+ * swaps in a fresh limiter on the next request; a config that is equal by
+ * value (every registry snapshot decodes new copies of unchanged services)
+ * keeps the learned one. Gauges always read whichever limiter is current. The request path is a plain map lookup; only a miss or
+ * a changed config goes through {@code compute}. Whenever the registry
+ * changes, limiters (and their meters) for upstreams that no longer exist are
+ * dropped.
+ *
+ * Metrics (tag {@code upstream}):
+ * {@code gateway.upstream.concurrency.limit}, {@code gateway.upstream.concurrency.inflight},
+ * {@code gateway.upstream.concurrency.rejected}.
+ */
+@Component
+public class UpstreamConcurrencyLimiters {
+
+    private final ConcurrentMap<String, Entry> limiters = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public UpstreamConcurrencyLimiters(MeterRegistry registry, ServiceRegistry services) {
+        this.registry = registry;
+        services.onChange(this::retain);
+    }
+
+    /**
+     * @return a permit, or {@code null} when the upstream is at its limit
+     */
+    public AdaptiveConcurrencyLimiter.Permit tryAcquire(String serviceName,
+                                                        RouterProperties.RouteConfig route,
+                                                        ConcurrencyLimitConfig cfg) {
+        String upstream = upstream(serviceName, route, cfg);
+        Entry entry = limiters.get(upstream);
+        if (entry == null || entry.config != cfg) {
+            entry = install(upstream, cfg);
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = entry.limiter.tryAcquire();
+        if (permit == null) {
+            entry.meters.rejected.increment();
+        }
+        return permit;
+    }
+
+    /** Drops the limiters and meters of upstreams {@code services} no longer has. */
+    public void retain(Map<String, RouterProperties.ServiceConfig> services) {
+        Set<String> live = new HashSet<>();
+        services.forEach((name, service) -> {
+            ConcurrencyLimitConfig cfg = service.getConcurrencyLimit();
+            if (cfg == null || !cfg.isEnabled()) return;
+            if ("route".equalsIgnoreCase(cfg.getScope())) {
+                service.getRoutes().forEach(route -> live.add(upstream(name, route, cfg)));
+            } else {
+                live.add(name);
+            }
+        });
+        for (String upstream : limiters.keySet()) {
+            if (live.contains(upstream)) continue;
+            Entry removed = limiters.remove(upstream);
+            if (removed != null) {
+                registry.remove(removed.meters.limit);
+                registry.remove(removed.meters.inflight);
+                registry.remove(removed.meters.rejected);
+            }
+        }
+    }
+
+    int size() {
+        return limiters.size();
+    }
+
+    /**
+     * A new registry version brings new config instances even for unchanged
+     * services: an equal config keeps the learned limiter (and the permits
+     * in flight on it) and only swaps the reference for the fast path.
+     */
+    private Entry install(String upstream, ConcurrencyLimitConfig cfg) {
+        Entry current = limiters.get(upstream);
+        // meters register idempotently, so a losing racer's registration is harmless
+        Entry fresh = current != null && current.config.equals(cfg) ? null : fresh(upstream, cfg);
+        return limiters.compute(upstream, (k, existing) -> {
+            if (existing != null && existing.config.equals(cfg)) {
+                // a new registry version brings equal copies of unchanged configs: keep what the limiter learned
+                return existing.config == cfg ? existing : new Entry(cfg, existing.limiter, existing.meters);
+            }
+            return fresh != null ? fresh : fresh(upstream, cfg);   // removed in between
+        });
+    }
+
+    private Entry fresh(String upstream, ConcurrencyLimitConfig cfg) {
+        return new Entry(cfg, new AdaptiveConcurrencyLimiter(LimitAlgorithm.create(cfg)), meters(upstream));
+    }
+
+    private Meters meters(String upstream) {
+        Gauge limit = Gauge.builder("gateway.upstream.concurrency.limit", limiters,
+                        m -> current(m, upstream, AdaptiveConcurrencyLimiter::limit))
+                .tag("upstream", upstream)
+                .register(registry);
+        Gauge inflight = Gauge.builder("gateway.upstream.concurrency.inflight", limiters,
+                        m -> current(m, upstream, AdaptiveConcurrencyLimiter::inflight))
+                .tag("upstream", upstream)
+                .register(registry);
+        Counter rejected = Counter.builder("gateway.upstream.concurrency.rejected")
+                .tag("upstream", upstream)
+                .register(registry);
+        return new Meters(limit, inflight, rejected);
+    }
+
+    private static String upstream(String serviceName, RouterProperties.RouteConfig route, ConcurrencyLimitConfig cfg) {
+        return "route".equalsIgnoreCase(cfg.getScope())
+                ? serviceName + "|" + route.getTargetUrl()
+                : serviceName;
+    }
+
+    private static double current(ConcurrentMap<String, Entry> m, String upstream,
+                                  ToIntFunction<AdaptiveConcurrencyLimiter> value) {
+        Entry entry = m.get(upstream);
+        return entry == null ? 0 : value.applyAsInt(entry.limiter);
+    }
+
+    private record Entry(ConcurrencyLimitConfig config, AdaptiveConcurrencyLimiter limiter, Meters meters) {}
+
+    private record Meters(Gauge limit, Gauge inflight, Counter rejected) {}
+}
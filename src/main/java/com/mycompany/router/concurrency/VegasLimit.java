@@ -0,0 +1,64 @@
+package com.mycompany.router.concurrency;
+
+/**
+ * Delay-based limit modelled on TCP Vegas.
+ *
+ * Estimates the backend's queue as {@code limit × (1 − rttNoLoad / rtt)},
+ * where {@code rttNoLoad} is the minimum RTT observed. A small queue grows the
+ * limit, a large one shrinks it. The minimum is re-probed every
+ * {@link #PROBE_INTERVAL} samples so a deploy that makes the backend
+ * permanently slower doesn't pin the limit at its floor.
+ */
+public class VegasLimit implements LimitAlgorithm {
+
+    static final int PROBE_INTERVAL = 1000;
+
+    private final int min;
+    private final int max;
+    private double limit;
+    private long rttNoLoad;
+    private int samples;
+
+    public VegasLimit(int initial, int min, int max) {
+        this.min = min;
+        this.max = max;
+        this.limit = initial;
+    }
+
+    @Override
+    public int limit() {
+        return (int) limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (++samples % PROBE_INTERVAL == 0) {
+            rttNoLoad = 0;
+        }
+        if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+            rttNoLoad = rttNanos;
+            return;
+        }
+
+        double log = Math.max(1, Math.log10(limit));
+        double alpha = 3 * log;
+        double beta = 6 * log;
+        double queue = Math.ceil(limit * (1 - (double) rttNoLoad / rttNanos));
+
+        double next;
+        if (dropped) {
+            next = limit - log;
+        } else if (inflight * 2 < limit) {
+            return; // app-limited: no signal about capacity
+        } else if (queue <= log) {
+            next = limit + beta;
+        } else if (queue < alpha) {
+            next = limit + log;
+        } else if (queue > beta) {
+            next = limit - log;
+        } else {
+            return;
+        }
+        limit = Math.max(min, Math.min(max, next));   // steps are already small: no smoothing
+    }
+}
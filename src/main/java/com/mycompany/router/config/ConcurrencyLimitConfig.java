@@ -0,0 +1,61 @@
+package com.mycompany.router.config;
+
+import java.util.Objects;
+
+/**
+ * Adaptive in-flight concurrency limit for a service's upstream.
+ *
+ * The limit starts at {@code initialLimit} and is tuned between
+ * {@code minLimit} and {@code maxLimit} from observed round-trip times and
+ * drops. Requests above the current limit are rejected with 503 instead of
+ * queueing behind a slow backend.
+ */
+public class ConcurrencyLimitConfig {
+    private boolean enabled = true;
+    private String algorithm = "gradient2"; // aimd | vegas | gradient2
+    private String scope = "service";       // service | route (one limiter per targetUrl)
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 1000;
+
+    public ConcurrencyLimitConfig() {}
+
+    public ConcurrencyLimitConfig(String algorithm, int initialLimit, int minLimit, int maxLimit) {
+        this.algorithm = algorithm;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getAlgorithm() { return algorithm; }
+    public void setAlgorithm(String algorithm) { this.algorithm = algorithm; }
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+
+    public int getInitialLimit() { return initialLimit; }
+    public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+    public int getMinLimit() { return minLimit; }
+    public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+    public int getMaxLimit() { return maxLimit; }
+    public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+    /** By value: a registry snapshot decoded from JSON holds equal copies of unchanged configs. */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ConcurrencyLimitConfig c
+                && enabled == c.enabled && initialLimit == c.initialLimit
+                && minLimit == c.minLimit && maxLimit == c.maxLimit
+                && Objects.equals(algorithm, c.algorithm) && Objects.equals(scope, c.scope);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enabled, algorithm, scope, initialLimit, minLimit, maxLimit);
+    }
+}
@@ -5,10 +5,14 @@ package com.mycompany.router.config;
  *
  * The bucket has {@code limit} capacity and refills uniformly over {@code period}.
  * A single request costs one token.
+ *
+ * {@code maxConcurrent} optionally caps how many requests the principal may
+ * have in flight at once (0 = no cap), independently of the token rate.
  */
 public class RateLimitConfig {
     private int limit;
     private String period = "MINUTE";
+    private int maxConcurrent;
 
     public RateLimitConfig() {}
 
@@ -32,4 +36,12 @@ public class RateLimitConfig {
     public void setPeriod(String period) {
         this.period = period;
     }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
 }
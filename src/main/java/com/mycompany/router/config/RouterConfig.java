@@ -8,39 +8,80 @@ import com.mycompany.router.accesslog.AccessLogSink;
 import com.mycompany.router.accesslog.FileSink;
 import com.mycompany.router.accesslog.KafkaSink;
 import com.mycompany.router.accesslog.NoopSink;
+import com.mycompany.router.accesslog.RollupSink;
 import com.mycompany.router.accesslog.StdoutJsonSink;
 import com.mycompany.router.admin.AdminAuthFilter;
+import com.mycompany.router.admission.EventLoopLagMonitor;
+import com.mycompany.router.admission.LoadSheddingFilter;
 import com.mycompany.router.auth.ApiKey;
 import com.mycompany.router.auth.ApiKeyAuthFilter;
+import com.mycompany.router.auth.ApiKeyChangeBus;
 import com.mycompany.router.auth.ApiKeyHasher;
 import com.mycompany.router.auth.ApiKeyStore;
+import com.mycompany.router.auth.BloomFilterApiKeyStore;
+import com.mycompany.router.auth.CachingApiKeyStore;
 import com.mycompany.router.auth.InMemoryApiKeyStore;
+import com.mycompany.router.auth.MappedApiKeyStore;
+import com.mycompany.router.auth.LocalApiKeyChangeBus;
+import com.mycompany.router.auth.LocalSignedKeyDenyList;
+import com.mycompany.router.auth.PublishingApiKeyStore;
+import com.mycompany.router.auth.RedisApiKeyChangeBus;
 import com.mycompany.router.auth.RedisApiKeyStore;
+import com.mycompany.router.auth.RedisSignedKeyDenyList;
+import com.mycompany.router.auth.SignedApiKeyCodec;
+import com.mycompany.router.auth.SignedKeyDenyList;
+import com.mycompany.router.handler.ByteCountingFilter;
 import com.mycompany.router.handler.RouterHandler;
+import com.mycompany.router.heavyhitters.HeavyHitterDetector;
+import com.mycompany.router.ratelimit.ConcurrentRequestLimiter;
+import com.mycompany.router.ratelimit.GossipRateLimiter;
+import com.mycompany.router.ratelimit.LocalConcurrentRequestLimiter;
 import com.mycompany.router.ratelimit.LocalTokenBucketRateLimiter;
 import com.mycompany.router.ratelimit.RateLimiter;
+import com.mycompany.router.ratelimit.RedisConcurrentRequestLimiter;
 import com.mycompany.router.ratelimit.RedisTokenBucketRateLimiter;
+import com.mycompany.router.ratelimit.UdpGossipTransport;
+import com.mycompany.router.ratelimit.WaitingRoom;
 import com.mycompany.router.routing.HeaderBasedStrategy;
 import com.mycompany.router.routing.RouteSelectionStrategy;
 import com.mycompany.router.routing.WeightedTrafficStrategy;
+import com.mycompany.router.service.LocalRegistrySnapshotStore;
+import com.mycompany.router.service.RedisRegistrySnapshotStore;
+import com.mycompany.router.service.RegistrySnapshotStore;
+import com.mycompany.router.service.RegistrySync;
 import com.mycompany.router.service.ServiceRegistry;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.client.ReactorResourceFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.all;
@@ -88,21 +129,101 @@ public class RouterConfig {
         return registry;
     }
 
+    @Bean(destroyMethod = "close")
+    public RegistrySync registrySync(ServiceRegistry serviceRegistry, Optional<ReactiveStringRedisTemplate> redis,
+                                     ObjectMapper mapper, MeterRegistry registry) {
+        RouterProperties.RegistrySyncConfig cfg = properties.getRegistrySync();
+        RegistrySnapshotStore store;
+        if (cfg.isEnabled() && redis.isPresent()) {
+            log.info("Service registry sync: Redis ({}, channel {})", cfg.getKey(), cfg.getChannel());
+            store = new RedisRegistrySnapshotStore(redis.get(), mapper, cfg.getKey(), cfg.getChannel());
+        } else {
+            store = new LocalRegistrySnapshotStore();
+        }
+        return new RegistrySync(serviceRegistry, store, Duration.ofMillis(cfg.getResyncMs()), cfg.getMaxAttempts(),
+                registry).start();
+    }
+
     // ===== Auth =====
     @Bean
-    public ApiKeyStore apiKeyStore(Optional<ReactiveStringRedisTemplate> redis, ObjectMapper mapper) {
+    public ApiKeyChangeBus apiKeyChangeBus(Optional<ReactiveStringRedisTemplate> redis, ObjectMapper mapper) {
+        String storage = properties.getAuth().getStorage();
+        if ("redis".equalsIgnoreCase(storage) && redis.isPresent()) {
+            return new RedisApiKeyChangeBus(redis.get(), mapper,
+                    properties.getAuth().getCache().getInvalidationChannel());
+        }
+        return new LocalApiKeyChangeBus();
+    }
+
+    @Bean
+    public ApiKeyStore apiKeyStore(Optional<ReactiveStringRedisTemplate> redis, ObjectMapper mapper,
+                                   ApiKeyChangeBus changeBus, MeterRegistry registry) {
         String storage = properties.getAuth().getStorage();
+        ApiKeyStore store;
         if ("redis".equalsIgnoreCase(storage) && redis.isPresent()) {
-            log.info("API key storage: Redis");
-            return new RedisApiKeyStore(redis.get(), mapper);
+            RouterProperties.LookupBatchingConfig batching = properties.getAuth().getLookupBatching();
+            RedisApiKeyStore.Encoding encoding =
+                    RedisApiKeyStore.Encoding.valueOf(properties.getAuth().getRedisEncoding().toUpperCase());
+            log.info("API key storage: Redis ({} records, lookup batching: {})", encoding, batching.isEnabled()
+                    ? batching.getWindowMicros() + "us/" + batching.getMaxBatch() + " keys" : "off");
+            store = new RedisApiKeyStore(redis.get(), mapper, encoding, batching, registry).start();
+        } else if ("mapped".equalsIgnoreCase(storage)) {
+            RouterProperties.MappedStoreConfig mapped = properties.getAuth().getMapped();
+            log.info("API key storage: memory-mapped files in {}", mapped.getDirectory());
+            try {
+                store = new MappedApiKeyStore(Path.of(mapped.getDirectory()), mapped.getInitialCapacity(),
+                        mapped.isSyncWrites());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open API key store in " + mapped.getDirectory(), e);
+            }
+        } else {
+            log.info("API key storage: in-memory");
+            store = new InMemoryApiKeyStore();
+        }
+        RouterProperties.ApiKeyCacheConfig cache = properties.getAuth().getCache();
+        if (cache.isEnabled()) {
+            log.info("API key cache: maxSize={}, ttl={}ms, negativeTtl={}ms",
+                    cache.getMaxSize(), cache.getTtlMs(), cache.getNegativeTtlMs());
+            store = new CachingApiKeyStore(store, changeBus, cache, registry).start();
+        }
+        RouterProperties.ApiKeyBloomConfig bloom = properties.getAuth().getBloom();
+        if (bloom.isEnabled()) {
+            log.info("API key Bloom filter: expectedKeys={}, fpp={}", bloom.getExpectedKeys(), bloom.getFalsePositiveRate());
+            store = new BloomFilterApiKeyStore(store, changeBus, bloom, registry).start();
         }
-        log.info("API key storage: in-memory");
-        return new InMemoryApiKeyStore();
+        return new PublishingApiKeyStore(store, changeBus);
     }
 
+    /** Null (no bean) unless {@code auth.signedKeys.enabled}. */
     @Bean
-    public ApiKeyAuthFilter apiKeyAuthFilter(ApiKeyStore store) {
-        return new ApiKeyAuthFilter(store, properties.getAuth());
+    public SignedApiKeyCodec signedApiKeyCodec() {
+        RouterProperties.SignedKeysConfig cfg = properties.getAuth().getSignedKeys();
+        if (!cfg.isEnabled()) return null;
+        Map<String, byte[]> secrets = new HashMap<>();
+        cfg.getSecrets().forEach((id, b64) -> secrets.put(id, Base64.getDecoder().decode(b64)));
+        log.info("Signed API keys enabled (active secret: {}, known: {})", cfg.getActiveSecretId(), secrets.keySet());
+        return new SignedApiKeyCodec(secrets, cfg.getActiveSecretId());
+    }
+
+    @Bean
+    public SignedKeyDenyList signedKeyDenyList(Optional<ReactiveStringRedisTemplate> redis) {
+        RouterProperties.SignedKeysConfig cfg = properties.getAuth().getSignedKeys();
+        if (cfg.isEnabled() && "redis".equalsIgnoreCase(properties.getAuth().getStorage()) && redis.isPresent()) {
+            return new RedisSignedKeyDenyList(redis.get(), cfg.getDenyListKey(),
+                    Duration.ofMillis(cfg.getDenyListReloadMs())).start();
+        }
+        return new LocalSignedKeyDenyList();
+    }
+
+    @Bean
+    public ApiKeyAuthFilter apiKeyAuthFilter(ApiKeyStore store, Optional<SignedApiKeyCodec> signedKeys,
+                                             SignedKeyDenyList denyList) {
+        return new ApiKeyAuthFilter(store, properties.getAuth(), signedKeys.orElse(null), denyList);
+    }
+
+    @Bean
+    public ByteCountingFilter byteCountingFilter() {
+        return new ByteCountingFilter();
     }
 
     @Bean
@@ -110,6 +231,30 @@ public class RouterConfig {
         return new AdminAuthFilter(properties.getAdmin());
     }
 
+    // ===== Load shedding =====
+    // off: neither the probes nor the filter exist, so requests skip the in-flight bookkeeping too
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "router.load-shedding", name = "enabled", havingValue = "true")
+    public EventLoopLagMonitor eventLoopLagMonitor(ReactorResourceFactory resources) {
+        RouterProperties.LoadSheddingConfig cfg = properties.getLoadShedding();
+        return new EventLoopLagMonitor(resources.getLoopResources().onServer(true), cfg.getLagSampleIntervalMs())
+                .start();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "router.load-shedding", name = "enabled", havingValue = "true")
+    public LoadSheddingFilter loadSheddingFilter(EventLoopLagMonitor lagMonitor, MeterRegistry registry) {
+        RouterProperties.LoadSheddingConfig cfg = properties.getLoadShedding();
+        log.info("Load shedding enabled for tiers {}", cfg.getTiers().keySet());
+        return new LoadSheddingFilter(cfg, lagMonitor, registry);
+    }
+
+    // ===== Heavy hitters =====
+    @Bean(destroyMethod = "close")
+    public HeavyHitterDetector heavyHitterDetector(MeterRegistry registry) {
+        return new HeavyHitterDetector(properties.getHeavyHitters(), registry);
+    }
+
     @Bean
     public BootstrapKeysLoader bootstrapKeysLoader(ApiKeyStore store) {
         return new BootstrapKeysLoader(store, properties);
@@ -117,8 +262,15 @@ public class RouterConfig {
 
     // ===== Rate limiter =====
     @Bean
-    public RateLimiter rateLimiter(Optional<ReactiveStringRedisTemplate> redis) {
+    public RateLimiter rateLimiter(Optional<ReactiveStringRedisTemplate> redis) throws IOException {
         String backend = properties.getRateLimits().getBackend();
+        if ("gossip".equalsIgnoreCase(backend)) {
+            RouterProperties.GossipConfig g = properties.getRateLimits().getGossip();
+            String nodeId = g.getNodeId().isBlank() ? InetAddress.getLocalHost().getHostName() : g.getNodeId();
+            log.info("Rate limiter backend: gossip token bucket (node={}, peers={})", nodeId, g.getPeers());
+            UdpGossipTransport transport = new UdpGossipTransport(g.getBindAddress(), g.getPort(), g.getPeers());
+            return new GossipRateLimiter(nodeId, transport, Duration.ofMillis(g.getSyncIntervalMs())).start();
+        }
         if ("redis".equalsIgnoreCase(backend) && redis.isPresent()) {
             log.info("Rate limiter backend: Redis token bucket");
             return new RedisTokenBucketRateLimiter(redis.get());
@@ -127,32 +279,73 @@ public class RouterConfig {
         return new LocalTokenBucketRateLimiter();
     }
 
+    @Bean
+    public WaitingRoom waitingRoom(MeterRegistry registry) {
+        return new WaitingRoom(properties.getRateLimits().getWaitingRoom(), registry);
+    }
+
+    @Bean
+    public ConcurrentRequestLimiter concurrentRequestLimiter(Optional<ReactiveStringRedisTemplate> redis) {
+        String backend = properties.getRateLimits().getBackend();
+        if ("redis".equalsIgnoreCase(backend) && redis.isPresent()) {
+            return new RedisConcurrentRequestLimiter(redis.get(), properties.getRateLimits().getConcurrencyLeaseMs());
+        }
+        return new LocalConcurrentRequestLimiter();
+    }
+
     // ===== Access log =====
     @Bean
-    public AccessLogSink accessLogSink(ObjectMapper mapper,
-                                       Optional<KafkaTemplate<String, String>> kafka) throws IOException {
+    public AccessLogSink accessLogSink(Optional<ProducerFactory<Object, Object>> kafka, MeterRegistry registry)
+            throws IOException {
         if (!properties.getAccessLog().isEnabled()) {
             log.info("Access log disabled");
             return new NoopSink();
         }
+        AccessLogSink sink = accessLogDestination(kafka, registry);
+        RouterProperties.RollupConfig rollups = properties.getAccessLog().getRollups();
+        return rollups.isEnabled() ? new RollupSink(sink, rollups, registry) : sink;
+    }
+
+    private AccessLogSink accessLogDestination(Optional<ProducerFactory<Object, Object>> kafka, MeterRegistry registry)
+            throws IOException {
         String sink = properties.getAccessLog().getSink();
         return switch (sink == null ? "stdout" : sink.toLowerCase()) {
             case "kafka" -> {
                 if (kafka.isEmpty()) {
-                    log.warn("Kafka sink requested but no KafkaTemplate bean — falling back to stdout");
-                    yield new StdoutJsonSink(mapper);
+                    log.warn("Kafka sink requested but no Kafka ProducerFactory bean — falling back to stdout");
+                    yield new StdoutJsonSink();
                 }
-                yield new KafkaSink(kafka.get(), mapper, properties.getAccessLog().getKafka().getTopic());
+                RouterProperties.KafkaSinkConfig cfg = properties.getAccessLog().getKafka();
+                yield new KafkaSink(accessLogKafkaTemplate(kafka.get(), cfg), cfg, registry);
             }
-            case "file" -> new FileSink(mapper, properties.getAccessLog().getFile().getPath());
+            case "file" -> new FileSink(properties.getAccessLog().getFile());
             case "noop" -> new NoopSink();
-            default -> new StdoutJsonSink(mapper);
+            default -> new StdoutJsonSink();
         };
     }
 
+    /**
+     * The Boot-configured producer settings with byte[] values: the access log
+     * arrives pre-encoded, and {@code max.block.ms} bounds how long a send can
+     * stall the dispatcher. A separate factory (not a bean, so Boot's own
+     * {@code @ConditionalOnMissingBean} factory still gets created) that
+     * {@link KafkaSink#close()} shuts down.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static KafkaTemplate<String, byte[]> accessLogKafkaTemplate(ProducerFactory<Object, Object> boot,
+                                                                        RouterProperties.KafkaSinkConfig cfg) {
+        ProducerFactory factory = boot.copyWithConfigurationOverride(Map.of(
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class,
+                ProducerConfig.MAX_BLOCK_MS_CONFIG, cfg.getMaxBlockMs()));
+        return new KafkaTemplate<String, byte[]>(factory);
+    }
+
     @Bean
     public AccessLogPipeline accessLogPipeline(AccessLogSink sink, MeterRegistry registry) {
-        return new AccessLogPipeline(properties.getAccessLog().getQueueCapacity(), sink, registry);
+        RouterProperties.AccessLogConfig cfg = properties.getAccessLog();
+        return new AccessLogPipeline(cfg.getQueueCapacity(), sink, registry, cfg.getMaxBatch(), cfg.getLingerMs(),
+                cfg.getShards(), cfg.getSpill());
     }
 
     /**
@@ -170,10 +363,11 @@ public class RouterConfig {
 
         @PostConstruct
         void load() {
+            List<ApiKey> keys = new ArrayList<>();
             for (RouterProperties.BootstrapApiKey b : props.getAuth().getBootstrapKeys()) {
                 if (b.getKey() == null || b.getKey().isBlank()) continue;
                 String hash = ApiKeyHasher.sha256Hex(b.getKey());
-                ApiKey k = new ApiKey(
+                keys.add(new ApiKey(
                         b.getId(),
                         hash,
                         b.getPrincipalId(),
@@ -181,8 +375,14 @@ public class RouterConfig {
                         new HashSet<>(b.getScopes()),
                         true,
                         Instant.now(),
-                        null);
-                store.save(k).subscribe();
+                        null));
+            }
+            if (keys.isEmpty()) return;
+            try {
+                Long saved = store.saveAll(Flux.fromIterable(keys)).count().block(Duration.ofSeconds(30));
+                log.info("Bootstrapped {} API key(s)", saved);
+            } catch (RuntimeException e) {
+                log.error("Failed to bootstrap API keys; starting without them", e);
             }
         }
     }
@@ -17,6 +17,9 @@ public class RouterProperties {
     private RateLimitsConfig rateLimits = new RateLimitsConfig();
     private AccessLogConfig accessLog = new AccessLogConfig();
     private AdminConfig admin = new AdminConfig();
+    private LoadSheddingConfig loadShedding = new LoadSheddingConfig();
+    private HeavyHitterConfig heavyHitters = new HeavyHitterConfig();
+    private RegistrySyncConfig registrySync = new RegistrySyncConfig();
 
     public Map<String, ServiceConfig> getServices() { return services; }
     public void setServices(Map<String, ServiceConfig> services) { this.services = services; }
@@ -33,6 +36,15 @@ public class RouterProperties {
     public AdminConfig getAdmin() { return admin; }
     public void setAdmin(AdminConfig admin) { this.admin = admin; }
 
+    public LoadSheddingConfig getLoadShedding() { return loadShedding; }
+    public void setLoadShedding(LoadSheddingConfig loadShedding) { this.loadShedding = loadShedding; }
+
+    public HeavyHitterConfig getHeavyHitters() { return heavyHitters; }
+    public void setHeavyHitters(HeavyHitterConfig heavyHitters) { this.heavyHitters = heavyHitters; }
+
+    public RegistrySyncConfig getRegistrySync() { return registrySync; }
+    public void setRegistrySync(RegistrySyncConfig registrySync) { this.registrySync = registrySync; }
+
     // ===== Service =====
     public static class ServiceConfig {
         private String baseUrl;
@@ -42,6 +54,8 @@ public class RouterProperties {
         @Deprecated
         private String clientIdHeader = "X-Client-Id";
         private boolean requireAuth = false;
+        /** Optional adaptive limit on in-flight upstream calls. Null = unlimited. */
+        private ConcurrencyLimitConfig concurrencyLimit;
         private List<RouteConfig> routes = new ArrayList<>();
 
         public String getBaseUrl() { return baseUrl; }
@@ -59,6 +73,9 @@ public class RouterProperties {
         public boolean isRequireAuth() { return requireAuth; }
         public void setRequireAuth(boolean requireAuth) { this.requireAuth = requireAuth; }
 
+        public ConcurrencyLimitConfig getConcurrencyLimit() { return concurrencyLimit; }
+        public void setConcurrencyLimit(ConcurrencyLimitConfig concurrencyLimit) { this.concurrencyLimit = concurrencyLimit; }
+
         public List<RouteConfig> getRoutes() { return routes; }
         public void setRoutes(List<RouteConfig> routes) { this.routes = routes; }
     }
@@ -95,8 +112,18 @@ public class RouterProperties {
     public static class AuthConfig {
         private boolean enabled = true;
         private String apiKeyHeader = "X-API-Key";
-        private String storage = "in-memory"; // in-memory | redis
+        private String storage = "in-memory"; // in-memory | redis | mapped
+        /**
+         * Format new Redis key records are written in: json | binary (stored once). Reads accept both, but
+         * older gateways only read json, so switch to binary only once every node runs this version.
+         */
+        private String redisEncoding = "json";
         private List<BootstrapApiKey> bootstrapKeys = new ArrayList<>();
+        private ApiKeyCacheConfig cache = new ApiKeyCacheConfig();
+        private ApiKeyBloomConfig bloom = new ApiKeyBloomConfig();
+        private SignedKeysConfig signedKeys = new SignedKeysConfig();
+        private MappedStoreConfig mapped = new MappedStoreConfig();
+        private LookupBatchingConfig lookupBatching = new LookupBatchingConfig();
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
@@ -107,8 +134,145 @@ public class RouterProperties {
         public String getStorage() { return storage; }
         public void setStorage(String storage) { this.storage = storage; }
 
+        public String getRedisEncoding() { return redisEncoding; }
+        public void setRedisEncoding(String redisEncoding) { this.redisEncoding = redisEncoding; }
+
         public List<BootstrapApiKey> getBootstrapKeys() { return bootstrapKeys; }
         public void setBootstrapKeys(List<BootstrapApiKey> bootstrapKeys) { this.bootstrapKeys = bootstrapKeys; }
+
+        public ApiKeyCacheConfig getCache() { return cache; }
+        public void setCache(ApiKeyCacheConfig cache) { this.cache = cache; }
+
+        public ApiKeyBloomConfig getBloom() { return bloom; }
+        public void setBloom(ApiKeyBloomConfig bloom) { this.bloom = bloom; }
+
+        public SignedKeysConfig getSignedKeys() { return signedKeys; }
+        public void setSignedKeys(SignedKeysConfig signedKeys) { this.signedKeys = signedKeys; }
+
+        public MappedStoreConfig getMapped() { return mapped; }
+        public void setMapped(MappedStoreConfig mapped) { this.mapped = mapped; }
+
+        public LookupBatchingConfig getLookupBatching() { return lookupBatching; }
+        public void setLookupBatching(LookupBatchingConfig lookupBatching) { this.lookupBatching = lookupBatching; }
+    }
+
+    /** Coalescing of concurrent Redis key lookups into one {@code MGET}. */
+    public static class LookupBatchingConfig {
+        private boolean enabled = true;
+        /** Longest a lookup queued behind an in-flight {@code MGET} waits before its batch is sent anyway. */
+        private long windowMicros = 200;
+        private int maxBatch = 128;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getWindowMicros() { return windowMicros; }
+        public void setWindowMicros(long windowMicros) { this.windowMicros = windowMicros; }
+
+        public int getMaxBatch() { return maxBatch; }
+        public void setMaxBatch(int maxBatch) { this.maxBatch = maxBatch; }
+    }
+
+    public static class MappedStoreConfig {
+        private String directory = "data/apikeys";
+        /** Index slots to pre-size for; ~2x the expected key count avoids rebuilds while loading. */
+        private int initialCapacity = 1 << 20;
+        /** Force each write to disk before acknowledging it. Off trades the last few writes on power loss for speed. */
+        private boolean syncWrites = true;
+
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+
+        public int getInitialCapacity() { return initialCapacity; }
+        public void setInitialCapacity(int initialCapacity) { this.initialCapacity = initialCapacity; }
+
+        public boolean isSyncWrites() { return syncWrites; }
+        public void setSyncWrites(boolean syncWrites) { this.syncWrites = syncWrites; }
+    }
+
+    public static class ApiKeyCacheConfig {
+        private boolean enabled = true;
+        private int maxSize = 100_000;
+        /** Upper bound on how long a revoked key keeps working if an invalidation is lost. */
+        private long ttlMs = 30_000;
+        private long negativeTtlMs = 5_000;
+        private String invalidationChannel = "apikey:changes";
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+        public long getTtlMs() { return ttlMs; }
+        public void setTtlMs(long ttlMs) { this.ttlMs = ttlMs; }
+
+        public long getNegativeTtlMs() { return negativeTtlMs; }
+        public void setNegativeTtlMs(long negativeTtlMs) { this.negativeTtlMs = negativeTtlMs; }
+
+        public String getInvalidationChannel() { return invalidationChannel; }
+        public void setInvalidationChannel(String invalidationChannel) { this.invalidationChannel = invalidationChannel; }
+    }
+
+    public static class ApiKeyBloomConfig {
+        /**
+         * Off by default: keys saved on another node reach the filter only via
+         * best-effort pub/sub, so one lost message rejects a valid key until the next rebuild.
+         */
+        private boolean enabled = false;
+        /** Memory is about {@code -expectedKeys * ln(falsePositiveRate) / ln(2)^2} bits (~1.8 MB for 1M at 0.1%). */
+        private long expectedKeys = 1_000_000;
+        private double falsePositiveRate = 0.001;
+        private long rebuildIntervalMs = 600_000;
+        /**
+         * After the change bus drops or reconnects, filter misses go to the store
+         * until a fresh rebuild has finished and for this long after it.
+         */
+        private long reconnectPassThroughMs = 30_000;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getExpectedKeys() { return expectedKeys; }
+        public void setExpectedKeys(long expectedKeys) { this.expectedKeys = expectedKeys; }
+
+        public double getFalsePositiveRate() { return falsePositiveRate; }
+        public void setFalsePositiveRate(double falsePositiveRate) { this.falsePositiveRate = falsePositiveRate; }
+
+        public long getRebuildIntervalMs() { return rebuildIntervalMs; }
+        public void setRebuildIntervalMs(long rebuildIntervalMs) { this.rebuildIntervalMs = rebuildIntervalMs; }
+
+        public long getReconnectPassThroughMs() { return reconnectPassThroughMs; }
+        public void setReconnectPassThroughMs(long reconnectPassThroughMs) { this.reconnectPassThroughMs = reconnectPassThroughMs; }
+    }
+
+    public static class SignedKeysConfig {
+        private boolean enabled = false;
+        private String activeSecretId;
+        /** Secret id → base64 HMAC secret. Keep retired ids until their keys expire. */
+        private Map<String, String> secrets = new HashMap<>();
+        /** Longest lifetime a signed key may be minted with; also how long a revocation is kept. */
+        private long maxTtlDays = 365;
+        private String denyListKey = "apikey:denied";
+        private long denyListReloadMs = 60_000;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getActiveSecretId() { return activeSecretId; }
+        public void setActiveSecretId(String activeSecretId) { this.activeSecretId = activeSecretId; }
+
+        public Map<String, String> getSecrets() { return secrets; }
+        public void setSecrets(Map<String, String> secrets) { this.secrets = secrets; }
+
+        public long getMaxTtlDays() { return maxTtlDays; }
+        public void setMaxTtlDays(long maxTtlDays) { this.maxTtlDays = maxTtlDays; }
+
+        public String getDenyListKey() { return denyListKey; }
+        public void setDenyListKey(String denyListKey) { this.denyListKey = denyListKey; }
+
+        public long getDenyListReloadMs() { return denyListReloadMs; }
+        public void setDenyListReloadMs(long denyListReloadMs) { this.denyListReloadMs = denyListReloadMs; }
     }
 
     public static class BootstrapApiKey {
@@ -136,23 +300,109 @@ public class RouterProperties {
 
     // ===== Rate limits =====
     public static class RateLimitsConfig {
-        private String backend = "redis"; // redis | local
+        private String backend = "redis"; // redis | local | gossip
         private Map<String, RateLimitConfig> tiers = new HashMap<>();
+        /** Redis lease lifetime for {@code maxConcurrent} permits; bounds leaks from crashed pods. */
+        private long concurrencyLeaseMs = 300_000;
+        private GossipConfig gossip = new GossipConfig();
+        private WaitingRoomConfig waitingRoom = new WaitingRoomConfig();
 
         public String getBackend() { return backend; }
         public void setBackend(String backend) { this.backend = backend; }
 
         public Map<String, RateLimitConfig> getTiers() { return tiers; }
         public void setTiers(Map<String, RateLimitConfig> tiers) { this.tiers = tiers; }
+
+        public long getConcurrencyLeaseMs() { return concurrencyLeaseMs; }
+        public void setConcurrencyLeaseMs(long concurrencyLeaseMs) { this.concurrencyLeaseMs = concurrencyLeaseMs; }
+
+        public GossipConfig getGossip() { return gossip; }
+        public void setGossip(GossipConfig gossip) { this.gossip = gossip; }
+
+        public WaitingRoomConfig getWaitingRoom() { return waitingRoom; }
+        public void setWaitingRoom(WaitingRoomConfig waitingRoom) { this.waitingRoom = waitingRoom; }
+    }
+
+    /**
+     * Delay queue for rate-limited requests whose retry-after is short.
+     * Only tiers listed under {@code tiers} may wait; everyone else gets 429.
+     */
+    public static class WaitingRoomConfig {
+        private boolean enabled = false;
+        private long tickMs = 10;
+        private Map<String, WaitingRoomTier> tiers = new HashMap<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getTickMs() { return tickMs; }
+        public void setTickMs(long tickMs) { this.tickMs = tickMs; }
+
+        public Map<String, WaitingRoomTier> getTiers() { return tiers; }
+        public void setTiers(Map<String, WaitingRoomTier> tiers) { this.tiers = tiers; }
+    }
+
+    public static class WaitingRoomTier {
+        /** Longest a request may be held; also the max retry-after that qualifies. */
+        private long maxWaitMs = 250;
+        /** Per-tier queue bound, so a flood of one tier can't crowd out another. */
+        private int maxQueued = 1000;
+
+        public WaitingRoomTier() {}
+
+        public WaitingRoomTier(long maxWaitMs, int maxQueued) {
+            this.maxWaitMs = maxWaitMs;
+            this.maxQueued = maxQueued;
+        }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public int getMaxQueued() { return maxQueued; }
+        public void setMaxQueued(int maxQueued) { this.maxQueued = maxQueued; }
+    }
+
+    /** Peer-to-peer limiter settings, used when {@code backend=gossip}. */
+    public static class GossipConfig {
+        /** Unique per node. Empty = hostname (the pod name on Kubernetes). */
+        private String nodeId = "";
+        private String bindAddress = "0.0.0.0";
+        private int port = 7946;
+        /** Static membership as {@code host:port}; may include this node. */
+        private List<String> peers = new ArrayList<>();
+        private long syncIntervalMs = 50;
+
+        public String getNodeId() { return nodeId; }
+        public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+        public String getBindAddress() { return bindAddress; }
+        public void setBindAddress(String bindAddress) { this.bindAddress = bindAddress; }
+
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+
+        public List<String> getPeers() { return peers; }
+        public void setPeers(List<String> peers) { this.peers = peers; }
+
+        public long getSyncIntervalMs() { return syncIntervalMs; }
+        public void setSyncIntervalMs(long syncIntervalMs) { this.syncIntervalMs = syncIntervalMs; }
     }
 
     // ===== Access log =====
     public static class AccessLogConfig {
         private boolean enabled = true;
         private int queueCapacity = 10_000;
+        /** Dispatcher threads, each with its own ring of {@code queueCapacity / shards}; events are routed by principal id. */
+        private int shards = 1;
+        /** Most events handed to the sink in one {@code publishBatch}. */
+        private int maxBatch = 512;
+        /** How long the dispatcher waits for a batch to fill once it has one event; 0 = ship what's queued. */
+        private long lingerMs = 5;
         private String sink = "stdout"; // kafka | stdout | file | noop
         private KafkaSinkConfig kafka = new KafkaSinkConfig();
         private FileSinkConfig file = new FileSinkConfig();
+        private SpillConfig spill = new SpillConfig();
+        private RollupConfig rollups = new RollupConfig();
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
@@ -160,6 +410,15 @@ public class RouterProperties {
         public int getQueueCapacity() { return queueCapacity; }
         public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
 
+        public int getShards() { return shards; }
+        public void setShards(int shards) { this.shards = shards; }
+
+        public int getMaxBatch() { return maxBatch; }
+        public void setMaxBatch(int maxBatch) { this.maxBatch = maxBatch; }
+
+        public long getLingerMs() { return lingerMs; }
+        public void setLingerMs(long lingerMs) { this.lingerMs = lingerMs; }
+
         public String getSink() { return sink; }
         public void setSink(String sink) { this.sink = sink; }
 
@@ -168,20 +427,149 @@ public class RouterProperties {
 
         public FileSinkConfig getFile() { return file; }
         public void setFile(FileSinkConfig file) { this.file = file; }
+
+        public SpillConfig getSpill() { return spill; }
+        public void setSpill(SpillConfig spill) { this.spill = spill; }
+
+        public RollupConfig getRollups() { return rollups; }
+        public void setRollups(RollupConfig rollups) { this.rollups = rollups; }
+    }
+
+    public static class RollupConfig {
+        /** Aggregate events per (service, route, status, tier) and window in front of the sink. */
+        private boolean enabled = false;
+        private long windowSeconds = 60;
+        /** A window is emitted this long after it ends, so stragglers from other shards make it in. */
+        private long flushDelayMs = 5_000;
+        private String raw = "all";   // all | sampled | none
+        /** {@code raw=sampled}: always keep responses with at least this status... */
+        private int errorStatus = 500;
+        /** ...and requests at least this slow... */
+        private long slowMs = 1_000;
+        /** ...and this fraction of the rest. */
+        private double sampleRate = 0.01;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getWindowSeconds() { return windowSeconds; }
+        public void setWindowSeconds(long windowSeconds) { this.windowSeconds = windowSeconds; }
+
+        public long getFlushDelayMs() { return flushDelayMs; }
+        public void setFlushDelayMs(long flushDelayMs) { this.flushDelayMs = flushDelayMs; }
+
+        public String getRaw() { return raw; }
+        public void setRaw(String raw) { this.raw = raw; }
+
+        public int getErrorStatus() { return errorStatus; }
+        public void setErrorStatus(int errorStatus) { this.errorStatus = errorStatus; }
+
+        public long getSlowMs() { return slowMs; }
+        public void setSlowMs(long slowMs) { this.slowMs = slowMs; }
+
+        public double getSampleRate() { return sampleRate; }
+        public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
+    }
+
+    public static class SpillConfig {
+        /** Write events a full ring can't take to disk and replay them, instead of dropping them. */
+        private boolean enabled = false;
+        /** One {@code shard-<n>} directory of segment files per shard. */
+        private String dir = "/var/lib/gateway/access-log-spill";
+        /** Disk budget across all shards; beyond it events are dropped. */
+        private long maxBytes = 1024L * 1024 * 1024;
+        /** Size of each memory-mapped segment file. */
+        private int segmentBytes = 64 * 1024 * 1024;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getDir() { return dir; }
+        public void setDir(String dir) { this.dir = dir; }
+
+        public long getMaxBytes() { return maxBytes; }
+        public void setMaxBytes(long maxBytes) { this.maxBytes = maxBytes; }
+
+        public int getSegmentBytes() { return segmentBytes; }
+        public void setSegmentBytes(int segmentBytes) { this.segmentBytes = segmentBytes; }
     }
 
     public static class KafkaSinkConfig {
         private String topic = "gateway-access-log";
+        private String format = "json";   // json | binary
+        /** Where {@code rollups} go, as JSON keyed by service. */
+        private String rollupTopic = "gateway-access-log-rollups";
+        /**
+         * Records sent but not yet acknowledged, tuned from ack latency and
+         * failures. Keep {@code maxLimit} × record size under the producer's
+         * {@code buffer.memory} so {@code send} never waits for memory.
+         */
+        private ConcurrencyLimitConfig inFlight = new ConcurrencyLimitConfig("gradient2", 1_000, 100, 20_000);
+        /** Producer {@code max.block.ms}: the longest a {@code send} may stall (e.g. no metadata). */
+        private long maxBlockMs = 100;
+        /** After a {@code send} stalls or fails outright, take no events for this long. */
+        private long stallBackoffMs = 1_000;
 
         public String getTopic() { return topic; }
         public void setTopic(String topic) { this.topic = topic; }
+
+        public String getRollupTopic() { return rollupTopic; }
+        public void setRollupTopic(String rollupTopic) { this.rollupTopic = rollupTopic; }
+
+        public String getFormat() { return format; }
+        public void setFormat(String format) { this.format = format; }
+
+        public ConcurrencyLimitConfig getInFlight() { return inFlight; }
+        public void setInFlight(ConcurrencyLimitConfig inFlight) { this.inFlight = inFlight; }
+
+        public long getMaxBlockMs() { return maxBlockMs; }
+        public void setMaxBlockMs(long maxBlockMs) { this.maxBlockMs = maxBlockMs; }
+
+        public long getStallBackoffMs() { return stallBackoffMs; }
+        public void setStallBackoffMs(long stallBackoffMs) { this.stallBackoffMs = stallBackoffMs; }
     }
 
     public static class FileSinkConfig {
         private String path = "/var/log/gateway/access.log";
+        private String format = "json";        // json | binary
+        /** Write buffer; a full buffer is one {@code write(2)}. */
+        private int bufferBytes = 64 * 1024;
+        /** A partly filled buffer is written out after this long. */
+        private long flushIntervalMs = 200;
+        /** Start a new segment once the active one reaches this size; 0 = never. */
+        private long rotateBytes = 256L * 1024 * 1024;
+        /** Start a new segment after this long; 0 = never. */
+        private long rotateIntervalMinutes = 60;
+        private String compression = "gzip";   // gzip | none
+        private String fsync = "interval";     // none | interval | batch
+        private long fsyncIntervalMs = 1000;
 
         public String getPath() { return path; }
         public void setPath(String path) { this.path = path; }
+
+        public String getFormat() { return format; }
+        public void setFormat(String format) { this.format = format; }
+
+        public int getBufferBytes() { return bufferBytes; }
+        public void setBufferBytes(int bufferBytes) { this.bufferBytes = bufferBytes; }
+
+        public long getFlushIntervalMs() { return flushIntervalMs; }
+        public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+
+        public long getRotateBytes() { return rotateBytes; }
+        public void setRotateBytes(long rotateBytes) { this.rotateBytes = rotateBytes; }
+
+        public long getRotateIntervalMinutes() { return rotateIntervalMinutes; }
+        public void setRotateIntervalMinutes(long rotateIntervalMinutes) { this.rotateIntervalMinutes = rotateIntervalMinutes; }
+
+        public String getCompression() { return compression; }
+        public void setCompression(String compression) { this.compression = compression; }
+
+        public String getFsync() { return fsync; }
+        public void setFsync(String fsync) { this.fsync = fsync; }
+
+        public long getFsyncIntervalMs() { return fsyncIntervalMs; }
+        public void setFsyncIntervalMs(long fsyncIntervalMs) { this.fsyncIntervalMs = fsyncIntervalMs; }
     }
 
     // ===== Admin =====
@@ -195,4 +583,112 @@ public class RouterProperties {
         public String getApiKey() { return apiKey; }
         public void setApiKey(String apiKey) { this.apiKey = apiKey; }
     }
+
+    // ===== Load shedding =====
+    public static class LoadSheddingConfig {
+        private boolean enabled = false;
+        private long lagSampleIntervalMs = 100;
+        /** Tiers not listed are never shed. */
+        private Map<String, LoadShedTier> tiers = new HashMap<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getLagSampleIntervalMs() { return lagSampleIntervalMs; }
+        public void setLagSampleIntervalMs(long lagSampleIntervalMs) { this.lagSampleIntervalMs = lagSampleIntervalMs; }
+
+        public Map<String, LoadShedTier> getTiers() { return tiers; }
+        public void setTiers(Map<String, LoadShedTier> tiers) { this.tiers = tiers; }
+    }
+
+    public static class LoadShedTier {
+        /** Shed this tier once event-loop lag exceeds this. 0 = ignore lag. */
+        private long maxLagMs;
+        /** Shed this tier once pod-wide in-flight requests reach this. 0 = ignore. */
+        private int maxInFlight;
+
+        public LoadShedTier() {}
+
+        public LoadShedTier(long maxLagMs, int maxInFlight) {
+            this.maxLagMs = maxLagMs;
+            this.maxInFlight = maxInFlight;
+        }
+
+        public long getMaxLagMs() { return maxLagMs; }
+        public void setMaxLagMs(long maxLagMs) { this.maxLagMs = maxLagMs; }
+
+        public int getMaxInFlight() { return maxInFlight; }
+        public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+    }
+
+    // ===== Heavy hitters =====
+    public static class HeavyHitterConfig {
+        private boolean enabled = true;
+        /** Counts cover the last this many seconds, to within one bucket. */
+        private int windowSeconds = 60;
+        /** Sub-windows the sketch expires one at a time. */
+        private int buckets = 6;
+        /** Counters per sketch row, rounded up to a power of two; estimates are high by about requests-per-window / width. */
+        private int width = 2048;
+        private int depth = 4;
+        /** Keys reported per dimension; the summary tracks 4× as many candidates. */
+        private int topK = 20;
+        /** Requests per window above which a principal is answered 429 locally. 0 = report only. */
+        private long principalLimit = 0;
+        /** Same for a client IP. Only meaningful when the gateway sees real client addresses. */
+        private long clientIpLimit = 0;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getWindowSeconds() { return windowSeconds; }
+        public void setWindowSeconds(int windowSeconds) { this.windowSeconds = windowSeconds; }
+
+        public int getBuckets() { return buckets; }
+        public void setBuckets(int buckets) { this.buckets = buckets; }
+
+        public int getWidth() { return width; }
+        public void setWidth(int width) { this.width = width; }
+
+        public int getDepth() { return depth; }
+        public void setDepth(int depth) { this.depth = depth; }
+
+        public int getTopK() { return topK; }
+        public void setTopK(int topK) { this.topK = topK; }
+
+        public long getPrincipalLimit() { return principalLimit; }
+        public void setPrincipalLimit(long principalLimit) { this.principalLimit = principalLimit; }
+
+        public long getClientIpLimit() { return clientIpLimit; }
+        public void setClientIpLimit(long clientIpLimit) { this.clientIpLimit = clientIpLimit; }
+    }
+
+    // ===== Registry sync =====
+    public static class RegistrySyncConfig {
+        /** Share {@code /admin/services} changes across the fleet through Redis; needs a Redis connection. */
+        private boolean enabled = false;
+        /** Hash holding the latest snapshot and its version. */
+        private String key = "router:registry";
+        /** Pub/sub channel every snapshot is announced on. */
+        private String channel = "router:registry:snapshots";
+        /** Re-read the latest snapshot this often, for nodes that missed a message. */
+        private long resyncMs = 30_000;
+        /** Attempts per admin change when another node wins the compare-and-set. */
+        private int maxAttempts = 5;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+
+        public String getChannel() { return channel; }
+        public void setChannel(String channel) { this.channel = channel; }
+
+        public long getResyncMs() { return resyncMs; }
+        public void setResyncMs(long resyncMs) { this.resyncMs = resyncMs; }
+
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+    }
 }
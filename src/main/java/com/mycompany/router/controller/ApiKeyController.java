@@ -3,32 +3,90 @@ package com.mycompany.router.controller;
 import com.mycompany.router.auth.ApiKey;
 import com.mycompany.router.auth.ApiKeyHasher;
 import com.mycompany.router.auth.ApiKeyStore;
+import com.mycompany.router.auth.SignedApiKeyCodec;
+import com.mycompany.router.auth.SignedKeyClaims;
+import com.mycompany.router.auth.SignedKeyDenyList;
+import com.mycompany.router.config.RouterProperties;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/admin/apikeys")
 public class ApiKeyController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Pattern HASH_HEX = Pattern.compile("[0-9a-f]{64}");
+
     private final ApiKeyStore store;
+    private final SignedApiKeyCodec signedKeys;
+    private final SignedKeyDenyList denyList;
+    private final Duration maxSignedTtl;
 
-    public ApiKeyController(ApiKeyStore store) {
+    public ApiKeyController(ApiKeyStore store, Optional<SignedApiKeyCodec> signedKeys,
+                            SignedKeyDenyList denyList, RouterProperties properties) {
         this.store = store;
+        this.signedKeys = signedKeys.orElse(null);
+        this.denyList = denyList;
+        this.maxSignedTtl = Duration.ofDays(properties.getAuth().getSignedKeys().getMaxTtlDays());
     }
 
+    /**
+     * One page of keys, ordered by the store's cursor. When more remain the
+     * cursor for the next page is in {@value #NEXT_CURSOR_HEADER}.
+     */
     @GetMapping
-    public Flux<ApiKey> list() {
+    public Mono<ResponseEntity<List<ApiKey>>> list(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return store.page(cursor, limit)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+                    if (page.nextCursor() != null) ok.header(NEXT_CURSOR_HEADER, page.nextCursor());
+                    return ok.body(page.keys());
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    /** Every key as newline-delimited JSON, streamed straight from the store. */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ApiKey> export() {
         return store.list();
     }
 
+    /**
+     * Bulk upsert from newline-delimited JSON in {@code /export} format (the
+     * {@code keyHash} is taken as-is; no raw keys are issued). Lines without
+     * an id or a SHA-256 hex hash are counted as rejected and skipped.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ImportResult> importKeys(@RequestBody Flux<ApiKey> keys) {
+        AtomicLong rejected = new AtomicLong();
+        Flux<ApiKey> valid = keys.filter(k -> {
+            boolean ok = k.id() != null && !k.id().isBlank()
+                    && k.keyHash() != null && HASH_HEX.matcher(k.keyHash()).matches();
+            if (!ok) rejected.incrementAndGet();
+            return ok;
+        });
+        return store.saveAll(valid).count()
+                .map(imported -> new ImportResult(imported, rejected.get()));
+    }
+
     @PostMapping
     public Mono<ResponseEntity<IssuedKey>> create(@RequestBody CreateRequest req) {
         String raw = UUID.randomUUID().toString().replace("-", "");
@@ -42,8 +100,9 @@ public class ApiKeyController {
                 true,
                 Instant.now(),
                 req.expiresAt());
-        return store.save(key).map(saved ->
-                ResponseEntity.ok(new IssuedKey(saved.id(), raw, saved.principalId(), saved.tier())));
+        return store.save(key)
+                .map(saved -> ResponseEntity.ok(new IssuedKey(saved.id(), raw, saved.principalId(), saved.tier())))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
     }
 
     @DeleteMapping("/{id}")
@@ -51,8 +110,51 @@ public class ApiKeyController {
         return store.delete(id).thenReturn(ResponseEntity.<Void>noContent().build());
     }
 
+    /**
+     * Mints a signed key. Nothing is stored: the key carries its own claims
+     * and is verified without a store lookup. {@code expiresAt} defaults to,
+     * and may not exceed, {@code auth.signedKeys.maxTtlDays}.
+     */
+    @PostMapping("/signed")
+    public Mono<ResponseEntity<IssuedKey>> createSigned(@RequestBody CreateRequest req) {
+        if (signedKeys == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        Instant maxExpiry = Instant.now().plus(maxSignedTtl);
+        Instant expiresAt = req.expiresAt() == null ? maxExpiry : req.expiresAt();
+        if (req.principalId() == null || expiresAt.isAfter(maxExpiry)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        SignedKeyClaims claims = new SignedKeyClaims(
+                req.id() == null ? UUID.randomUUID().toString() : req.id(),
+                req.principalId(),
+                req.tier() == null ? "basic" : req.tier(),
+                req.scopes() == null ? Set.of() : Set.copyOf(req.scopes()),
+                expiresAt);
+        String token;
+        try {
+            token = signedKeys.mint(claims);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.just(ResponseEntity.ok(
+                new IssuedKey(claims.keyId(), token, claims.principalId(), claims.tier())));
+    }
+
+    /** Revokes a signed key fleet-wide, for as long as any key could still be valid. */
+    @DeleteMapping("/signed/{id}")
+    public Mono<ResponseEntity<Void>> revokeSigned(@PathVariable String id) {
+        if (signedKeys == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        return denyList.deny(id, Instant.now().plus(maxSignedTtl))
+                .thenReturn(ResponseEntity.<Void>noContent().build());
+    }
+
     public record CreateRequest(String id, String principalId, String tier,
                                 List<String> scopes, Instant expiresAt) {}
 
     public record IssuedKey(String id, String key, String principalId, String tier) {}
+
+    public record ImportResult(long imported, long rejected) {}
 }
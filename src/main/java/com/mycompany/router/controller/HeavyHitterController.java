@@ -0,0 +1,46 @@
+package com.mycompany.router.controller;
+
+import com.mycompany.router.heavyhitters.HeavyHitter;
+import com.mycompany.router.heavyhitters.HeavyHitterDetector;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The principals, client IPs and paths with the most requests in the current
+ * window, per {@link HeavyHitterDetector}. {@code limit} defaults to
+ * {@code router.heavyHitters.topK}, which is also its maximum.
+ */
+@RestController
+@RequestMapping("/admin/heavy-hitters")
+public class HeavyHitterController {
+
+    private final HeavyHitterDetector detector;
+
+    public HeavyHitterController(HeavyHitterDetector detector) {
+        this.detector = detector;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Map<String, List<HeavyHitter>>>> all(@RequestParam(required = false) Integer limit) {
+        int n = limit == null ? detector.topK() : limit;
+        if (n < 1 || n > detector.topK()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.just(ResponseEntity.ok(detector.top(n)));
+    }
+
+    @GetMapping("/{dimension}")
+    public Mono<ResponseEntity<List<HeavyHitter>>> dimension(@PathVariable String dimension,
+                                                             @RequestParam(required = false) Integer limit) {
+        int n = limit == null ? detector.topK() : limit;
+        if (n < 1 || n > detector.topK()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        List<HeavyHitter> top = detector.top(dimension, n);
+        return Mono.just(top == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(top));
+    }
+}
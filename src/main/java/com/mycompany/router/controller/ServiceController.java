@@ -1,20 +1,28 @@
 package com.mycompany.router.controller;
 
 import com.mycompany.router.config.RouterProperties;
+import com.mycompany.router.service.RegistrySync;
 import com.mycompany.router.service.ServiceRegistry;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
+import java.util.ConcurrentModificationException;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 @RestController
 @RequestMapping("/admin/services")
 public class ServiceController {
+    static final String VERSION_HEADER = "X-Config-Version";
+
     private final ServiceRegistry serviceRegistry;
+    private final RegistrySync registrySync;
 
-    public ServiceController(ServiceRegistry serviceRegistry) {
+    public ServiceController(ServiceRegistry serviceRegistry, RegistrySync registrySync) {
         this.serviceRegistry = serviceRegistry;
+        this.registrySync = registrySync;
     }
 
     @GetMapping
@@ -35,27 +43,30 @@ public class ServiceController {
     public Mono<ResponseEntity<Void>> registerService(
             @PathVariable String serviceName,
             @RequestBody RouterProperties.ServiceConfig config) {
-        serviceRegistry.registerService(serviceName, config);
-        return Mono.just(ResponseEntity.ok().build());
+        return publish(services -> {
+            services.put(serviceName, config);
+            return services;
+        });
     }
 
     @PutMapping("/{serviceName}")
     public Mono<ResponseEntity<Void>> updateService(
             @PathVariable String serviceName,
             @RequestBody RouterProperties.ServiceConfig config) {
-        if (serviceRegistry.getService(serviceName) == null) {
-            return Mono.just(ResponseEntity.notFound().build());
-        }
-        serviceRegistry.updateService(serviceName, config);
-        return Mono.just(ResponseEntity.ok().build());
+        return publish(services -> services.replace(serviceName, config) == null ? null : services);
     }
 
     @DeleteMapping("/{serviceName}")
     public Mono<ResponseEntity<Void>> removeService(@PathVariable String serviceName) {
-        if (serviceRegistry.getService(serviceName) == null) {
-            return Mono.just(ResponseEntity.notFound().build());
-        }
-        serviceRegistry.removeService(serviceName);
-        return Mono.just(ResponseEntity.ok().build());
+        return publish(services -> services.remove(serviceName) == null ? null : services);
+    }
+
+    /** 404 when {@code change} aborts on a missing service, 409 when other admins kept winning the race. */
+    private Mono<ResponseEntity<Void>> publish(UnaryOperator<Map<String, RouterProperties.ServiceConfig>> change) {
+        return registrySync.mutate(change)
+                .map(snapshot -> ResponseEntity.ok().header(VERSION_HEADER, Long.toString(snapshot.version())).<Void>build())
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(ConcurrentModificationException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
     }
 }
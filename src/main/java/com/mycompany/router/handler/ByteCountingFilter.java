@@ -0,0 +1,64 @@
+package com.mycompany.router.handler;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Counts the body bytes of every exchange as they stream through, for the
+ * access log and {@code gateway.{request,response}.bytes}.
+ *
+ * Outermost filter: the request body and the response writes are wrapped so
+ * each {@link DataBuffer} adds its {@code readableByteCount()} on the way
+ * past — nothing is copied or held. The count lives on the exchange as
+ * {@link ExchangeBytes}; when the chain finishes (response written, failed
+ * or cancelled) it runs what {@code RouterHandler} deferred until the total
+ * is known. Request bytes are what the gateway actually read: a body
+ * rejected before forwarding counts as 0.
+ */
+public class ByteCountingFilter implements WebFilter, Ordered {
+
+    public static final int ORDER = -110; // before auth: sees every exchange, finishes last
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ExchangeBytes bytes = new ExchangeBytes();
+        ServerWebExchange counted = exchange.mutate()
+                .request(new ServerHttpRequestDecorator(exchange.getRequest()) {
+                    @Override
+                    public Flux<DataBuffer> getBody() {
+                        return super.getBody().doOnNext(b -> bytes.addRequest(b.readableByteCount()));
+                    }
+                })
+                .response(new ServerHttpResponseDecorator(exchange.getResponse()) {
+                    @Override
+                    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                        // keep a Mono a Mono: the server sends it with a Content-Length
+                        return super.writeWith(body instanceof Mono<? extends DataBuffer> mono
+                                ? mono.doOnNext(b -> bytes.addResponse(b.readableByteCount()))
+                                : Flux.from(body).doOnNext(b -> bytes.addResponse(b.readableByteCount())));
+                    }
+
+                    @Override
+                    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                        return super.writeAndFlushWith(Flux.from(body).map(chunk ->
+                                Flux.from(chunk).doOnNext(b -> bytes.addResponse(b.readableByteCount()))));
+                    }
+                })
+                .build();
+        counted.getAttributes().put(ExchangeBytes.ATTRIBUTE, bytes);
+        return chain.filter(counted).doFinally(signal -> bytes.complete());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
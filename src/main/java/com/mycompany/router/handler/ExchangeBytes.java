@@ -0,0 +1,59 @@
+package com.mycompany.router.handler;
+
+/**
+ * Body bytes read from and written to the client for one exchange, counted
+ * by {@link ByteCountingFilter} as the buffers pass, plus the work to run
+ * once the response is done (the access-log event, which needs the final
+ * count).
+ *
+ * Each counter has one writer at a time (a body's buffers arrive in order),
+ * so plain volatile adds are enough.
+ */
+final class ExchangeBytes {
+
+    static final String ATTRIBUTE = "router.exchangeBytes";
+
+    private volatile long requestBytes;
+    private volatile long responseBytes;
+    private Runnable onComplete;   // guarded by this
+    private boolean completed;     // guarded by this
+
+    void addRequest(int n) {
+        requestBytes += n;
+    }
+
+    void addResponse(int n) {
+        responseBytes += n;
+    }
+
+    long requestBytes() {
+        return requestBytes;
+    }
+
+    long responseBytes() {
+        return responseBytes;
+    }
+
+    /** Runs {@code action} when the exchange ends, or now if it already has. */
+    void whenComplete(Runnable action) {
+        synchronized (this) {
+            if (!completed) {
+                Runnable previous = onComplete;
+                onComplete = previous == null ? action : () -> { previous.run(); action.run(); };
+                return;
+            }
+        }
+        action.run();
+    }
+
+    void complete() {
+        Runnable action;
+        synchronized (this) {
+            if (completed) return;
+            completed = true;
+            action = onComplete;
+            onComplete = null;
+        }
+        if (action != null) action.run();
+    }
+}
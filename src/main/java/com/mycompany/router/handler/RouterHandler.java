@@ -1,22 +1,30 @@
 package com.mycompany.router.handler;
 
-import com.mycompany.router.accesslog.AccessLogEvent;
 import com.mycompany.router.accesslog.AccessLogPipeline;
+import com.mycompany.router.accesslog.AccessLogSlot;
 import com.mycompany.router.auth.Principal;
+import com.mycompany.router.concurrency.AdaptiveConcurrencyLimiter;
+import com.mycompany.router.concurrency.UpstreamConcurrencyLimiters;
+import com.mycompany.router.config.ConcurrencyLimitConfig;
 import com.mycompany.router.config.RateLimitConfig;
 import com.mycompany.router.config.RouterProperties;
+import com.mycompany.router.heavyhitters.HeavyHitterDetector;
 import com.mycompany.router.plugin.RouterPlugin;
+import com.mycompany.router.ratelimit.ConcurrentRequestLimiter;
 import com.mycompany.router.ratelimit.RateLimitDecision;
 import com.mycompany.router.ratelimit.RateLimitResolver;
 import com.mycompany.router.ratelimit.RateLimiter;
+import com.mycompany.router.ratelimit.WaitingRoom;
 import com.mycompany.router.routing.RouteSelectionStrategy;
 import com.mycompany.router.service.ServiceRegistry;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -24,50 +32,70 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class RouterHandler {
 
     private static final Logger log = LoggerFactory.getLogger(RouterHandler.class);
     private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final String UNKNOWN_SERVICE = "unknown";
 
     private final WebClient webClient;
     private final ServiceRegistry serviceRegistry;
     private final RateLimiter rateLimiter;
     private final RateLimitResolver rateLimitResolver;
+    private final ConcurrentRequestLimiter concurrentRequests;
+    private final WaitingRoom waitingRoom;
     private final List<RouteSelectionStrategy> routingStrategies;
     private final List<RouterPlugin> plugins;
     private final AccessLogPipeline accessLog;
+    private final UpstreamConcurrencyLimiters upstreamLimiters;
+    private final HeavyHitterDetector heavyHitters;
     private final Counter requestsCounter;
     private final Counter rateLimitedCounter;
+    private final Counter concurrencyCappedCounter;
     private final Timer latencyTimer;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, BodySizes> bodySizes = new ConcurrentHashMap<>();
 
     public RouterHandler(WebClient.Builder webClientBuilder,
                          ServiceRegistry serviceRegistry,
                          RateLimiter rateLimiter,
                          RateLimitResolver rateLimitResolver,
+                         ConcurrentRequestLimiter concurrentRequests,
+                         WaitingRoom waitingRoom,
                          List<RouteSelectionStrategy> routingStrategies,
                          List<RouterPlugin> plugins,
                          AccessLogPipeline accessLog,
+                         UpstreamConcurrencyLimiters upstreamLimiters,
+                         HeavyHitterDetector heavyHitters,
                          MeterRegistry meterRegistry) {
         this.webClient = webClientBuilder.build();
         this.serviceRegistry = serviceRegistry;
         this.rateLimiter = rateLimiter;
         this.rateLimitResolver = rateLimitResolver;
+        this.concurrentRequests = concurrentRequests;
+        this.waitingRoom = waitingRoom;
         this.routingStrategies = routingStrategies;
         this.plugins = plugins.stream()
                 .sorted((a, b) -> Integer.compare(a.getOrder(), b.getOrder()))
                 .toList();
         this.accessLog = accessLog;
+        this.upstreamLimiters = upstreamLimiters;
+        this.heavyHitters = heavyHitters;
         this.requestsCounter = Counter.builder("gateway.requests").register(meterRegistry);
         this.rateLimitedCounter = Counter.builder("gateway.rate_limited").register(meterRegistry);
+        this.concurrencyCappedCounter = Counter.builder("gateway.concurrency_capped").register(meterRegistry);
         this.latencyTimer = Timer.builder("gateway.request.latency").register(meterRegistry);
+        this.meterRegistry = meterRegistry;
     }
 
     public Mono<ServerResponse> handleRequest(ServerRequest request) {
@@ -79,6 +107,14 @@ public class RouterHandler {
         Principal principal = (Principal) request.exchange().getAttributes()
                 .getOrDefault(Principal.CONTEXT_KEY, Principal.anonymous("none"));
 
+        InetSocketAddress remote = request.remoteAddress().orElse(null);
+        String heavyHitter = heavyHitters.record(principal, remote == null ? null : remote.getAddress(), path);
+        if (heavyHitter != null) {
+            return finish(request, principal, serviceName, null, HttpStatus.TOO_MANY_REQUESTS.value(),
+                    start, startInstant, requestId, "heavy-hitter-" + heavyHitter, null,
+                    heavyHitterResponse());
+        }
+
         RouterProperties.ServiceConfig serviceConfig = serviceRegistry.getService(serviceName);
         if (serviceConfig == null) {
             return finish(request, principal, serviceName, null, HttpStatus.NOT_FOUND.value(),
@@ -97,6 +133,10 @@ public class RouterHandler {
         Duration period = RateLimitResolver.period(limitCfg.getPeriod());
 
         return rateLimiter.check(rlKey, limitCfg.getLimit(), period)
+                .flatMap(decision -> decision.allowed()
+                        ? Mono.just(decision)
+                        : waitingRoom.admit(principal.tier(), decision,
+                                () -> rateLimiter.check(rlKey, limitCfg.getLimit(), period)))
                 .flatMap(decision -> {
                     requestsCounter.increment();
                     if (!decision.allowed()) {
@@ -106,8 +146,24 @@ public class RouterHandler {
                                 start, startInstant, requestId, "rate-limited", null,
                                 rateLimitedResponse(decision));
                     }
-                    return route(request, principal, serviceName, serviceConfig, decision,
-                            start, startInstant, requestId);
+                    if (limitCfg.getMaxConcurrent() <= 0) {
+                        return route(request, principal, serviceName, serviceConfig, decision,
+                                start, startInstant, requestId);
+                    }
+                    String ccKey = rateLimitResolver.concurrencyKey(serviceName, principal);
+                    return concurrentRequests.acquire(ccKey, limitCfg.getMaxConcurrent())
+                            .flatMap(lease -> {
+                                if (!lease.granted()) {
+                                    concurrencyCappedCounter.increment();
+                                    return finish(request, principal, serviceName, null,
+                                            HttpStatus.TOO_MANY_REQUESTS.value(),
+                                            start, startInstant, requestId, "concurrency-capped", null,
+                                            concurrencyCappedResponse(limitCfg.getMaxConcurrent()));
+                                }
+                                return route(request, principal, serviceName, serviceConfig, decision,
+                                        start, startInstant, requestId)
+                                        .doFinally(signal -> lease.release());
+                            });
                 });
     }
 
@@ -129,7 +185,18 @@ public class RouterHandler {
                                 "no-route", null, ServerResponse.notFound().build());
                     }
                     RouterProperties.RouteConfig route = selectedRoute.get();
-                    return forwardRequest(modifiedRequest, route, requestId, decision)
+                    AdaptiveConcurrencyLimiter.Permit permit = null;
+                    ConcurrencyLimitConfig concurrency = serviceConfig.getConcurrencyLimit();
+                    if (concurrency != null && concurrency.isEnabled()) {
+                        permit = upstreamLimiters.tryAcquire(serviceName, route, concurrency);
+                        if (permit == null) {
+                            return finish(modifiedRequest, principal, serviceName, route.getTargetUrl(),
+                                    HttpStatus.SERVICE_UNAVAILABLE.value(), start, startInstant, requestId,
+                                    "concurrency-limited", null,
+                                    ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                        }
+                    }
+                    return track(forwardRequest(modifiedRequest, route, requestId, decision), permit)
                             .flatMap(resp -> finish(modifiedRequest, principal, serviceName,
                                     route.getTargetUrl(), resp.statusCode().value(),
                                     start, startInstant, requestId, null, null,
@@ -141,6 +208,24 @@ public class RouterHandler {
                 });
     }
 
+    /** Feeds the upstream's outcome back into its adaptive concurrency limit. */
+    private static Mono<ServerResponse> track(Mono<ServerResponse> upstream,
+                                              AdaptiveConcurrencyLimiter.Permit permit) {
+        if (permit == null) return upstream;
+        return upstream
+                .doOnNext(resp -> {
+                    if (isOverload(resp.statusCode())) permit.onDropped();
+                    else permit.onSuccess();
+                })
+                .doOnError(e -> permit.onDropped())
+                .doFinally(signal -> permit.onIgnore());
+    }
+
+    private static boolean isOverload(HttpStatusCode status) {
+        int code = status.value();
+        return code == 429 || code == 503 || code == 504;
+    }
+
     private Mono<ServerResponse> finish(ServerRequest request,
                                         Principal principal,
                                         String serviceName,
@@ -158,7 +243,14 @@ public class RouterHandler {
         if (cause != null) {
             log.warn("Gateway error reqId={} service={} target={}", requestId, serviceName, targetUrl, cause);
         }
-        emit(request, principal, serviceName, targetUrl, status, latencyMs, startInstant, requestId, error);
+        ExchangeBytes bytes = request.exchange().getAttribute(ExchangeBytes.ATTRIBUTE);
+        if (bytes == null) {   // not behind ByteCountingFilter
+            emit(request, principal, serviceName, targetUrl, status, latencyMs, startInstant, requestId, error,
+                    request.headers().contentLength().orElse(0), 0L);
+        } else {
+            bytes.whenComplete(() -> emit(request, principal, serviceName, targetUrl, status, latencyMs,
+                    startInstant, requestId, error, bytes.requestBytes(), bytes.responseBytes()));
+        }
         return responseMono;
     }
 
@@ -170,30 +262,50 @@ public class RouterHandler {
                       long latencyMs,
                       Instant timestamp,
                       String requestId,
-                      String error) {
-        long requestBytes = request.headers().contentLength().orElse(0);
+                      String error,
+                      long requestBytes,
+                      long responseBytes) {
+        bodySizes(serviceName).record(requestBytes, responseBytes);
         String ua = request.headers().firstHeader("User-Agent");
-        String clientIp = request.remoteAddress()
-                .map(a -> a.getAddress() == null ? "unknown" : a.getAddress().getHostAddress())
-                .orElse("unknown");
-        AccessLogEvent ev = new AccessLogEvent(
-                requestId,
-                timestamp,
-                request.method().name(),
-                request.path(),
-                request.uri().getQuery() == null ? "" : request.uri().getQuery(),
-                serviceName,
-                targetUrl,
-                status,
-                latencyMs,
-                requestBytes,
-                0L,
-                principal.id(),
-                principal.tier(),
-                clientIp,
-                ua == null ? "" : ua,
-                error == null ? "" : error);
-        accessLog.offer(ev);
+        InetSocketAddress remote = request.remoteAddress().orElse(null);
+        AccessLogSlot slot = accessLog.claim(principal.id());
+        if (slot == null) return;   // ring full, counted as dropped
+        slot.requestId(requestId)
+                .timestamp(timestamp)
+                .method(request.method().name())
+                .path(request.path())
+                .uri(request.uri())
+                .service(serviceName)
+                .targetUrl(targetUrl)
+                .status(status)
+                .latencyMs(latencyMs)
+                .requestBytes(requestBytes)
+                .responseBytes(responseBytes)
+                .principalId(principal.id())
+                .tier(principal.tier())
+                .clientAddress(remote)
+                .userAgent(ua)
+                .error(error)
+                .publish();
+    }
+
+    /** Per-service body size summaries; names that aren't registered services share one. */
+    private BodySizes bodySizes(String serviceName) {
+        String service = serviceName != null && serviceRegistry.getService(serviceName) != null
+                ? serviceName : UNKNOWN_SERVICE;
+        BodySizes sizes = bodySizes.get(service);
+        return sizes != null ? sizes : bodySizes.computeIfAbsent(service, s -> new BodySizes(
+                DistributionSummary.builder("gateway.request.bytes").baseUnit("bytes").tag("service", s)
+                        .register(meterRegistry),
+                DistributionSummary.builder("gateway.response.bytes").baseUnit("bytes").tag("service", s)
+                        .register(meterRegistry)));
+    }
+
+    private record BodySizes(DistributionSummary request, DistributionSummary response) {
+        void record(long requestBytes, long responseBytes) {
+            request.record(requestBytes);
+            response.record(responseBytes);
+        }
     }
 
     private Mono<ServerResponse> rateLimitedResponse(RateLimitDecision d) {
@@ -205,6 +317,20 @@ public class RouterHandler {
                 .build();
     }
 
+    private Mono<ServerResponse> heavyHitterResponse() {
+        return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", Long.toString(heavyHitters.retryAfterSeconds()))
+                .header("X-Gateway-Error", "heavy-hitter")
+                .build();
+    }
+
+    private Mono<ServerResponse> concurrencyCappedResponse(int maxConcurrent) {
+        return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("X-Concurrency-Limit", Integer.toString(maxConcurrent))
+                .header("X-Gateway-Error", "concurrency-capped")
+                .build();
+    }
+
     private String ensureRequestId(ServerRequest request) {
         String existing = request.headers().firstHeader(REQUEST_ID_HEADER);
         return existing != null ? existing : UUID.randomUUID().toString();
@@ -0,0 +1,152 @@
+package com.mycompany.router.heavyhitters;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Count-Min Sketch over a sliding window.
+ *
+ * {@code depth} rows of {@code width} counters; a key adds one to a counter
+ * per row ({@code h1 + i·h2}, double hashing) and its estimate is the
+ * smallest of them — never low, high by the collisions in the least crowded
+ * row. {@code h1} and {@code h2} are the halves of a 64-bit SipHash-1-3 of
+ * the key's bytes under a random per-sketch key ({@link #hash}): callers
+ * pick their own IPs and principal ids, and with {@code hashCode()} they
+ * could pick one that lands on a victim's counters in every row (two IPv6
+ * addresses in the same /64 can share a hash code). The window is {@code buckets} sub-sketches plus their running sum:
+ * {@link #add} increments the current bucket and the sum, {@link #rotate}
+ * subtracts the oldest bucket from the sum and reuses it as the current one.
+ * Each counter is moved out with {@code getAndSet}, so a concurrent
+ * {@code add} is either in both arrays or in neither.
+ */
+final class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray[] buckets;
+    private final AtomicLongArray window;
+    private final long k0;
+    private final long k1;
+    private volatile int current;
+
+    CountMinSketch(int depth, int width, int buckets) {
+        this(depth, width, buckets, new SecureRandom());
+    }
+
+    CountMinSketch(int depth, int width, int buckets, Random seed) {
+        this.depth = Math.max(1, depth);
+        int w = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.mask = w - 1;
+        this.buckets = new AtomicLongArray[Math.max(1, buckets)];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new AtomicLongArray(this.depth * w);
+        }
+        this.window = new AtomicLongArray(this.depth * w);
+        this.k0 = seed.nextLong();
+        this.k1 = seed.nextLong();
+    }
+
+    /** Counts one occurrence of a key (its {@link #hash}) and returns its estimate for the window. */
+    long add(long hash) {
+        AtomicLongArray bucket = buckets[current];
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int idx = i * (mask + 1) + ((h1 + i * h2) & mask);
+            bucket.getAndIncrement(idx);
+            min = Math.min(min, window.incrementAndGet(idx));
+        }
+        return min;
+    }
+
+    long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, window.get(i * (mask + 1) + ((h1 + i * h2) & mask)));
+        }
+        return min;
+    }
+
+    /** Drops the oldest bucket from the window. One caller at a time. */
+    void rotate() {
+        int next = (current + 1) % buckets.length;
+        AtomicLongArray expired = buckets[next];
+        for (int i = 0; i < expired.length(); i++) {
+            long v = expired.getAndSet(i, 0);
+            if (v != 0) window.addAndGet(i, -v);
+        }
+        current = next;
+    }
+
+    long sizeBytes() {
+        return (long) (buckets.length + 1) * window.length() * Long.BYTES;
+    }
+
+    /** SipHash-1-3 of {@code bytes} under this sketch's key. */
+    long hash(byte[] bytes) {
+        SipHash sip = new SipHash(k0, k1);
+        int words = bytes.length / 8;
+        for (int i = 0; i < words; i++) {
+            long m = 0;
+            for (int j = 7; j >= 0; j--) m = m << 8 | (bytes[i * 8 + j] & 0xFF);
+            sip.compress(m);
+        }
+        long last = 0;
+        for (int j = bytes.length - 1; j >= words * 8; j--) last = last << 8 | (bytes[j] & 0xFF);
+        return sip.finish(last, bytes.length);
+    }
+
+    /** SipHash-1-3 of {@code s} as UTF-16LE, without encoding it first. */
+    long hash(CharSequence s) {
+        SipHash sip = new SipHash(k0, k1);
+        int n = s.length();
+        int words = n / 4;
+        for (int i = 0; i < words; i++) {
+            int c = i * 4;
+            sip.compress(s.charAt(c) | (long) s.charAt(c + 1) << 16
+                    | (long) s.charAt(c + 2) << 32 | (long) s.charAt(c + 3) << 48);
+        }
+        long last = 0;
+        for (int c = n - 1; c >= words * 4; c--) last = last << 16 | s.charAt(c);
+        return sip.finish(last, 2 * n);
+    }
+
+    /** SipHash state: one compression round per word, three to finish. */
+    private static final class SipHash {
+        private long v0, v1, v2, v3;
+
+        SipHash(long k0, long k1) {
+            v0 = k0 ^ 0x736f6d6570736575L;
+            v1 = k1 ^ 0x646f72616e646f6dL;
+            v2 = k0 ^ 0x6c7967656e657261L;
+            v3 = k1 ^ 0x7465646279746573L;
+        }
+
+        void compress(long m) {
+            v3 ^= m;
+            round();
+            v0 ^= m;
+        }
+
+        /** {@code tail}: the last {@code length % 8} bytes, little-endian. */
+        long finish(long tail, int length) {
+            compress(tail | (long) length << 56);
+            v2 ^= 0xff;
+            round();
+            round();
+            round();
+            return v0 ^ v1 ^ v2 ^ v3;
+        }
+
+        private void round() {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.mycompany.router.heavyhitters;
+
+/**
+ * One of the most frequent keys of a dimension. {@code estimate} is the
+ * request count over the window, possibly a little high (never low).
+ * {@code overLimit} means requests for it are currently answered 429 locally.
+ */
+public record HeavyHitter(String key, long estimate, boolean overLimit) {
+}
@@ -0,0 +1,203 @@
+package com.mycompany.router.heavyhitters;
+
+import com.mycompany.router.auth.Principal;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Finds the principals, client IPs and paths sending the most requests right
+ * now, in constant memory.
+ *
+ * {@code RouterHandler} calls {@link #record} for every request, next to
+ * claiming its access-log slot. Each dimension is a sliding-window
+ * {@link CountMinSketch} (the counts) plus a {@link SpaceSavingTopK} (which
+ * keys to report); recording is a few atomic increments and a map lookup.
+ * A timer thread expires one bucket of the window every
+ * {@code windowSeconds / buckets}.
+ *
+ * With {@code principalLimit} / {@code clientIpLimit} set, {@code record}
+ * also says whether the request's principal or IP is over its limit, so the
+ * handler can answer 429 before the rate limiter (and Redis) sees it. Only a
+ * key in the top-K summary can be over the limit; that keeps sketch
+ * overestimates from throttling a quiet key. Paths are report-only: callers
+ * choose them, and could aim collisions at someone else's.
+ *
+ * Metrics: {@code gateway.heavy_hitters.top_estimate{dimension}},
+ * {@code gateway.heavy_hitters.over_limit{dimension}} and
+ * {@code gateway.heavy_hitters.throttled{dimension}}. Keys themselves are
+ * only on {@code /admin/heavy-hitters}, not meter tags.
+ */
+public class HeavyHitterDetector implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HeavyHitterDetector.class);
+
+    public static final String PRINCIPAL = "principal";
+    public static final String CLIENT_IP = "client_ip";
+    public static final String PATH = "path";
+
+    private final boolean enabled;
+    private final int topK;
+    private final long bucketSeconds;
+    private final Dimension<String> principals;
+    private final Dimension<InetAddress> clientIps;
+    private final Dimension<String> paths;
+    private final Map<String, Dimension<?>> dimensions = new LinkedHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    public HeavyHitterDetector(RouterProperties.HeavyHitterConfig cfg, MeterRegistry registry) {
+        this(cfg, registry, cfg.isEnabled());
+    }
+
+    HeavyHitterDetector(RouterProperties.HeavyHitterConfig cfg, MeterRegistry registry, boolean startTimer) {
+        this.enabled = cfg.isEnabled();
+        this.topK = Math.max(1, cfg.getTopK());
+        this.bucketSeconds = Math.max(1, cfg.getWindowSeconds() / Math.max(1, cfg.getBuckets()));
+        this.principals = dimension(PRINCIPAL, cfg, cfg.getPrincipalLimit(), Function.identity(), registry);
+        this.clientIps = dimension(CLIENT_IP, cfg, cfg.getClientIpLimit(), InetAddress::getHostAddress, registry);
+        this.paths = dimension(PATH, cfg, 0, Function.identity(), registry);
+        if (startTimer) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "heavy-hitters");
+                t.setDaemon(true);
+                return t;
+            });
+            long bucketMs = Math.max(1, TimeUnit.SECONDS.toMillis(cfg.getWindowSeconds()) / Math.max(1, cfg.getBuckets()));
+            timer.scheduleWithFixedDelay(this::rotate, bucketMs, bucketMs, TimeUnit.MILLISECONDS);
+            log.info("Heavy-hitter detection: window={}s in {} buckets, sketch {}x{} ({} KiB per dimension), top {}",
+                    cfg.getWindowSeconds(), cfg.getBuckets(), cfg.getDepth(), cfg.getWidth(),
+                    principals.sketch.sizeBytes() / 1024, topK);
+        } else {
+            this.timer = null;
+        }
+    }
+
+    private <K> Dimension<K> dimension(String name, RouterProperties.HeavyHitterConfig cfg, long limit,
+                                       Function<K, String> render, MeterRegistry registry) {
+        Dimension<K> d = new Dimension<>(new CountMinSketch(cfg.getDepth(), cfg.getWidth(), cfg.getBuckets()),
+                new SpaceSavingTopK<>(4 * Math.max(1, cfg.getTopK())), limit, render,
+                limit > 0 ? Counter.builder("gateway.heavy_hitters.throttled").tag("dimension", name).register(registry) : null);
+        if (enabled) {
+            Gauge.builder("gateway.heavy_hitters.top_estimate", d, x -> x.topEstimate).tag("dimension", name).register(registry);
+            if (limit > 0) {
+                Gauge.builder("gateway.heavy_hitters.over_limit", d, x -> x.overLimit).tag("dimension", name).register(registry);
+            }
+        }
+        dimensions.put(name, d);
+        return d;
+    }
+
+    /**
+     * Counts one request. Returns the dimension ({@link #PRINCIPAL} or
+     * {@link #CLIENT_IP}) whose key is over its limit, or null to let the
+     * request through. Anonymous principals are only counted by IP.
+     */
+    public String record(Principal principal, InetAddress client, String path) {
+        if (!enabled) return null;
+        String throttled = null;
+        if (principal != null && !principal.anonymous() && principals.record(principal.id())) throttled = PRINCIPAL;
+        if (client != null && clientIps.record(client) && throttled == null) throttled = CLIENT_IP;
+        if (path != null) paths.record(path);
+        return throttled;
+    }
+
+    /** The top {@code n} keys of every dimension, highest first. */
+    public Map<String, List<HeavyHitter>> top(int n) {
+        Map<String, List<HeavyHitter>> out = new LinkedHashMap<>();
+        dimensions.forEach((name, d) -> out.put(name, d.top(n)));
+        return out;
+    }
+
+    /** The top {@code n} keys of one dimension, or null if there is no such dimension. */
+    public List<HeavyHitter> top(String dimension, int n) {
+        Dimension<?> d = dimensions.get(dimension);
+        return d == null ? null : d.top(n);
+    }
+
+    public int topK() {
+        return topK;
+    }
+
+    /** When a throttled key should retry: counts only fall as buckets expire. */
+    public long retryAfterSeconds() {
+        return bucketSeconds;
+    }
+
+    /** Expires the oldest bucket of every dimension. Package-private for tests. */
+    void rotate() {
+        try {
+            for (Dimension<?> d : dimensions.values()) d.rotate();
+        } catch (RuntimeException e) {
+            log.warn("Heavy-hitter rotation failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) timer.shutdownNow();
+    }
+
+    private static final class Dimension<K> {
+        final CountMinSketch sketch;
+        final SpaceSavingTopK<K> summary;
+        final long limit;
+        final Function<K, String> render;
+        final Counter throttled;
+        volatile long topEstimate;
+        volatile long overLimit;
+
+        Dimension(CountMinSketch sketch, SpaceSavingTopK<K> summary, long limit,
+                  Function<K, String> render, Counter throttled) {
+            this.sketch = sketch;
+            this.summary = summary;
+            this.limit = limit;
+            this.render = render;
+            this.throttled = throttled;
+        }
+
+        /** True if the key is over the limit. */
+        boolean record(K key) {
+            long estimate = sketch.add(hash(key));
+            summary.offer(key, estimate);
+            if (limit > 0 && estimate > limit && summary.contains(key)) {
+                throttled.increment();
+                return true;
+            }
+            return false;
+        }
+
+        void rotate() {
+            sketch.rotate();
+            summary.refresh(key -> sketch.estimate(hash(key)));
+            List<Map.Entry<K, Long>> all = summary.top(Integer.MAX_VALUE);
+            topEstimate = all.isEmpty() ? 0 : all.get(0).getValue();
+            overLimit = limit > 0 ? all.stream().filter(e -> e.getValue() > limit).count() : 0;
+        }
+
+        /** An IP's address bytes or a string's characters; never {@code hashCode()}, which clients can aim. */
+        private long hash(K key) {
+            return key instanceof InetAddress ip ? sketch.hash(ip.getAddress()) : sketch.hash(key.toString());
+        }
+
+        List<HeavyHitter> top(int n) {
+            List<HeavyHitter> out = new ArrayList<>();
+            for (Map.Entry<K, Long> e : summary.top(n)) {
+                out.add(new HeavyHitter(render.apply(e.getKey()), e.getValue(), limit > 0 && e.getValue() > limit));
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mycompany.router.heavyhitters;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Space-Saving summary of the most frequent keys, with counts taken from a
+ * {@link CountMinSketch} instead of kept per entry.
+ *
+ * Holds at most {@code capacity} keys. A monitored key only has its count
+ * updated (no lock). Any other key is admitted only if its sketch estimate
+ * beats the smallest monitored count (the {@code floor}), replacing that
+ * entry — the sketch filters out the long tail that plain Space-Saving would
+ * churn through. Admission takes the lock with {@code tryLock}: a key that
+ * loses the race is simply offered again on its next request, which a heavy
+ * hitter by definition makes soon.
+ */
+final class SpaceSavingTopK<K> {
+
+    private final int capacity;
+    private final ConcurrentHashMap<K, Entry<K>> monitored = new ConcurrentHashMap<>();
+    private final ReentrantLock admission = new ReentrantLock();
+    private volatile long floor;
+
+    SpaceSavingTopK(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /** Records that {@code key} has been seen {@code estimate} times in the window. */
+    void offer(K key, long estimate) {
+        Entry<K> e = monitored.get(key);
+        if (e != null) {
+            e.count = estimate;
+            return;
+        }
+        if (estimate <= floor || !admission.tryLock()) return;
+        try {
+            if (monitored.size() >= capacity) {
+                Entry<K> min = smallest();
+                if (min == null || estimate <= min.count) return;
+                monitored.remove(min.key);
+            }
+            monitored.put(key, new Entry<>(key, estimate));
+            updateFloor();
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    boolean contains(K key) {
+        return monitored.containsKey(key);
+    }
+
+    /** Re-reads every count from the sketch (after a rotation), dropping keys that left the window. */
+    void refresh(ToLongFunction<K> estimator) {
+        admission.lock();
+        try {
+            for (Iterator<Entry<K>> it = monitored.values().iterator(); it.hasNext(); ) {
+                Entry<K> e = it.next();
+                e.count = estimator.applyAsLong(e.key);
+                if (e.count == 0) it.remove();
+            }
+            updateFloor();
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    /** The {@code n} highest counts, highest first. */
+    List<Map.Entry<K, Long>> top(int n) {
+        List<Map.Entry<K, Long>> all = new ArrayList<>();
+        for (Entry<K> e : monitored.values()) all.add(Map.entry(e.key, e.count));
+        all.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()));
+        return all.size() > n ? all.subList(0, n) : all;
+    }
+
+    private void updateFloor() {
+        Entry<K> min = monitored.size() >= capacity ? smallest() : null;
+        floor = min == null ? 0 : min.count;
+    }
+
+    private Entry<K> smallest() {
+        Entry<K> min = null;
+        for (Entry<K> e : monitored.values()) {
+            if (min == null || e.count < min.count) min = e;
+        }
+        return min;
+    }
+
+    private static final class Entry<K> {
+        final K key;
+        volatile long count;
+
+        Entry(K key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
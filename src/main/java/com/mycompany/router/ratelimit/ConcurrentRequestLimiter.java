@@ -0,0 +1,33 @@
+package com.mycompany.router.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Caps how many requests one key (e.g. {@code cc:servicea:user-42}) may have
+ * in flight at once. Complements {@link RateLimiter}: a token bucket bounds
+ * the arrival rate, this bounds the number of slow requests held open.
+ *
+ * Extension point: provide a different bean to back permits elsewhere.
+ */
+public interface ConcurrentRequestLimiter {
+
+    /**
+     * @param key           stable identifier for the permit pool
+     * @param maxConcurrent pool size
+     * @return a granted lease, or {@link Lease#DENIED} when the pool is exhausted
+     */
+    Mono<Lease> acquire(String key, int maxConcurrent);
+
+    /** A held permit. {@link #release()} is idempotent. */
+    interface Lease {
+
+        Lease DENIED = new Lease() {
+            @Override public boolean granted() { return false; }
+            @Override public void release() {}
+        };
+
+        boolean granted();
+
+        void release();
+    }
+}
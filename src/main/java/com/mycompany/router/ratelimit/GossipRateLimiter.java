@@ -0,0 +1,323 @@
+package com.mycompany.router.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate, peer-to-peer token bucket — no Redis on the hot path.
+ *
+ * Every node runs the same refill algorithm as {@link LocalTokenBucketRateLimiter}
+ * against its own copy of each bucket, and additionally deducts what its
+ * peers consumed. Consumption is tracked as a G-counter: each node owns one
+ * monotonically increasing slot per key, and every {@code syncInterval} it
+ * broadcasts the slots that changed. Receivers apply {@code counter - lastSeen},
+ * so lost, duplicated and reordered datagrams are all harmless — the next
+ * message for the key heals any gap.
+ *
+ * Error bound: a peer's consumption is invisible for at most one sync interval
+ * plus network latency. With N nodes each admitting at most {@code r} req/s
+ * for a key, global over-admission is bounded by roughly
+ * {@code (N - 1) * r * syncInterval}, capped at {@code (N - 1) * limit} when
+ * all nodes start with full buckets at the same instant. Shorter intervals
+ * trade datagrams for accuracy.
+ *
+ * Wire format (one UDP datagram, big-endian):
+ * <pre>
+ *   'G' | version:u8 | nodeIdLen:u16 | nodeId | incarnation:i64 | count:u16
+ *   count × ( keyLen:u16 | key | generation:varint | counter:varint | delta:varint )
+ * </pre>
+ * {@code generation} numbers this node's instances of the key: an idle key is
+ * evicted and its counter restarts from 0 when traffic returns, so receivers
+ * take a newer generation as a new baseline instead of waiting for the
+ * counter to pass the one they last saw. {@code delta} (consumption since the
+ * previous broadcast) is only used when a receiver has no baseline for the
+ * key's generation, e.g. after a restart or eviction. If that first datagram
+ * is lost, the receiver undercounts by at most one interval's consumption.
+ * Nodes on different versions ignore each other's datagrams.
+ */
+public class GossipRateLimiter implements RateLimiter, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GossipRateLimiter.class);
+
+    private static final byte MAGIC = 'G';
+    private static final byte VERSION = 2;
+    /** Keeps datagrams under a typical 1500-byte MTU so they never fragment. */
+    static final int MAX_PAYLOAD = 1400;
+    /** How long a key whose period is unknown (seen only from peers) is retained. */
+    private static final long REMOTE_ONLY_TTL_MS = Duration.ofMinutes(10).toMillis();
+    private static final int EVICT_EVERY_TICKS = 100;
+
+    private final String nodeId;
+    private final long incarnation;
+    private final byte[] header;
+    private final GossipTransport transport;
+    private final Duration syncInterval;
+    private final ConcurrentMap<String, KeyState> keys = new ConcurrentHashMap<>();
+    private final Set<KeyState> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generations = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private int ticks;
+
+    public GossipRateLimiter(String nodeId, GossipTransport transport, Duration syncInterval) {
+        this.nodeId = nodeId;
+        this.incarnation = ThreadLocalRandom.current().nextLong();
+        this.transport = transport;
+        this.syncInterval = syncInterval;
+
+        byte[] id = nodeId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer h = ByteBuffer.allocate(2 + 2 + id.length + 8);
+        h.put(MAGIC).put(VERSION).putShort((short) id.length).put(id).putLong(incarnation);
+        this.header = h.array();
+    }
+
+    /** Starts the transport and the periodic broadcast. */
+    public GossipRateLimiter start() {
+        transport.start(this::receive);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gossip-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        long ms = Math.max(1, syncInterval.toMillis());
+        scheduler.scheduleWithFixedDelay(this::tick, ms, ms, TimeUnit.MILLISECONDS);
+        log.info("Gossip rate limiter started: node={} syncInterval={}ms", nodeId, ms);
+        return this;
+    }
+
+    @Override
+    public Mono<RateLimitDecision> check(String key, long limit, Duration period) {
+        long now = System.currentTimeMillis();
+        long periodMs = period.toMillis();
+
+        KeyState state = keys.computeIfAbsent(key, this::newKey);
+        synchronized (state) {
+            state.initLocal(limit, periodMs, now);
+            state.refill(now);
+            state.touched = now;
+
+            if (state.tokens >= 1.0) {
+                state.tokens -= 1.0;
+                state.localCount++;
+                dirty.add(state);
+                return Mono.just(RateLimitDecision.allowed((long) state.tokens, limit));
+            }
+            double needed = 1.0 - state.tokens;
+            long retryAfter = (long) Math.ceil((needed * periodMs) / limit);
+            return Mono.just(RateLimitDecision.denied(0, retryAfter, limit));
+        }
+    }
+
+    private void tick() {
+        try {
+            flush();
+            if (++ticks % EVICT_EVERY_TICKS == 0) {
+                evictIdle(System.currentTimeMillis());
+            }
+        } catch (Exception e) {
+            log.warn("Gossip sync failed", e);
+        }
+    }
+
+    /** Broadcasts every key whose local counter changed since the last flush. */
+    void flush() {
+        if (dirty.isEmpty()) return;
+        ByteBuffer buf = newDatagram();
+        int count = 0;
+        Iterator<KeyState> it = dirty.iterator();
+        while (it.hasNext()) {
+            KeyState state = it.next();
+            it.remove();
+            long counter;
+            long delta;
+            synchronized (state) {
+                counter = state.localCount;
+                delta = counter - state.sentCount;
+                state.sentCount = counter;
+            }
+            if (delta == 0) continue;
+
+            int entrySize = 2 + state.keyBytes.length + 3 * 10;
+            if (2 + header.length + entrySize > MAX_PAYLOAD) {
+                log.warn("Rate-limit key too long to gossip, skipping: {}", state.key);
+                continue;
+            }
+            if (buf.position() + entrySize > MAX_PAYLOAD) {
+                send(buf, count);
+                buf = newDatagram();
+                count = 0;
+            }
+            buf.putShort((short) state.keyBytes.length).put(state.keyBytes);
+            putVarLong(buf, state.generation);
+            putVarLong(buf, counter);
+            putVarLong(buf, delta);
+            count++;
+        }
+        if (count > 0) send(buf, count);
+    }
+
+    private ByteBuffer newDatagram() {
+        ByteBuffer buf = ByteBuffer.allocate(MAX_PAYLOAD);
+        buf.put(header).putShort((short) 0); // count patched in send()
+        return buf;
+    }
+
+    private void send(ByteBuffer buf, int count) {
+        buf.putShort(header.length, (short) count);
+        buf.flip();
+        transport.broadcast(buf);
+    }
+
+    /** Applies one inbound datagram. Malformed or foreign-version input is ignored. */
+    void receive(ByteBuffer buf) {
+        try {
+            if (buf.get() != MAGIC || buf.get() != VERSION) return;
+            String peer = readString(buf);
+            long peerIncarnation = buf.getLong();
+            if (peer.equals(nodeId) && peerIncarnation == incarnation) return;
+            String slot = peer + '/' + peerIncarnation;
+            long now = System.currentTimeMillis();
+
+            int count = buf.getShort() & 0xFFFF;
+            for (int i = 0; i < count; i++) {
+                String key = readString(buf);
+                long generation = getVarLong(buf);
+                long counter = getVarLong(buf);
+                long delta = getVarLong(buf);
+                keys.computeIfAbsent(key, this::newKey).applyRemote(slot, generation, counter, delta, now);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            log.debug("Dropping truncated gossip datagram", e);
+        }
+    }
+
+    private KeyState newKey(String key) {
+        return new KeyState(key, generations.incrementAndGet());
+    }
+
+    /** Package-private for tests. */
+    void evictIdle(long now) {
+        keys.values().removeIf(s -> {
+            synchronized (s) {
+                long ttl = s.periodMs > 0 ? 2 * s.periodMs : REMOTE_ONLY_TTL_MS;
+                return now - s.touched > ttl && s.localCount == s.sentCount;
+            }
+        });
+    }
+
+    int trackedKeys() {
+        return keys.size();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        transport.close();
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        if (len > buf.remaining()) throw new IllegalArgumentException("string overruns datagram");
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putVarLong(ByteBuffer buf, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    static long getVarLong(ByteBuffer buf) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private static final class KeyState {
+        final String key;
+        final byte[] keyBytes;
+        /** This node's instance of the key; a key recreated after eviction gets a higher one. */
+        final long generation;
+        /** Last generation and counter seen per peer slot ({@code nodeId/incarnation}). */
+        final Map<String, Seen> remote = new HashMap<>(4);
+        long limit = -1;
+        long periodMs;
+        double tokens;
+        long ts;
+        /** Peer consumption received before the first local check told us the limit. */
+        double debt;
+        long localCount;
+        long sentCount;
+        long touched;
+
+        KeyState(String key, long generation) {
+            this.key = key;
+            this.keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            this.generation = generation;
+        }
+
+        void initLocal(long limit, long periodMs, long now) {
+            if (this.limit == limit && this.periodMs == periodMs) return;
+            boolean fresh = this.limit < 0;
+            this.limit = limit;
+            this.periodMs = periodMs;
+            if (fresh) {
+                this.tokens = Math.max(-limit, limit - debt);
+                this.ts = now;
+                this.debt = 0;
+            }
+        }
+
+        void refill(long now) {
+            long elapsed = Math.max(0, now - ts);
+            tokens = Math.min(limit, tokens + (elapsed * (double) limit) / periodMs);
+            ts = now;
+        }
+
+        synchronized void applyRemote(String slot, long generation, long counter, long delta, long now) {
+            Seen prev = remote.get(slot);
+            if (prev != null && (generation < prev.generation
+                    || generation == prev.generation && counter <= prev.counter)) return;
+            // a newer generation restarted its counter: only the delta is known to be new
+            long consumed = prev == null || generation != prev.generation ? delta : counter - prev.counter;
+            remote.put(slot, new Seen(generation, counter));
+            touched = now;
+            if (consumed <= 0) return;
+            if (limit < 0) {
+                debt += consumed;
+                return;
+            }
+            refill(now);
+            // Debt is floored at one bucket so a burst elsewhere delays us by at most one period.
+            tokens = Math.max(-limit, tokens - consumed);
+        }
+    }
+
+    private record Seen(long generation, long counter) {}
+}
@@ -0,0 +1,24 @@
+package com.mycompany.router.ratelimit;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Fire-and-forget datagram transport used by {@link GossipRateLimiter} to
+ * exchange counter deltas with its peers.
+ *
+ * Delivery is best effort: messages may be lost, duplicated or reordered.
+ * The limiter's G-counter encoding tolerates all three, so implementations
+ * should favour cheapness over reliability.
+ */
+public interface GossipTransport extends AutoCloseable {
+
+    /** Starts receiving; {@code receiver} is invoked once per inbound message. */
+    void start(Consumer<ByteBuffer> receiver);
+
+    /** Sends {@code payload} to every configured peer. Must not block. */
+    void broadcast(ByteBuffer payload);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,68 @@
+package com.mycompany.router.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process permit counters, one per key.
+ *
+ * Increments and decrements run inside {@link ConcurrentHashMap#compute}, so
+ * they are serialised per hash bin rather than globally — effectively striped
+ * counters. A counter is removed when it drops to zero, so idle principals
+ * cost nothing.
+ */
+public class LocalConcurrentRequestLimiter implements ConcurrentRequestLimiter {
+
+    private final ConcurrentMap<String, Count> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Lease> acquire(String key, int maxConcurrent) {
+        return Mono.just(tryAcquire(key, maxConcurrent));
+    }
+
+    Lease tryAcquire(String key, int maxConcurrent) {
+        boolean[] granted = new boolean[1];
+        counters.compute(key, (k, c) -> {
+            if (c == null) c = new Count();
+            if (c.n < maxConcurrent) {
+                c.n++;
+                granted[0] = true;
+            }
+            return c.n == 0 ? null : c;
+        });
+        return granted[0] ? new LocalLease(key) : Lease.DENIED;
+    }
+
+    int inflight(String key) {
+        Count c = counters.get(key);
+        return c == null ? 0 : c.n;
+    }
+
+    private final class LocalLease implements Lease {
+        private final String key;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        LocalLease(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean granted() {
+            return true;
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                counters.computeIfPresent(key, (k, c) -> --c.n <= 0 ? null : c);
+            }
+        }
+    }
+
+    private static final class Count {
+        int n;
+    }
+}
@@ -17,6 +17,9 @@ import java.time.Duration;
  *   <li>tier policy ({@code router.rateLimits.tiers[tier]})</li>
  *   <li>hard fallback: 60/minute</li>
  * </ol>
+ *
+ * The resolved config's {@code maxConcurrent} applies with the same
+ * precedence, keyed by {@link #concurrencyKey}.
  */
 @Component
 public class RateLimitResolver {
@@ -47,6 +50,10 @@ public class RateLimitResolver {
         return "rl:" + serviceName + ":" + principal.id();
     }
 
+    public String concurrencyKey(String serviceName, Principal principal) {
+        return "cc:" + serviceName + ":" + principal.id();
+    }
+
     public static Duration period(String period) {
         return switch (period) {
             case "SECOND" -> Duration.ofSeconds(1);
@@ -0,0 +1,100 @@
+package com.mycompany.router.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Distributed counting semaphore with leases, as an atomic Redis Lua script.
+ *
+ * Each key is a sorted set of lease ids scored by expiry time. Acquire first
+ * evicts expired leases, then adds one if the set is below capacity. Release
+ * removes the lease. The lease TTL only matters when a pod dies mid-request:
+ * its permits are reclaimed after {@code leaseMs} instead of leaking forever.
+ * Keep it above the longest request you expect to hold a permit. Expiry is
+ * reckoned on the Redis clock ({@code TIME}), so pods with skewed clocks
+ * neither evict each other's leases early nor keep them too long.
+ *
+ * An acquire cancelled before its lease is handed over (client gone, timeout)
+ * removes the lease id, in case the script already added it.
+ */
+public class RedisConcurrentRequestLimiter implements ConcurrentRequestLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisConcurrentRequestLimiter.class);
+
+    private static final String ACQUIRE = """
+            local key   = KEYS[1]
+            local max   = tonumber(ARGV[1])
+            local ttl   = tonumber(ARGV[2])
+            local lease = ARGV[3]
+            local time  = redis.call('TIME')
+            local now   = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+            redis.call('ZREMRANGEBYSCORE', key, '-inf', now)
+            if redis.call('ZCARD', key) < max then
+                redis.call('ZADD', key, now + ttl, lease)
+                redis.call('PEXPIRE', key, ttl)
+                return 1
+            end
+            return 0
+            """;
+
+    private final ReactiveStringRedisTemplate redis;
+    private final RedisScript<Long> script;
+    private final long leaseMs;
+
+    public RedisConcurrentRequestLimiter(ReactiveStringRedisTemplate redis, long leaseMs) {
+        this.redis = redis;
+        this.script = RedisScript.of(ACQUIRE, Long.class);
+        this.leaseMs = leaseMs;
+    }
+
+    @Override
+    public Mono<Lease> acquire(String key, int maxConcurrent) {
+        String lease = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<String> args = List.of(Integer.toString(maxConcurrent), Long.toString(leaseMs), lease);
+        AtomicBoolean handedOver = new AtomicBoolean();
+        return redis.execute(script, List.of(key), args)
+                .next()
+                .map(granted -> granted == 1L ? new RedisLease(key, lease) : Lease.DENIED)
+                .doOnNext(l -> handedOver.set(true))
+                // queued behind the script on the connection, so it removes what the script added
+                .doOnCancel(() -> {
+                    if (!handedOver.get()) remove(key, lease);
+                });
+    }
+
+    private void remove(String key, String lease) {
+        redis.opsForZSet().remove(key, lease)
+                .subscribe(null, e -> log.warn("Failed to release concurrency lease {}", key, e));
+    }
+
+    private final class RedisLease implements Lease {
+        private final String key;
+        private final String lease;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        RedisLease(String key, String lease) {
+            this.key = key;
+            this.lease = lease;
+        }
+
+        @Override
+        public boolean granted() {
+            return true;
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                remove(key, lease);
+            }
+        }
+    }
+}
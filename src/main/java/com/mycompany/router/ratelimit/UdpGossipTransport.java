@@ -0,0 +1,124 @@
+package com.mycompany.router.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * UDP transport for {@link GossipRateLimiter} with static peer membership.
+ *
+ * Each peer is given as {@code host:port}. Listing this node's own address is
+ * harmless — the limiter ignores messages carrying its own node id — so every
+ * pod can share one peer list. Specs are validated up front, so a typo fails
+ * startup; hostnames are resolved lazily and re-resolved while unresolvable,
+ * which suits headless Kubernetes services whose DNS entries appear after the
+ * pod starts.
+ */
+public class UdpGossipTransport implements GossipTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(UdpGossipTransport.class);
+    private static final int MAX_DATAGRAM = 64 * 1024;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress[] peers;
+    private final String[] peerHosts;
+    private final int[] peerPorts;
+    private Thread receiverThread;
+    private volatile boolean running = true;
+
+    /** @throws IllegalArgumentException if a peer is not {@code host:port} */
+    public UdpGossipTransport(String bindAddress, int port, List<String> peers) throws IOException {
+        this.peerHosts = new String[peers.size()];
+        this.peerPorts = new int[peers.size()];
+        for (int i = 0; i < peerHosts.length; i++) {
+            String spec = peers.get(i);
+            int colon = spec.lastIndexOf(':');
+            int peerPort = -1;
+            try {
+                if (colon > 0) peerPort = Integer.parseInt(spec.substring(colon + 1));
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+            if (peerPort < 1 || peerPort > 65535) {
+                throw new IllegalArgumentException("Gossip peer must be host:port, got " + spec);
+            }
+            peerHosts[i] = spec.substring(0, colon);
+            peerPorts[i] = peerPort;
+        }
+        this.peers = new InetSocketAddress[peerHosts.length];
+        this.channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        this.channel.bind(new InetSocketAddress(bindAddress, port));
+    }
+
+    /** The bound port — useful when constructed with port {@code 0}. */
+    public int localPort() {
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Gossip channel not bound", e);
+        }
+    }
+
+    @Override
+    public void start(Consumer<ByteBuffer> receiver) {
+        receiverThread = new Thread(() -> receive(receiver), "gossip-receiver");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+        log.info("Gossip transport listening on {} with {} peer(s)", localPort(), peerHosts.length);
+    }
+
+    private void receive(Consumer<ByteBuffer> receiver) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+        while (running) {
+            try {
+                buf.clear();
+                if (channel.receive(buf) == null) continue;
+                buf.flip();
+                receiver.accept(buf);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (Exception e) {
+                log.debug("Dropping malformed gossip datagram", e);
+            }
+        }
+    }
+
+    @Override
+    public void broadcast(ByteBuffer payload) {
+        for (int i = 0; i < peerHosts.length; i++) {
+            InetSocketAddress peer = resolve(i);
+            if (peer == null) continue;
+            try {
+                channel.send(payload.duplicate(), peer);
+            } catch (IOException e) {
+                log.debug("Gossip send to {} failed", peer, e);
+            }
+        }
+    }
+
+    private InetSocketAddress resolve(int i) {
+        InetSocketAddress peer = peers[i];
+        if (peer != null && !peer.isUnresolved()) return peer;
+        peer = new InetSocketAddress(peerHosts[i], peerPorts[i]);
+        peers[i] = peer;
+        return peer.isUnresolved() ? null : peer;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close gossip channel", e);
+        }
+    }
+}
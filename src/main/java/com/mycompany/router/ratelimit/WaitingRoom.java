@@ -0,0 +1,137 @@
+package com.mycompany.router.ratelimit;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, tier-aware delay queue in front of the 429 path.
+ *
+ * When a request is denied with a {@code retryAfterMs} at or below its tier's
+ * {@code maxWaitMs}, it is parked on a hashed timer wheel for that long, then
+ * the rate limiter is asked again. This repeats until the request is admitted
+ * or its wait budget runs out, at which point the last denial is returned as
+ * usual. No thread is held while waiting, and the retry happens server-side,
+ * so the client doesn't pay another round trip plus auth.
+ *
+ * Prioritisation comes from configuration: only listed tiers may wait, each
+ * with its own wait budget and queue bound (e.g. premium 500 ms / 2000 slots,
+ * basic 100 ms / 200 slots).
+ *
+ * Metrics (tag {@code tier}): {@code gateway.waiting_room.depth} (gauge),
+ * {@code gateway.waiting_room.wait} (timer, tag {@code outcome=admitted|expired}),
+ * {@code gateway.waiting_room.rejected} (queue full).
+ */
+public class WaitingRoom implements AutoCloseable {
+
+    private final boolean enabled;
+    private final HashedWheelTimer timer;
+    private final Map<String, TierQueue> tiers = new HashMap<>();
+
+    public WaitingRoom(RouterProperties.WaitingRoomConfig config, MeterRegistry registry) {
+        this.enabled = config.isEnabled() && !config.getTiers().isEmpty();
+        this.timer = enabled
+                ? new HashedWheelTimer(r -> {
+                    Thread t = new Thread(r, "waiting-room-timer");
+                    t.setDaemon(true);
+                    return t;
+                }, config.getTickMs(), TimeUnit.MILLISECONDS)
+                : null;
+        config.getTiers().forEach((tier, cfg) -> tiers.put(tier, new TierQueue(tier, cfg, registry)));
+    }
+
+    /**
+     * @param denied  the decision that would otherwise produce a 429
+     * @param recheck asks the rate limiter again; subscribed once per wake-up
+     * @return an allowed decision if a token frees up within the tier's budget,
+     *         otherwise the latest denial
+     */
+    public Mono<RateLimitDecision> admit(String tier, RateLimitDecision denied,
+                                         Supplier<Mono<RateLimitDecision>> recheck) {
+        if (!enabled) return Mono.just(denied);
+        TierQueue queue = tiers.get(tier);
+        if (queue == null || denied.retryAfterMs() > queue.maxWaitMs) {
+            return Mono.just(denied);
+        }
+        if (queue.depth.incrementAndGet() > queue.maxQueued) {
+            queue.depth.decrementAndGet();
+            queue.rejected.increment();
+            return Mono.just(denied);
+        }
+        long startNs = System.nanoTime();
+        long deadlineNs = startNs + TimeUnit.MILLISECONDS.toNanos(queue.maxWaitMs);
+        return waitAndRecheck(denied, recheck, deadlineNs)
+                .doOnNext(d -> (d.allowed() ? queue.admitted : queue.expired)
+                        .record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS))
+                .doFinally(signal -> queue.depth.decrementAndGet());
+    }
+
+    private Mono<RateLimitDecision> waitAndRecheck(RateLimitDecision denied,
+                                                   Supplier<Mono<RateLimitDecision>> recheck,
+                                                   long deadlineNs) {
+        long waitMs = Math.max(1, denied.retryAfterMs());
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs) > deadlineNs) {
+            return Mono.just(denied);
+        }
+        return sleep(waitMs)
+                .then(Mono.defer(recheck))
+                .flatMap(d -> d.allowed() ? Mono.just(d) : waitAndRecheck(d, recheck, deadlineNs));
+    }
+
+    private Mono<Void> sleep(long ms) {
+        return Mono.<Void>create(sink -> {
+                    Timeout t = timer.newTimeout(to -> sink.success(), ms, TimeUnit.MILLISECONDS);
+                    sink.onCancel(t::cancel);
+                })
+                // keep the single wheel thread free; resume on the shared CPU pool
+                .publishOn(Schedulers.parallel());
+    }
+
+    int depth(String tier) {
+        TierQueue q = tiers.get(tier);
+        return q == null ? 0 : q.depth.get();
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) timer.stop();
+    }
+
+    private static final class TierQueue {
+        final long maxWaitMs;
+        final int maxQueued;
+        final AtomicInteger depth = new AtomicInteger();
+        final Counter rejected;
+        final Timer admitted;
+        final Timer expired;
+
+        TierQueue(String tier, RouterProperties.WaitingRoomTier cfg, MeterRegistry registry) {
+            this.maxWaitMs = cfg.getMaxWaitMs();
+            this.maxQueued = cfg.getMaxQueued();
+            Gauge.builder("gateway.waiting_room.depth", depth, AtomicInteger::get)
+                    .tag("tier", tier)
+                    .register(registry);
+            this.rejected = Counter.builder("gateway.waiting_room.rejected")
+                    .tag("tier", tier)
+                    .register(registry);
+            this.admitted = Timer.builder("gateway.waiting_room.wait")
+                    .tags("tier", tier, "outcome", "admitted")
+                    .register(registry);
+            this.expired = Timer.builder("gateway.waiting_room.wait")
+                    .tags("tier", tier, "outcome", "expired")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mycompany.router.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+/** In-process store for single-node deploys and tests. */
+public class LocalRegistrySnapshotStore implements RegistrySnapshotStore {
+
+    private final Sinks.Many<RegistrySnapshot> sink = Sinks.many().multicast().directBestEffort();
+    private RegistrySnapshot latest;   // guarded by this
+
+    @Override
+    public Mono<RegistrySnapshot> latest() {
+        return Mono.fromSupplier(() -> {
+            synchronized (this) {
+                return latest;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Boolean> compareAndSet(long expectedVersion, RegistrySnapshot next) {
+        return Mono.fromSupplier(() -> {
+            synchronized (this) {   // held while emitting, so subscribers see versions in order
+                long current = latest == null ? 0 : latest.version();
+                if (current != expectedVersion) return false;
+                latest = next;
+                sink.emitNext(next, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public Flux<RegistrySnapshot> snapshots() {
+        return sink.asFlux();
+    }
+}
@@ -0,0 +1,93 @@
+package com.mycompany.router.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Snapshots as JSON in a Redis hash ({@code version}, {@code snapshot}) and
+ * on a pub/sub channel.
+ *
+ * The compare-and-set is one Lua script that checks the stored version,
+ * writes the new snapshot and publishes it. Redis runs scripts one at a
+ * time, so snapshots reach the channel in version order and a published
+ * version is always the stored one — or older, for a node that is already
+ * behind and will catch up from {@link #latest()}.
+ */
+public class RedisRegistrySnapshotStore implements RegistrySnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRegistrySnapshotStore.class);
+
+    private static final String COMPARE_AND_SET = """
+            local current = tonumber(redis.call('HGET', KEYS[1], 'version') or '0')
+            if current ~= tonumber(ARGV[1]) then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'version', ARGV[2], 'snapshot', ARGV[3])
+            redis.call('PUBLISH', ARGV[4], ARGV[3])
+            return 1
+            """;
+
+    private final ReactiveStringRedisTemplate redis;
+    private final ObjectMapper mapper;
+    private final String key;
+    private final String channel;
+    private final RedisScript<Long> script;
+    private final Flux<RegistrySnapshot> snapshots;
+
+    public RedisRegistrySnapshotStore(ReactiveStringRedisTemplate redis, ObjectMapper mapper,
+                                      String key, String channel) {
+        this.redis = redis;
+        this.mapper = mapper;
+        this.key = key;
+        this.channel = channel;
+        this.script = RedisScript.of(COMPARE_AND_SET, Long.class);
+        this.snapshots = redis.listenToChannel(channel)
+                .concatMap(m -> decode(m.getMessage()))
+                .doOnError(e -> log.warn("Registry snapshot subscription on {} failed, resubscribing", channel, e))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(500)).maxBackoff(Duration.ofSeconds(10)))
+                .share();
+    }
+
+    @Override
+    public Mono<RegistrySnapshot> latest() {
+        return redis.<String, String>opsForHash().get(key, "snapshot").flatMap(this::decode);
+    }
+
+    @Override
+    public Mono<Boolean> compareAndSet(long expectedVersion, RegistrySnapshot next) {
+        String json;
+        try {
+            json = mapper.writeValueAsString(next);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        List<String> args = List.of(Long.toString(expectedVersion), Long.toString(next.version()), json, channel);
+        return redis.execute(script, List.of(key), args)
+                .next()
+                .map(stored -> stored == 1L);
+    }
+
+    @Override
+    public Flux<RegistrySnapshot> snapshots() {
+        return snapshots;
+    }
+
+    private Mono<RegistrySnapshot> decode(String json) {
+        try {
+            return Mono.just(mapper.readValue(json, RegistrySnapshot.class));
+        } catch (Exception e) {
+            log.warn("Ignoring malformed registry snapshot on {}", channel, e);
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.mycompany.router.service;
+
+import com.mycompany.router.config.RouterProperties;
+
+import java.util.Map;
+
+/**
+ * The whole service registry at one version. Versions only grow: every admin
+ * change produces the next one, and a node applies a snapshot only if it is
+ * newer than what it has. Version 0 is the {@code router.services} each node
+ * booted with.
+ *
+ * The map is immutable; treat the {@code ServiceConfig}s in it as such too.
+ */
+public record RegistrySnapshot(long version, Map<String, RouterProperties.ServiceConfig> services,
+                               long publishedAtMs) {
+
+    public RegistrySnapshot {
+        services = Map.copyOf(services);
+    }
+}
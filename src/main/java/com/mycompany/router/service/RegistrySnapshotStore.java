@@ -0,0 +1,25 @@
+package com.mycompany.router.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Durable home of the latest {@link RegistrySnapshot} plus a fan-out of new
+ * ones. Announcements are best-effort; {@link #latest()} is the source of
+ * truth a node catches up from.
+ */
+public interface RegistrySnapshotStore {
+
+    /** The latest snapshot; empty if none was ever published. */
+    Mono<RegistrySnapshot> latest();
+
+    /**
+     * Stores and announces {@code next} only if the stored version is still
+     * {@code expectedVersion} (0 = none stored). {@code false} if another
+     * writer got there first.
+     */
+    Mono<Boolean> compareAndSet(long expectedVersion, RegistrySnapshot next);
+
+    /** Hot stream of published snapshots, including this node's, in publish order. */
+    Flux<RegistrySnapshot> snapshots();
+}
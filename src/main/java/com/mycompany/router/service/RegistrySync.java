@@ -0,0 +1,123 @@
+package com.mycompany.router.service;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps this node's {@link ServiceRegistry} in step with the fleet.
+ *
+ * An admin change ({@link #mutate}) reads the latest snapshot, applies the
+ * edit to a copy and stores it as the next version with a compare-and-set;
+ * if another node published first it re-reads and tries again, up to
+ * {@code maxAttempts}. Every node applies what the store announces, and
+ * re-reads the latest snapshot on startup and every {@code resync}, so a node
+ * that was disconnected or missed a message converges within that interval.
+ * {@link ServiceRegistry#apply} ignores versions it already has, which makes
+ * all of this idempotent and keeps it ordered.
+ *
+ * Once anything has been published, the stored snapshot wins over a node's
+ * own {@code router.services}: a restarted pod comes up with the fleet's
+ * registry, not its config file's. {@code gateway.config.version} shows the
+ * version each pod is on.
+ */
+public class RegistrySync implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistrySync.class);
+
+    private final ServiceRegistry registry;
+    private final RegistrySnapshotStore store;
+    private final Duration resync;
+    private final int maxAttempts;
+    private Disposable subscriptions;
+
+    public RegistrySync(ServiceRegistry registry, RegistrySnapshotStore store, Duration resync, int maxAttempts,
+                        MeterRegistry meters) {
+        this.registry = registry;
+        this.store = store;
+        this.resync = resync;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        Gauge.builder("gateway.config.version", registry, ServiceRegistry::version).register(meters);
+    }
+
+    /** Catches up with the latest snapshot (bounded wait) and starts following new ones. */
+    public RegistrySync start() {
+        try {
+            catchUp().block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            log.warn("Initial registry snapshot load failed; retrying every {}", resync, e);
+        }
+        Disposable announced = store.snapshots()
+                .doOnNext(this::apply)
+                .subscribe();
+        Disposable resyncs = Flux.interval(resync, resync)
+                .concatMap(tick -> catchUp().onErrorResume(e -> {
+                    log.warn("Registry snapshot resync failed", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+        subscriptions = Disposables.composite(announced, resyncs);
+        return this;
+    }
+
+    /**
+     * Publishes {@code change} applied to the latest registry as the next
+     * version and installs it here. {@code change} gets a mutable copy and
+     * may return {@code null} to abort (the result is then empty). Fails with
+     * {@link ConcurrentModificationException} if every attempt lost the race.
+     */
+    public Mono<RegistrySnapshot> mutate(UnaryOperator<Map<String, RouterProperties.ServiceConfig>> change) {
+        return Mono.defer(() -> store.latest()
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(stored -> {
+                            RegistrySnapshot local = registry.snapshot();
+                            long storedVersion = stored.map(RegistrySnapshot::version).orElse(0L);
+                            // a node that is ahead (e.g. the store was wiped) carries its version forward
+                            RegistrySnapshot base = stored.filter(s -> s.version() >= local.version()).orElse(local);
+                            Map<String, RouterProperties.ServiceConfig> services = change.apply(new HashMap<>(base.services()));
+                            if (services == null) return Mono.empty();
+                            RegistrySnapshot next = new RegistrySnapshot(Math.max(storedVersion, local.version()) + 1,
+                                    services, System.currentTimeMillis());
+                            return store.compareAndSet(storedVersion, next)
+                                    .flatMap(won -> won ? Mono.just(next)
+                                            : Mono.error(new ConcurrentModificationException(
+                                                    "registry version " + storedVersion + " was superseded")));
+                        }))
+                .retryWhen(Retry.max(maxAttempts - 1)
+                        .filter(ConcurrentModificationException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnNext(this::apply);
+    }
+
+    private Mono<Void> catchUp() {
+        return store.latest().doOnNext(this::apply).then();
+    }
+
+    private void apply(RegistrySnapshot snapshot) {
+        long before = registry.version();
+        if (registry.apply(snapshot)) {
+            log.info("Service registry at version {} (was {}, {} services)", snapshot.version(), before,
+                    snapshot.services().size());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (subscriptions != null) subscriptions.dispose();
+    }
+}
@@ -3,30 +3,79 @@ package com.mycompany.router.service;
 import com.mycompany.router.config.RouterProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
+/**
+ * Services by name, held as one immutable {@link RegistrySnapshot} that is
+ * swapped whole: a lookup sees either the old registry or the new one,
+ * never half of a change.
+ *
+ * {@link #apply} is how fleet-wide changes arrive ({@link RegistrySync});
+ * the register / update / remove methods edit this node only and keep the
+ * version, which is what boot-time {@code router.services} loading needs.
+ */
 @Component
 public class ServiceRegistry {
-    private final ConcurrentHashMap<String, RouterProperties.ServiceConfig> services = new ConcurrentHashMap<>();
+    private volatile RegistrySnapshot current = new RegistrySnapshot(0, Map.of(), 0);
+    private final List<Consumer<Map<String, RouterProperties.ServiceConfig>>> listeners = new CopyOnWriteArrayList<>();
 
     public void registerService(String serviceName, RouterProperties.ServiceConfig serviceConfig) {
-        services.put(serviceName, serviceConfig);
+        edit(services -> services.put(serviceName, serviceConfig));
     }
 
     public void updateService(String serviceName, RouterProperties.ServiceConfig serviceConfig) {
-        services.put(serviceName, serviceConfig);
+        edit(services -> services.put(serviceName, serviceConfig));
     }
 
     public void removeService(String serviceName) {
-        services.remove(serviceName);
+        edit(services -> services.remove(serviceName));
     }
 
     public RouterProperties.ServiceConfig getService(String serviceName) {
-        return services.get(serviceName);
+        return current.services().get(serviceName);
     }
 
     public Map<String, RouterProperties.ServiceConfig> getAllServices() {
-        return Map.copyOf(services);
+        return current.services();
+    }
+
+    public RegistrySnapshot snapshot() {
+        return current;
+    }
+
+    public long version() {
+        return current.version();
+    }
+
+    /** Calls {@code listener} with the new services after every change, in order. */
+    public void onChange(Consumer<Map<String, RouterProperties.ServiceConfig>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Installs {@code snapshot} if it is newer than the current one. Applying
+     * the same or an older version again is a no-op, so redelivered and
+     * out-of-order snapshots are harmless.
+     */
+    public synchronized boolean apply(RegistrySnapshot snapshot) {
+        if (snapshot.version() <= current.version()) return false;
+        current = snapshot;
+        notifyListeners();
+        return true;
+    }
+
+    private synchronized void edit(Consumer<Map<String, RouterProperties.ServiceConfig>> change) {
+        Map<String, RouterProperties.ServiceConfig> services = new HashMap<>(current.services());
+        change.accept(services);
+        current = new RegistrySnapshot(current.version(), services, current.publishedAtMs());
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        listeners.forEach(l -> l.accept(current.services()));
     }
 }
@@ -0,0 +1,92 @@
+package com.mycompany.router.accesslog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of the two access-log formats, on the same event as
+ * {@link AccessLogJsonEncoderBenchmark}. {@code binaryStream} is the file
+ * sink (dictionary warm); {@code binaryMessage} is the Kafka sink (fresh
+ * dictionary and a copy per event). {@link #main} prints bytes per event
+ * before running.
+ *
+ * Not a unit test; run {@link #main} from the IDE, or:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.mycompany.router.accesslog.AccessLogBinaryEncoderBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessLogBinaryEncoderBenchmark {
+
+    private AccessLogJsonEncoder json;
+    private AccessLogBinaryEncoder binary;
+    private AccessLogBinaryEncoder binaryMessages;
+    private AccessLogEvent event;
+
+    @Setup
+    public void setUp() {
+        json = new AccessLogJsonEncoder();
+        binary = new AccessLogBinaryEncoder();
+        binaryMessages = new AccessLogBinaryEncoder();
+        event = event();
+        binary.encode(event);
+    }
+
+    @Benchmark
+    public int json() {
+        return json.encode(event);
+    }
+
+    @Benchmark
+    public int binaryStream() {
+        return binary.encode(event);
+    }
+
+    @Benchmark
+    public byte[] binaryMessage() {
+        return binaryMessages.encodeMessage(event);
+    }
+
+    static AccessLogEvent event() {
+        return new AccessLogEvent("4f9c2a8e-5b1d-4c1e-9a57-0d3b7e2f6a11", Instant.now(), "GET",
+                "/svc/orders/4711", "page=2&size=50", "orders", "http://orders:8080/orders/4711", 200, 12, 0, 1834,
+                "customer-4711", "premium", "10.1.2.3",
+                "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+                "");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        AccessLogEvent e = event();
+        AccessLogBinaryEncoder stream = new AccessLogBinaryEncoder();
+        stream.encode(e);
+        System.out.printf("bytes/event: json=%d binaryStream=%d binaryMessage=%d%n",
+                new AccessLogJsonEncoder().encode(e) + 1, stream.encode(e),
+                new AccessLogBinaryEncoder().encodeMessage(e).length);
+        new Runner(new OptionsBuilder()
+                .include(AccessLogBinaryEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.mycompany.router.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessLogBinaryEncoderTest {
+
+    @Test
+    void roundTripsEveryFieldIncludingNullsAndEdgeValues() throws IOException {
+        List<AccessLogEvent> events = List.of(
+                event("r-1", "10.1.2.3", "curl/8.4.0"),
+                new AccessLogEvent(null, null, null, null, null, null, null,
+                        Integer.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, -1, null, null, null, null, null),
+                new AccessLogEvent("", Instant.parse("1969-12-31T23:59:59.999999999Z"), "PROPFIND",
+                        "/p/漢字/😀", "q=\u0000é", "", "", 0, 0, 0, 0, "", "", "", "", "boom"),
+                new AccessLogEvent("r-4", Instant.parse("+12026-01-01T00:00:00Z"), "GET", "/x", "", "svc",
+                        "http://t", Integer.MAX_VALUE, 1, 2, 3, "p", "basic", "2001:db8::1", "ua", ""));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        AccessLogBinaryEncoder encoder = new AccessLogBinaryEncoder();
+        for (AccessLogEvent e : events) {
+            encoder.encode(e);
+            encoder.writeTo(stream);
+        }
+
+        assertThat(AccessLogBinaryDecoder.decodeAll(stream.toByteArray())).isEqualTo(events);
+    }
+
+    @Test
+    void packsOnlyCanonicalIpv4Addresses() throws IOException {
+        for (String ip : List.of("0.0.0.0", "255.255.255.255", "10.1.2.3", "unknown", "010.1.2.3", "1.2.3",
+                "1.2.3.4.", "256.1.1.1", "1..2.3", "::ffff:10.1.2.3")) {
+            AccessLogEvent e = event("r", ip, "ua");
+            assertThat(AccessLogBinaryDecoder.decodeAll(new AccessLogBinaryEncoder().encodeMessage(e)))
+                    .containsExactly(e);
+        }
+        assertThat(AccessLogBinaryEncoder.parseIpv4("10.1.2.3")).isEqualTo(0x0A010203L);
+        assertThat(AccessLogBinaryEncoder.parseIpv4("010.1.2.3")).isEqualTo(-1);
+    }
+
+    @Test
+    void spellsOutLowCardinalityStringsOncePerStream() throws IOException {
+        AccessLogBinaryEncoder encoder = new AccessLogBinaryEncoder();
+        int first = encoder.encode(event("r-1", "10.1.2.3", "Mozilla/5.0 (X11; Linux x86_64)"));
+        int second = encoder.encode(event("r-2", "10.1.2.3", "Mozilla/5.0 (X11; Linux x86_64)"));
+        int message = new AccessLogBinaryEncoder().encodeMessage(event("r-2", "10.1.2.3", "x")).length;
+
+        int json = new AccessLogJsonEncoder().encode(event("r-2", "10.1.2.3", "Mozilla/5.0 (X11; Linux x86_64)"));
+        assertThat(second).isLessThan(first - "orders".length() - "Mozilla/5.0 (X11; Linux x86_64)".length());
+        assertThat(second * 3).isLessThan(json);
+        assertThat(message * 2).isLessThan(json);
+    }
+
+    @Test
+    void resetStartsANewStreamAndDictionaryStopsGrowingAtItsCap() throws IOException {
+        AccessLogBinaryEncoder encoder = new AccessLogBinaryEncoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        List<AccessLogEvent> events = new ArrayList<>();
+        for (int i = 0; i < AccessLogBinaryEncoder.MAX_DICTIONARY + 10; i++) {
+            AccessLogEvent e = event("r-" + i, "10.1.2.3", "agent-" + i);
+            events.add(e);
+            encoder.encode(e);
+            encoder.writeTo(stream);
+            if (i == 100) encoder.reset();   // e.g. the file sink reopening its segment
+        }
+        events.add(events.get(5));
+        encoder.encode(events.get(5));
+        encoder.writeTo(stream);
+
+        assertThat(AccessLogBinaryDecoder.decodeAll(stream.toByteArray())).isEqualTo(events);
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedInput() throws IOException {
+        byte[] message = new AccessLogBinaryEncoder().encodeMessage(event("r", "10.1.2.3", "ua"));
+
+        assertThatThrownBy(() -> AccessLogBinaryDecoder.decodeAll("{\"requestId\":1}".getBytes()))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> AccessLogBinaryDecoder.decodeAll(Arrays.copyOf(message, message.length - 1)))
+                .isInstanceOf(IOException.class);
+        byte[] wrongSchema = message.clone();
+        wrongSchema[3] = 2;
+        assertThatThrownBy(() -> AccessLogBinaryDecoder.decodeAll(wrongSchema))
+                .hasMessageContaining("schema");
+        assertThat(new AccessLogBinaryDecoder(new ByteArrayInputStream(new byte[0])).next()).isNull();
+    }
+
+    @Test
+    void decoderToolPrintsJsonLines() throws IOException {
+        AccessLogBinaryEncoder encoder = new AccessLogBinaryEncoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        List<AccessLogEvent> events = IntStream.range(0, 3).mapToObj(i -> event("r-" + i, "10.1.2.3", "ua")).toList();
+        for (AccessLogEvent e : events) {
+            encoder.encode(e);
+            encoder.writeTo(stream);
+        }
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        try {
+            System.setIn(new ByteArrayInputStream(stream.toByteArray()));
+            System.setOut(new PrintStream(printed));
+            AccessLogBinaryDecoder.main(new String[0]);
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+
+        AccessLogJsonEncoder json = new AccessLogJsonEncoder();
+        StringBuilder expected = new StringBuilder();
+        for (AccessLogEvent e : events) {
+            json.encode(e);
+            expected.append(json).append('\n');
+        }
+        assertThat(printed.toString()).isEqualTo(expected.toString());
+    }
+
+    private static AccessLogEvent event(String requestId, String clientIp, String userAgent) {
+        return new AccessLogEvent(requestId, Instant.parse("2026-10-19T12:13:29.123456Z"), "GET",
+                "/svc/orders/4711", "page=2", "orders", "http://orders:8080/orders", 200, 12, 0, 1834,
+                "customer-4711", "premium", clientIp, userAgent, "");
+    }
+}
@@ -0,0 +1,89 @@
+package com.mycompany.router.accesslog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event JSON cost: Jackson (what every sink used to call) against
+ * {@link AccessLogJsonEncoder}. {@code encoderReused} is what the file sink
+ * does; {@code encoderToBytes} adds the copy the Kafka sink hands to the
+ * producer.
+ *
+ * Not a unit test; run {@link #main} from the IDE, or:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.mycompany.router.accesslog.AccessLogJsonEncoderBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessLogJsonEncoderBenchmark {
+
+    private ObjectMapper mapper;
+    private AccessLogJsonEncoder encoder;
+    private AccessLogEvent event;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        encoder = new AccessLogJsonEncoder();
+        event = new AccessLogEvent("4f9c2a8e-5b1d-4c1e-9a57-0d3b7e2f6a11", Instant.now(), "GET",
+                "/svc/orders/4711", "page=2&size=50", "orders", "http://orders:8080/orders/4711", 200, 12, 0, 1834,
+                "customer-4711", "premium", "10.1.2.3",
+                "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+                "");
+    }
+
+    @Benchmark
+    public String jacksonString() throws JsonProcessingException {
+        return mapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public byte[] jacksonBytes() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public int encoderReused() {
+        return encoder.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encoderToBytes() {
+        encoder.encode(event);
+        return encoder.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccessLogJsonEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
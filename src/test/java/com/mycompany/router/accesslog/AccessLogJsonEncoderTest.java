@@ -0,0 +1,74 @@
+package com.mycompany.router.accesslog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogJsonEncoderTest {
+
+    /** Same configuration as the {@code ObjectMapper} bean in {@code RouterConfig}. */
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void matchesJacksonByteForByte() throws Exception {
+        AccessLogJsonEncoder encoder = new AccessLogJsonEncoder();
+        List<Instant> timestamps = List.of(
+                Instant.parse("2026-10-19T12:13:29Z"),
+                Instant.parse("2026-10-19T12:13:29.100Z"),
+                Instant.parse("2026-10-19T12:13:29.123456Z"),
+                Instant.parse("2026-10-19T12:13:29.123456789Z"),
+                Instant.parse("2026-10-19T12:13:29.000000001Z"),
+                Instant.parse("2026-10-19T12:13:30.5Z"),
+                Instant.parse("1969-12-31T23:59:59.999Z"),
+                Instant.parse("+12026-01-01T00:00:00Z"));
+        List<String> strings = List.of(
+                "",
+                "plain ascii /svc/orders?x=1&y=2",
+                "quote \" backslash \\ slash / del \u007f",
+                "controls \b\t\n\f\r \u0000 \u0001 \u001f",
+                "latin1 é ü ß, cjk 漢字, euro €",
+                "emoji 😀 and 𝄞",
+                "unpaired \ud83d high, \ude00 low",
+                "  line separator");
+        for (Instant ts : timestamps) {
+            for (String s : strings) {
+                AccessLogEvent event = new AccessLogEvent(s, ts, "GET", s, s, "svc", "http://t/" + s,
+                        503, 12_345_678_901L, -1, 0, s, "premium", "10.1.2.3", s, s);
+                assertEncodedLikeJackson(encoder, event);
+            }
+        }
+    }
+
+    @Test
+    void writesNullsAndExtremeNumbersLikeJackson() throws Exception {
+        AccessLogJsonEncoder encoder = new AccessLogJsonEncoder();
+        assertEncodedLikeJackson(encoder, new AccessLogEvent(null, null, null, null, null, null, null,
+                Integer.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, 9, null, null, null, null, null));
+    }
+
+    @Test
+    void growsForLongValuesAndReusesTheBuffer() throws Exception {
+        AccessLogJsonEncoder encoder = new AccessLogJsonEncoder();
+        String big = "\u0001".repeat(5_000);
+        assertEncodedLikeJackson(encoder, new AccessLogEvent("a", Instant.now(), "GET", big, "", "s", "t",
+                200, 1, 0, 0, "p", "basic", "ip", "ua", ""));
+        byte[] grown = encoder.buffer();
+        assertEncodedLikeJackson(encoder, new AccessLogEvent("b", Instant.now(), "GET", "/x", "", "s", "t",
+                200, 1, 0, 0, "p", "basic", "ip", "ua", ""));
+        assertThat(encoder.buffer()).isSameAs(grown);
+    }
+
+    private void assertEncodedLikeJackson(AccessLogJsonEncoder encoder, AccessLogEvent event) throws Exception {
+        encoder.encode(event);
+        assertThat(encoder.toByteArray()).asString().isEqualTo(new String(mapper.writeValueAsBytes(event)));
+        assertThat(encoder.toByteArray()).isEqualTo(mapper.writeValueAsBytes(event));
+    }
+}
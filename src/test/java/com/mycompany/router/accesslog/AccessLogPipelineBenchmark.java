@@ -0,0 +1,154 @@
+package com.mycompany.router.accesslog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end pipeline throughput (score = events/s): one producer fills a
+ * burst of {@value #BURST} slots the way {@code RouterHandler} does and waits
+ * until the sink has them all.
+ * {@code maxBatch=1} is the old one-event-per-publish dispatcher; Kafka runs
+ * against a {@link MockProducer}, so it measures the client-side path only.
+ *
+ * Not a unit test; run {@link #main} from the IDE, or:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.mycompany.router.accesslog.AccessLogPipelineBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessLogPipelineBenchmark {
+
+    static final int BURST = 10_000;
+
+    @Param({"noop", "file", "kafka"})
+    public String sink;
+
+    @Param({"1", "512"})
+    public int maxBatch;
+
+    private AccessLogPipeline pipeline;
+    private Path file;
+    private final AtomicLong delivered = new AtomicLong();
+    private long offered;
+    private String[] requestIds;
+    private String[] paths;
+    private URI[] uris;
+    private final Instant now = Instant.now();
+    private final InetSocketAddress client = new InetSocketAddress("10.1.2.3", 51234);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        AccessLogSink target = switch (sink) {
+            case "file" -> {
+                file = Files.createTempFile("access-bench", ".log");
+                yield new FileSink(file.toString());
+            }
+            case "kafka" -> {
+                MockProducer<String, byte[]> producer =
+                        new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()) {
+                            @Override
+                            public void close(Duration timeout) {
+                                // KafkaTemplate closes non-shared producers after every send
+                            }
+                        };
+                yield new KafkaSink(new KafkaTemplate<>(() -> producer), "access") {
+                    @Override
+                    public void publishBatch(List<AccessLogEvent> batch) {
+                        super.publishBatch(batch);
+                        producer.clear();   // MockProducer keeps every record otherwise
+                    }
+                };
+            }
+            default -> new NoopSink();
+        };
+        AccessLogSink counting = new AccessLogSink() {
+            @Override public String name() { return target.name(); }
+            @Override public void publish(AccessLogEvent event) {
+                target.publish(event);
+                delivered.incrementAndGet();
+            }
+            @Override public void publishBatch(List<AccessLogEvent> batch) {
+                target.publishBatch(batch);
+                delivered.addAndGet(batch.size());
+            }
+            @Override public void close() { target.close(); }
+        };
+        pipeline = new AccessLogPipeline(BURST * 2, counting, new SimpleMeterRegistry(), maxBatch, 0);
+        requestIds = new String[BURST];
+        paths = new String[BURST];
+        uris = new URI[BURST];
+        for (int i = 0; i < BURST; i++) {
+            requestIds[i] = "req-" + i;
+            paths[i] = "/svc/orders/" + i;
+            uris[i] = URI.create("http://gw" + paths[i] + "?page=2");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pipeline.shutdown();
+        if (file != null) Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void burst() {
+        for (int i = 0; i < BURST; i++) {   // what RouterHandler.emit does per request
+            AccessLogSlot slot = pipeline.claim();
+            if (slot == null) continue;
+            slot.requestId(requestIds[i]).timestamp(now).method("GET").path(paths[i]).uri(uris[i])
+                    .service("orders").targetUrl("http://orders:8080/orders").status(200).latencyMs(12)
+                    .responseBytes(1834).principalId("customer-42").tier("premium")
+                    .clientAddress(client).userAgent("curl/8.4.0")
+                    .publish();
+        }
+        offered += BURST;
+        while (delivered.get() < offered) {
+            Thread.yield();   // leave the CPU to the dispatcher on small machines
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccessLogPipelineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -4,10 +4,16 @@ import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.awaitility.Awaitility;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -38,7 +44,7 @@ class AccessLogPipelineTest {
                 try { Thread.sleep(50); } catch (InterruptedException ignored) {}
             }
         };
-        AccessLogPipeline pipeline = new AccessLogPipeline(2, slow, new SimpleMeterRegistry());
+        AccessLogPipeline pipeline = new AccessLogPipeline(2, slow, new SimpleMeterRegistry(), 1, 0);   // no linger: the batch would soak up the burst
 
         for (int i = 0; i < 50; i++) {
             pipeline.offer(event("e-" + i));
@@ -47,6 +53,218 @@ class AccessLogPipelineTest {
         pipeline.shutdown();
     }
 
+    @Test
+    void handsQueuedEventsToTheSinkInBoundedBatches() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batches = new CopyOnWriteArrayList<>();
+        List<String> received = new CopyOnWriteArrayList<>();
+        AccessLogSink sink = new AccessLogSink() {
+            @Override public String name() { return "batching"; }
+            @Override public void publish(AccessLogEvent event) { throw new UnsupportedOperationException(); }
+            @Override public void publishBatch(List<AccessLogEvent> events) {
+                try { release.await(); } catch (InterruptedException ignored) {}
+                batches.add(events.size());
+                events.forEach(e -> received.add(e.requestId()));
+            }
+        };
+        AccessLogPipeline pipeline = new AccessLogPipeline(100, sink, new SimpleMeterRegistry(), 10, 0);
+
+        for (int i = 0; i < 41; i++) {
+            pipeline.offer(event("e-" + i));
+        }
+        release.countDown();
+
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 41);
+        assertThat(received).isEqualTo(IntStream.range(0, 41).mapToObj(i -> "e-" + i).toList());
+        assertThat(batches).allMatch(n -> n <= 10).hasSizeLessThan(41);
+        pipeline.shutdown();
+    }
+
+    @Test
+    void concurrentProducersKeepTheirOwnOrderThroughTheRing() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        AccessLogSink sink = new AccessLogSink() {
+            @Override public String name() { return "ring"; }
+            @Override public void publish(AccessLogEvent event) { received.add(event.requestId()); }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccessLogPipeline pipeline = new AccessLogPipeline(64, sink, registry, 16, 0);
+        int producers = 4;
+        int perProducer = 5_000;
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            String prefix = "p" + p + "-";
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    AccessLogSlot slot;
+                    while ((slot = pipeline.claim()) == null) Thread.yield();
+                    slot.requestId(prefix + i).timestamp(Instant.now()).status(200).publish();
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread t : threads) t.join();
+
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == producers * perProducer);
+        for (int p = 0; p < producers; p++) {
+            String prefix = "p" + p + "-";
+            assertThat(received.stream().filter(id -> id.startsWith(prefix)).toList())
+                    .isEqualTo(IntStream.range(0, perProducer).mapToObj(i -> prefix + i).toList());
+        }
+        assertThat(pipeline.queueDepth()).isZero();
+        assertThat(registry.get("gateway.access_log.ring.occupancy").gauge().value()).isZero();
+        assertThat(registry.get("gateway.access_log.dispatcher_lag").gauge().value()).isZero();
+        assertThat(registry.get("gateway.access_log.ring.claim_retries").functionCounter().count()).isNotNegative();
+        pipeline.shutdown();
+    }
+
+    @Test
+    void shardsKeepPerPrincipalOrderAndSerialiseSingleWriterSinks() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        AtomicInteger inSink = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AccessLogSink sink = new AccessLogSink() {
+            @Override public String name() { return "single-writer"; }
+            @Override public void publish(AccessLogEvent event) { throw new UnsupportedOperationException(); }
+            @Override public void publishBatch(List<AccessLogEvent> events) {
+                if (inSink.incrementAndGet() > 1) overlaps.incrementAndGet();
+                events.forEach(e -> received.add(e.principalId() + "/" + e.requestId()));
+                inSink.decrementAndGet();
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccessLogPipeline pipeline = new AccessLogPipeline(256, sink, registry, 16, 0, 4);
+        int principals = 20;
+        int perPrincipal = 500;
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perPrincipal; i++) {
+                    for (int p = offset; p < principals; p += threads.length) {
+                        AccessLogSlot slot;
+                        while ((slot = pipeline.claim("principal-" + p)) == null) Thread.yield();
+                        slot.requestId(Integer.toString(i)).principalId("principal-" + p).publish();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == principals * perPrincipal);
+        for (int p = 0; p < principals; p++) {
+            String prefix = "principal-" + p + "/";
+            assertThat(received.stream().filter(id -> id.startsWith(prefix)).toList())
+                    .isEqualTo(IntStream.range(0, perPrincipal).mapToObj(i -> prefix + i).toList());
+        }
+        assertThat(overlaps).hasValue(0);
+        assertThat(IntStream.range(0, principals).map(p -> pipeline.shardOf("principal-" + p)).distinct().count())
+                .isGreaterThan(1);
+        double published = registry.find("gateway.access_log.published").counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+        assertThat(published).isEqualTo(principals * perPrincipal);
+        assertThat(registry.find("gateway.access_log.ring.occupancy").gauges()).hasSize(4);
+        assertThat(registry.get("gateway.access_log.dropped").tag("shard", "3").counter()).isNotNull();
+        pipeline.shutdown();
+    }
+
+    @Test
+    void slotsResolveRawFieldsOnTheDispatcherAndAreClearedForReuse() throws Exception {
+        List<AccessLogEvent> received = new CopyOnWriteArrayList<>();
+        AccessLogSink sink = new AccessLogSink() {
+            @Override public String name() { return "slots"; }
+            @Override public void publish(AccessLogEvent event) { received.add(event); }
+        };
+        AccessLogPipeline pipeline = new AccessLogPipeline(2, sink, new SimpleMeterRegistry(), 1, 0);
+
+        pipeline.claim().requestId("first")
+                .uri(URI.create("http://gw/svc/x?page=2"))
+                .clientAddress(new InetSocketAddress(InetAddress.getByName("10.1.2.3"), 443))
+                .error("boom")
+                .publish();
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 1);
+        for (int i = 0; i < 2; i++) {   // one lap of the 2-slot ring reuses "first"'s slot
+            AccessLogSlot slot;
+            while ((slot = pipeline.claim()) == null) Thread.yield();
+            slot.requestId("next-" + i).publish();
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 3);
+
+        assertThat(received.get(0).query()).isEqualTo("page=2");
+        assertThat(received.get(0).clientIp()).isEqualTo("10.1.2.3");
+        assertThat(received.get(0).error()).isEqualTo("boom");
+        assertThat(received.subList(1, 3)).allSatisfy(e -> {
+            assertThat(e.query()).isEmpty();
+            assertThat(e.clientIp()).isEqualTo("unknown");
+            assertThat(e.error()).isEmpty();
+        });
+        pipeline.shutdown();
+    }
+
+    @Test
+    void neverHandsASinkMoreThanItsCapacityAndLetsTheRingTakeTheRest() {
+        AtomicInteger capacity = new AtomicInteger();
+        List<Integer> batches = new CopyOnWriteArrayList<>();
+        AccessLogSink sink = new AccessLogSink() {
+            @Override public String name() { return "bounded"; }
+            @Override public void publish(AccessLogEvent event) { throw new UnsupportedOperationException(); }
+            @Override public void publishBatch(List<AccessLogEvent> events) {
+                batches.add(events.size());
+                capacity.addAndGet(-events.size());
+            }
+            @Override public int capacity() { return capacity.get(); }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccessLogPipeline pipeline = new AccessLogPipeline(16, sink, registry, 10, 0);
+
+        for (int i = 0; i < 20; i++) {
+            pipeline.offer(event("e-" + i));
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .until(() -> registry.get("gateway.access_log.backpressure").counter().count() > 0);
+        assertThat(batches).isEmpty();
+        assertThat(pipeline.queueDepth()).isEqualTo(16);
+        assertThat(pipeline.droppedCount()).isEqualTo(4);
+
+        capacity.set(3);
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> pipeline.queueDepth() == 13);
+        capacity.set(100);
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> pipeline.queueDepth() == 0);
+        assertThat(batches.get(0)).isEqualTo(3);
+        assertThat(batches).allMatch(n -> n <= 10);
+        pipeline.shutdown();
+    }
+
+    @Test
+    void retriesWhatASinkTookBackBeforeAnythingNewer() {
+        AtomicInteger calls = new AtomicInteger();
+        List<String> received = new CopyOnWriteArrayList<>();
+        AccessLogSink sink = new AccessLogSink() {
+            @Override public String name() { return "partial"; }
+            @Override public void publish(AccessLogEvent event) { throw new UnsupportedOperationException(); }
+            @Override public void publishBatch(List<AccessLogEvent> events) {
+                int call = calls.incrementAndGet();
+                int take = call % 3 == 0 ? events.size() : Math.min(events.size(), call % 3 - 1);   // 0, 1, all, ...
+                for (int i = 0; i < take; i++) received.add(events.get(i).requestId());
+                if (take < events.size()) throw new PartialPublishException(take, "took " + take);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccessLogPipeline pipeline = new AccessLogPipeline(64, sink, registry, 4, 0);
+
+        for (int i = 0; i < 50; i++) {
+            pipeline.offer(event("e-" + i));
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 50);
+        assertThat(received).isEqualTo(IntStream.range(0, 50).mapToObj(i -> "e-" + i).toList());
+        assertThat(registry.get("gateway.access_log.published").counter().count()).isEqualTo(50);
+        assertThat(pipeline.droppedCount()).isZero();
+        pipeline.shutdown();
+    }
+
     private AccessLogEvent event(String id) {
         return new AccessLogEvent(id, Instant.now(), "GET", "/x", "",
                 "svc", "http://t", 200, 1, 0, 0,
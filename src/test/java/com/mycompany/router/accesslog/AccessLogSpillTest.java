@@ -0,0 +1,160 @@
+package com.mycompany.router.accesslog;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogSpillTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pipelineSpillsWhatTheRingCannotTakeAndReplaysItInOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        AccessLogSink stalled = new AccessLogSink() {
+            @Override public String name() { return "stalled"; }
+            @Override public void publish(AccessLogEvent event) {
+                try { release.await(); } catch (InterruptedException ignored) {}
+                received.add(event.requestId());
+            }
+        };
+        RouterProperties.SpillConfig spill = new RouterProperties.SpillConfig();
+        spill.setEnabled(true);
+        spill.setDir(dir.toString());
+        AccessLogPipeline pipeline = new AccessLogPipeline(4, stalled, new SimpleMeterRegistry(), 1, 0, 1, spill);
+
+        for (int i = 0; i < 500; i++) {
+            pipeline.offer(event("e-" + i));
+        }
+        assertThat(pipeline.droppedCount()).isZero();
+        assertThat(pipeline.spillBacklog()).isGreaterThan(400);
+        release.countDown();
+
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == 500);
+        assertThat(received).isEqualTo(ids(0, 500));
+        assertThat(pipeline.spillBacklog()).isZero();
+
+        pipeline.offer(event("e-500"));   // back on the ring
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 501);
+        pipeline.shutdown();
+    }
+
+    @Test
+    void replaysSegmentsLeftByAPreviousRunFromTheirCheckpoint() {
+        AccessLogSpill spill = new AccessLogSpill(dir, 1 << 20, 64 * 1024, () -> { });
+        for (int i = 0; i < 10; i++) append(spill, event("e-" + i));
+        List<AccessLogEvent> replayed = new ArrayList<>();
+        assertThat(spill.drainTo(replayed, 4)).isEqualTo(4);
+        spill.commit();
+        spill.drainTo(replayed, 2);   // handed out but never committed: comes back after a restart
+        spill.close();
+
+        AccessLogSpill restarted = new AccessLogSpill(dir, 1 << 20, 64 * 1024, () -> { });
+        assertThat(restarted.active()).isTrue();
+        assertThat(restarted.backlogEvents()).isEqualTo(6);
+        append(restarted, event("e-10"));
+        List<AccessLogEvent> rest = new ArrayList<>();
+        while (restarted.drainTo(rest, 100) > 0) restarted.commit();
+        restarted.commit();
+
+        assertThat(rest).extracting(AccessLogEvent::requestId).isEqualTo(ids(4, 11));
+        assertThat(rest.get(0)).isEqualTo(event("e-4"));
+        assertThat(restarted.active()).isFalse();
+        assertThat(restarted.backlogEvents()).isZero();
+    }
+
+    @Test
+    void dropsOnlyOnceTheDiskBudgetIsUsedAndRecoversAfterReplay() throws IOException {
+        AtomicInteger dropped = new AtomicInteger();
+        AccessLogSpill spill = new AccessLogSpill(dir, 2 * 64 * 1024, 64 * 1024, dropped::incrementAndGet);
+        String longPath = "/x/" + "p".repeat(1_000);
+        int offered = 0;
+        while (dropped.get() == 0) {
+            append(spill, event("e-" + offered++, longPath));
+        }
+        assertThat(spill.spilledCount()).isEqualTo(offered - 1).isGreaterThan(100);
+        assertThat(spill.diskBytes()).isEqualTo(2 * 64 * 1024);
+        assertThat(segmentFiles()).hasSize(2);
+
+        List<AccessLogEvent> replayed = new ArrayList<>();
+        while (spill.drainTo(replayed, 64) > 0) spill.commit();
+        assertThat(replayed).hasSize(offered - 1);
+        assertThat(segmentFiles()).hasSizeLessThan(2);
+        assertThat(spill.active()).isFalse();
+
+        append(spill, event("after", longPath));
+        assertThat(dropped).hasValue(1);
+        assertThat(spill.backlogEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void writersRollIntoSegmentsTheDispatcherPreparedAndDeletedOnesCountUntilUnmapped() throws IOException {
+        int segment = 64 * 1024;
+        AccessLogSpill spill = new AccessLogSpill(dir, 4L * segment, segment, () -> { });
+        assertThat(segmentFiles()).hasSize(1);   // ready before anything spills
+        String longPath = "/x/" + "p".repeat(1_000);
+
+        append(spill, event("e-0", longPath));
+        assertThat(segmentFiles()).hasSize(1);   // the append took it rather than creating one
+        spill.prepare();
+        assertThat(segmentFiles()).hasSize(2);
+        int offered = 1;
+        while (spill.spilledCount() < 100) append(spill, event("e-" + offered++, longPath));
+        assertThat(segmentFiles()).hasSize(2);   // rolled into the prepared one
+        spill.prepare();
+        assertThat(spill.diskBytes()).isEqualTo(3L * segment);
+
+        List<AccessLogEvent> replayed = new ArrayList<>();
+        while (spill.drainTo(replayed, 64) > 0) spill.commit();
+        assertThat(replayed).extracting(AccessLogEvent::requestId).startsWith("e-0", "e-1");
+        assertThat(segmentFiles()).hasSize(2);
+        Awaitility.await().atMost(Duration.ofSeconds(10)).until(() -> {
+            System.gc();
+            return spill.diskBytes() == 2L * segment;   // the deleted segment's mapping was released
+        });
+    }
+
+    private static void append(AccessLogSpill spill, AccessLogEvent event) {
+        AccessLogSlot slot = spill.slot();
+        slot.copyFrom(event);
+        slot.publish();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".wal")).toList();
+        }
+    }
+
+    private static List<String> ids(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "e-" + i).toList();
+    }
+
+    private static AccessLogEvent event(String id) {
+        return event(id, "/x");
+    }
+
+    private static AccessLogEvent event(String id, String path) {
+        return new AccessLogEvent(id, Instant.parse("2026-10-19T12:00:00Z"), "GET", path, "",
+                "svc", "http://t", 200, 1, 0, 0, "p", "basic", "127.0.0.1", "test", "");
+    }
+}
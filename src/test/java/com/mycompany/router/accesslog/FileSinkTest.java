@@ -0,0 +1,165 @@
+package com.mycompany.router.accesslog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mycompany.router.config.RouterProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSinkTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void buffersUntilFullAndFlushesOnClose() throws IOException {
+        RouterProperties.FileSinkConfig cfg = config("none");
+        cfg.setBufferBytes(8192);
+        cfg.setFlushIntervalMs(60_000);
+        FileSink sink = new FileSink(cfg);
+        Path active = dir.resolve("access.log");
+
+        sink.publishBatch(events(0, 3));
+        assertThat(Files.size(active)).isZero();
+
+        sink.publishBatch(events(3, 100));   // ~300 B each: spills the 8 KiB buffer
+        long spilled = Files.size(active);
+        assertThat(spilled).isPositive().isEqualTo(spilled / 8192 * 8192);   // whole buffers only
+
+        sink.close();
+        assertThat(Files.size(active)).isGreaterThan(spilled);
+        assertThat(requestIds(Files.readAllLines(active))).isEqualTo(ids(0, 100));
+    }
+
+    @Test
+    void batchFsyncWritesBeforeReturning() throws IOException {
+        FileSink sink = new FileSink(config("batch"));
+
+        sink.publishBatch(events(0, 5));
+
+        assertThat(requestIds(Files.readAllLines(dir.resolve("access.log")))).isEqualTo(ids(0, 5));
+        sink.close();
+    }
+
+    @Test
+    void rotatesBySizeAndGzipsClosedSegments() throws IOException {
+        RouterProperties.FileSinkConfig cfg = config("interval");
+        cfg.setRotateBytes(2_000);
+        FileSink sink = new FileSink(cfg);
+
+        for (int i = 0; i < 50; i += 5) {
+            sink.publishBatch(events(i, i + 5));
+        }
+        sink.rotate();
+        sink.publishBatch(events(50, 52));
+        sink.close();
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(".log.gz")).sorted(
+                    (a, b) -> Integer.compare(segmentNumber(a), segmentNumber(b))).toList();
+        }
+        assertThat(segments).hasSizeGreaterThan(3);
+        List<String> lines = new ArrayList<>();
+        for (Path segment : segments) lines.addAll(gunzip(segment));
+        lines.addAll(Files.readAllLines(dir.resolve("access.log")));
+        assertThat(requestIds(lines)).isEqualTo(ids(0, 52));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.map(p -> p.getFileName().toString()))
+                    .allMatch(n -> n.equals("access.log") || n.endsWith(".log.gz"));
+        }
+    }
+
+    @Test
+    void binarySegmentsDecodeOnTheirOwn() throws IOException {
+        RouterProperties.FileSinkConfig cfg = config("none");
+        cfg.setFormat("binary");
+        cfg.setRotateBytes(1_000);
+        FileSink sink = new FileSink(cfg);
+        sink.publishBatch(events(0, 30));
+        sink.close();
+        sink = new FileSink(cfg);   // reopening the active file starts a new stream in it
+        sink.publishBatch(events(30, 32));
+        sink.close();
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(".log.gz")).sorted(
+                    (a, b) -> Integer.compare(segmentNumber(a), segmentNumber(b))).toList();
+        }
+        assertThat(segments).hasSizeGreaterThan(1);
+        List<String> ids = new ArrayList<>();
+        for (Path segment : segments) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(segment))) {
+                AccessLogBinaryDecoder.decodeAll(in.readAllBytes()).forEach(e -> ids.add(e.requestId()));
+            }
+        }
+        AccessLogBinaryDecoder.decodeAll(Files.readAllBytes(dir.resolve("access.log")))
+                .forEach(e -> ids.add(e.requestId()));
+        assertThat(ids).isEqualTo(ids(0, 32));
+    }
+
+    @Test
+    void compressesSegmentsLeftOverFromAPreviousRun() throws IOException {
+        Path leftover = dir.resolve("access-20260101-000000-1.log");
+        Path unrelated = dir.resolve("access-old.log");
+        Files.writeString(leftover, "{\"requestId\":\"old\"}\n");
+        Files.writeString(unrelated, "keep me\n");
+
+        new FileSink(config("none")).close();
+
+        assertThat(leftover).doesNotExist();
+        assertThat(gunzip(Path.of(leftover + ".gz"))).containsExactly("{\"requestId\":\"old\"}");
+        assertThat(unrelated).exists();
+    }
+
+    private RouterProperties.FileSinkConfig config(String fsync) {
+        RouterProperties.FileSinkConfig cfg = new RouterProperties.FileSinkConfig();
+        cfg.setPath(dir.resolve("access.log").toString());
+        cfg.setFsync(fsync);
+        return cfg;
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.indexOf(".log")));
+    }
+
+    private List<String> requestIds(List<String> lines) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : lines) ids.add(mapper.readValue(line, AccessLogEvent.class).requestId());
+        return ids;
+    }
+
+    private static List<String> gunzip(Path gz) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    private static List<String> ids(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "r-" + i).toList();
+    }
+
+    private static List<AccessLogEvent> events(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> new AccessLogEvent("r-" + i, Instant.now(), "GET",
+                "/svc/orders/" + i, "page=2", "orders", "http://orders:8080/orders/" + i, 200, 12, 0, 1834,
+                "customer-" + i, "premium", "10.1.2.3", "curl/8.4.0", "")).toList();
+    }
+}
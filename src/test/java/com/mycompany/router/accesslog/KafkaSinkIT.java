@@ -0,0 +1,102 @@
+package com.mycompany.router.accesslog;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delivery tracking and the in-flight window against a real broker.
+ * Runs with {@code mvn -Dtest=KafkaSinkIT test}.
+ */
+@Testcontainers
+class KafkaSinkIT {
+
+    static KafkaContainer kafka;
+
+    @BeforeAll
+    static void up() {
+        kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.5.3"));
+        kafka.start();
+    }
+
+    @AfterAll
+    static void down() {
+        kafka.stop();
+    }
+
+    @Test
+    void countsEveryAckWithoutDroppingUnderTheWindow() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RouterProperties.KafkaSinkConfig cfg = new RouterProperties.KafkaSinkConfig();
+        cfg.setTopic("access-it");
+        KafkaSink sink = new KafkaSink(template(), cfg, registry);
+        AccessLogPipeline pipeline = new AccessLogPipeline(8_192, sink, registry);
+
+        IntStream.range(0, 5_000).forEach(i -> pipeline.offer(event("e-" + i)));
+        Awaitility.await().atMost(Duration.ofSeconds(30)).until(() ->
+                registry.get("gateway.access_log.kafka.delivered").counter().count() == 5_000);
+        pipeline.shutdown();
+
+        assertThat(registry.get("gateway.access_log.kafka.failed").counter().count()).isZero();
+        assertThat(registry.get("gateway.access_log.kafka.in_flight").gauge().value()).isZero();
+        assertThat(registry.get("gateway.access_log.kafka.send_latency").timer().count()).isEqualTo(5_000);
+        assertThat(pipeline.droppedCount()).isZero();
+        assertThat(consume("access-it", 5_000)).hasSize(5_000);
+    }
+
+    private static KafkaTemplate<String, byte[]> template() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 5)));
+    }
+
+    private static List<ConsumerRecord<String, byte[]>> consume(String topic, int expected) {
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "it-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"),
+                new StringDeserializer(), new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(topic));
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (records.size() < expected && System.currentTimeMillis() < deadline) {
+                consumer.poll(Duration.ofMillis(500)).forEach(records::add);
+            }
+        }
+        return records;
+    }
+
+    private static AccessLogEvent event(String id) {
+        return new AccessLogEvent(id, Instant.now(), "GET", "/x", "",
+                "svc", "http://t", 200, 1, 0, 0,
+                "p", "basic", "127.0.0.1", "test", "");
+    }
+}
@@ -0,0 +1,144 @@
+package com.mycompany.router.accesslog;
+
+import com.mycompany.router.config.ConcurrencyLimitConfig;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KafkaSinkTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MockProducer<String, byte[]> producer =
+            new MockProducer<>(false, new StringSerializer(), new ByteArraySerializer()) {
+                @Override
+                public void close(Duration timeout) {
+                    // KafkaTemplate closes non-shared producers after every send
+                }
+            };
+
+    @Test
+    void countsAcksAndFailuresAsTheyArriveAndBoundsWhatIsInFlight() {
+        KafkaSink sink = sink("aimd", 10, 1, 10, 1_000);
+        assertThat(sink.capacity()).isEqualTo(10);
+
+        sink.publishBatch(events(0, 8));
+        assertThat(sink.capacity()).isEqualTo(2);
+        assertThat(gauge("gateway.access_log.kafka.in_flight")).isEqualTo(8);
+        assertThat(counter("gateway.access_log.kafka.delivered")).isZero();
+
+        for (int i = 0; i < 6; i++) producer.completeNext();
+        producer.errorNext(new TimeoutException("expired in accumulator"));
+        producer.errorNext(new TimeoutException("expired in accumulator"));
+
+        assertThat(counter("gateway.access_log.kafka.delivered")).isEqualTo(6);
+        assertThat(counter("gateway.access_log.kafka.failed")).isEqualTo(2);
+        assertThat(gauge("gateway.access_log.kafka.in_flight")).isZero();
+        assertThat(gauge("gateway.access_log.kafka.in_flight_limit")).isLessThan(10);   // failures back the window off
+        assertThat(registry.get("gateway.access_log.kafka.send_latency").timer().count()).isEqualTo(6);
+        assertThat(producer.history()).extracting(r -> r.key()).containsOnly("p");
+    }
+
+    @Test
+    void aSendThatFailsOutrightHandsBackTheRestOfItsBatchAndClosesTheSinkForABit() throws Exception {
+        KafkaSink sink = sink("aimd", 100, 1, 100, 200);
+        sink.publishBatch(events(0, 2));
+        producer.sendException = new TimeoutException("Topic not present in metadata after 100 ms");
+
+        assertThatThrownBy(() -> sink.publishBatch(events(2, 50)))
+                .isInstanceOfSatisfying(PartialPublishException.class, e -> assertThat(e.accepted()).isZero());
+
+        assertThat(producer.history()).hasSize(2);
+        assertThat(counter("gateway.access_log.kafka.failed")).isZero();   // not lost: the caller has them back
+        assertThat(sink.capacity()).isZero();
+
+        producer.sendException = null;
+        Thread.sleep(250);
+        assertThat(sink.capacity()).isPositive();
+        sink.publishBatch(events(50, 51));
+        while (producer.completeNext()) { }
+        assertThat(counter("gateway.access_log.kafka.delivered")).isEqualTo(3);
+    }
+
+    @Test
+    void pipelineRetriesWhatTheProducerRefusedAheadOfNewerEvents(@TempDir Path dir) {
+        KafkaSink sink = sink("aimd", 100, 1, 100, 100);
+        RouterProperties.SpillConfig spill = new RouterProperties.SpillConfig();
+        spill.setEnabled(true);
+        spill.setDir(dir.toString());
+        AccessLogPipeline pipeline = new AccessLogPipeline(64, sink, registry, 512, 0, 1, spill);
+        producer.sendException = new TimeoutException("Topic not present in metadata after 100 ms");
+
+        events(0, 20).forEach(pipeline::offer);
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .until(() -> registry.get("gateway.access_log.backpressure").counter().count() > 0);
+        events(20, 120).forEach(pipeline::offer);   // the ring fills up behind the refused events, then spills
+        assertThat(pipeline.spillBacklog()).isPositive();
+        assertThat(registry.get("gateway.access_log.published").counter().count()).isZero();
+
+        producer.sendException = null;
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> {
+            while (producer.completeNext()) { }   // keep the in-flight window open
+            return producer.history().size() == 120;
+        });
+        assertThat(producer.history()).extracting(r -> new String(r.value()))
+                .extracting(v -> v.substring(v.indexOf("\"e-") + 1, v.indexOf('"', v.indexOf("\"e-") + 1)))
+                .isEqualTo(IntStream.range(0, 120).mapToObj(i -> "e-" + i).toList());
+        assertThat(registry.get("gateway.access_log.published").counter().count()).isEqualTo(120);
+        assertThat(pipeline.droppedCount()).isZero();
+        pipeline.shutdown();
+    }
+
+    @Test
+    void pipelineKeepsEventsInTheRingWhileTheWindowIsFull() {
+        KafkaSink sink = sink("aimd", 5, 5, 5, 1_000);
+        AccessLogPipeline pipeline = new AccessLogPipeline(64, sink, registry, 512, 0);
+
+        events(0, 12).forEach(pipeline::offer);
+        org.awaitility.Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> producer.history().size() == 5);
+        assertThat(pipeline.queueDepth()).isEqualTo(7);
+
+        while (producer.completeNext()) { }   // may also ack sends the freed window lets through meanwhile
+        org.awaitility.Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> producer.history().size() >= 10);
+        while (producer.completeNext()) { }
+        org.awaitility.Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> producer.history().size() == 12);
+        assertThat(pipeline.droppedCount()).isZero();
+        pipeline.shutdown();
+    }
+
+    private KafkaSink sink(String algorithm, int initial, int min, int max, long stallBackoffMs) {
+        RouterProperties.KafkaSinkConfig cfg = new RouterProperties.KafkaSinkConfig();
+        cfg.setTopic("access");
+        cfg.setInFlight(new ConcurrencyLimitConfig(algorithm, initial, min, max));
+        cfg.setStallBackoffMs(stallBackoffMs);
+        return new KafkaSink(new KafkaTemplate<>(() -> producer), cfg, registry);
+    }
+
+    private double counter(String name) {
+        return registry.get(name).tag("topic", "access").counter().count();
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).tag("topic", "access").gauge().value();
+    }
+
+    private static List<AccessLogEvent> events(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> new AccessLogEvent("e-" + i, Instant.now(), "GET", "/x", "",
+                "svc", "http://t", 200, 1, 0, 0, "p", "basic", "127.0.0.1", "test", "")).toList();
+    }
+}
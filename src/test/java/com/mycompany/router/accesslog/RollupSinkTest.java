@@ -0,0 +1,148 @@
+package com.mycompany.router.accesslog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RollupSinkTest {
+
+    private static final long T0 = Instant.parse("2026-10-19T12:00:00Z").toEpochMilli();
+
+    private final List<AccessLogEvent> events = new ArrayList<>();
+    private final List<AccessLogRollup> rollups = new ArrayList<>();
+    private final AccessLogSink capture = new AccessLogSink() {
+        @Override public String name() { return "capture"; }
+        @Override public void publish(AccessLogEvent event) { events.add(event); }
+        @Override public void publishRollups(List<AccessLogRollup> r) { rollups.addAll(r); }
+    };
+    private final AtomicLong now = new AtomicLong(T0);
+
+    @Test
+    void rollsEventsUpPerDimensionAndWindowOnceTheWindowIsOver() throws Exception {
+        RollupSink sink = sink("all");
+        sink.publishBatch(IntStream.rangeClosed(1, 100)
+                .mapToObj(i -> event("r-" + i, 10, "orders", 200, i)).toList());
+        sink.publishBatch(List.of(event("x", 20, "orders", 503, 7), event("y", 65, "orders", 200, 3)));
+
+        now.set(T0 + 64_000);   // window [0, 60s) ended, flush delay (5s) not yet over
+        sink.flush(false);
+        assertThat(rollups).isEmpty();
+
+        now.set(T0 + 65_000);
+        sink.flush(false);
+        rollups.sort(Comparator.comparing(AccessLogRollup::status));
+        assertThat(rollups).hasSize(2);
+        AccessLogRollup ok = rollups.get(0);
+        assertThat(ok.windowStart()).isEqualTo(Instant.ofEpochMilli(T0));
+        assertThat(ok.windowSeconds()).isEqualTo(60);
+        assertThat(ok.service()).isEqualTo("orders");
+        assertThat(ok.route()).isEqualTo("http://orders:8080");
+        assertThat(ok.tier()).isEqualTo("premium");
+        assertThat(ok.count()).isEqualTo(100);
+        assertThat(ok.latencySumMs()).isEqualTo(5050);
+        assertThat(ok.latencyMaxMs()).isEqualTo(100);
+        assertThat(ok.p50Ms()).isEqualTo(50);
+        assertThat(ok.p99Ms()).isEqualTo(99);
+        assertThat(ok.requestBytes()).isEqualTo(100 * 10);
+        assertThat(rollups.get(1).count()).isEqualTo(1);
+        assertThat(events).hasSize(102);
+
+        Histogram merged = ok.latencyHistogram();
+        merged.add(rollups.get(1).latencyHistogram());
+        assertThat(merged.getTotalCount()).isEqualTo(101);
+        AccessLogRollup roundTripped = new ObjectMapper().registerModule(new JavaTimeModule())
+                .readValue(ok.toJson(), AccessLogRollup.class);
+        assertThat(roundTripped).isEqualTo(ok);
+
+        sink.close();   // the window at 60s is still open: close emits it
+        assertThat(rollups).hasSize(3);
+        assertThat(rollups.get(2).windowStart()).isEqualTo(Instant.ofEpochMilli(T0 + 60_000));
+    }
+
+    @Test
+    void sampledModeKeepsErrorsSlowRequestsAndTheSameFractionOfTheRest() {
+        RollupSink sink = sink("sampled");
+        List<AccessLogEvent> batch = new ArrayList<>(IntStream.range(0, 10_000)
+                .mapToObj(i -> event("ok-" + i, 1, "orders", 200, 5)).toList());
+        batch.add(event("err", 1, "orders", 502, 5));
+        batch.add(event("slow", 1, "orders", 200, 1_500));
+        batch.add(new AccessLogEvent("failed", Instant.ofEpochMilli(T0), "GET", "/orders", "", "orders",
+                "http://orders:8080", 0, 3, 0, 0, "p", "premium", "10.0.0.1", "ua", "ConnectException"));
+
+        sink.publishBatch(batch);
+
+        assertThat(events).extracting(AccessLogEvent::requestId).contains("err", "slow", "failed");
+        assertThat(events.size() - 3).isBetween(50, 150);   // 1% of 10 000
+        List<AccessLogEvent> first = List.copyOf(events);
+        events.clear();
+        sink("sampled").publishBatch(batch);
+        assertThat(events).isEqualTo(first);   // by request id, not at random
+    }
+
+    @Test
+    void aPartialDelegateIsReportedAgainstTheOriginalBatchAndNotRolledUpTwice() {
+        int[] room = {1};
+        AccessLogSink refusing = new AccessLogSink() {
+            @Override public String name() { return "refusing"; }
+            @Override public void publish(AccessLogEvent event) { events.add(event); }
+            @Override public void publishBatch(List<AccessLogEvent> batch) {
+                int n = Math.min(room[0], batch.size());
+                events.addAll(batch.subList(0, n));
+                if (n < batch.size()) throw new PartialPublishException(n, "full");
+            }
+            @Override public void publishRollups(List<AccessLogRollup> r) { rollups.addAll(r); }
+        };
+        RouterProperties.RollupConfig cfg = new RouterProperties.RollupConfig();
+        cfg.setEnabled(true);
+        cfg.setRaw("sampled");
+        RollupSink sink = new RollupSink(refusing, cfg, new SimpleMeterRegistry(), now::get, false);
+        AccessLogEvent ok = event("ok-0", 1, "orders", 200, 5);
+        assertThat(sink.keep(ok)).isFalse();
+        List<AccessLogEvent> batch = List.of(event("err-1", 1, "orders", 502, 5), ok,
+                event("err-2", 1, "orders", 502, 5), event("err-3", 1, "orders", 502, 5));
+
+        assertThatThrownBy(() -> sink.publishBatch(batch))   // took err-1; ok-0 was sampled out
+                .isInstanceOfSatisfying(PartialPublishException.class, e -> assertThat(e.accepted()).isEqualTo(2));
+        room[0] = Integer.MAX_VALUE;
+        sink.publishBatch(batch.subList(2, 4));   // what the pipeline hands back
+        sink.close();
+
+        assertThat(events).extracting(AccessLogEvent::requestId).containsExactly("err-1", "err-2", "err-3");
+        assertThat(rollups.stream().mapToLong(AccessLogRollup::count).sum()).isEqualTo(4);
+    }
+
+    @Test
+    void noneModeSendsOnlyRollups() {
+        RollupSink sink = sink("none");
+        sink.publishBatch(List.of(event("a", 1, "orders", 200, 5), event("b", 1, "billing", 200, 5)));
+        sink.close();
+
+        assertThat(events).isEmpty();
+        assertThat(rollups).extracting(AccessLogRollup::service).containsExactlyInAnyOrder("orders", "billing");
+    }
+
+    private RollupSink sink(String raw) {
+        RouterProperties.RollupConfig cfg = new RouterProperties.RollupConfig();
+        cfg.setEnabled(true);
+        cfg.setRaw(raw);
+        return new RollupSink(capture, cfg, new SimpleMeterRegistry(), now::get, false);
+    }
+
+    private static AccessLogEvent event(String id, long secondsIn, String service, int status, long latencyMs) {
+        return new AccessLogEvent(id, Instant.ofEpochMilli(T0 + secondsIn * 1000), "GET", "/" + service, "",
+                service, "http://" + service + ":8080", status, latencyMs, 10, 0, "p", "premium", "10.0.0.1", "ua", "");
+    }
+}
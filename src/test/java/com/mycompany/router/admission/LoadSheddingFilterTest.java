@@ -0,0 +1,85 @@
+package com.mycompany.router.admission;
+
+import com.mycompany.router.auth.Principal;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadSheddingFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong lag = new AtomicLong();
+
+    private LoadSheddingFilter filter() {
+        RouterProperties.LoadSheddingConfig cfg = new RouterProperties.LoadSheddingConfig();
+        cfg.getTiers().put("anonymous", new RouterProperties.LoadShedTier(20, 2));
+        cfg.getTiers().put("basic", new RouterProperties.LoadShedTier(50, 4));
+        return new LoadSheddingFilter(cfg, lag::get, registry);
+    }
+
+    private static MockServerWebExchange exchange(String path, String tier) {
+        MockServerWebExchange ex = MockServerWebExchange.from(MockServerHttpRequest.method(HttpMethod.GET, path));
+        ex.getAttributes().put(Principal.CONTEXT_KEY, new Principal("p", tier, Set.of(), false));
+        return ex;
+    }
+
+    private static HttpStatus run(LoadSheddingFilter filter, MockServerWebExchange ex) {
+        filter.filter(ex, e -> Mono.empty()).block();
+        return ex.getResponse().getStatusCode() == null ? HttpStatus.OK
+                : HttpStatus.valueOf(ex.getResponse().getStatusCode().value());
+    }
+
+    @Test
+    void shedsLowerTiersFirstAsLagRises() {
+        LoadSheddingFilter filter = filter();
+
+        lag.set(30);
+        assertThat(run(filter, exchange("/x", "anonymous"))).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(run(filter, exchange("/x", "basic"))).isEqualTo(HttpStatus.OK);
+        assertThat(run(filter, exchange("/x", "premium"))).isEqualTo(HttpStatus.OK);
+
+        lag.set(60);
+        assertThat(run(filter, exchange("/x", "basic"))).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(run(filter, exchange("/x", "premium"))).isEqualTo(HttpStatus.OK);
+
+        assertThat(registry.counter("gateway.load_shed", "tier", "anonymous").count()).isEqualTo(1);
+        assertThat(registry.counter("gateway.load_shed", "tier", "basic").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shedsOnInFlightAndReleasesOnCompletion() {
+        LoadSheddingFilter filter = filter();
+        Sinks.Empty<Void> hold = Sinks.empty();
+        filter.filter(exchange("/x", "premium"), e -> hold.asMono()).subscribe();
+        filter.filter(exchange("/x", "premium"), e -> hold.asMono()).subscribe();
+        assertThat(filter.inflight()).isEqualTo(2);
+
+        MockServerWebExchange shed = exchange("/x", "anonymous");
+        assertThat(run(filter, shed)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(run(filter, exchange("/x", "basic"))).isEqualTo(HttpStatus.OK);
+
+        hold.tryEmitEmpty();
+        assertThat(filter.inflight()).isZero();
+        assertThat(run(filter, exchange("/x", "anonymous"))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void neverShedsAdminOrActuator() {
+        LoadSheddingFilter filter = filter();
+        lag.set(1_000);
+        assertThat(run(filter, exchange("/admin/services", "anonymous"))).isEqualTo(HttpStatus.OK);
+        assertThat(run(filter, exchange("/actuator/health", "anonymous"))).isEqualTo(HttpStatus.OK);
+    }
+}
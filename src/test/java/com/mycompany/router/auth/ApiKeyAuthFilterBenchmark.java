@@ -0,0 +1,124 @@
+package com.mycompany.router.auth;
+
+import com.mycompany.router.config.RouterProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auth fast path: {@link ApiKeyAuthFilter} against an in-memory store, so the
+ * numbers are the filter's own CPU and allocation cost. {@code signedKey} runs
+ * against a store that would take 1 ms per lookup, to show signed keys never
+ * touch it.
+ *
+ * Not a unit test; run {@link #main} from the IDE, or:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.mycompany.router.auth.ApiKeyAuthFilterBenchmark
+ * </pre>
+ * {@code gc.alloc.rate.norm} in the output is bytes/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiKeyAuthFilterBenchmark {
+
+    private static final String SECRET = "bench-secret-0123456789abcdef";
+    private static final WebFilterChain CHAIN = exchange -> Mono.empty();
+
+    private ApiKeyAuthFilter filter;
+    private ApiKeyAuthFilter signedFilter;
+    private MockServerWebExchange withKey;
+    private MockServerWebExchange withoutKey;
+    private MockServerWebExchange withSignedKey;
+    private SignedApiKeyCodec codec;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        InMemoryApiKeyStore store = new InMemoryApiKeyStore();
+        store.save(new ApiKey("bench", ApiKeyHasher.sha256Hex(SECRET), "bench-user", "premium",
+                Set.of("read", "write"), true, Instant.now(), null)).block();
+        filter = new ApiKeyAuthFilter(store, new RouterProperties.AuthConfig());
+        withKey = MockServerWebExchange.from(
+                MockServerHttpRequest.method(HttpMethod.GET, "/svc/x").header("X-API-Key", SECRET));
+        withoutKey = MockServerWebExchange.from(MockServerHttpRequest.method(HttpMethod.GET, "/svc/x"));
+
+        codec = new SignedApiKeyCodec(Map.of("s1", SECRET.getBytes(StandardCharsets.UTF_8)), "s1");
+        ApiKeyStore slowStore = new InMemoryApiKeyStore() {
+            @Override
+            public Mono<ApiKey> findByHash(String keyHash) {
+                return Mono.delay(Duration.ofMillis(1)).then(Mono.empty());
+            }
+        };
+        signedFilter = new ApiKeyAuthFilter(slowStore, new RouterProperties.AuthConfig(), codec,
+                new LocalSignedKeyDenyList());
+        token = codec.mint(new SignedKeyClaims("bench", "bench-user", "premium",
+                Set.of("read", "write"), Instant.now().plus(Duration.ofDays(1))));
+        withSignedKey = MockServerWebExchange.from(
+                MockServerHttpRequest.method(HttpMethod.GET, "/svc/x").header("X-API-Key", token));
+    }
+
+    @Benchmark
+    public String sha256Hex() {
+        return ApiKeyHasher.sha256Hex(SECRET);
+    }
+
+    @Benchmark
+    public Object validKey() {
+        filter.filter(withKey, CHAIN).block();
+        return withKey.getAttributes().get(Principal.CONTEXT_KEY);
+    }
+
+    @Benchmark
+    public Object anonymous() {
+        filter.filter(withoutKey, CHAIN).block();
+        return withoutKey.getAttributes().get(Principal.CONTEXT_KEY);
+    }
+
+    @Benchmark
+    public Object signedKey() {
+        signedFilter.filter(withSignedKey, CHAIN).block();
+        return withSignedKey.getAttributes().get(Principal.CONTEXT_KEY);
+    }
+
+    /** First sight of a token: full HMAC verification + claim parsing. */
+    @Benchmark
+    public SignedKeyClaims signedKeyVerify() {
+        return codec.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ApiKeyAuthFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
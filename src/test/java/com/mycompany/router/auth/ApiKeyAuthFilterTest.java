@@ -69,4 +69,54 @@ class ApiKeyAuthFilterTest {
         Principal p = (Principal) exchange.getAttributes().get(Principal.CONTEXT_KEY);
         assertThat(p.id()).isEqualTo("bob");
     }
+
+    @Test
+    void reusesPrincipalUntilKeyChanges() {
+        auth.setEnabled(true);
+        String hash = ApiKeyHasher.sha256Hex("abc");
+        store.save(new ApiKey("k", hash, "bob", "basic", Set.of("read"), true, Instant.now(), null)).block();
+        ApiKeyAuthFilter filter = new ApiKeyAuthFilter(store, auth);
+
+        Principal first = resolve(filter, "abc");
+        assertThat(resolve(filter, "abc")).isSameAs(first);
+
+        store.save(new ApiKey("k", hash, "bob", "premium", Set.of("read"), true, Instant.now(), null)).block();
+        Principal upgraded = resolve(filter, "abc");
+        assertThat(upgraded).isNotSameAs(first);
+        assertThat(upgraded.tier()).isEqualTo("premium");
+    }
+
+    @Test
+    void resolvesSignedKeyWithoutTheStoreAndHonoursDenyList() {
+        auth.setEnabled(true);
+        SignedApiKeyCodec codec = new SignedApiKeyCodec(
+                java.util.Map.of("s1", "0123456789abcdef0123456789abcdef".getBytes()), "s1");
+        LocalSignedKeyDenyList denyList = new LocalSignedKeyDenyList();
+        ApiKeyStore unreachable = new InMemoryApiKeyStore() {
+            @Override
+            public Mono<ApiKey> findByHash(String keyHash) {
+                return Mono.error(new AssertionError("store must not be consulted"));
+            }
+        };
+        ApiKeyAuthFilter filter = new ApiKeyAuthFilter(unreachable, auth, codec, denyList);
+        String token = codec.mint(new SignedKeyClaims("sk1", "machine", "premium", Set.of("read"),
+                Instant.now().plusSeconds(3600)));
+        String expired = codec.mint(new SignedKeyClaims("sk2", "machine", "premium", Set.of(),
+                Instant.now().minusSeconds(1)));
+
+        assertThat(resolve(filter, token).id()).isEqualTo("machine");
+        assertThat(resolve(filter, token).scopes()).containsExactly("read");
+        assertThat(resolve(filter, expired).anonymous()).isTrue();
+        assertThat(resolve(filter, token.substring(0, token.length() - 2) + "AA").anonymous()).isTrue();
+
+        denyList.deny("sk1", Instant.now().plusSeconds(3600)).block();
+        assertThat(resolve(filter, token).anonymous()).isTrue();
+    }
+
+    private static Principal resolve(ApiKeyAuthFilter filter, String key) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.method(HttpMethod.GET, "/x").header("X-API-Key", key));
+        filter.filter(exchange, ex -> Mono.empty()).block();
+        return (Principal) exchange.getAttributes().get(Principal.CONTEXT_KEY);
+    }
 }
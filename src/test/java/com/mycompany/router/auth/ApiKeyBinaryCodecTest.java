@@ -0,0 +1,55 @@
+package com.mycompany.router.auth;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ApiKeyBinaryCodecTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Test
+    void roundTripsEveryField() {
+        ApiKey key = new ApiKey("key-1", ApiKeyHasher.sha256Hex("s"), "alice", "premium",
+                Set.of("read", "billing:export"), true, NOW, NOW.plusSeconds(3600));
+        assertThat(ApiKeyBinaryCodec.decode(ApiKeyBinaryCodec.encode(key))).isEqualTo(key);
+
+        ApiKey sparse = new ApiKey("ключ", "not-a-sha256", null, "custom-tier", Set.of(), false,
+                Instant.ofEpochMilli(-1), null);
+        assertThat(ApiKeyBinaryCodec.decode(ApiKeyBinaryCodec.encode(sparse))).isEqualTo(sparse);
+    }
+
+    @Test
+    void isFarSmallerThanJson() throws Exception {
+        ApiKey key = new ApiKey("3f2c6a6e-4c1b-4f7e-9a51-0c8e5d2b7a19", ApiKeyHasher.sha256Hex("s"), "alice",
+                "basic", Set.of("read", "write"), true, NOW, null);
+        byte[] json = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(key);
+        byte[] binary = ApiKeyBinaryCodec.encode(key);
+
+        assertThat(binary[0]).isEqualTo(ApiKeyBinaryCodec.RECORD_V1);
+        assertThat(json[0]).isEqualTo(ApiKeyBinaryCodec.JSON);
+        assertThat(binary.length).isLessThan(json.length / 2);
+    }
+
+    @Test
+    void pointersCarryTheHash() {
+        String hash = ApiKeyHasher.sha256Hex("s");
+        byte[] pointer = ApiKeyBinaryCodec.pointer(hash);
+        assertThat(pointer).hasSize(33);
+        assertThat(ApiKeyBinaryCodec.pointerHash(pointer)).isEqualTo(hash);
+        assertThat(ApiKeyBinaryCodec.pointerHash(ApiKeyBinaryCodec.pointer("legacy"))).isEqualTo("legacy");
+    }
+
+    @Test
+    void rejectsUnknownVersions() {
+        assertThatThrownBy(() -> ApiKeyBinaryCodec.decode(new byte[]{0x7f, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
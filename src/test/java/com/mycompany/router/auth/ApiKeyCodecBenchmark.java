@@ -0,0 +1,94 @@
+package com.mycompany.router.auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request decode cost of a Redis key record: Jackson JSON (the legacy
+ * layout) against {@link ApiKeyBinaryCodec}. {@link #main} also prints the
+ * Redis value bytes per key for both layouts (JSON stores the record twice;
+ * binary stores it once plus a 33-byte id pointer).
+ *
+ * Not a unit test; run {@link #main} from the IDE, or:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.mycompany.router.auth.ApiKeyCodecBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiKeyCodecBenchmark {
+
+    private ObjectMapper mapper;
+    private ApiKey key;
+    private byte[] json;
+    private byte[] binary;
+
+    static ApiKey sample() {
+        return new ApiKey(UUID.nameUUIDFromBytes(new byte[]{1}).toString(), ApiKeyHasher.sha256Hex("bench"),
+                "customer-4711", "premium", Set.of("read", "write"), true,
+                Instant.parse("2026-01-01T00:00:00Z"), Instant.parse("2027-01-01T00:00:00Z"));
+    }
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        key = sample();
+        json = mapper.writeValueAsBytes(key);
+        binary = ApiKeyBinaryCodec.encode(key);
+    }
+
+    @Benchmark
+    public ApiKey decodeJson() throws IOException {
+        return mapper.readValue(json, ApiKey.class);
+    }
+
+    @Benchmark
+    public ApiKey decodeBinary() {
+        return ApiKeyBinaryCodec.decode(binary);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return ApiKeyBinaryCodec.encode(key);
+    }
+
+    public static void main(String[] args) throws RunnerException, JsonProcessingException {
+        ApiKey key = sample();
+        int jsonBytes = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(key).length;
+        int binaryBytes = ApiKeyBinaryCodec.encode(key).length;
+        int pointerBytes = ApiKeyBinaryCodec.pointer(key.keyHash()).length;
+        System.out.printf("Redis value bytes per key: json %d (x2 = %d), binary %d + pointer %d = %d%n",
+                jsonBytes, 2 * jsonBytes, binaryBytes, pointerBytes, binaryBytes + pointerBytes);
+        new Runner(new OptionsBuilder()
+                .include(ApiKeyCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package com.mycompany.router.auth;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class BloomFilterApiKeyStoreTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FlakyBus bus = new FlakyBus();
+    private final CountingStore backing = new CountingStore();
+    private final RouterProperties.ApiKeyBloomConfig config = new RouterProperties.ApiKeyBloomConfig();
+    private BloomFilterApiKeyStore store;
+
+    @AfterEach
+    void close() {
+        if (store != null) store.close();
+    }
+
+    private BloomFilterApiKeyStore started() {
+        config.setExpectedKeys(10_000);
+        store = new BloomFilterApiKeyStore(backing, bus, config, registry).start();
+        await().atMost(Duration.ofSeconds(5)).until(store::isReady);
+        return store;
+    }
+
+    private static ApiKey key(String secret) {
+        return new ApiKey(secret, ApiKeyHasher.sha256Hex(secret), "user", "basic", Set.of(), true, Instant.now(), null);
+    }
+
+    @Test
+    void rejectsUnknownHashesWithoutTouchingTheStore() {
+        backing.save(key("existing")).block();
+        started();
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(store.findByHash(ApiKeyHasher.sha256Hex("random-" + i)).block()).isNull();
+        }
+        assertThat(backing.reads.get()).isLessThan(10); // only false positives reach the store
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("existing")).block()).isNotNull();
+    }
+
+    @Test
+    void admitsKeysSavedLocallyAndOnOtherNodes() {
+        started();
+        store.save(key("local")).block();
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("local")).block()).isNotNull();
+
+        // written by another node straight to the shared store, announced on the bus
+        ApiKey remote = key("remote");
+        backing.save(remote).block();
+        bus.publish(new ApiKeyChange(ApiKeyChange.Type.SAVED, remote.id(), remote.keyHash(), 0)).block();
+        assertThat(store.findByHash(remote.keyHash()).block()).isNotNull();
+    }
+
+    @Test
+    void rebuildPicksUpKeysWhoseNoticeWasLost() {
+        started();
+        ApiKey missed = key("missed");
+        backing.save(missed).block();
+        assertThat(store.findByHash(missed.keyHash()).block()).isNull();
+
+        store.rebuild().block();
+
+        assertThat(store.findByHash(missed.keyHash()).block()).isNotNull();
+    }
+
+    @Test
+    void passesMissesThroughFromABusOutageUntilTheFilterIsRebuilt() {
+        config.setReconnectPassThroughMs(0);
+        started();
+        String unknown = ApiKeyHasher.sha256Hex("unknown");
+        bus.connection(ApiKeyChangeBus.Connection.UP);   // the first subscription
+
+        bus.connection(ApiKeyChangeBus.Connection.DOWN);
+        ApiKey missed = key("missed");   // saved elsewhere while this node was deaf
+        backing.save(missed).block();
+        assertThat(store.findByHash(missed.keyHash()).block()).isNotNull();
+        int reads = backing.reads.get();
+        assertThat(store.findByHash(unknown).block()).isNull();
+        assertThat(backing.reads.get()).isEqualTo(reads + 1);
+
+        bus.connection(ApiKeyChangeBus.Connection.UP);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            int before = backing.reads.get();
+            assertThat(store.findByHash(unknown).block()).isNull();
+            assertThat(backing.reads.get()).isEqualTo(before);   // trusted again
+        });
+        assertThat(store.findByHash(missed.keyHash()).block()).isNotNull();   // picked up by the rebuild
+        assertThat(registry.get("gateway.apikey_bloom.checks").tag("result", "bypassed").counter().count())
+                .isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void passesThroughUntilLoaded() {
+        backing.save(key("k")).block();
+        store = new BloomFilterApiKeyStore(backing, bus, config, registry);
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("k")).block()).isNotNull();
+    }
+
+    @Test
+    void bloomFilterHonoursTargetFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put(ApiKeyHasher.sha256Hex("in-" + i));
+        int fp = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(ApiKeyHasher.sha256Hex("out-" + i))) fp++;
+        }
+        assertThat(fp / 100_000.0).isLessThan(0.02);
+        assertThat(filter.expectedFpp()).isBetween(0.005, 0.02);
+    }
+
+    private static final class FlakyBus extends LocalApiKeyChangeBus {
+        final Sinks.Many<Connection> connections = Sinks.many().multicast().directBestEffort();
+
+        @Override
+        public Flux<Connection> connections() {
+            return connections.asFlux();
+        }
+
+        void connection(Connection connection) {
+            connections.tryEmitNext(connection);
+        }
+    }
+
+    private static final class CountingStore extends InMemoryApiKeyStore {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public Mono<ApiKey> findByHash(String keyHash) {
+            reads.incrementAndGet();
+            return super.findByHash(keyHash);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.mycompany.router.auth;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingApiKeyStoreTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LocalApiKeyChangeBus bus = new LocalApiKeyChangeBus();
+    private final CountingStore backing = new CountingStore();
+    private final RouterProperties.ApiKeyCacheConfig config = new RouterProperties.ApiKeyCacheConfig();
+    private final List<CachingApiKeyStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        opened.forEach(CachingApiKeyStore::close);
+    }
+
+    private CachingApiKeyStore cache() {
+        CachingApiKeyStore c = new CachingApiKeyStore(backing, bus, config, registry).start();
+        opened.add(c);
+        return c;
+    }
+
+    private static ApiKey key(String id, String hash) {
+        return new ApiKey(id, hash, "user-" + id, "basic", Set.of(), true, Instant.now(), null);
+    }
+
+    @Test
+    void servesRepeatLookupsFromCache() {
+        backing.save(key("k1", "h1")).block();
+        CachingApiKeyStore cache = cache();
+
+        assertThat(cache.findByHash("h1").block().id()).isEqualTo("k1");
+        assertThat(cache.findByHash("h1").block().id()).isEqualTo("k1");
+        assertThat(backing.reads.get()).isEqualTo(1);
+        assertThat(registry.counter("gateway.apikey_cache.requests", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void cachesUnknownHashesNegatively() {
+        CachingApiKeyStore cache = cache();
+
+        assertThat(cache.findByHash("nope").block()).isNull();
+        assertThat(cache.findByHash("nope").block()).isNull();
+        assertThat(backing.reads.get()).isEqualTo(1);
+        assertThat(registry.counter("gateway.apikey_cache.requests", "result", "negative_hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void coalescesConcurrentMisses() {
+        backing.save(key("k1", "h1")).block();
+        Sinks.Empty<Void> gate = Sinks.empty();
+        backing.delay = gate.asMono();
+        CachingApiKeyStore cache = cache();
+
+        List<ApiKey> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) cache.findByHash("h1").subscribe(results::add);
+        gate.tryEmitEmpty();
+
+        assertThat(results).hasSize(5);
+        assertThat(backing.reads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void deleteOnOneNodeInvalidatesTheOthers() {
+        ApiKeyStore nodeA = new PublishingApiKeyStore(cache(), bus);
+        CachingApiKeyStore nodeB = cache();
+        nodeA.save(key("k1", "h1")).block();
+        assertThat(nodeB.findByHash("h1").block()).isNotNull();
+
+        nodeA.delete("k1").block();
+
+        assertThat(nodeB.findByHash("h1").block()).isNull();
+    }
+
+    @Test
+    void bulkImportPublishesOneNoticePerChunkAndInvalidatesTheOthers() {
+        List<ApiKeyChange> notices = new ArrayList<>();
+        bus.changes().subscribe(notices::add);
+        backing.save(key("k1", "old")).block();
+        ApiKeyStore nodeA = new PublishingApiKeyStore(cache(), bus);
+        CachingApiKeyStore nodeB = cache();
+        assertThat(nodeB.findByHash("old").block()).isNotNull();
+        assertThat(nodeB.findByHash("h-7").block()).isNull();
+
+        int total = PublishingApiKeyStore.PUBLISH_BATCH * 2 + 1;
+        List<ApiKey> imported = IntStream.range(0, total)
+                .mapToObj(i -> i == 0 ? key("k1", "new") : key("k" + i, "h-" + i)).toList();
+        assertThat(nodeA.saveAll(Flux.fromIterable(imported)).collectList().block()).hasSize(total);
+
+        assertThat(notices).hasSize(3).allMatch(c -> c.type() == ApiKeyChange.Type.SAVED_BATCH);
+        assertThat(nodeB.findByHash("h-7").block()).isNotNull();
+        int reads = backing.reads.get();
+        nodeB.findByHash("old").block();   // k1 was re-keyed: its old entry is gone
+        assertThat(backing.reads.get()).isEqualTo(reads + 1);
+    }
+
+    @Test
+    void changeNoticesRoundTripThroughJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ApiKeyChange single = new ApiKeyChange(ApiKeyChange.Type.DELETED, "k1", null, 5);
+        ApiKeyChange batch = ApiKeyChange.savedBatch(List.of(key("k1", "h1"), key("k2", "h2")), 6);
+
+        assertThat(mapper.writeValueAsString(single)).doesNotContain("ids");
+        assertThat(mapper.readValue(mapper.writeValueAsString(single), ApiKeyChange.class)).isEqualTo(single);
+        ApiKeyChange back = mapper.readValue(mapper.writeValueAsString(batch), ApiKeyChange.class);
+        List<String> pairs = new ArrayList<>();
+        back.forEachKey((id, hash) -> pairs.add(id + "=" + hash));
+        assertThat(pairs).containsExactly("k1=h1", "k2=h2");
+    }
+
+    @Test
+    void saveReplacesNegativeEntry() {
+        CachingApiKeyStore cache = cache();
+        assertThat(cache.findByHash("h1").block()).isNull();
+
+        cache.save(key("k1", "h1")).block();
+
+        assertThat(cache.findByHash("h1").block()).isNotNull();
+    }
+
+    @Test
+    void staysWithinMaxSize() {
+        config.setMaxSize(100);
+        CachingApiKeyStore cache = cache();
+        for (int i = 0; i < 1_000; i++) cache.findByHash("miss-" + i).block();
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+    }
+
+    private static final class CountingStore extends InMemoryApiKeyStore {
+        final AtomicInteger reads = new AtomicInteger();
+        Mono<Void> delay = Mono.empty();
+
+        @Override
+        public Mono<ApiKey> findByHash(String keyHash) {
+            return Mono.defer(() -> {
+                reads.incrementAndGet();
+                return delay.then(super.findByHash(keyHash));
+            });
+        }
+    }
+}
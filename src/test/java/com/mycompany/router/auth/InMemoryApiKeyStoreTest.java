@@ -1,10 +1,14 @@
 package com.mycompany.router.auth;
 
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -38,4 +42,27 @@ class InMemoryApiKeyStoreTest {
 
         StepVerifier.create(store.findByHash(hash)).verifyComplete();
     }
+
+    @Test
+    void pagesInIdOrderAndSavesInBulk() {
+        InMemoryApiKeyStore store = new InMemoryApiKeyStore();
+        List<ApiKey> keys = IntStream.range(0, 25)
+                .mapToObj(i -> new ApiKey(String.format("id-%02d", i), ApiKeyHasher.sha256Hex("s" + i), "p",
+                        "basic", Set.of(), true, Instant.now(), null))
+                .toList();
+        assertThat(store.saveAll(Flux.fromIterable(keys)).count().block()).isEqualTo(25);
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ApiKeyPage page = store.page(cursor, 10).block();
+            page.keys().forEach(k -> seen.add(k.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactlyElementsOf(keys.stream().map(ApiKey::id).toList());
+    }
 }
@@ -0,0 +1,98 @@
+package com.mycompany.router.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MappedApiKeyStore} lookups at {@code keys} keys. The store is built
+ * once under {@code java.io.tmpdir} (unsynced, about 2.6 GB of log at 10M keys)
+ * and reopened by later runs, so the log line "opened ... in N ms" shows the
+ * cold-start cost of a cleanly closed store.
+ *
+ * Not a unit test; run {@link #main} from the IDE, or:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.mycompany.router.auth.MappedApiKeyStoreBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class MappedApiKeyStoreBenchmark {
+
+    @Param({"10000000"})
+    public int keys;
+
+    private MappedApiKeyStore store;
+    private String[] hits;
+    private String[] misses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dir = Path.of(System.getProperty("java.io.tmpdir"), "mapped-apikeys-" + keys);
+        boolean fresh = !Files.exists(dir);
+        store = new MappedApiKeyStore(dir, keys * 2, false);
+        if (fresh || store.liveKeys() != keys) {
+            Instant now = Instant.now();
+            for (int i = store.liveKeys(); i < keys; i++) {
+                store.put(new ApiKey("key-" + i, ApiKeyHasher.sha256Hex("secret-" + i), "user-" + i, "basic",
+                        Set.of("read"), true, now, null));
+            }
+        }
+        hits = new String[4096];
+        misses = new String[4096];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = ApiKeyHasher.sha256Hex("secret-" + ThreadLocalRandom.current().nextInt(keys));
+            misses[i] = ApiKeyHasher.sha256Hex("unknown-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Benchmark
+    public ApiKey hit() {
+        return store.get(hits[ThreadLocalRandom.current().nextInt(hits.length)]);
+    }
+
+    @Benchmark
+    public ApiKey miss() {
+        return store.get(misses[ThreadLocalRandom.current().nextInt(misses.length)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MappedApiKeyStoreBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
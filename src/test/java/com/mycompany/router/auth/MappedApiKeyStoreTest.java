@@ -0,0 +1,136 @@
+package com.mycompany.router.auth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedApiKeyStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private MappedApiKeyStore store;
+
+    @AfterEach
+    void close() throws IOException {
+        if (store != null) store.close();
+    }
+
+    private MappedApiKeyStore open() throws IOException {
+        store = new MappedApiKeyStore(dir, 16, false);
+        return store;
+    }
+
+    private static ApiKey key(String id, String secret) {
+        return new ApiKey(id, ApiKeyHasher.sha256Hex(secret), "user-" + id, "premium", Set.of("read", "write"),
+                true, Instant.now().truncatedTo(ChronoUnit.MILLIS), null);
+    }
+
+    @Test
+    void roundTripsKeysByHash() throws IOException {
+        open();
+        ApiKey saved = key("k1", "secret-1");
+        store.save(saved).block();
+
+        assertThat(store.findByHash(saved.keyHash()).block()).isEqualTo(saved);
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("other")).block()).isNull();
+        assertThat(store.findByHash("not-hex").block()).isNull();
+        assertThat(store.list().collectList().block()).containsExactly(saved);
+    }
+
+    @Test
+    void rotationAndDeleteDropTheOldHash() throws IOException {
+        open();
+        store.save(key("k1", "old")).block();
+        ApiKey rotated = key("k1", "new");
+        store.save(rotated).block();
+
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("old")).block()).isNull();
+        assertThat(store.findByHash(rotated.keyHash()).block()).isEqualTo(rotated);
+        assertThat(store.liveKeys()).isEqualTo(1);
+
+        store.delete("k1").block();
+        assertThat(store.findByHash(rotated.keyHash()).block()).isNull();
+        assertThat(store.list().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void survivesCleanRestartAndCrash() throws IOException {
+        open();
+        for (int i = 0; i < 1_000; i++) store.put(key("k" + i, "secret-" + i));
+        store.delete("k7").block();
+        store.close();
+
+        open();
+        assertThat(store.liveKeys()).isEqualTo(999);
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("secret-500")).block().id()).isEqualTo("k500");
+
+        // no close(): the indexes stay marked dirty and are rebuilt from the log on the next open
+        store.put(key("late", "late-secret"));
+        store = null;
+        open();
+        assertThat(store.liveKeys()).isEqualTo(1_000);
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("late-secret")).block()).isNotNull();
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("secret-7")).block()).isNull();
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveRecords() throws IOException {
+        open();
+        for (int i = 0; i < 100; i++) {
+            store.put(key("k" + (i % 10), "secret-" + i));
+        }
+        assertThat(store.logRecords()).isEqualTo(100);
+
+        store.compact();
+
+        assertThat(store.logRecords()).isEqualTo(10);
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("secret-95")).block().id()).isEqualTo("k5");
+        assertThat(store.findByHash(ApiKeyHasher.sha256Hex("secret-5")).block()).isNull();
+        store.close();
+
+        open();
+        assertThat(store.logRecords()).isEqualTo(10);
+        assertThat(store.list().count().block()).isEqualTo(10);
+    }
+
+    @Test
+    void bulkSavesAndPagesThroughEveryKey() throws IOException {
+        open();
+        long saved = store.saveAll(Flux.range(0, 1_234).map(i -> key("k" + i, "secret-" + i))).count().block();
+        assertThat(saved).isEqualTo(1_234);
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            ApiKeyPage page = store.page(cursor, 100).block();
+            page.keys().forEach(k -> assertThat(seen.add(k.id())).isTrue());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertThat(seen).hasSize(1_234);
+    }
+
+    @Test
+    void rejectsFieldsThatDoNotFitARecord() throws IOException {
+        open();
+        ApiKey tooLong = new ApiKey("k".repeat(64), ApiKeyHasher.sha256Hex("s"), "u", "basic", Set.of(),
+                true, null, null);
+        StepVerifier.create(store.save(tooLong)).expectError(IllegalArgumentException.class).verify();
+
+        ApiKey commaScope = new ApiKey("k", ApiKeyHasher.sha256Hex("s"), "u", "basic", Set.of("read,write"),
+                true, null, null);
+        StepVerifier.create(store.save(commaScope)).expectError(IllegalArgumentException.class).verify();
+        assertThat(store.list().collectList().block()).isEmpty();
+    }
+}
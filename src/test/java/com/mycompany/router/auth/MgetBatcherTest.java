@@ -0,0 +1,122 @@
+package com.mycompany.router.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MgetBatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final VirtualTimeScheduler timer = VirtualTimeScheduler.create();
+    private final List<List<String>> fetches = new CopyOnWriteArrayList<>();
+    private final List<Sinks.One<List<String>>> replies = new CopyOnWriteArrayList<>();
+
+    /** Echoes "v:" + key, except keys starting with "missing". */
+    private Mono<List<String>> multiGet(List<String> keys) {
+        fetches.add(keys);
+        return Mono.just(values(keys));
+    }
+
+    /** Like {@link #multiGet}, but each reply waits for {@link #answer}. */
+    private Mono<List<String>> heldMultiGet(List<String> keys) {
+        fetches.add(keys);
+        Sinks.One<List<String>> reply = Sinks.one();
+        replies.add(reply);
+        return reply.asMono();
+    }
+
+    private void answer(int fetch) {
+        replies.get(fetch).tryEmitValue(values(fetches.get(fetch)));
+    }
+
+    private static List<String> values(List<String> keys) {
+        List<String> values = new ArrayList<>();
+        keys.forEach(k -> values.add(k.startsWith("missing") ? null : "v:" + k));
+        return values;
+    }
+
+    @Test
+    void sendsAtOnceWhenNothingIsOutstanding() {
+        MgetBatcher<String> batcher = new MgetBatcher<>(this::multiGet, 500, 100, timer, registry);
+
+        assertThat(batcher.get("a").block(Duration.ofSeconds(1))).isEqualTo("v:a");
+        assertThat(batcher.get("b").block(Duration.ofSeconds(1))).isEqualTo("v:b");
+
+        assertThat(fetches).containsExactly(List.of("a"), List.of("b"));
+        assertThat(registry.get("gateway.apikey_redis.round_trips_saved").counter().count()).isZero();
+    }
+
+    @Test
+    void coalescesAndDeduplicatesLookupsWhileAFetchIsInFlight() {
+        MgetBatcher<String> batcher = new MgetBatcher<>(this::heldMultiGet, 500, 100, timer, registry);
+        List<String> results = new CopyOnWriteArrayList<>();
+        batcher.get("first").subscribe(results::add);
+        for (int i = 0; i < 30; i++) {
+            batcher.get("k" + (i % 10)).subscribe(results::add);
+        }
+        batcher.get("missing").subscribe(results::add);
+        assertThat(fetches).containsExactly(List.of("first"));
+
+        answer(0);
+        assertThat(fetches).hasSize(2);
+        assertThat(fetches.get(1)).hasSize(11);
+        answer(1);
+
+        assertThat(results).hasSize(31).contains("v:first", "v:k0", "v:k9");
+        assertThat(registry.get("gateway.apikey_redis.round_trips_saved").counter().count()).isEqualTo(30);
+        assertThat(registry.get("gateway.apikey_redis.batch_size").summary().max()).isEqualTo(11);
+        timer.advanceTimeBy(Duration.ofMillis(1));  // the window timer finds nothing left to send
+        assertThat(fetches).hasSize(2);
+    }
+
+    @Test
+    void windowBoundsTheWaitBehindASlowFetch() {
+        MgetBatcher<String> batcher = new MgetBatcher<>(this::heldMultiGet, 500, 100, timer, registry);
+        batcher.get("slow").subscribe();
+        batcher.get("a").subscribe();
+        batcher.get("b").subscribe();
+        assertThat(fetches).hasSize(1);
+
+        timer.advanceTimeBy(Duration.ofNanos(500_000));
+
+        assertThat(fetches).containsExactly(List.of("slow"), List.of("a", "b"));
+    }
+
+    @Test
+    void fullBatchGoesOutWithoutWaitingForTheTimer() {
+        MgetBatcher<String> batcher = new MgetBatcher<>(this::heldMultiGet, 1_000_000, 4, timer, registry);
+        List<String> results = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 9; i++) batcher.get("k" + i).subscribe(results::add);
+
+        assertThat(fetches).hasSize(3);
+        assertThat(fetches.get(1)).containsExactly("k1", "k2", "k3", "k4");
+        for (int i = 0; i < 3; i++) answer(i);
+
+        assertThat(results).hasSize(9);
+        timer.advanceTimeBy(Duration.ofSeconds(1));  // stale timers find nothing to flush
+        assertThat(fetches).hasSize(3);
+    }
+
+    @Test
+    void failedFetchFailsEveryWaiter() {
+        Sinks.One<List<String>> reply = Sinks.one();
+        MgetBatcher<String> batcher = new MgetBatcher<>(keys -> reply.asMono(), 100, 100, timer, registry);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        batcher.get("a").subscribe(v -> {}, errors::add);
+        batcher.get("a").subscribe(v -> {}, errors::add);
+        batcher.get("b").subscribe(v -> {}, errors::add);
+
+        reply.tryEmitError(new IllegalStateException("down"));
+
+        assertThat(errors).hasSize(3).allMatch(e -> e.getMessage().equals("down"));
+    }
+}
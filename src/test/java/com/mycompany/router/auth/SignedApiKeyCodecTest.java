@@ -0,0 +1,59 @@
+package com.mycompany.router.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SignedApiKeyCodecTest {
+
+    private static final byte[] S1 = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] S2 = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+
+    private final SignedKeyClaims claims = new SignedKeyClaims("k1", "machine-7", "premium",
+            Set.of("read", "write"), Instant.now().plus(30, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS));
+
+    @Test
+    void roundTripsClaims() {
+        SignedApiKeyCodec codec = new SignedApiKeyCodec(Map.of("s1", S1), "s1");
+        String token = codec.mint(claims);
+
+        assertThat(token).startsWith(SignedApiKeyCodec.PREFIX);
+        assertThat(codec.verify(token)).isEqualTo(claims);
+    }
+
+    @Test
+    void rejectsTamperedOrForeignTokens() {
+        SignedApiKeyCodec codec = new SignedApiKeyCodec(Map.of("s1", S1), "s1");
+        String token = codec.mint(claims);
+        String forged = new SignedApiKeyCodec(Map.of("s1", S2), "s1").mint(claims);
+        String flipped = token.substring(0, 10) + (token.charAt(10) == 'A' ? 'B' : 'A') + token.substring(11);
+
+        assertThat(codec.verify(forged)).isNull();
+        assertThat(codec.verify(flipped)).isNull();
+        assertThat(codec.verify("rk1.garbage")).isNull();
+        assertThat(codec.verify("rk1.!!!.???")).isNull();
+    }
+
+    @Test
+    void verifiesKeysSignedWithRetiredSecret() {
+        String old = new SignedApiKeyCodec(Map.of("s1", S1), "s1").mint(claims);
+        SignedApiKeyCodec rotated = new SignedApiKeyCodec(Map.of("s1", S1, "s2", S2), "s2");
+
+        assertThat(rotated.verify(old)).isEqualTo(claims);
+        assertThat(new SignedApiKeyCodec(Map.of("s2", S2), "s2").verify(old)).isNull();
+    }
+
+    @Test
+    void refusesClaimsThatWouldBreakTheEncoding() {
+        SignedApiKeyCodec codec = new SignedApiKeyCodec(Map.of("s1", S1), "s1");
+        SignedKeyClaims bad = new SignedKeyClaims("k", "p", "basic", Set.of("a,b"), claims.expiresAt());
+        assertThatThrownBy(() -> codec.mint(bad)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mycompany.router.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void rejectsAtLimitAndFreesOnRelease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new AimdLimit(2, 1, 10));
+        AdaptiveConcurrencyLimiter.Permit a = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit b = limiter.tryAcquire();
+        assertThat(a).isNotNull();
+        assertThat(b).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+
+        a.onIgnore();
+        a.onSuccess(); // second release must not free another slot
+        assertThat(limiter.inflight()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+    }
+
+    @Test
+    void aimdBacksOffOnDropsAndGrowsWhenSaturated() {
+        AimdLimit aimd = new AimdLimit(100, 1, 200);
+        aimd.onSample(10 * MS, 100, true);
+        assertThat(aimd.limit()).isEqualTo(90);
+        aimd.onSample(10 * MS, 90, false);
+        assertThat(aimd.limit()).isEqualTo(91);
+        aimd.onSample(10 * MS, 5, false); // app-limited
+        assertThat(aimd.limit()).isEqualTo(91);
+    }
+
+    @Test
+    void vegasShrinksWhenLatencyInflates() {
+        VegasLimit vegas = new VegasLimit(50, 1, 500);
+        vegas.onSample(10 * MS, 50, false); // establishes rttNoLoad
+        for (int i = 0; i < 20; i++) vegas.onSample(10 * MS, vegas.limit(), false);
+        int grown = vegas.limit();
+        assertThat(grown).isGreaterThan(50);
+
+        for (int i = 0; i < 20; i++) vegas.onSample(40 * MS, vegas.limit(), false);
+        assertThat(vegas.limit()).isLessThan(grown);
+    }
+
+    @Test
+    void gradientShrinksWhenLatencyInflatesAndRecovers() {
+        Gradient2Limit g = new Gradient2Limit(100, 1, 1000);
+        for (int i = 0; i < 50; i++) g.onSample(10 * MS, g.limit(), false);
+        int steady = g.limit();
+
+        for (int i = 0; i < 30; i++) g.onSample(50 * MS, g.limit(), false);
+        int slowed = g.limit();
+        assertThat(slowed).isLessThan(steady);
+
+        for (int i = 0; i < 200; i++) g.onSample(10 * MS, g.limit(), false);
+        assertThat(g.limit()).isGreaterThan(slowed);
+    }
+
+    @Test
+    void limitAdaptsThroughPermits() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new AimdLimit(10, 1, 10));
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) permits.add(limiter.tryAcquire());
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::onDropped);
+        assertThat(limiter.limit()).isLessThan(10);
+        assertThat(limiter.inflight()).isZero();
+    }
+}
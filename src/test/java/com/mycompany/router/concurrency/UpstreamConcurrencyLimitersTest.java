@@ -0,0 +1,69 @@
+package com.mycompany.router.concurrency;
+
+import com.mycompany.router.config.ConcurrencyLimitConfig;
+import com.mycompany.router.config.RouterProperties;
+import com.mycompany.router.service.ServiceRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamConcurrencyLimitersTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final ServiceRegistry services = new ServiceRegistry();
+    private final UpstreamConcurrencyLimiters limiters = new UpstreamConcurrencyLimiters(meters, services);
+
+    @Test
+    void reusesTheLimiterUntilTheConfigChanges() {
+        RouterProperties.ServiceConfig svc = service("service", "http://a");
+        services.registerService("svc", svc);
+        RouterProperties.RouteConfig route = svc.getRoutes().get(0);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiters.tryAcquire("svc", route, svc.getConcurrencyLimit());
+        assertThat(meters.get("gateway.upstream.concurrency.inflight").tag("upstream", "svc").gauge().value()).isEqualTo(1);
+        limiters.tryAcquire("svc", route, svc.getConcurrencyLimit());
+        assertThat(meters.get("gateway.upstream.concurrency.inflight").tag("upstream", "svc").gauge().value()).isEqualTo(2);
+
+        limiters.tryAcquire("svc", route, new ConcurrencyLimitConfig("aimd", 5, 1, 10));   // replaced service
+        assertThat(meters.get("gateway.upstream.concurrency.inflight").tag("upstream", "svc").gauge().value()).isEqualTo(1);
+        first.onIgnore();
+    }
+
+    @Test
+    void dropsLimitersAndMetersOfRemovedRoutes() {
+        RouterProperties.ServiceConfig svc = service("route", "http://a", "http://b");
+        services.registerService("svc", svc);
+        svc.getRoutes().forEach(r -> limiters.tryAcquire("svc", r, svc.getConcurrencyLimit()).onIgnore());
+        assertThat(limiters.size()).isEqualTo(2);
+
+        RouterProperties.ServiceConfig narrowed = service("route", "http://a");
+        narrowed.setConcurrencyLimit(svc.getConcurrencyLimit());
+        services.updateService("svc", narrowed);
+
+        assertThat(limiters.size()).isEqualTo(1);
+        assertThat(meters.find("gateway.upstream.concurrency.limit").tag("upstream", "svc|http://b").gauge()).isNull();
+        assertThat(meters.find("gateway.upstream.concurrency.rejected").tag("upstream", "svc|http://b").counter()).isNull();
+        assertThat(meters.find("gateway.upstream.concurrency.limit").tag("upstream", "svc|http://a").gauge()).isNotNull();
+
+        services.removeService("svc");
+        assertThat(limiters.size()).isZero();
+        assertThat(meters.getMeters()).isEmpty();
+    }
+
+    private static RouterProperties.ServiceConfig service(String scope, String... targets) {
+        ConcurrencyLimitConfig cfg = new ConcurrencyLimitConfig("aimd", 10, 1, 10);
+        cfg.setScope(scope);
+        RouterProperties.ServiceConfig svc = new RouterProperties.ServiceConfig();
+        svc.setConcurrencyLimit(cfg);
+        svc.setRoutes(List.of(targets).stream().map(t -> {
+            RouterProperties.RouteConfig route = new RouterProperties.RouteConfig();
+            route.setPath("/**");
+            route.setTargetUrl(t);
+            return route;
+        }).toList());
+        return svc;
+    }
+}
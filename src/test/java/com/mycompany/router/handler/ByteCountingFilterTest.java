@@ -0,0 +1,86 @@
+package com.mycompany.router.handler;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteCountingFilterTest {
+
+    private final ByteCountingFilter filter = new ByteCountingFilter();
+    private final List<String> done = new ArrayList<>();
+
+    @Test
+    void countsChunkedBodiesBothWaysAndRunsDeferredWorkAfterTheResponse() {
+        MockServerWebExchange ex = MockServerWebExchange.from(MockServerHttpRequest.post("/svc/upload")
+                .header("Transfer-Encoding", "chunked")
+                .body(Flux.just(buffer("a".repeat(1000)), buffer("b".repeat(24)))));
+
+        filter.filter(ex, e -> {
+            ExchangeBytes bytes = e.getAttribute(ExchangeBytes.ATTRIBUTE);
+            bytes.whenComplete(() -> done.add(bytes.requestBytes() + "/" + bytes.responseBytes()));
+            return DataBufferUtils.join(e.getRequest().getBody())
+                    .doOnNext(DataBufferUtils::release)
+                    .then(e.getResponse().writeWith(Flux.just(buffer("x".repeat(4096)), buffer("y"))))
+                    .doOnSuccess(v -> done.add("written"));
+        }).block();
+
+        assertThat(done).containsExactly("written", "1024/4097");
+        assertThat(ex.getResponse().getBodyAsString().block()).hasSize(4097);
+    }
+
+    @Test
+    void countsSingleBufferAndStreamedWrites() {
+        MockServerWebExchange ex = MockServerWebExchange.from(MockServerHttpRequest.get("/svc/stream"));
+        ExchangeBytes[] seen = new ExchangeBytes[1];
+
+        filter.filter(ex, e -> {
+            seen[0] = e.getAttribute(ExchangeBytes.ATTRIBUTE);
+            return e.getResponse().writeAndFlushWith(Flux.just(
+                    Flux.just(buffer("event: 1\n\n")), Flux.just(buffer("event: 2\n\n"), buffer("event: 3\n\n"))));
+        }).block();
+
+        assertThat(seen[0].requestBytes()).isZero();
+        assertThat(seen[0].responseBytes()).isEqualTo(30);
+
+        MockServerWebExchange single = MockServerWebExchange.from(MockServerHttpRequest.get("/svc/one"));
+        filter.filter(single, e -> {
+            seen[0] = e.getAttribute(ExchangeBytes.ATTRIBUTE);
+            return e.getResponse().writeWith(Mono.just(buffer("{\"ok\":true}")));
+        }).block();
+        assertThat(seen[0].responseBytes()).isEqualTo(11);
+    }
+
+    @Test
+    void deferredWorkRunsWhenTheChainFailsAndOnlyOnce() {
+        MockServerWebExchange ex = MockServerWebExchange.from(MockServerHttpRequest.get("/svc/boom"));
+
+        Mono<Void> chain = filter.filter(ex, e -> {
+            ExchangeBytes bytes = e.getAttribute(ExchangeBytes.ATTRIBUTE);
+            bytes.whenComplete(() -> done.add("first"));
+            bytes.whenComplete(() -> done.add("second"));
+            return Mono.error(new IllegalStateException("boom"));
+        });
+        chain.onErrorResume(e -> Mono.empty()).block();
+
+        assertThat(done).containsExactly("first", "second");
+        ExchangeBytes late = (ExchangeBytes) ex.getAttributes().get(ExchangeBytes.ATTRIBUTE);
+        late.complete();
+        late.whenComplete(() -> done.add("late"));   // already over: runs at once
+        assertThat(done).containsExactly("first", "second", "late");
+    }
+
+    private static DataBuffer buffer(String s) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mycompany.router.heavyhitters;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void hashesBytesAndStringsWithSipHash13() {
+        // key 00..0f, as in the SipHash reference vectors
+        CountMinSketch sketch = new CountMinSketch(4, 1024, 1, keys(506097522914230528L, 1084818905618843912L));
+        byte[] message = new byte[15];
+        for (int i = 0; i < message.length; i++) message[i] = (byte) i;
+
+        assertThat(sketch.hash(message)).isEqualTo(-3233346569078990506L);
+        assertThat(sketch.hash("héllo-wörld!")).isEqualTo(-3519849922510972429L)
+                .isEqualTo(sketch.hash("héllo-wörld!".getBytes(StandardCharsets.UTF_16LE)));
+    }
+
+    @Test
+    void addressesWithTheSameHashCodeGetTheirOwnCounters() throws Exception {
+        InetAddress victim = InetAddress.getByName("2001:db8:0:1::5");
+        InetAddress attacker = InetAddress.getByName("2001:db8:0:1:0:1:0:4");   // same /64, words summing the same
+        assertThat(attacker.hashCode()).isEqualTo(victim.hashCode());
+
+        CountMinSketch sketch = new CountMinSketch(4, 1024, 1);
+        for (int i = 0; i < 1_000; i++) sketch.add(sketch.hash(attacker.getAddress()));
+
+        assertThat(sketch.estimate(sketch.hash(victim.getAddress()))).isZero();
+        assertThat(sketch.estimate(sketch.hash(attacker.getAddress()))).isEqualTo(1_000);
+    }
+
+    private static Random keys(long k0, long k1) {
+        return new Random() {
+            private int next;
+
+            @Override
+            public long nextLong() {
+                return next++ == 0 ? k0 : k1;
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.mycompany.router.heavyhitters;
+
+import com.mycompany.router.auth.Principal;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterDetectorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void findsTheFloodingPrincipalAmongMostlyDistinctTraffic() throws Exception {
+        HeavyHitterDetector detector = detector(0, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            done.add(pool.submit(() -> {
+                for (int i = 0; i < 25_000; i++) {
+                    String id = i % 5 == 0 ? "flooder" : i % 7 == 0 ? "busy" : "p-" + thread + "-" + i;
+                    detector.record(principal(id), ip(i % 50), "/orders/" + i);
+                }
+            }));
+        }
+        for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        List<HeavyHitter> principals = detector.top(HeavyHitterDetector.PRINCIPAL, 2);
+        assertThat(principals).extracting(HeavyHitter::key).containsExactly("flooder", "busy");
+        assertThat(principals.get(0).estimate()).isBetween(20_000L, 20_500L);   // 4 × 5 000, plus collisions
+        assertThat(principals.get(0).overLimit()).isFalse();
+        assertThat(detector.top(HeavyHitterDetector.CLIENT_IP, 50)).hasSize(50)
+                .allSatisfy(h -> assertThat(h.estimate()).isGreaterThanOrEqualTo(2_000));
+        assertThat(detector.top("nope", 1)).isNull();
+    }
+
+    @Test
+    void countsLeaveTheWindowOneBucketAtATime() {
+        HeavyHitterDetector detector = detector(0, 0);   // 6 buckets
+        for (int i = 0; i < 600; i++) detector.record(principal("a"), null, null);
+        for (int b = 1; b < 6; b++) {
+            detector.rotate();
+            for (int i = 0; i < 10; i++) detector.record(principal("b"), null, null);
+        }
+        assertThat(detector.top(HeavyHitterDetector.PRINCIPAL, 1).get(0).key()).isEqualTo("a");
+
+        detector.rotate();   // a's bucket expires
+        List<HeavyHitter> top = detector.top(HeavyHitterDetector.PRINCIPAL, 5);
+        assertThat(top).extracting(HeavyHitter::key).containsExactly("b");
+        assertThat(top.get(0).estimate()).isEqualTo(50);
+        assertThat(registry.get("gateway.heavy_hitters.top_estimate").tag("dimension", "principal").gauge().value())
+                .isEqualTo(50);
+    }
+
+    @Test
+    void throttlesOnlyKeysOverTheirLimitAndNeverAnonymousPrincipals() {
+        HeavyHitterDetector detector = detector(100, 1_000);
+        InetAddress shared = ip(1);
+        for (int i = 0; i < 100; i++) {
+            assertThat(detector.record(principal("abuser"), shared, "/x")).isNull();
+        }
+        assertThat(detector.record(principal("abuser"), shared, "/x")).isEqualTo(HeavyHitterDetector.PRINCIPAL);
+        assertThat(detector.record(principal("quiet"), shared, "/x")).isNull();
+        for (int i = 0; i < 2_000; i++) {
+            detector.record(Principal.anonymous("10.0.0.1"), ip(2), "/x");
+        }
+        assertThat(detector.record(Principal.anonymous("10.0.0.1"), ip(2), "/x")).isEqualTo(HeavyHitterDetector.CLIENT_IP);
+        assertThat(detector.top(HeavyHitterDetector.PRINCIPAL, 5)).extracting(HeavyHitter::key)
+                .containsExactly("abuser", "quiet");
+        assertThat(registry.get("gateway.heavy_hitters.throttled").tag("dimension", "principal").counter().count())
+                .isEqualTo(1);
+
+        for (int b = 0; b < 6; b++) detector.rotate();
+        assertThat(detector.record(principal("abuser"), shared, "/x")).isNull();
+    }
+
+    @Test
+    void disabledRecordsNothing() {
+        RouterProperties.HeavyHitterConfig cfg = new RouterProperties.HeavyHitterConfig();
+        cfg.setEnabled(false);
+        cfg.setPrincipalLimit(1);
+        HeavyHitterDetector detector = new HeavyHitterDetector(cfg, registry, false);
+        for (int i = 0; i < 10; i++) assertThat(detector.record(principal("a"), ip(1), "/x")).isNull();
+        assertThat(detector.top(10).values()).allSatisfy(l -> assertThat(l).isEmpty());
+    }
+
+    private HeavyHitterDetector detector(long principalLimit, long clientIpLimit) {
+        RouterProperties.HeavyHitterConfig cfg = new RouterProperties.HeavyHitterConfig();
+        cfg.setPrincipalLimit(principalLimit);
+        cfg.setClientIpLimit(clientIpLimit);
+        return new HeavyHitterDetector(cfg, registry, false);
+    }
+
+    private static Principal principal(String id) {
+        return new Principal(id, "basic", Set.of(), false);
+    }
+
+    private static InetAddress ip(int i) {
+        try {
+            return InetAddress.getByAddress(new byte[]{10, 1, (byte) (i >> 8), (byte) i});
+        } catch (java.net.UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
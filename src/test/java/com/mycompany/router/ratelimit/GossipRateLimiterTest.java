@@ -0,0 +1,159 @@
+package com.mycompany.router.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GossipRateLimiterTest {
+
+    @Test
+    void peerConsumptionIsDeducted() {
+        CapturingTransport ta = new CapturingTransport();
+        GossipRateLimiter a = new GossipRateLimiter("a", ta, Duration.ofSeconds(1));
+        GossipRateLimiter b = new GossipRateLimiter("b", new CapturingTransport(), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(a.check("k", 10, Duration.ofMinutes(1)).block().allowed()).isTrue();
+        }
+        a.flush();
+        ta.sent.forEach(b::receive);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(b.check("k", 10, Duration.ofMinutes(1)).block().allowed()).isTrue();
+        }
+        assertThat(b.check("k", 10, Duration.ofMinutes(1)).block().allowed()).isFalse();
+    }
+
+    @Test
+    void duplicateAndReorderedDatagramsAreIdempotent() {
+        CapturingTransport ta = new CapturingTransport();
+        GossipRateLimiter a = new GossipRateLimiter("a", ta, Duration.ofSeconds(1));
+        GossipRateLimiter b = new GossipRateLimiter("b", new CapturingTransport(), Duration.ofSeconds(1));
+
+        a.check("k", 10, Duration.ofMinutes(1)).block();
+        a.check("k", 10, Duration.ofMinutes(1)).block();
+        a.flush();
+        a.check("k", 10, Duration.ofMinutes(1)).block();
+        a.flush();
+        assertThat(ta.sent).hasSize(2);
+
+        // replays and stale datagrams after the newest one must not double-count
+        b.receive(ta.sent.get(0).duplicate());
+        b.receive(ta.sent.get(0).duplicate());
+        b.receive(ta.sent.get(1).duplicate());
+        b.receive(ta.sent.get(0).duplicate());
+        b.receive(ta.sent.get(1).duplicate());
+
+        assertThat(b.check("k", 10, Duration.ofMinutes(1)).block().remaining()).isEqualTo(6);
+    }
+
+    @Test
+    void aKeyRecreatedAfterEvictionIsStillDebitedByPeers() {
+        CapturingTransport ta = new CapturingTransport();
+        GossipRateLimiter a = new GossipRateLimiter("a", ta, Duration.ofSeconds(1));
+        GossipRateLimiter b = new GossipRateLimiter("b", new CapturingTransport(), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 6; i++) a.check("k", 10, Duration.ofMinutes(1)).block();
+        a.flush();
+        ta.sent.forEach(b::receive);
+        ta.sent.clear();
+
+        a.evictIdle(System.currentTimeMillis() + Duration.ofMinutes(3).toMillis());
+        assertThat(a.trackedKeys()).isZero();
+        for (int i = 0; i < 3; i++) a.check("k", 10, Duration.ofMinutes(1)).block();   // counter restarts at 3
+        a.flush();
+        ta.sent.forEach(b::receive);
+
+        assertThat(b.check("k", 10, Duration.ofMinutes(1)).block().allowed()).isTrue();    // 10 - 6 - 3
+        assertThat(b.check("k", 10, Duration.ofMinutes(1)).block().allowed()).isFalse();
+    }
+
+    @Test
+    void malformedPeersFailAtConstruction() {
+        for (String bad : List.of("no-port", ":7946", "host:", "host:abc", "host:70000")) {
+            assertThatThrownBy(() -> new UdpGossipTransport("127.0.0.1", 0, List.of("127.0.0.1:7946", bad)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining(bad);
+        }
+    }
+
+    @Test
+    void ignoresGarbage() {
+        GossipRateLimiter b = new GossipRateLimiter("b", new CapturingTransport(), Duration.ofSeconds(1));
+        b.receive(ByteBuffer.wrap(new byte[] {'G', 2, 0, 9}));
+        b.receive(ByteBuffer.wrap(new byte[] {'x'}));
+        assertThat(b.trackedKeys()).isZero();
+    }
+
+    /**
+     * Harness: three limiters on localhost UDP share one 300/min budget while
+     * each is driven at ~1 req/ms. Over-admission should stay near the
+     * documented bound of (N - 1) * rate * syncInterval = 2 * 1/ms * 20ms.
+     */
+    @Test
+    void threeNodesOnLocalhostStayNearGlobalLimit() throws Exception {
+        int nodes = 3;
+        long limit = 300;
+        int[] ports = freePorts(nodes);
+        List<String> peers = new ArrayList<>();
+        for (int p : ports) peers.add("127.0.0.1:" + p);
+
+        List<GossipRateLimiter> limiters = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            UdpGossipTransport t = new UdpGossipTransport("127.0.0.1", ports[i], peers);
+            limiters.add(new GossipRateLimiter("node-" + i, t, Duration.ofMillis(20)).start());
+        }
+        try {
+            long admitted = 0;
+            long deadline = System.nanoTime() + Duration.ofMillis(1500).toNanos();
+            while (System.nanoTime() < deadline) {
+                for (GossipRateLimiter rl : limiters) {
+                    if (rl.check("rl:svc:shared", limit, Duration.ofMinutes(1)).block().allowed()) {
+                        admitted++;
+                    }
+                }
+                LockSupport.parkNanos(1_000_000);
+            }
+            long refilled = limit * 2 / 60; // ~1.5 s of refill, rounded up
+            long overAdmission = admitted - limit - refilled;
+            assertThat(admitted).isGreaterThanOrEqualTo(limit);
+            assertThat(overAdmission).isLessThan(limit / 2);
+        } finally {
+            limiters.forEach(GossipRateLimiter::close);
+        }
+    }
+
+    private static int[] freePorts(int n) throws Exception {
+        int[] ports = new int[n];
+        DatagramSocket[] sockets = new DatagramSocket[n];
+        for (int i = 0; i < n; i++) {
+            sockets[i] = new DatagramSocket(0);
+            ports[i] = sockets[i].getLocalPort();
+        }
+        for (DatagramSocket s : sockets) s.close();
+        return ports;
+    }
+
+    private static final class CapturingTransport implements GossipTransport {
+        final List<ByteBuffer> sent = new ArrayList<>();
+
+        @Override public void start(Consumer<ByteBuffer> receiver) {}
+
+        @Override public void broadcast(ByteBuffer payload) {
+            ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+            copy.put(payload.duplicate()).flip();
+            sent.add(copy);
+        }
+
+        @Override public void close() {}
+    }
+}
@@ -0,0 +1,57 @@
+package com.mycompany.router.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalConcurrentRequestLimiterTest {
+
+    @Test
+    void deniesBeyondCapAndReleasesOnce() {
+        LocalConcurrentRequestLimiter cc = new LocalConcurrentRequestLimiter();
+        ConcurrentRequestLimiter.Lease a = cc.acquire("k", 2).block();
+        ConcurrentRequestLimiter.Lease b = cc.acquire("k", 2).block();
+        assertThat(a.granted()).isTrue();
+        assertThat(b.granted()).isTrue();
+        assertThat(cc.acquire("k", 2).block().granted()).isFalse();
+        assertThat(cc.acquire("other", 2).block().granted()).isTrue();
+
+        a.release();
+        a.release();
+        assertThat(cc.inflight("k")).isEqualTo(1);
+        b.release();
+        assertThat(cc.inflight("k")).isZero();
+    }
+
+    @Test
+    void neverExceedsCapUnderContention() throws Exception {
+        LocalConcurrentRequestLimiter cc = new LocalConcurrentRequestLimiter();
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxSeen = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < 5_000; j++) {
+                    ConcurrentRequestLimiter.Lease lease = cc.tryAcquire("k", 3);
+                    if (!lease.granted()) continue;
+                    maxSeen.accumulateAndGet(held.incrementAndGet(), Math::max);
+                    held.decrementAndGet();
+                    lease.release();
+                }
+            });
+        }
+        tasks.forEach(pool::execute);
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxSeen.get()).isLessThanOrEqualTo(3);
+        assertThat(cc.inflight("k")).isZero();
+    }
+}
@@ -0,0 +1,76 @@
+package com.mycompany.router.ratelimit;
+
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Exercises the lease semaphore script against a real Redis.
+ * Runs with {@code mvn -Dtest=RedisConcurrentRequestLimiterIT test}.
+ */
+@Testcontainers
+class RedisConcurrentRequestLimiterIT {
+
+    static RedisContainer redis;
+    static LettuceConnectionFactory factory;
+    static ReactiveStringRedisTemplate template;
+
+    @BeforeAll
+    static void up() {
+        redis = new RedisContainer(DockerImageName.parse("redis:7-alpine"));
+        redis.start();
+        factory = new LettuceConnectionFactory(redis.getRedisHost(), redis.getRedisPort());
+        factory.afterPropertiesSet();
+        template = new ReactiveStringRedisTemplate(factory);
+    }
+
+    @AfterAll
+    static void down() {
+        factory.destroy();
+        redis.stop();
+    }
+
+    @Test
+    void capsAndReleases() {
+        RedisConcurrentRequestLimiter cc = new RedisConcurrentRequestLimiter(template, 60_000);
+        ConcurrentRequestLimiter.Lease a = cc.acquire("cc:it:a", 2).block();
+        ConcurrentRequestLimiter.Lease b = cc.acquire("cc:it:a", 2).block();
+        assertThat(a.granted()).isTrue();
+        assertThat(b.granted()).isTrue();
+        assertThat(cc.acquire("cc:it:a", 2).block().granted()).isFalse();
+
+        a.release();
+        await().atMost(Duration.ofSeconds(2))
+                .until(() -> cc.acquire("cc:it:a", 2).block().granted());
+    }
+
+    @Test
+    void cancelledAcquiresDoNotLeakTheirLease() {
+        RedisConcurrentRequestLimiter cc = new RedisConcurrentRequestLimiter(template, 60_000);
+        for (int i = 0; i < 20; i++) {
+            cc.acquire("cc:it:c", 1).subscribe().dispose();
+        }
+        await().atMost(Duration.ofSeconds(2))
+                .until(() -> template.opsForZSet().size("cc:it:c").block() == 0L);
+        assertThat(cc.acquire("cc:it:c", 1).block().granted()).isTrue();
+    }
+
+    @Test
+    void expiredLeasesAreReclaimed() throws InterruptedException {
+        RedisConcurrentRequestLimiter cc = new RedisConcurrentRequestLimiter(template, 200);
+        assertThat(cc.acquire("cc:it:b", 1).block().granted()).isTrue();
+        assertThat(cc.acquire("cc:it:b", 1).block().granted()).isFalse();
+        Thread.sleep(300);
+        assertThat(cc.acquire("cc:it:b", 1).block().granted()).isTrue();
+    }
+}
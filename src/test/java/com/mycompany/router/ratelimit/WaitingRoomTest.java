@@ -0,0 +1,77 @@
+package com.mycompany.router.ratelimit;
+
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WaitingRoomTest {
+
+    private final LocalTokenBucketRateLimiter rl = new LocalTokenBucketRateLimiter();
+    private WaitingRoom room;
+
+    @AfterEach
+    void close() {
+        if (room != null) room.close();
+    }
+
+    @Test
+    void holdsShortDenialsUntilATokenFrees() {
+        room = room(new RouterProperties.WaitingRoomTier(500, 10));
+        // 20/s → one token every 50 ms
+        for (int i = 0; i < 20; i++) rl.check("k", 20, Duration.ofSeconds(1)).block();
+        RateLimitDecision denied = rl.check("k", 20, Duration.ofSeconds(1)).block();
+        assertThat(denied.allowed()).isFalse();
+
+        StepVerifier.create(room.admit("premium", denied, () -> rl.check("k", 20, Duration.ofSeconds(1))))
+                .assertNext(d -> assertThat(d.allowed()).isTrue())
+                .verifyComplete();
+        assertThat(room.depth("premium")).isZero();
+    }
+
+    @Test
+    void unlistedTiersAndLongRetriesAre429Immediately() {
+        room = room(new RouterProperties.WaitingRoomTier(50, 10));
+        RateLimitDecision shortDenial = RateLimitDecision.denied(0, 10, 1);
+        RateLimitDecision longDenial = RateLimitDecision.denied(0, 5_000, 1);
+
+        assertThat(room.admit("basic", shortDenial, this::neverCalled).block()).isSameAs(shortDenial);
+        assertThat(room.admit("premium", longDenial, this::neverCalled).block()).isSameAs(longDenial);
+    }
+
+    @Test
+    void givesUpWhenBudgetRunsOut() {
+        room = room(new RouterProperties.WaitingRoomTier(60, 10));
+        RateLimitDecision denied = RateLimitDecision.denied(0, 25, 1);
+        StepVerifier.create(room.admit("premium", denied, () -> Mono.just(denied)))
+                .assertNext(d -> assertThat(d.allowed()).isFalse())
+                .verifyComplete();
+    }
+
+    @Test
+    void rejectsWhenTierQueueIsFull() {
+        room = room(new RouterProperties.WaitingRoomTier(1_000, 1));
+        RateLimitDecision denied = RateLimitDecision.denied(0, 500, 1);
+        room.admit("premium", denied, () -> Mono.just(RateLimitDecision.allowed(0, 1))).subscribe();
+        assertThat(room.depth("premium")).isEqualTo(1);
+
+        assertThat(room.admit("premium", denied, this::neverCalled).block()).isSameAs(denied);
+    }
+
+    private WaitingRoom room(RouterProperties.WaitingRoomTier premium) {
+        RouterProperties.WaitingRoomConfig cfg = new RouterProperties.WaitingRoomConfig();
+        cfg.setEnabled(true);
+        cfg.getTiers().put("premium", premium);
+        return new WaitingRoom(cfg, new SimpleMeterRegistry());
+    }
+
+    private Mono<RateLimitDecision> neverCalled() {
+        throw new AssertionError("limiter must not be re-checked");
+    }
+}
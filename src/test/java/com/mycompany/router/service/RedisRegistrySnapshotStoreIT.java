@@ -0,0 +1,77 @@
+package com.mycompany.router.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mycompany.router.config.RateLimitConfig;
+import com.mycompany.router.config.RouterProperties;
+import com.redis.testcontainers.RedisContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare-and-set, pub/sub fan-out and catch-up against a real Redis.
+ * Runs with {@code mvn -Dtest=RedisRegistrySnapshotStoreIT test}.
+ */
+@Testcontainers
+class RedisRegistrySnapshotStoreIT {
+
+    static RedisContainer redis;
+    static LettuceConnectionFactory factory;
+    static ReactiveStringRedisTemplate template;
+
+    @BeforeAll
+    static void up() {
+        redis = new RedisContainer(DockerImageName.parse("redis:7-alpine"));
+        redis.start();
+        factory = new LettuceConnectionFactory(redis.getRedisHost(), redis.getRedisPort());
+        factory.afterPropertiesSet();
+        template = new ReactiveStringRedisTemplate(factory);
+    }
+
+    @AfterAll
+    static void down() {
+        factory.destroy();
+        redis.stop();
+    }
+
+    @Test
+    void casRejectsStaleWritersAndEveryNodeConverges() {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        RedisRegistrySnapshotStore store = new RedisRegistrySnapshotStore(template, mapper, "it:registry", "it:registry:snapshots");
+
+        RouterProperties.ServiceConfig svc = new RouterProperties.ServiceConfig();
+        svc.setBaseUrl("http://svc");
+        svc.setDefaultRateLimit(new RateLimitConfig(100, "SECOND"));
+        assertThat(store.compareAndSet(0, new RegistrySnapshot(1, Map.of("svc", svc), 1L)).block()).isTrue();
+        assertThat(store.compareAndSet(0, new RegistrySnapshot(1, Map.of(), 2L)).block()).isFalse();
+        RegistrySnapshot latest = store.latest().block();
+        assertThat(latest.version()).isEqualTo(1);
+        assertThat(latest.services().get("svc").getDefaultRateLimit().getLimit()).isEqualTo(100);
+
+        ServiceRegistry nodeA = new ServiceRegistry();
+        ServiceRegistry nodeB = new ServiceRegistry();
+        try (RegistrySync a = new RegistrySync(nodeA, store, Duration.ofSeconds(1), 5, new SimpleMeterRegistry()).start();
+             RegistrySync b = new RegistrySync(nodeB, store, Duration.ofSeconds(1), 5, new SimpleMeterRegistry()).start()) {
+            assertThat(nodeB.version()).isEqualTo(1);
+
+            a.mutate(services -> {
+                services.remove("svc");
+                return services;
+            }).block();
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> nodeB.version() == 2);
+            assertThat(nodeB.getAllServices()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.mycompany.router.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mycompany.router.concurrency.UpstreamConcurrencyLimiters;
+import com.mycompany.router.config.ConcurrencyLimitConfig;
+import com.mycompany.router.config.RateLimitConfig;
+import com.mycompany.router.config.RouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RegistrySyncTest {
+
+    private final LocalRegistrySnapshotStore store = new LocalRegistrySnapshotStore();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private RegistrySync a;
+    private RegistrySync b;
+
+    @AfterEach
+    void stop() {
+        if (a != null) a.close();
+        if (b != null) b.close();
+    }
+
+    @Test
+    void aChangeOnOneNodeReachesTheOtherAndTheVersionGauge() {
+        ServiceRegistry nodeA = registry("svc", "http://boot");
+        ServiceRegistry nodeB = registry("svc", "http://boot");
+        a = sync(nodeA, store);
+        b = sync(nodeB, store);
+
+        RegistrySnapshot published = a.mutate(services -> {
+            services.put("new", service("http://new"));
+            return services;
+        }).block();
+
+        assertThat(published.version()).isEqualTo(1);
+        assertThat(nodeB.version()).isEqualTo(1);
+        assertThat(nodeB.getService("new").getBaseUrl()).isEqualTo("http://new");
+        assertThat(nodeB.getService("svc").getBaseUrl()).isEqualTo("http://boot");
+
+        b.mutate(services -> services.remove("svc") == null ? null : services).block();
+        assertThat(nodeA.version()).isEqualTo(2);
+        assertThat(nodeA.getService("svc")).isNull();
+        assertThat(meters.get("gateway.config.version").gauges()).allMatch(g -> g.value() == 2);
+
+        assertThat(a.mutate(services -> services.remove("svc") == null ? null : services).blockOptional()).isEmpty();
+        assertThat(nodeA.version()).isEqualTo(2);
+    }
+
+    @Test
+    void applyingIsIdempotentAndNeverGoesBack() {
+        ServiceRegistry registry = registry("svc", "http://boot");
+        RegistrySnapshot v2 = new RegistrySnapshot(2, Map.of("svc", service("http://v2")), 0);
+        RegistrySnapshot v1 = new RegistrySnapshot(1, Map.of("svc", service("http://v1")), 0);
+
+        assertThat(registry.apply(v2)).isTrue();
+        assertThat(registry.apply(v2)).isFalse();
+        assertThat(registry.apply(v1)).isFalse();
+        assertThat(registry.getService("svc").getBaseUrl()).isEqualTo("http://v2");
+        assertThat(registry.version()).isEqualTo(2);
+    }
+
+    @Test
+    void aNodeStartingLateCatchesUpFromTheLatestSnapshot() {
+        a = sync(registry("svc", "http://boot"), store);
+        a.mutate(services -> {
+            services.put("svc", service("http://fleet"));
+            return services;
+        }).block();
+
+        ServiceRegistry late = registry("svc", "http://stale-config-file");
+        b = sync(late, store);
+
+        assertThat(late.version()).isEqualTo(1);
+        assertThat(late.getService("svc").getBaseUrl()).isEqualTo("http://fleet");
+    }
+
+    @Test
+    void losingTheRaceRereadsAndRetriesThenGivesUp() {
+        AtomicInteger lost = new AtomicInteger(2);
+        RegistrySnapshotStore contended = new RegistrySnapshotStore() {
+            @Override public Mono<RegistrySnapshot> latest() { return store.latest(); }
+            @Override public Flux<RegistrySnapshot> snapshots() { return store.snapshots(); }
+            @Override public Mono<Boolean> compareAndSet(long expected, RegistrySnapshot next) {
+                if (lost.getAndDecrement() > 0) {   // someone else publishes in between
+                    long current = store.latest().map(RegistrySnapshot::version).defaultIfEmpty(0L).block();
+                    store.compareAndSet(current, new RegistrySnapshot(current + 1, Map.of(), 0)).block();
+                }
+                return store.compareAndSet(expected, next);
+            }
+        };
+        ServiceRegistry registry = registry("svc", "http://boot");
+        a = sync(registry, contended);
+
+        RegistrySnapshot published = a.mutate(services -> {
+            services.put("mine", service("http://mine"));
+            return services;
+        }).block();
+        assertThat(published.version()).isEqualTo(3);
+        assertThat(registry.getAllServices()).containsOnlyKeys("mine");   // built on the winner's snapshot
+
+        lost.set(Integer.MAX_VALUE);
+        assertThatThrownBy(() -> a.mutate(services -> services).block())
+                .isInstanceOf(ConcurrentModificationException.class);
+    }
+
+    @Test
+    void aLimiterSurvivesAnEditToAnUnrelatedService() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ServiceRegistry registry = new ServiceRegistry();
+        RouterProperties.ServiceConfig svc = service("http://svc");
+        svc.setConcurrencyLimit(new ConcurrencyLimitConfig("aimd", 10, 1, 10));
+        registry.registerService("svc", svc);
+        UpstreamConcurrencyLimiters limiters = new UpstreamConcurrencyLimiters(meters, registry);
+        assertThat(limiters.tryAcquire("svc", null, registry.getService("svc").getConcurrencyLimit())).isNotNull();
+
+        Map<String, RouterProperties.ServiceConfig> edited = new HashMap<>(registry.getAllServices());
+        edited.put("other", service("http://other"));
+        RegistrySnapshot stored = mapper.readValue(   // what every node gets back from the store
+                mapper.writeValueAsString(new RegistrySnapshot(1, edited, 0)), RegistrySnapshot.class);
+        registry.apply(stored);
+        assertThat(registry.getService("svc").getConcurrencyLimit()).isNotSameAs(svc.getConcurrencyLimit());
+
+        assertThat(limiters.tryAcquire("svc", null, registry.getService("svc").getConcurrencyLimit())).isNotNull();
+        assertThat(meters.get("gateway.upstream.concurrency.inflight").tag("upstream", "svc").gauge().value())
+                .isEqualTo(2);   // the first permit is still counted by the same limiter
+    }
+
+    @Test
+    void snapshotsRoundTripThroughJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        RouterProperties.ServiceConfig svc = service("http://svc");
+        svc.setDefaultRateLimit(new RateLimitConfig(100, "SECOND"));
+        RouterProperties.RouteConfig route = new RouterProperties.RouteConfig();
+        route.setPath("/v2/**");
+        route.setWeight(10);
+        svc.setRoutes(List.of(route));
+
+        RegistrySnapshot back = mapper.readValue(
+                mapper.writeValueAsString(new RegistrySnapshot(7, Map.of("svc", svc), 42L)), RegistrySnapshot.class);
+
+        assertThat(back.version()).isEqualTo(7);
+        assertThat(back.publishedAtMs()).isEqualTo(42L);
+        assertThat(back.services().get("svc").getDefaultRateLimit().getPeriod()).isEqualTo("SECOND");
+        assertThat(back.services().get("svc").getRoutes().get(0).getWeight()).isEqualTo(10);
+    }
+
+    private RegistrySync sync(ServiceRegistry registry, RegistrySnapshotStore store) {
+        return new RegistrySync(registry, store, Duration.ofHours(1), 3, meters).start();
+    }
+
+    private static ServiceRegistry registry(String name, String baseUrl) {
+        ServiceRegistry registry = new ServiceRegistry();
+        registry.registerService(name, service(baseUrl));
+        return registry;
+    }
+
+    private static RouterProperties.ServiceConfig service(String baseUrl) {
+        RouterProperties.ServiceConfig config = new RouterProperties.ServiceConfig();
+        config.setBaseUrl(baseUrl);
+        return config;
+    }
+}